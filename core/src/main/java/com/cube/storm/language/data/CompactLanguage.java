@@ -0,0 +1,142 @@
+package com.cube.storm.language.data;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Language model which stores its keys with front coding, see {@link FrontCodedKeys}.
+ * <p/>
+ * Values are held in an array parallel to the sorted keys. Because the keys of a language pack share long prefixes, such as
+ * {@code _STORM_}, this cuts the memory used for keys substantially compared to the hash map of {@link Language}.
+ * <p/>
+ * {@link #getValues()} builds a new map of every key/value pair each time it is called, avoid it outside of debugging.
+ *
+ * @project LightningLanguage
+ */
+public class CompactLanguage extends Language
+{
+	/**
+	 * Front coded keys of the language
+	 */
+	protected FrontCodedKeys keys;
+
+	/**
+	 * Values of the language, by key ordinal
+	 */
+	protected String[] orderedValues;
+
+	/**
+	 * Creates a compact copy of a language. The values map of {@param language} is not modified.
+	 *
+	 * @param language The language to copy
+	 */
+	public CompactLanguage(@NonNull Language language)
+	{
+		Map<String, String> source = language.getValues() == null ? new HashMap<String, String>(0) : language.getValues();
+
+		this.sourceUri = language.getSourceUri();
+		this.fingerprint = language.getFingerprint();
+		this.keys = FrontCodedKeys.build(source.keySet());
+		this.orderedValues = new String[keys.size()];
+		this.values = new HashMap<String, String>(0);
+
+		for (Map.Entry<String, String> entry : source.entrySet())
+		{
+			orderedValues[keys.indexOf(entry.getKey())] = entry.getValue();
+		}
+	}
+
+	/**
+	 * @return The front coded keys of the language
+	 */
+	@NonNull
+	public FrontCodedKeys getKeys()
+	{
+		return keys;
+	}
+
+	/**
+	 * @return The front coded keys of the language, which are already sorted
+	 */
+	@NonNull @Override public FrontCodedKeys getSortedKeys()
+	{
+		return keys;
+	}
+
+	/**
+	 * Builds a map of every key/value pair in the language
+	 *
+	 * @return A new map of the values
+	 */
+	@Override public Map<String, String> getValues()
+	{
+		Map<String, String> values = new HashMap<String, String>(keys.size());
+
+		for (int ordinal = 0; ordinal < keys.size(); ordinal++)
+		{
+			values.put(keys.get(ordinal), orderedValues[ordinal]);
+		}
+
+		return values;
+	}
+
+	@Override public long getEstimatedSize()
+	{
+		long size = keys.getEncodedSize() + orderedValues.length * 4L + (indexedValues == null ? 0 : indexedValues.length * 4L);
+
+		for (String value : orderedValues)
+		{
+			size += value == null ? 0 : ENTRY_OVERHEAD / 2 + value.length() * 2;
+		}
+
+		return size;
+	}
+
+	@Override public void setValues(Map<String, String> values)
+	{
+		Language language = new Language();
+		language.setValues(values);
+
+		CompactLanguage compact = new CompactLanguage(language);
+		this.keys = compact.keys;
+		this.orderedValues = compact.orderedValues;
+
+		if (keyIndex != null)
+		{
+			index(keyIndex);
+		}
+	}
+
+	@Override public void index(@NonNull LanguageKeyIndex index)
+	{
+		String[] indexed = new String[index.size()];
+
+		for (int ordinal = 0; ordinal < keys.size(); ordinal++)
+		{
+			int id = index.getId(keys.get(ordinal));
+
+			if (id > -1)
+			{
+				indexed[id] = orderedValues[ordinal];
+			}
+		}
+
+		this.keyIndex = index;
+		this.indexedValues = indexed;
+	}
+
+	@NonNull @Override public String getValue(@NonNull String id)
+	{
+		int ordinal = keys.indexOf(id);
+		String value = ordinal < 0 ? null : orderedValues[ordinal];
+
+		return value == null ? "" : value;
+	}
+
+	@Override public boolean hasValue(@NonNull String id)
+	{
+		return keys.indexOf(id) > -1;
+	}
+}
@@ -0,0 +1,455 @@
+package com.cube.storm.language.data;
+
+import androidx.annotation.NonNull;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable, sorted set of keys stored with front coding.
+ * <p/>
+ * Keys are sorted and split into blocks of {@link #BLOCK_SIZE}. The first key of each block is stored in full, every other
+ * key only stores the length of the prefix it shares with the previous key and the remaining suffix. Language keys tend to
+ * share long prefixes such as {@code _STORM_} or {@code _SETTINGS_}, so this takes a fraction of the memory of the equivalent
+ * {@link String} objects.
+ * <p/>
+ * Each key has an ordinal, its position in sorted order, which is used to store values in a parallel array. Lookups binary
+ * search the block heads and then scan a single block, comparing in place without decoding keys.
+ * <p/>
+ * Because keys are sorted, the keys starting with a prefix, or within a range, are a contiguous run of ordinals. The run
+ * is found with two searches ({@link #lowerBound(CharSequence)} and {@link #prefixEnd(CharSequence)}), and decoded with
+ * {@link #range(int, int)} in time proportional to its length.
+ *
+ * @project LightningLanguage
+ */
+public class FrontCodedKeys implements Serializable
+{
+	/**
+	 * Number of keys per block
+	 */
+	private static final int BLOCK_SIZE = 16;
+
+	/**
+	 * Encoded keys. Block heads are stored as {@code length, chars}, other keys as {@code prefix length, suffix length, suffix chars}.
+	 */
+	private final char[] data;
+
+	/**
+	 * Offset in {@link #data} of each block
+	 */
+	private final int[] blockOffsets;
+
+	/**
+	 * Number of keys
+	 */
+	private final int size;
+
+	/**
+	 * Builds the front coded set from a collection of keys
+	 *
+	 * @param keys The keys to store. Duplicates are removed.
+	 *
+	 * @return The front coded keys
+	 */
+	@NonNull
+	public static FrontCodedKeys build(@NonNull Collection<String> keys)
+	{
+		String[] sorted = keys.toArray(new String[keys.size()]);
+		Arrays.sort(sorted);
+
+		int count = 0;
+		for (int index = 0; index < sorted.length; index++)
+		{
+			if (index == 0 || !sorted[index].equals(sorted[count - 1]))
+			{
+				sorted[count++] = sorted[index];
+			}
+		}
+
+		return new FrontCodedKeys(sorted, count);
+	}
+
+	/**
+	 * @param sorted The keys in sorted order, without duplicates
+	 * @param size The number of keys to use from {@param sorted}
+	 */
+	protected FrontCodedKeys(@NonNull String[] sorted, int size)
+	{
+		this.size = size;
+		this.blockOffsets = new int[(size + BLOCK_SIZE - 1) / BLOCK_SIZE];
+
+		int length = 0;
+		for (int index = 0; index < size; index++)
+		{
+			String key = sorted[index];
+
+			if (key.length() > Character.MAX_VALUE)
+			{
+				throw new IllegalArgumentException("Key is too long to encode: " + key.substring(0, 64) + "...");
+			}
+
+			length += index % BLOCK_SIZE == 0 ? 1 + key.length() : 2 + key.length() - commonPrefix(sorted[index - 1], key);
+		}
+
+		this.data = new char[length];
+
+		int offset = 0;
+		for (int index = 0; index < size; index++)
+		{
+			String key = sorted[index];
+
+			if (index % BLOCK_SIZE == 0)
+			{
+				blockOffsets[index / BLOCK_SIZE] = offset;
+				data[offset++] = (char)key.length();
+				key.getChars(0, key.length(), data, offset);
+				offset += key.length();
+			}
+			else
+			{
+				int prefix = commonPrefix(sorted[index - 1], key);
+				data[offset++] = (char)prefix;
+				data[offset++] = (char)(key.length() - prefix);
+				key.getChars(prefix, key.length(), data, offset);
+				offset += key.length() - prefix;
+			}
+		}
+	}
+
+	private static int commonPrefix(@NonNull String lhs, @NonNull String rhs)
+	{
+		int max = Math.min(lhs.length(), rhs.length());
+		int index = 0;
+
+		while (index < max && lhs.charAt(index) == rhs.charAt(index))
+		{
+			index++;
+		}
+
+		return index;
+	}
+
+	/**
+	 * @return The number of keys
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Finds the ordinal of a key
+	 *
+	 * @param key The key to look up
+	 *
+	 * @return The ordinal of the key, or -1 if it is not in the set
+	 */
+	public int indexOf(@NonNull CharSequence key)
+	{
+		int position = search(key);
+		return position < 0 ? -1 : position;
+	}
+
+	/**
+	 * Finds the ordinal of the first key that is greater than or equal to {@param key}
+	 *
+	 * @param key The key to search for
+	 *
+	 * @return The ordinal, or {@link #size()} if all keys are less than {@param key}
+	 */
+	public int lowerBound(@NonNull CharSequence key)
+	{
+		int position = search(key);
+		return position < 0 ? -position - 1 : position;
+	}
+
+	/**
+	 * Finds the ordinal after the last key that starts with {@param prefix}. Keys starting with the prefix are the ordinals
+	 * from {@link #lowerBound(CharSequence)} of the prefix up to, but not including, this.
+	 *
+	 * @param prefix The prefix to search for
+	 *
+	 * @return The ordinal, or {@link #size()} if the last key starts with the prefix
+	 */
+	public int prefixEnd(@NonNull CharSequence prefix)
+	{
+		// The smallest string greater than every string starting with the prefix is the prefix with its last char
+		// incremented, ignoring any trailing max value chars
+		int length = prefix.length();
+
+		while (length > 0 && prefix.charAt(length - 1) == Character.MAX_VALUE)
+		{
+			length--;
+		}
+
+		if (length == 0)
+		{
+			return size;
+		}
+
+		StringBuilder successor = new StringBuilder(length).append(prefix, 0, length);
+		successor.setCharAt(length - 1, (char)(successor.charAt(length - 1) + 1));
+
+		return lowerBound(successor);
+	}
+
+	/**
+	 * Counts the keys that start with {@param prefix}
+	 *
+	 * @param prefix The prefix to count
+	 *
+	 * @return The number of keys
+	 */
+	public int countPrefix(@NonNull CharSequence prefix)
+	{
+		return prefixEnd(prefix) - lowerBound(prefix);
+	}
+
+	/**
+	 * Decodes the keys in a range of ordinals. Keys are decoded in one pass, so this takes time proportional to the size of
+	 * the range rather than calling {@link #get(int)} for each ordinal.
+	 *
+	 * @param from The first ordinal, inclusive
+	 * @param to The last ordinal, exclusive
+	 *
+	 * @return The keys, in sorted order
+	 */
+	@NonNull
+	public List<String> range(int from, int to)
+	{
+		from = Math.max(0, from);
+		to = Math.min(size, to);
+
+		if (from >= to)
+		{
+			return new ArrayList<String>(0);
+		}
+
+		List<String> keys = new ArrayList<String>(to - from);
+		int ordinal = (from / BLOCK_SIZE) * BLOCK_SIZE;
+		int offset = blockOffsets[ordinal / BLOCK_SIZE];
+		char[] key = new char[64];
+		int length = 0;
+
+		for (; ordinal < to; ordinal++)
+		{
+			if (ordinal % BLOCK_SIZE == 0)
+			{
+				offset = blockOffsets[ordinal / BLOCK_SIZE];
+				length = data[offset];
+
+				if (length > key.length)
+				{
+					key = Arrays.copyOf(key, Math.max(length, key.length * 2));
+				}
+
+				System.arraycopy(data, offset + 1, key, 0, length);
+				offset += 1 + length;
+			}
+			else
+			{
+				int prefix = data[offset];
+				int suffixLength = data[offset + 1];
+				length = prefix + suffixLength;
+
+				if (length > key.length)
+				{
+					key = Arrays.copyOf(key, Math.max(length, key.length * 2));
+				}
+
+				System.arraycopy(data, offset + 2, key, prefix, suffixLength);
+				offset += 2 + suffixLength;
+			}
+
+			if (ordinal >= from)
+			{
+				keys.add(new String(key, 0, length));
+			}
+		}
+
+		return keys;
+	}
+
+	/**
+	 * Searches for a key, in the same way as {@link Arrays#binarySearch(Object[], Object)}
+	 *
+	 * @param key The key to search for
+	 *
+	 * @return The ordinal of the key if found, otherwise {@code (-(insertion point) - 1)}
+	 */
+	private int search(@NonNull CharSequence key)
+	{
+		if (size == 0)
+		{
+			return -1;
+		}
+
+		// Find the last block whose head is less than or equal to the key
+		int low = 0;
+		int high = blockOffsets.length - 1;
+
+		while (low < high)
+		{
+			int mid = (low + high + 1) >>> 1;
+
+			if (compareHead(mid, key) <= 0)
+			{
+				low = mid;
+			}
+			else
+			{
+				high = mid - 1;
+			}
+		}
+
+		int block = low;
+		int offset = blockOffsets[block];
+		int headLength = data[offset];
+		int cmp = compare(data, offset + 1, headLength, 0, key);
+
+		if (cmp == 0)
+		{
+			return block * BLOCK_SIZE;
+		}
+		else if (cmp > 0)
+		{
+			return -(block * BLOCK_SIZE) - 1;
+		}
+
+		// Length of the prefix the previous key shares with the query, the previous key being less than the query
+		int matched = matchLength(data, offset + 1, headLength, 0, key);
+		offset += 1 + headLength;
+
+		int end = Math.min(size, (block + 1) * BLOCK_SIZE);
+
+		for (int ordinal = block * BLOCK_SIZE + 1; ordinal < end; ordinal++)
+		{
+			int prefix = data[offset];
+			int suffixLength = data[offset + 1];
+			int suffix = offset + 2;
+
+			if (prefix < matched)
+			{
+				// The key diverges from the previous key before the query does, so it is greater than the query
+				return -ordinal - 1;
+			}
+			else if (prefix == matched)
+			{
+				cmp = compare(data, suffix, suffixLength, matched, key);
+
+				if (cmp == 0)
+				{
+					return ordinal;
+				}
+				else if (cmp > 0)
+				{
+					return -ordinal - 1;
+				}
+
+				matched += matchLength(data, suffix, suffixLength, matched, key);
+			}
+
+			offset = suffix + suffixLength;
+		}
+
+		return -end - 1;
+	}
+
+	/**
+	 * Decodes the key at an ordinal
+	 *
+	 * @param ordinal The ordinal of the key
+	 *
+	 * @return The key
+	 */
+	@NonNull
+	public String get(int ordinal)
+	{
+		if (ordinal < 0 || ordinal >= size)
+		{
+			throw new IndexOutOfBoundsException("Ordinal " + ordinal + " out of range " + size);
+		}
+
+		int block = ordinal / BLOCK_SIZE;
+		int offset = blockOffsets[block];
+		int length = data[offset];
+		char[] key = new char[Math.max(length, 16)];
+
+		System.arraycopy(data, offset + 1, key, 0, length);
+		offset += 1 + length;
+
+		for (int index = block * BLOCK_SIZE + 1; index <= ordinal; index++)
+		{
+			int prefix = data[offset];
+			int suffixLength = data[offset + 1];
+			length = prefix + suffixLength;
+
+			if (length > key.length)
+			{
+				key = Arrays.copyOf(key, Math.max(length, key.length * 2));
+			}
+
+			System.arraycopy(data, offset + 2, key, prefix, suffixLength);
+			offset += 2 + suffixLength;
+		}
+
+		return new String(key, 0, length);
+	}
+
+	/**
+	 * Compares the head of a block with {@param key}
+	 */
+	private int compareHead(int block, @NonNull CharSequence key)
+	{
+		int offset = blockOffsets[block];
+		return compare(data, offset + 1, data[offset], 0, key);
+	}
+
+	/**
+	 * Compares a stored suffix, which starts at {@param keyOffset} of the stored key, with the same region of {@param key}
+	 */
+	private static int compare(@NonNull char[] data, int offset, int length, int keyOffset, @NonNull CharSequence key)
+	{
+		int keyLength = key.length() - keyOffset;
+		int max = Math.min(length, keyLength);
+
+		for (int index = 0; index < max; index++)
+		{
+			int diff = data[offset + index] - key.charAt(keyOffset + index);
+
+			if (diff != 0)
+			{
+				return diff;
+			}
+		}
+
+		return length - keyLength;
+	}
+
+	/**
+	 * Counts how many chars of a stored suffix match {@param key} from {@param keyOffset}
+	 */
+	private static int matchLength(@NonNull char[] data, int offset, int length, int keyOffset, @NonNull CharSequence key)
+	{
+		int max = Math.min(length, key.length() - keyOffset);
+		int index = 0;
+
+		while (index < max && data[offset + index] == key.charAt(keyOffset + index))
+		{
+			index++;
+		}
+
+		return index;
+	}
+
+	/**
+	 * @return The approximate size of the encoded keys in bytes
+	 */
+	public long getEncodedSize()
+	{
+		return data.length * 2L + blockOffsets.length * 4L;
+	}
+}
@@ -0,0 +1,197 @@
+package com.cube.storm.language.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Language model that serves a small "hot set" of values while the full language is loaded in the background.
+ * <p/>
+ * The hot set is the set of keys recorded by {@code HotKeyProfiler} on a previous
+ * start. Keys in the hot set that are not in the language are stored with a {@code null} value, so lookups of them are
+ * answered without waiting. Looking up any other key blocks until the full language has loaded, after which every
+ * lookup goes straight to the full language.
+ *
+ * @project LightningLanguage
+ */
+public class HotSetLanguage extends Language
+{
+	/**
+	 * Values of the hot keys. A null value means the key is not in the language.
+	 */
+	@NonNull private final Map<String, String> hotValues;
+
+	/**
+	 * The full language, set once it has loaded
+	 */
+	@Nullable private volatile Language fullLanguage;
+
+	private final CountDownLatch loaded = new CountDownLatch(1);
+
+	/**
+	 * @param sourceUri The Uri of the full language pack
+	 * @param hotValues The values of the hot keys. A null value means the key is not in the language.
+	 * @param fingerprint The fingerprint of the pack the hot set was recorded from
+	 */
+	public HotSetLanguage(@NonNull String sourceUri, @NonNull Map<String, String> hotValues, @Nullable PackFingerprint fingerprint)
+	{
+		this.sourceUri = sourceUri;
+		this.hotValues = hotValues;
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * Sets the full language once it has loaded, releasing any lookups waiting for it
+	 *
+	 * @param language The full language
+	 */
+	public void setFullLanguage(@NonNull Language language)
+	{
+		this.fullLanguage = language;
+		loaded.countDown();
+	}
+
+	/**
+	 * @return A language of the non null hot values, used in place of the full language if it fails to load
+	 */
+	@NonNull
+	public Language getHotLanguage()
+	{
+		Map<String, String> values = new HashMap<String, String>(hotValues.size() * 2);
+
+		for (Map.Entry<String, String> entry : hotValues.entrySet())
+		{
+			if (entry.getValue() != null)
+			{
+				values.put(entry.getKey(), entry.getValue());
+			}
+		}
+
+		Language language = new Language();
+		language.setValues(values);
+		return language;
+	}
+
+	/**
+	 * @return true if the full language has loaded
+	 */
+	public boolean isFullyLoaded()
+	{
+		return fullLanguage != null;
+	}
+
+	/**
+	 * Waits for the full language to load
+	 *
+	 * @return The full language, or null if the thread was interrupted while waiting
+	 */
+	@Nullable
+	public Language awaitFullLanguage()
+	{
+		try
+		{
+			loaded.await();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		return fullLanguage;
+	}
+
+	/**
+	 * Stores the key index without laying out any values. ID lookups are mapped back to their key until the full
+	 * language, which is indexed when it is loaded, is available.
+	 *
+	 * @param index The key index to use
+	 */
+	@Override public void index(@NonNull LanguageKeyIndex index)
+	{
+		this.keyIndex = index;
+	}
+
+	/**
+	 * Gets the values of the full language, waiting for it to load if necessary
+	 *
+	 * @return The values
+	 */
+	@Override public Map<String, String> getValues()
+	{
+		Language language = awaitFullLanguage();
+		return language == null ? values : language.getValues();
+	}
+
+	/**
+	 * Gets the sorted keys of the full language, waiting for it to load if necessary
+	 *
+	 * @return The sorted keys
+	 */
+	@NonNull @Override public FrontCodedKeys getSortedKeys()
+	{
+		Language language = awaitFullLanguage();
+		return language == null ? super.getSortedKeys() : language.getSortedKeys();
+	}
+
+	@Override public long getEstimatedSize()
+	{
+		Language language = fullLanguage;
+		return language != null ? language.getEstimatedSize() : estimateSize(hotValues);
+	}
+
+	@Override public long trimCaches()
+	{
+		Language language = fullLanguage;
+		return language != null ? language.trimCaches() : 0;
+	}
+
+	@NonNull @Override public String getValue(@NonNull String id)
+	{
+		Language language = fullLanguage;
+
+		if (language == null)
+		{
+			if (hotValues.containsKey(id))
+			{
+				String value = hotValues.get(id);
+				return value == null ? "" : value;
+			}
+
+			language = awaitFullLanguage();
+		}
+
+		return language == null ? "" : language.getValue(id);
+	}
+
+	@Override public boolean hasValue(@NonNull String id)
+	{
+		Language language = fullLanguage;
+
+		if (language == null)
+		{
+			if (hotValues.containsKey(id))
+			{
+				return hotValues.get(id) != null;
+			}
+
+			language = awaitFullLanguage();
+		}
+
+		return language != null && language.hasValue(id);
+	}
+
+	@NonNull @Override public String getValue(int id)
+	{
+		Language language = fullLanguage;
+		return language != null ? language.getValue(id) : super.getValue(id);
+	}
+
+	@Override public boolean hasValue(int id)
+	{
+		Language language = fullLanguage;
+		return language != null ? language.hasValue(id) : super.hasValue(id);
+	}
+}
@@ -0,0 +1,189 @@
+package com.cube.storm.language.data;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bloom filter over a set of language keys, used to reject strings that are definitely not keys without looking them up.
+ * <p/>
+ * {@link #mightContain(String)} never returns false for a key that was added, and returns true for a string that was not
+ * added with roughly the false positive rate the filter was created with. A single hash pass is made over the string, the
+ * probe positions are derived from the two halves of the 64 bit hash.
+ *
+ * @project LightningLanguage
+ */
+public class KeyFilter
+{
+	private static final double LN_2 = Math.log(2);
+
+	private final long[] bits;
+	private final int bitCount;
+	private final int hashCount;
+
+	/**
+	 * @param expectedKeys The number of keys that will be added
+	 * @param falsePositiveRate The target false positive rate, between 0 and 1 exclusive
+	 */
+	public KeyFilter(int expectedKeys, double falsePositiveRate)
+	{
+		if (falsePositiveRate <= 0 || falsePositiveRate >= 1)
+		{
+			throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+		}
+
+		int keys = Math.max(expectedKeys, 1);
+		long optimalBits = (long)Math.ceil(-keys * Math.log(falsePositiveRate) / (LN_2 * LN_2));
+
+		this.bitCount = (int)Math.min(Math.max(optimalBits, 64), Integer.MAX_VALUE - 63);
+		this.hashCount = Math.max(1, (int)Math.round((double)bitCount / keys * LN_2));
+		this.bits = new long[(bitCount + 63) >>> 6];
+	}
+
+	/**
+	 * Builds a filter of every key in the given languages
+	 *
+	 * @param falsePositiveRate The target false positive rate, between 0 and 1 exclusive
+	 * @param languages The languages to add the keys of
+	 *
+	 * @return The filter
+	 */
+	@NonNull
+	public static KeyFilter build(double falsePositiveRate, @NonNull Language... languages)
+	{
+		List<Collection<String>> keys = new ArrayList<Collection<String>>(languages.length);
+		int expected = 0;
+
+		for (Language language : languages)
+		{
+			Collection<String> languageKeys = keysOf(language);
+			keys.add(languageKeys);
+			expected += languageKeys.size();
+		}
+
+		KeyFilter filter = new KeyFilter(expected, falsePositiveRate);
+
+		for (Collection<String> languageKeys : keys)
+		{
+			filter.addAll(languageKeys);
+		}
+
+		return filter;
+	}
+
+	/**
+	 * Gets the keys of a language without building a sorted key index for hash map backed languages
+	 *
+	 * @param language The language
+	 *
+	 * @return The keys
+	 */
+	@NonNull
+	private static Collection<String> keysOf(@NonNull Language language)
+	{
+		if (language.getClass() == Language.class)
+		{
+			return language.getValues().keySet();
+		}
+
+		FrontCodedKeys keys = language.getSortedKeys();
+		return keys.range(0, keys.size());
+	}
+
+	/**
+	 * Adds a key to the filter
+	 *
+	 * @param key The key to add
+	 */
+	public void add(@NonNull String key)
+	{
+		long hash = hash(key);
+		int first = (int)hash;
+		int second = (int)(hash >>> 32);
+
+		for (int index = 0; index < hashCount; index++)
+		{
+			int bit = ((first + index * second) & Integer.MAX_VALUE) % bitCount;
+			bits[bit >>> 6] |= 1L << bit;
+		}
+	}
+
+	/**
+	 * Adds every key of a collection to the filter
+	 *
+	 * @param keys The keys to add
+	 */
+	public void addAll(@NonNull Collection<String> keys)
+	{
+		for (String key : keys)
+		{
+			add(key);
+		}
+	}
+
+	/**
+	 * Checks if a string might be a key in the filter
+	 *
+	 * @param key The string to check
+	 *
+	 * @return false if the string is definitely not a key, true if it might be
+	 */
+	public boolean mightContain(@NonNull String key)
+	{
+		long hash = hash(key);
+		int first = (int)hash;
+		int second = (int)(hash >>> 32);
+
+		for (int index = 0; index < hashCount; index++)
+		{
+			int bit = ((first + index * second) & Integer.MAX_VALUE) % bitCount;
+
+			if ((bits[bit >>> 6] & (1L << bit)) == 0)
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return The size of the filter in bytes
+	 */
+	public int getSize()
+	{
+		return bits.length * 8;
+	}
+
+	/**
+	 * @return The number of probes made per lookup
+	 */
+	public int getHashCount()
+	{
+		return hashCount;
+	}
+
+	/**
+	 * 64 bit FNV-1a hash of the chars of a string, with a final avalanche so both halves are well mixed
+	 */
+	private static long hash(@NonNull String key)
+	{
+		long hash = 0xcbf29ce484222325L;
+
+		for (int index = 0, length = key.length(); index < length; index++)
+		{
+			hash ^= key.charAt(index);
+			hash *= 0x100000001b3L;
+		}
+
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+
+		return hash;
+	}
+}
@@ -0,0 +1,333 @@
+package com.cube.storm.language.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Basic language model with a map of key/value pairs for the language.
+ * <p/>
+ * This model contains a map of all the key/value localsations stored in a localisation file.
+ * The entire localisation language is loaded into one of these models. Be careful not to have a language
+ * pack that is too large else you may experience memory problems. Large packs can be split into namespaces and
+ * loaded on demand using {@code ShardedLanguage}.
+ * <p/>
+ * Java serialization of the values uses the {@link LanguageSnapshot} string table rather than serializing the map object
+ * by object. Use {@link #writeTo(ByteBuffer)} and {@link #readFrom(ByteBuffer)} to snapshot a language directly.
+ *
+ * @author Callum Taylor
+ * @project LightningLanguage
+ */
+public class Language implements Serializable
+{
+	/**
+	 * Rough per-entry overhead of a hash map entry and its strings, used when estimating the size of a language
+	 */
+	protected static final int ENTRY_OVERHEAD = 64;
+
+	/**
+	 * Source Uri of the language object
+	 */
+	@Getter @Setter protected String sourceUri;
+
+	/**
+	 * Values of the language file
+	 */
+	@Getter protected transient Map<String, String> values = new HashMap<String, String>(0);
+
+	/**
+	 * Sorted index of the keys, built on first use by {@link #getSortedKeys()}
+	 */
+	@Nullable protected transient volatile FrontCodedKeys sortedKeys;
+
+	/**
+	 * Values laid out by key ID, set when the language is indexed with {@link #index(LanguageKeyIndex)}
+	 */
+	@Nullable protected transient String[] indexedValues;
+
+	/**
+	 * The key index the language was indexed with
+	 */
+	@Getter @Nullable protected transient LanguageKeyIndex keyIndex;
+
+	/**
+	 * Fingerprint of the pack the language was parsed from, used to skip reloading an unchanged pack
+	 */
+	@Getter @Setter @Nullable protected transient PackFingerprint fingerprint;
+
+	/**
+	 * Sets the values of the language, discarding the sorted key index. If the language was indexed with
+	 * {@link #index(LanguageKeyIndex)}, the new values are indexed with the same key index.
+	 *
+	 * @param values The values
+	 */
+	public void setValues(Map<String, String> values)
+	{
+		this.values = values;
+		this.sortedKeys = null;
+		this.indexedValues = null;
+
+		if (keyIndex != null)
+		{
+			index(keyIndex);
+		}
+	}
+
+	/**
+	 * Gets the sorted index of the keys, building it if necessary. Set {@code LanguageSettings#isSortedKeyIndex()}
+	 * to build it when the language is loaded instead.
+	 *
+	 * @return The sorted keys
+	 */
+	@NonNull
+	public FrontCodedKeys getSortedKeys()
+	{
+		FrontCodedKeys keys = sortedKeys;
+
+		if (keys == null)
+		{
+			keys = FrontCodedKeys.build(values == null ? new HashMap<String, String>(0).keySet() : values.keySet());
+			sortedKeys = keys;
+		}
+
+		return keys;
+	}
+
+	/**
+	 * Gets every key that starts with a prefix, for example {@code _MENU_ITEM_}
+	 *
+	 * @param prefix The prefix to search for
+	 *
+	 * @return The keys, in sorted order
+	 */
+	@NonNull
+	public List<String> getKeys(@NonNull String prefix)
+	{
+		FrontCodedKeys keys = getSortedKeys();
+		return keys.range(keys.lowerBound(prefix), keys.prefixEnd(prefix));
+	}
+
+	/**
+	 * Gets every key in a range
+	 *
+	 * @param from The lowest key, inclusive
+	 * @param to The highest key, exclusive
+	 *
+	 * @return The keys, in sorted order
+	 */
+	@NonNull
+	public List<String> getKeys(@NonNull String from, @NonNull String to)
+	{
+		FrontCodedKeys keys = getSortedKeys();
+		return keys.range(keys.lowerBound(from), keys.lowerBound(to));
+	}
+
+	/**
+	 * Counts the keys that start with a prefix
+	 *
+	 * @param prefix The prefix to count
+	 *
+	 * @return The number of keys
+	 */
+	public int countKeys(@NonNull String prefix)
+	{
+		return getSortedKeys().countPrefix(prefix);
+	}
+
+	/**
+	 * Gets the language value from a String key
+	 *
+	 * @param id The ID of the string
+	 *
+	 * @return The language translation or an empty string
+	 */
+	@NonNull
+	public String getValue(@NonNull String id)
+	{
+		return values.get(id) == null ? "" : values.get(id);
+	}
+
+	/**
+	 * Checks for ID in the translation list
+	 *
+	 * @param id The ID of the string to check
+	 *
+	 * @return true if found, false if not
+	 */
+	public boolean hasValue(@NonNull String id)
+	{
+		return values.containsKey(id);
+	}
+
+	/**
+	 * Estimates the heap memory held by the language, used to report how much is released when it is trimmed. See
+	 * {@code MemoryTrimmer}.
+	 *
+	 * @return The estimated size in bytes
+	 */
+	public long getEstimatedSize()
+	{
+		FrontCodedKeys keys = sortedKeys;
+		return estimateSize(values) + (indexedValues == null ? 0 : indexedValues.length * 4L) + (keys == null ? 0 : keys.getEncodedSize());
+	}
+
+	/**
+	 * Drops anything held by the language that is rebuilt on demand, such as the sorted key index. The values are kept.
+	 *
+	 * @return The estimated number of bytes released
+	 */
+	public long trimCaches()
+	{
+		FrontCodedKeys keys = sortedKeys;
+		sortedKeys = null;
+
+		return keys == null ? 0 : keys.getEncodedSize();
+	}
+
+	/**
+	 * Estimates the in-memory size of a map of values
+	 *
+	 * @param values The values
+	 *
+	 * @return The estimated size in bytes
+	 */
+	protected static long estimateSize(@Nullable Map<String, String> values)
+	{
+		long size = 0;
+
+		if (values != null)
+		{
+			for (Map.Entry<String, String> entry : values.entrySet())
+			{
+				size += ENTRY_OVERHEAD + (entry.getKey().length() + (entry.getValue() == null ? 0 : entry.getValue().length())) * 2;
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * Writes a snapshot of the language to a buffer. See {@link LanguageSnapshot}.
+	 *
+	 * @param buffer The buffer to write to. Must have at least {@link #getSnapshotSize()} bytes remaining.
+	 */
+	public void writeTo(@NonNull ByteBuffer buffer)
+	{
+		LanguageSnapshot.writeTo(this, buffer);
+	}
+
+	/**
+	 * @return The size in bytes of the snapshot written by {@link #writeTo(ByteBuffer)}
+	 */
+	public int getSnapshotSize()
+	{
+		return LanguageSnapshot.sizeOf(this);
+	}
+
+	/**
+	 * Reads a language from a snapshot written by {@link #writeTo(ByteBuffer)}
+	 *
+	 * @param buffer The buffer to read from
+	 *
+	 * @return The language
+	 */
+	@NonNull
+	public static Language readFrom(@NonNull ByteBuffer buffer)
+	{
+		return LanguageSnapshot.readFrom(buffer);
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		out.defaultWriteObject();
+
+		ByteBuffer buffer = ByteBuffer.allocate(LanguageSnapshot.sizeOfEntries(values));
+		LanguageSnapshot.writeEntries(values, buffer);
+
+		out.writeInt(buffer.capacity());
+		out.write(buffer.array());
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+
+		byte[] entries = new byte[in.readInt()];
+		in.readFully(entries);
+
+		values = LanguageSnapshot.readEntries(ByteBuffer.wrap(entries));
+	}
+
+	/**
+	 * Lays the values of the language out in an array by key ID, for lookups with {@link #getValue(int)}. Keys that are not
+	 * in the index are still available by their string key.
+	 *
+	 * @param index The key index to use
+	 */
+	public void index(@NonNull LanguageKeyIndex index)
+	{
+		String[] indexed = new String[index.size()];
+
+		for (Map.Entry<String, String> entry : values.entrySet())
+		{
+			int id = index.getId(entry.getKey());
+
+			if (id > -1)
+			{
+				indexed[id] = entry.getValue();
+			}
+		}
+
+		this.keyIndex = index;
+		this.indexedValues = indexed;
+	}
+
+	/**
+	 * Gets the language value from a key ID. See {@link #index(LanguageKeyIndex)}.
+	 *
+	 * @param id The ID of the string
+	 *
+	 * @return The language translation or an empty string
+	 */
+	@NonNull
+	public String getValue(int id)
+	{
+		if (indexedValues != null)
+		{
+			String value = id < 0 || id >= indexedValues.length ? null : indexedValues[id];
+			return value == null ? "" : value;
+		}
+
+		String key = keyIndex == null ? null : keyIndex.getKey(id);
+		return key == null ? "" : getValue(key);
+	}
+
+	/**
+	 * Checks for a key ID in the translation list. See {@link #index(LanguageKeyIndex)}.
+	 *
+	 * @param id The ID of the string to check
+	 *
+	 * @return true if found, false if not
+	 */
+	public boolean hasValue(int id)
+	{
+		if (indexedValues != null)
+		{
+			return id >= 0 && id < indexedValues.length && indexedValues[id] != null;
+		}
+
+		String key = keyIndex == null ? null : keyIndex.getKey(id);
+		return key != null && hasValue(key);
+	}
+}
@@ -0,0 +1,108 @@
+package com.cube.storm.language.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Index of language keys to integer IDs, as generated at build time by the {@code language-keys} Gradle plugin.
+ * <p/>
+ * Languages indexed with {@link Language#index(LanguageKeyIndex)} lay their values out in an array by ID, so lookups with
+ * {@link Language#getValue(int)} do not hash the key. String keys are mapped to their ID with {@link #getId(String)}.
+ * <p/>
+ * Example
+ * <pre>
+ new LanguageSettings.Builder(this)
+	.keyIndex(new LanguageKeyIndex(LanguageKeys.keys()))
+	.build();
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public class LanguageKeyIndex
+{
+	/**
+	 * Keys in ID order
+	 */
+	private final String[] keys;
+
+	/**
+	 * Open addressed hash table of keys
+	 */
+	private final String[] table;
+
+	/**
+	 * IDs of the keys in {@link #table}
+	 */
+	private final int[] tableIds;
+
+	/**
+	 * @param keys The keys in ID order
+	 */
+	public LanguageKeyIndex(@NonNull String[] keys)
+	{
+		this.keys = keys;
+
+		int capacity = Integer.highestOneBit(Math.max(keys.length, 1) * 2 - 1) << 1;
+		this.table = new String[capacity];
+		this.tableIds = new int[capacity];
+
+		for (int id = 0; id < keys.length; id++)
+		{
+			int slot = keys[id].hashCode() & (capacity - 1);
+
+			while (table[slot] != null)
+			{
+				slot = (slot + 1) & (capacity - 1);
+			}
+
+			table[slot] = keys[id];
+			tableIds[slot] = id;
+		}
+	}
+
+	/**
+	 * Gets the ID of a key
+	 *
+	 * @param key The key to look up
+	 *
+	 * @return The ID, or -1 if the key is not in the index
+	 */
+	public int getId(@NonNull String key)
+	{
+		int mask = table.length - 1;
+		int slot = key.hashCode() & mask;
+
+		while (table[slot] != null)
+		{
+			if (table[slot].equals(key))
+			{
+				return tableIds[slot];
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Gets the key of an ID
+	 *
+	 * @param id The ID to look up
+	 *
+	 * @return The key, or null if the ID is out of range
+	 */
+	@Nullable
+	public String getKey(int id)
+	{
+		return id < 0 || id >= keys.length ? null : keys[id];
+	}
+
+	/**
+	 * @return The number of keys in the index
+	 */
+	public int size()
+	{
+		return keys.length;
+	}
+}
@@ -0,0 +1,486 @@
+package com.cube.storm.language.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Inverted token index over the values of a language, for searching localised text as the user types.
+ * <p/>
+ * Values are split into tokens of letters and digits, lower cased and stripped of diacritics, so <code>"Caf&eacute;"</code> is found by
+ * {@code "cafe"}. Placeholders such as {@code {COUNT}} are not indexed. Every token of a query must match a token of a
+ * value, either exactly or as a prefix, so the last word of a query can be partially typed.
+ * <p/>
+ * Results are ranked by the sum, over the query tokens, of the inverse document frequency of the matched token, with prefix
+ * matches weighted by how much of the token they cover, divided by the square root of the number of tokens in the value
+ * so short labels rank above long paragraphs matching the same words. A query only touches the postings of the tokens it
+ * matches, so its cost depends on how common its words are, not on the size of the pack.
+ * <p/>
+ * The index is immutable. Build it on a background thread with {@link #build(Language...)}, it takes a snapshot of the
+ * values at the time it is built.
+ * <p/>
+ * Example
+ * <pre>
+ LanguageSearchIndex index = LanguageSearchIndex.build(defaultLanguage, localeLanguage);
+ List&lt;String&gt; keys = index.search("notif sett", 20);
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public class LanguageSearchIndex
+{
+	/**
+	 * Weight of a prefix match relative to an exact match of the same token
+	 */
+	private static final float PREFIX_WEIGHT = 0.5f;
+
+	/**
+	 * Keys of the indexed values, sorted
+	 */
+	private final String[] keys;
+
+	/**
+	 * Number of tokens in each indexed value, by key ordinal
+	 */
+	private final int[] tokenCounts;
+
+	/**
+	 * Distinct normalised tokens, sorted
+	 */
+	private final String[] terms;
+
+	/**
+	 * Sorted key ordinals of the values containing each term, by term ordinal
+	 */
+	private final int[][] postings;
+
+	protected LanguageSearchIndex(@NonNull String[] keys, @NonNull int[] tokenCounts, @NonNull String[] terms, @NonNull int[][] postings)
+	{
+		this.keys = keys;
+		this.tokenCounts = tokenCounts;
+		this.terms = terms;
+		this.postings = postings;
+	}
+
+	/**
+	 * Builds an index of the values of a set of languages. Where a key is in more than one language, the value of the last
+	 * language is indexed, so pass the default language before the locale language. Null languages are skipped.
+	 *
+	 * @param languages The languages to index
+	 *
+	 * @return The index
+	 */
+	@NonNull
+	public static LanguageSearchIndex build(@NonNull Language... languages)
+	{
+		TreeMap<String, String> values = new TreeMap<String, String>();
+
+		for (Language language : languages)
+		{
+			if (language == null)
+			{
+				continue;
+			}
+
+			if (language.getClass() == Language.class)
+			{
+				if (language.getValues() != null)
+				{
+					values.putAll(language.getValues());
+				}
+			}
+			else
+			{
+				for (String key : language.getSortedKeys().range(0, language.getSortedKeys().size()))
+				{
+					values.put(key, language.getValue(key));
+				}
+			}
+		}
+
+		String[] keys = new String[values.size()];
+		int[] tokenCounts = new int[keys.length];
+		Map<String, PostingList> termPostings = new HashMap<String, PostingList>();
+		List<String> tokens = new ArrayList<String>();
+		int ordinal = 0;
+
+		for (Map.Entry<String, String> entry : values.entrySet())
+		{
+			keys[ordinal] = entry.getKey();
+			tokens.clear();
+			tokenise(entry.getValue(), true, tokens);
+			tokenCounts[ordinal] = tokens.size();
+
+			for (String token : tokens)
+			{
+				PostingList list = termPostings.get(token);
+
+				if (list == null)
+				{
+					list = new PostingList();
+					termPostings.put(token, list);
+				}
+
+				list.add(ordinal);
+			}
+
+			ordinal++;
+		}
+
+		String[] terms = termPostings.keySet().toArray(new String[termPostings.size()]);
+		Arrays.sort(terms);
+		int[][] postings = new int[terms.length][];
+
+		for (int index = 0; index < terms.length; index++)
+		{
+			postings[index] = termPostings.get(terms[index]).toArray();
+		}
+
+		return new LanguageSearchIndex(keys, tokenCounts, terms, postings);
+	}
+
+	/**
+	 * Searches the index
+	 *
+	 * @param query The text to search for. Every word must match the start of a word of a value.
+	 * @param limit The maximum number of keys to return
+	 *
+	 * @return The keys of the matching values, most relevant first. Empty if the query has no words.
+	 */
+	@NonNull
+	public List<String> search(@NonNull CharSequence query, int limit)
+	{
+		List<String> queryTokens = new ArrayList<String>();
+		tokenise(query, false, queryTokens);
+
+		if (queryTokens.isEmpty() || limit <= 0 || keys.length == 0)
+		{
+			return Collections.emptyList();
+		}
+
+		// Candidate ordinals of each query token with their best weight, intersected in turn
+		int[] candidates = null;
+		float[] scores = null;
+
+		for (String token : new LinkedHashSet<String>(queryTokens))
+		{
+			long[] matches = match(token);
+
+			if (matches.length == 0)
+			{
+				return Collections.emptyList();
+			}
+
+			int count = reduce(matches);
+
+			if (candidates == null)
+			{
+				candidates = new int[count];
+				scores = new float[count];
+
+				for (int index = 0; index < count; index++)
+				{
+					candidates[index] = (int)(matches[index] >>> 32);
+					scores[index] = Float.intBitsToFloat((int)matches[index]);
+				}
+			}
+			else
+			{
+				int kept = 0;
+				int left = 0;
+				int right = 0;
+
+				while (left < candidates.length && right < count)
+				{
+					int candidate = candidates[left];
+					int matched = (int)(matches[right] >>> 32);
+
+					if (candidate < matched)
+					{
+						left++;
+					}
+					else if (candidate > matched)
+					{
+						right++;
+					}
+					else
+					{
+						candidates[kept] = candidate;
+						scores[kept] = scores[left] + Float.intBitsToFloat((int)matches[right]);
+						kept++;
+						left++;
+						right++;
+					}
+				}
+
+				if (kept == 0)
+				{
+					return Collections.emptyList();
+				}
+
+				candidates = Arrays.copyOf(candidates, kept);
+				scores = Arrays.copyOf(scores, kept);
+			}
+		}
+
+		// Rank by score, ties by key order: score bits in the high half, inverted ordinal in the low half
+		long[] ranked = new long[candidates.length];
+
+		for (int index = 0; index < candidates.length; index++)
+		{
+			float score = scores[index] / (float)Math.sqrt(Math.max(1, tokenCounts[candidates[index]]));
+			ranked[index] = ((long)Float.floatToIntBits(score) << 32) | (~candidates[index] & 0xffffffffL);
+		}
+
+		Arrays.sort(ranked);
+
+		int size = Math.min(limit, ranked.length);
+		List<String> results = new ArrayList<String>(size);
+
+		for (int index = ranked.length - 1; index >= ranked.length - size; index--)
+		{
+			results.add(keys[~(int)ranked[index]]);
+		}
+
+		return results;
+	}
+
+	/**
+	 * Finds the values containing a term starting with a query token
+	 *
+	 * @param token The normalised query token
+	 *
+	 * @return Packed key ordinal (high half) and weight bits (low half) of every posting of every matching term, unsorted
+	 */
+	@NonNull
+	private long[] match(@NonNull String token)
+	{
+		int start = lowerBound(token);
+		int end = lowerBound(token + Character.MAX_VALUE);
+		int total = 0;
+
+		for (int term = start; term < end; term++)
+		{
+			total += postings[term].length;
+		}
+
+		long[] matches = new long[total];
+		int count = 0;
+
+		for (int term = start; term < end; term++)
+		{
+			int[] posting = postings[term];
+			float weight = (float)Math.log(1 + (double)keys.length / posting.length);
+
+			if (terms[term].length() != token.length())
+			{
+				weight *= PREFIX_WEIGHT * token.length() / terms[term].length();
+			}
+
+			long bits = Float.floatToIntBits(weight) & 0xffffffffL;
+
+			for (int ordinal : posting)
+			{
+				matches[count++] = ((long)ordinal << 32) | bits;
+			}
+		}
+
+		return matches;
+	}
+
+	/**
+	 * Sorts packed matches by ordinal and keeps the highest weight of each ordinal at the start of the array. Weights are
+	 * positive, so their bits sort in the same order as their values.
+	 *
+	 * @param matches The packed matches
+	 *
+	 * @return The number of distinct ordinals
+	 */
+	private static int reduce(@NonNull long[] matches)
+	{
+		Arrays.sort(matches);
+		int count = 0;
+
+		for (int index = 0; index < matches.length; index++)
+		{
+			boolean last = index == matches.length - 1 || (matches[index + 1] >>> 32) != (matches[index] >>> 32);
+
+			if (last)
+			{
+				matches[count++] = matches[index];
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * @param term The term to look for
+	 *
+	 * @return The ordinal of the first term not less than {@param term}
+	 */
+	private int lowerBound(@NonNull String term)
+	{
+		int low = 0;
+		int high = terms.length;
+
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+
+			if (terms[middle].compareTo(term) < 0)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Splits text into normalised tokens
+	 *
+	 * @param text The text to split
+	 * @param skipPlaceholders true to skip text between {@code {}} and {@code }}
+	 * @param tokens The list to add the tokens to
+	 */
+	private static void tokenise(@Nullable CharSequence text, boolean skipPlaceholders, @NonNull List<String> tokens)
+	{
+		if (text == null || text.length() == 0)
+		{
+			return;
+		}
+
+		String normalised = normalise(text);
+		StringBuilder token = new StringBuilder();
+		boolean placeholder = false;
+
+		for (int index = 0, length = normalised.length(); index <= length; index++)
+		{
+			char character = index < length ? normalised.charAt(index) : ' ';
+
+			if (skipPlaceholders && character == '{')
+			{
+				placeholder = true;
+			}
+			else if (placeholder)
+			{
+				placeholder = character != '}';
+				continue;
+			}
+
+			if (Character.isLetterOrDigit(character))
+			{
+				token.append(character);
+			}
+			else if (token.length() > 0)
+			{
+				tokens.add(token.toString());
+				token.setLength(0);
+			}
+		}
+	}
+
+	/**
+	 * Lower cases text and strips its diacritics
+	 *
+	 * @param text The text to normalise
+	 *
+	 * @return The normalised text
+	 */
+	@NonNull
+	public static String normalise(@NonNull CharSequence text)
+	{
+		String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+		StringBuilder builder = new StringBuilder(decomposed.length());
+
+		for (int index = 0, length = decomposed.length(); index < length; index++)
+		{
+			char character = decomposed.charAt(index);
+
+			if (Character.getType(character) != Character.NON_SPACING_MARK)
+			{
+				builder.append(character);
+			}
+		}
+
+		return builder.toString().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * @return The number of indexed values
+	 */
+	public int size()
+	{
+		return keys.length;
+	}
+
+	/**
+	 * @return The number of distinct indexed tokens
+	 */
+	public int getTermCount()
+	{
+		return terms.length;
+	}
+
+	/**
+	 * Estimates the heap memory held by the index
+	 *
+	 * @return The estimated size in bytes
+	 */
+	public long getEstimatedSize()
+	{
+		long size = keys.length * 8L + tokenCounts.length * 4L;
+
+		for (int index = 0; index < terms.length; index++)
+		{
+			size += 32 + terms[index].length() * 2 + 16 + postings[index].length * 4L;
+		}
+
+		return size;
+	}
+
+	/**
+	 * Growable list of key ordinals, skipping repeats of the last ordinal added
+	 */
+	private static class PostingList
+	{
+		private int[] ordinals = new int[4];
+		private int size;
+
+		private void add(int ordinal)
+		{
+			if (size > 0 && ordinals[size - 1] == ordinal)
+			{
+				return;
+			}
+
+			if (size == ordinals.length)
+			{
+				ordinals = Arrays.copyOf(ordinals, size * 2);
+			}
+
+			ordinals[size++] = ordinal;
+		}
+
+		@NonNull
+		private int[] toArray()
+		{
+			return Arrays.copyOf(ordinals, size);
+		}
+	}
+}
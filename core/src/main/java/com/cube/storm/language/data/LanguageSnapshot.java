@@ -0,0 +1,636 @@
+package com.cube.storm.language.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact binary snapshot format for {@link Language}, used in place of java serialization when saving or moving a language
+ * between processes.
+ * <p/>
+ * The snapshot is a header followed by an entry table, which holds a hash table of the keys ahead of the entries:
+ * <pre>
+ int     magic ('LNGS')
+ short   version
+ string  source uri
+ int     entry table length in bytes
+ int     entry count
+ int     slot count, a power of two greater than the entry count
+ int     offset of an entry from the start of the entry table, or 0 for an empty slot (slot count times)
+ string  key, string value (entry count times)
+ * </pre>
+ * Each string is written as an {@code int} header followed by its bytes. The header is the byte length shifted left by one,
+ * with the low bit set if the bytes are UTF-8 and clear if they are Latin-1. A header of {@code -1} is a null string.
+ * Strings which fit in Latin-1, which is most of a typical pack, are copied in bulk rather than encoded char by char.
+ * <p/>
+ * Keys are placed in the slots by {@link String#hashCode()}, spread with {@link #slot(int, int)} and probed linearly. A
+ * snapshot is read into a {@link SnapshotLanguage}, which looks keys up in the slots of the entry table as it is, so
+ * reading a snapshot does not have to visit every entry.
+ * <p/>
+ * Example
+ * <pre>
+ ByteBuffer buffer = ByteBuffer.allocate(LanguageSnapshot.sizeOf(language));
+ LanguageSnapshot.writeTo(language, buffer);
+ buffer.flip();
+
+ Language copy = LanguageSnapshot.readFrom(buffer);
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public class LanguageSnapshot
+{
+	private static final int MAGIC = 0x4C4E4753;
+	private static final short VERSION = 2;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+	/**
+	 * Initial guess at the size of an entry, used to size the array in {@link #toByteArray(Language)}
+	 */
+	private static final int ESTIMATED_ENTRY_SIZE = 96;
+
+	/**
+	 * Calculates the exact size of the snapshot of a language
+	 *
+	 * @param language The language to measure
+	 *
+	 * @return The size in bytes
+	 */
+	public static int sizeOf(@NonNull Language language)
+	{
+		ByteBuffer entries = getEntryTable(language);
+		return 4 + 2 + sizeOf(language.getSourceUri()) + (entries != null ? entries.remaining() : sizeOfEntries(language.getValues()));
+	}
+
+	/**
+	 * Writes a language snapshot to a buffer. The buffer must have at least {@link #sizeOf(Language)} bytes remaining.
+	 *
+	 * @param language The language to write
+	 * @param buffer The buffer to write to
+	 *
+	 * @throws BufferOverflowException If the buffer does not have enough bytes remaining
+	 */
+	public static void writeTo(@NonNull Language language, @NonNull ByteBuffer buffer)
+	{
+		if (!buffer.hasArray())
+		{
+			buffer.put(toByteArray(language));
+			return;
+		}
+
+		Writer writer = new Writer(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.arrayOffset() + buffer.limit());
+		write(language, writer);
+		buffer.position(writer.position - buffer.arrayOffset());
+	}
+
+	/**
+	 * Reads a language snapshot from a buffer
+	 *
+	 * @param buffer The buffer to read from, positioned at the start of the snapshot
+	 *
+	 * @return The language
+	 *
+	 * @throws IllegalArgumentException If the buffer does not contain a valid snapshot
+	 */
+	@NonNull
+	public static Language readFrom(@NonNull ByteBuffer buffer)
+	{
+		return read(buffer, true);
+	}
+
+	/**
+	 * Writes a language snapshot into a single array, which is grown as needed rather than measuring every string first
+	 *
+	 * @param language The language to write
+	 *
+	 * @return The snapshot of the language
+	 */
+	@NonNull
+	public static byte[] toByteArray(@NonNull Language language)
+	{
+		int capacity;
+
+		if (getEntryTable(language) != null)
+		{
+			capacity = sizeOf(language);
+		}
+		else
+		{
+			Map<String, String> values = language.getValues();
+			capacity = 64 + (values == null ? 0 : values.size() * ESTIMATED_ENTRY_SIZE);
+		}
+
+		Writer writer = new Writer(capacity);
+		write(language, writer);
+
+		return writer.position == writer.bytes.length ? writer.bytes : Arrays.copyOf(writer.bytes, writer.position);
+	}
+
+	/**
+	 * Reads a language snapshot from an array. The language keeps a reference to the array rather than copying it, so it
+	 * must not be modified afterwards.
+	 *
+	 * @param snapshot The snapshot to read
+	 *
+	 * @return The language
+	 *
+	 * @throws IllegalArgumentException If the array does not contain a valid snapshot
+	 */
+	@NonNull
+	public static Language fromByteArray(@NonNull byte[] snapshot)
+	{
+		return read(ByteBuffer.wrap(snapshot), false);
+	}
+
+	/**
+	 * Reads a language snapshot into a {@link SnapshotLanguage}
+	 *
+	 * @param buffer The buffer to read from, positioned at the start of the snapshot
+	 * @param copy Whether the entry table has to be copied out of the array of {@param buffer}, rather than the language
+	 * keeping a reference to it
+	 */
+	@NonNull
+	private static Language read(@NonNull ByteBuffer buffer, boolean copy)
+	{
+		ByteBuffer in = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+
+		try
+		{
+			if (in.getInt() != MAGIC)
+			{
+				throw new IllegalArgumentException("Buffer does not contain a language snapshot");
+			}
+
+			short version = in.getShort();
+			if (version != VERSION)
+			{
+				throw new IllegalArgumentException("Unsupported language snapshot version " + version);
+			}
+
+			String sourceUri = readString(in, null);
+			SnapshotLanguage language;
+
+			if (in.hasArray())
+			{
+				language = new SnapshotLanguage(sourceUri, in.array(), in.arrayOffset() + in.position(), in.arrayOffset() + in.limit(), copy);
+			}
+			else
+			{
+				byte[] entries = new byte[in.remaining()];
+				in.duplicate().get(entries);
+				language = new SnapshotLanguage(sourceUri, entries, 0, entries.length, false);
+			}
+
+			buffer.position(in.position() + language.getEntryTable().remaining());
+
+			return language;
+		}
+		catch (BufferUnderflowException e)
+		{
+			throw new IllegalArgumentException("Language snapshot is truncated", e);
+		}
+	}
+
+	private static void write(@NonNull Language language, @NonNull Writer writer)
+	{
+		writer.putInt(MAGIC);
+		writer.putShort(VERSION);
+		writer.putString(language.getSourceUri());
+
+		ByteBuffer entries = getEntryTable(language);
+
+		if (entries != null)
+		{
+			writer.putBytes(entries);
+		}
+		else
+		{
+			writeEntries(language.getValues(), writer);
+		}
+	}
+
+	/**
+	 * @return The entry table of a language read from a snapshot, which can be written again as it is, or null
+	 */
+	@Nullable
+	private static ByteBuffer getEntryTable(@NonNull Language language)
+	{
+		return language instanceof SnapshotLanguage ? ((SnapshotLanguage)language).getEntryTable() : null;
+	}
+
+	/**
+	 * Calculates the number of slots of the hash table for a number of entries, which keeps the table at most three quarters
+	 * full
+	 */
+	static int slotCount(int count)
+	{
+		return Integer.highestOneBit(Math.max(count + count / 3, 1)) << 1;
+	}
+
+	/**
+	 * Gets the slot to start probing from for a key hash. Keys of a pack tend to differ only in their last few chars,
+	 * which leaves their hashes too close together to probe linearly from the low bits, so the hash is spread first.
+	 *
+	 * @param hash The {@link String#hashCode()} of the key
+	 * @param slotCount The number of slots, a power of two of at least 2
+	 *
+	 * @return The slot
+	 */
+	static int slot(int hash, int slotCount)
+	{
+		return (hash * 0x9e3779b9) >>> (32 - Integer.numberOfTrailingZeros(slotCount));
+	}
+
+	/**
+	 * Calculates the size of the entry table of a map
+	 */
+	static int sizeOfEntries(@Nullable Map<String, String> values)
+	{
+		int size = 12 + slotCount(values == null ? 0 : values.size()) * 4;
+
+		if (values != null)
+		{
+			for (Map.Entry<String, String> entry : values.entrySet())
+			{
+				size += sizeOf(entry.getKey()) + sizeOf(entry.getValue());
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * Writes the entry table of a map
+	 */
+	static void writeEntries(@Nullable Map<String, String> values, @NonNull ByteBuffer buffer)
+	{
+		if (!buffer.hasArray())
+		{
+			Writer writer = new Writer(sizeOfEntries(values));
+			writeEntries(values, writer);
+			buffer.put(writer.bytes, 0, writer.position);
+			return;
+		}
+
+		Writer writer = new Writer(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.arrayOffset() + buffer.limit());
+		writeEntries(values, writer);
+		buffer.position(writer.position - buffer.arrayOffset());
+	}
+
+	private static void writeEntries(@Nullable Map<String, String> values, @NonNull Writer writer)
+	{
+		int count = values == null ? 0 : values.size();
+		int slotCount = slotCount(count);
+		int[] slots = new int[slotCount];
+		int start = writer.position;
+
+		// The slots are filled in once the offset of every entry is known
+		writer.ensure(12 + slotCount * 4);
+		writer.position += 12 + slotCount * 4;
+
+		if (values != null)
+		{
+			for (Map.Entry<String, String> entry : values.entrySet())
+			{
+				String key = entry.getKey();
+
+				if (key != null)
+				{
+					int slot = slot(key.hashCode(), slotCount);
+
+					while (slots[slot] != 0)
+					{
+						slot = (slot + 1) & (slotCount - 1);
+					}
+
+					slots[slot] = writer.position - start;
+				}
+
+				writer.putString(key);
+				writer.putString(entry.getValue());
+			}
+		}
+
+		writer.writeInt(start, writer.position - start);
+		writer.writeInt(start + 4, count);
+		writer.writeInt(start + 8, slotCount);
+
+		for (int slot = 0; slot < slotCount; slot++)
+		{
+			writer.writeInt(start + 12 + slot * 4, slots[slot]);
+		}
+	}
+
+	/**
+	 * Reads a table written by {@link #writeEntries(Map, ByteBuffer)}
+	 */
+	@NonNull
+	static Map<String, String> readEntries(@NonNull ByteBuffer buffer)
+	{
+		int start = buffer.position();
+		int length = buffer.getInt();
+		int count = buffer.getInt();
+		int slotCount = buffer.getInt();
+
+		if (count < 0 || slotCount <= count || slotCount < 0 || 12L + slotCount * 4L > length)
+		{
+			throw new IllegalArgumentException("Invalid language snapshot entry table");
+		}
+
+		if (length > buffer.limit() - start)
+		{
+			throw new BufferUnderflowException();
+		}
+
+		// The slots are only used by SnapshotLanguage
+		buffer.position(start + 12 + slotCount * 4);
+
+		Map<String, String> values = new HashMap<String, String>((int)(count / 0.75f) + 1);
+
+		// Buffers without an array are copied out through a single scratch array rather than an array per string
+		byte[] scratch = buffer.hasArray() ? null : new byte[256];
+
+		for (int index = 0; index < count; index++)
+		{
+			values.put(readString(buffer, scratch), readString(buffer, scratch));
+		}
+
+		return values;
+	}
+
+	/**
+	 * @return The offset after the string at {@param offset}
+	 *
+	 * @throws BufferUnderflowException If the string runs past {@param limit}
+	 */
+	static int skipString(@NonNull byte[] bytes, int offset, int limit)
+	{
+		if (limit - offset < 4)
+		{
+			throw new BufferUnderflowException();
+		}
+
+		int header = readInt(bytes, offset);
+
+		if (header == -1)
+		{
+			return offset + 4;
+		}
+
+		int length = header >>> 1;
+
+		if (header < -1 || length > limit - offset - 4)
+		{
+			throw new BufferUnderflowException();
+		}
+
+		return offset + 4 + length;
+	}
+
+	/**
+	 * Reads a big endian int from an array
+	 */
+	static int readInt(@NonNull byte[] bytes, int offset)
+	{
+		return (bytes[offset] << 24) | ((bytes[offset + 1] & 0xff) << 16) | ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+	}
+
+	/**
+	 * Reads a string from an entry table
+	 *
+	 * @param bytes The entry table
+	 * @param offset The offset of the header of the string
+	 */
+	@Nullable
+	static String readString(@NonNull byte[] bytes, int offset)
+	{
+		int header = readInt(bytes, offset);
+
+		if (header == -1)
+		{
+			return null;
+		}
+
+		return new String(bytes, offset + 4, header >>> 1, (header & 1) == 0 ? ISO_8859_1 : UTF_8);
+	}
+
+	/**
+	 * Calculates the encoded size of a string, including its header
+	 */
+	private static int sizeOf(@Nullable String string)
+	{
+		if (string == null)
+		{
+			return 4;
+		}
+
+		int length = string.length();
+		int index = 0;
+
+		while (index < length && string.charAt(index) <= 0xff)
+		{
+			index++;
+		}
+
+		return 4 + (index == length ? length : utf8Length(string));
+	}
+
+	/**
+	 * Calculates the UTF-8 length of a string. Unpaired surrogates are counted as one byte, as {@link String#getBytes(Charset)}
+	 * replaces them with {@code '?'}.
+	 */
+	private static int utf8Length(@NonNull String string)
+	{
+		int size = 0;
+		int length = string.length();
+
+		for (int index = 0; index < length; index++)
+		{
+			char c = string.charAt(index);
+
+			if (c < 0x80)
+			{
+				size += 1;
+			}
+			else if (c < 0x800)
+			{
+				size += 2;
+			}
+			else if (Character.isHighSurrogate(c) && index + 1 < length && Character.isLowSurrogate(string.charAt(index + 1)))
+			{
+				size += 4;
+				index++;
+			}
+			else if (Character.isSurrogate(c))
+			{
+				size += 1;
+			}
+			else
+			{
+				size += 3;
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * Reads a string written by {@link Writer#putString(String)}
+	 *
+	 * @param scratch Array to copy the bytes into if the buffer has no array, grown if needed
+	 */
+	@Nullable
+	private static String readString(@NonNull ByteBuffer buffer, @Nullable byte[] scratch)
+	{
+		int header = buffer.getInt();
+
+		if (header == -1)
+		{
+			return null;
+		}
+
+		int length = header >>> 1;
+
+		if (header < -1 || length > buffer.remaining())
+		{
+			throw new BufferUnderflowException();
+		}
+
+		Charset charset = (header & 1) == 0 ? ISO_8859_1 : UTF_8;
+		String string;
+
+		if (buffer.hasArray())
+		{
+			string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, charset);
+			buffer.position(buffer.position() + length);
+		}
+		else
+		{
+			byte[] bytes = scratch == null || scratch.length < length ? new byte[length] : scratch;
+			buffer.get(bytes, 0, length);
+			string = new String(bytes, 0, length, charset);
+		}
+
+		return string;
+	}
+
+	/**
+	 * Writes the snapshot into an array, either a fixed range of a buffer's array or an array of its own which grows as
+	 * needed
+	 */
+	private static class Writer
+	{
+		private byte[] bytes;
+		private int position;
+		private int limit;
+		private final boolean growable;
+
+		private Writer(int capacity)
+		{
+			this.bytes = new byte[capacity];
+			this.position = 0;
+			this.limit = capacity;
+			this.growable = true;
+		}
+
+		private Writer(@NonNull byte[] bytes, int position, int limit)
+		{
+			this.bytes = bytes;
+			this.position = position;
+			this.limit = limit;
+			this.growable = false;
+		}
+
+		private void ensure(int count)
+		{
+			if (limit - position >= count)
+			{
+				return;
+			}
+
+			if (!growable)
+			{
+				throw new BufferOverflowException();
+			}
+
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + count));
+			limit = bytes.length;
+		}
+
+		private void putShort(short value)
+		{
+			ensure(2);
+			bytes[position++] = (byte)(value >> 8);
+			bytes[position++] = (byte)value;
+		}
+
+		private void putBytes(@NonNull ByteBuffer value)
+		{
+			int length = value.remaining();
+			ensure(length);
+			value.get(bytes, position, length);
+			position += length;
+		}
+
+		private void putInt(int value)
+		{
+			ensure(4);
+			writeInt(position, value);
+			position += 4;
+		}
+
+		private void writeInt(int offset, int value)
+		{
+			bytes[offset] = (byte)(value >> 24);
+			bytes[offset + 1] = (byte)(value >> 16);
+			bytes[offset + 2] = (byte)(value >> 8);
+			bytes[offset + 3] = (byte)value;
+		}
+
+		/**
+		 * Writes a string as Latin-1 if every char fits in a byte, otherwise as UTF-8
+		 */
+		@SuppressWarnings("deprecation")
+		private void putString(@Nullable String string)
+		{
+			if (string == null)
+			{
+				putInt(-1);
+				return;
+			}
+
+			int length = string.length();
+			int index = 0;
+
+			while (index < length && string.charAt(index) <= 0xff)
+			{
+				index++;
+			}
+
+			if (index == length)
+			{
+				ensure(4 + length);
+				writeInt(position, length << 1);
+				// Copies the low byte of each char, which is the Latin-1 encoding as every char fits in a byte
+				string.getBytes(0, length, bytes, position + 4);
+				position += 4 + length;
+				return;
+			}
+
+			byte[] utf8 = string.getBytes(UTF_8);
+			ensure(4 + utf8.length);
+			writeInt(position, (utf8.length << 1) | 1);
+			System.arraycopy(utf8, 0, bytes, position + 4, utf8.length);
+			position += 4 + utf8.length;
+		}
+	}
+}
@@ -0,0 +1,417 @@
+package com.cube.storm.language.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Language model which keeps its values outside of the Java heap.
+ * <p/>
+ * Keys are front coded as in {@link CompactLanguage}. Values are encoded into a single direct {@link ByteBuffer}, as
+ * Latin-1 when every char of the value fits in a byte and as UTF-8 otherwise, and found by the offset of their key's
+ * ordinal. A value is only decoded to a {@link String} when it is looked up, and the most recently decoded values are kept
+ * in a small, fixed size cache. This keeps the heap, and so garbage collection, free of the thousands of value strings a
+ * pack holds.
+ * <p/>
+ * {@link #getValues()} decodes every value into a new map each time it is called, avoid it outside of debugging.
+ *
+ * @project LightningLanguage
+ */
+public class OffHeapLanguage extends Language
+{
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+	private static final byte ENCODING_LATIN_1 = 0;
+	private static final byte ENCODING_UTF_8 = 1;
+	private static final byte ENCODING_NULL = 2;
+
+	/**
+	 * Number of decoded values to cache. Must be a power of two.
+	 */
+	private static final int CACHE_SIZE = 256;
+
+	/**
+	 * Front coded keys of the language
+	 */
+	protected transient FrontCodedKeys keys;
+
+	/**
+	 * Encoded values. Each value is an encoding byte followed by the encoded chars.
+	 */
+	private transient ByteBuffer buffer;
+
+	/**
+	 * Offset in {@link #buffer} of the value of each key ordinal, with the end of the buffer as the last element
+	 */
+	private transient int[] offsets;
+
+	/**
+	 * Key ordinal of each key ID, set when the language is indexed with {@link #index(LanguageKeyIndex)}
+	 */
+	@Nullable private transient int[] idOrdinals;
+
+	/**
+	 * Duplicate of {@link #buffer} used to copy values out for decoding, and the array they are copied into. Guarded by
+	 * {@code this}.
+	 */
+	private transient ByteBuffer reader;
+	private transient byte[] scratch;
+
+	/**
+	 * Direct mapped cache of decoded values, by key ordinal. Guarded by {@code this}.
+	 */
+	private transient String[] cache;
+	private transient int[] cacheOrdinals;
+
+	/**
+	 * Creates an off-heap copy of a language. The values map of {@param language} is not modified.
+	 *
+	 * @param language The language to copy
+	 */
+	public OffHeapLanguage(@NonNull Language language)
+	{
+		this.sourceUri = language.getSourceUri();
+		this.fingerprint = language.getFingerprint();
+		this.values = new HashMap<String, String>(0);
+		load(language.getValues() == null ? new HashMap<String, String>(0) : language.getValues());
+	}
+
+	/**
+	 * Encodes a set of values into a new buffer
+	 *
+	 * @param source The values to encode
+	 */
+	private void load(@NonNull Map<String, String> source)
+	{
+		FrontCodedKeys keys = FrontCodedKeys.build(source.keySet());
+		String[] ordered = new String[keys.size()];
+
+		for (Map.Entry<String, String> entry : source.entrySet())
+		{
+			ordered[keys.indexOf(entry.getKey())] = entry.getValue();
+		}
+
+		int[] offsets = new int[ordered.length + 1];
+		int size = 0;
+		int longest = 0;
+
+		for (int ordinal = 0; ordinal < ordered.length; ordinal++)
+		{
+			offsets[ordinal] = size;
+
+			int length = encodedLength(ordered[ordinal]);
+			size += 1 + length;
+			longest = Math.max(longest, length);
+		}
+
+		offsets[ordered.length] = size;
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(size, 1));
+
+		for (String value : ordered)
+		{
+			encode(value, buffer);
+		}
+
+		synchronized (this)
+		{
+			this.keys = keys;
+			this.offsets = offsets;
+			this.buffer = buffer;
+			this.reader = buffer.duplicate();
+			this.scratch = new byte[Math.max(longest, 16)];
+			this.cache = new String[CACHE_SIZE];
+			this.cacheOrdinals = new int[CACHE_SIZE];
+			this.sortedKeys = null;
+
+			Arrays.fill(cacheOrdinals, -1);
+		}
+	}
+
+	/**
+	 * @return The number of bytes used by the encoded values, outside of the Java heap
+	 */
+	public int getEncodedSize()
+	{
+		return buffer.capacity();
+	}
+
+	/**
+	 * Estimates the memory held by the language, including the encoded values outside of the Java heap
+	 *
+	 * @return The estimated size in bytes
+	 */
+	@Override public long getEstimatedSize()
+	{
+		int[] ordinals = idOrdinals;
+		return keys.getEncodedSize() + offsets.length * 4L + buffer.capacity() + (ordinals == null ? 0 : ordinals.length * 4L);
+	}
+
+	/**
+	 * Empties the cache of decoded values
+	 *
+	 * @return The estimated number of bytes released
+	 */
+	@Override public synchronized long trimCaches()
+	{
+		long released = 0;
+
+		for (int slot = 0; slot < CACHE_SIZE; slot++)
+		{
+			if (cache[slot] != null)
+			{
+				released += ENTRY_OVERHEAD / 2 + cache[slot].length() * 2;
+			}
+
+			cache[slot] = null;
+			cacheOrdinals[slot] = -1;
+		}
+
+		return released;
+	}
+
+	/**
+	 * @param value The value to measure
+	 *
+	 * @return The number of bytes the value takes in the buffer, excluding the encoding byte
+	 */
+	private static int encodedLength(@Nullable String value)
+	{
+		if (value == null)
+		{
+			return 0;
+		}
+
+		if (isLatin1(value))
+		{
+			return value.length();
+		}
+
+		int size = 0;
+
+		for (int index = 0; index < value.length(); index++)
+		{
+			char c = value.charAt(index);
+
+			if (c < 0x80)
+			{
+				size += 1;
+			}
+			else if (c < 0x800)
+			{
+				size += 2;
+			}
+			else if (Character.isHighSurrogate(c) && index + 1 < value.length() && Character.isLowSurrogate(value.charAt(index + 1)))
+			{
+				size += 4;
+				index++;
+			}
+			else if (Character.isSurrogate(c))
+			{
+				// Unpaired surrogates are replaced with '?' by String#getBytes
+				size += 1;
+			}
+			else
+			{
+				size += 3;
+			}
+		}
+
+		return size;
+	}
+
+	private static boolean isLatin1(@NonNull String value)
+	{
+		for (int index = 0; index < value.length(); index++)
+		{
+			if (value.charAt(index) > 0xff)
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static void encode(@Nullable String value, @NonNull ByteBuffer buffer)
+	{
+		if (value == null)
+		{
+			buffer.put(ENCODING_NULL);
+		}
+		else if (isLatin1(value))
+		{
+			buffer.put(ENCODING_LATIN_1);
+
+			for (int index = 0; index < value.length(); index++)
+			{
+				buffer.put((byte)value.charAt(index));
+			}
+		}
+		else
+		{
+			buffer.put(ENCODING_UTF_8);
+			buffer.put(value.getBytes(UTF_8));
+		}
+	}
+
+	/**
+	 * Decodes the value of a key ordinal, or returns it from the cache
+	 *
+	 * @param ordinal The key ordinal
+	 *
+	 * @return The value, or null if the key has a null value
+	 */
+	@Nullable
+	private synchronized String decode(int ordinal)
+	{
+		int slot = ordinal & (CACHE_SIZE - 1);
+
+		if (cacheOrdinals[slot] == ordinal)
+		{
+			return cache[slot];
+		}
+
+		int offset = offsets[ordinal];
+		int length = offsets[ordinal + 1] - offset - 1;
+		byte encoding = buffer.get(offset);
+		String value = null;
+
+		if (encoding != ENCODING_NULL)
+		{
+			reader.position(offset + 1);
+			reader.get(scratch, 0, length);
+			value = new String(scratch, 0, length, encoding == ENCODING_LATIN_1 ? ISO_8859_1 : UTF_8);
+		}
+
+		cache[slot] = value;
+		cacheOrdinals[slot] = ordinal;
+
+		return value;
+	}
+
+	/**
+	 * @return The front coded keys of the language, which are already sorted
+	 */
+	@NonNull @Override public FrontCodedKeys getSortedKeys()
+	{
+		return keys;
+	}
+
+	/**
+	 * Decodes every key/value pair in the language
+	 *
+	 * @return A new map of the values
+	 */
+	@Override public Map<String, String> getValues()
+	{
+		Map<String, String> values = new HashMap<String, String>(keys.size());
+
+		for (int ordinal = 0; ordinal < keys.size(); ordinal++)
+		{
+			values.put(keys.get(ordinal), decode(ordinal));
+		}
+
+		return values;
+	}
+
+	@Override public void setValues(Map<String, String> values)
+	{
+		load(values == null ? new HashMap<String, String>(0) : values);
+
+		if (keyIndex != null)
+		{
+			index(keyIndex);
+		}
+	}
+
+	/**
+	 * Maps each key ID to its key ordinal. Values stay off the heap, they are not laid out by ID as in {@link Language}.
+	 *
+	 * @param index The key index to use
+	 */
+	@Override public void index(@NonNull LanguageKeyIndex index)
+	{
+		int[] ordinals = new int[index.size()];
+
+		for (int id = 0; id < ordinals.length; id++)
+		{
+			String key = index.getKey(id);
+			ordinals[id] = key == null ? -1 : keys.indexOf(key);
+		}
+
+		this.keyIndex = index;
+		this.idOrdinals = ordinals;
+	}
+
+	@NonNull @Override public String getValue(@NonNull String id)
+	{
+		int ordinal = keys.indexOf(id);
+		String value = ordinal < 0 ? null : decode(ordinal);
+
+		return value == null ? "" : value;
+	}
+
+	@Override public boolean hasValue(@NonNull String id)
+	{
+		return keys.indexOf(id) > -1;
+	}
+
+	@NonNull @Override public String getValue(int id)
+	{
+		int[] ordinals = idOrdinals;
+
+		if (ordinals == null)
+		{
+			return super.getValue(id);
+		}
+
+		int ordinal = id < 0 || id >= ordinals.length ? -1 : ordinals[id];
+		String value = ordinal < 0 ? null : decode(ordinal);
+
+		return value == null ? "" : value;
+	}
+
+	@Override public boolean hasValue(int id)
+	{
+		int[] ordinals = idOrdinals;
+
+		if (ordinals == null)
+		{
+			return super.hasValue(id);
+		}
+
+		return id >= 0 && id < ordinals.length && ordinals[id] > -1;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		out.defaultWriteObject();
+
+		Map<String, String> values = getValues();
+		ByteBuffer entries = ByteBuffer.allocate(LanguageSnapshot.sizeOfEntries(values));
+		LanguageSnapshot.writeEntries(values, entries);
+
+		out.writeInt(entries.capacity());
+		out.write(entries.array());
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+
+		byte[] entries = new byte[in.readInt()];
+		in.readFully(entries);
+
+		load(LanguageSnapshot.readEntries(ByteBuffer.wrap(entries)));
+	}
+}
@@ -0,0 +1,132 @@
+package com.cube.storm.language.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.language.lib.factory.PackSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+import lombok.Getter;
+
+/**
+ * Fingerprint of the contents of a language pack, used to skip re-parsing a pack that has not changed.
+ * <p/>
+ * The checksum is a CRC32 of the (decompressed) pack contents. For packs with a {@link PackSource#getFile() local file} the
+ * size and modified time of the file are also kept, so an untouched file can be detected without reading it at all.
+ *
+ * @project LightningLanguage
+ */
+public class PackFingerprint
+{
+	/**
+	 * Size of the pack file in bytes, or -1 if the pack is not a file
+	 */
+	@Getter private final long fileSize;
+
+	/**
+	 * Modified time of the pack file, or 0 if the pack is not a file
+	 */
+	@Getter private final long lastModified;
+
+	/**
+	 * CRC32 of the pack contents
+	 */
+	@Getter private final long checksum;
+
+	/**
+	 * @param fileSize The size of the pack file, or -1 if the pack is not a file
+	 * @param lastModified The modified time of the pack file, or 0 if the pack is not a file
+	 * @param checksum The CRC32 of the pack contents
+	 */
+	public PackFingerprint(long fileSize, long lastModified, long checksum)
+	{
+		this.fileSize = fileSize;
+		this.lastModified = lastModified;
+		this.checksum = checksum;
+	}
+
+	/**
+	 * Creates a fingerprint for a pack whose contents have already been checksummed, for example while parsing it
+	 *
+	 * @param source The source of the pack
+	 * @param checksum The CRC32 of the pack contents
+	 *
+	 * @return The fingerprint
+	 */
+	@NonNull
+	public static PackFingerprint from(@NonNull PackSource source, long checksum)
+	{
+		File file = source.getFile();
+
+		if (file != null)
+		{
+			return new PackFingerprint(file.length(), file.lastModified(), checksum);
+		}
+
+		return new PackFingerprint(-1, 0, checksum);
+	}
+
+	/**
+	 * Checks if a pack still matches this fingerprint. File packs whose size and modified time are unchanged are not read,
+	 * other packs are read and checksummed, but not parsed.
+	 *
+	 * @param source The source of the pack
+	 *
+	 * @return The fingerprint of the pack if it is unchanged, or null if it has changed or could not be read
+	 */
+	@Nullable
+	public PackFingerprint verify(@NonNull PackSource source)
+	{
+		File file = source.getFile();
+
+		if (file != null && fileSize > -1 && file.length() == fileSize && file.lastModified() == lastModified)
+		{
+			return this;
+		}
+
+		InputStream stream = null;
+
+		try
+		{
+			stream = source.open();
+
+			if (stream == null)
+			{
+				return null;
+			}
+
+			CRC32 crc = new CRC32();
+			byte[] buffer = new byte[8192];
+			int read;
+
+			while ((read = stream.read(buffer)) > -1)
+			{
+				crc.update(buffer, 0, read);
+			}
+
+			// The contents are the same, only the file's metadata changed
+			return crc.getValue() == checksum ? from(source, checksum) : null;
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+		finally
+		{
+			if (stream != null)
+			{
+				try
+				{
+					stream.close();
+				}
+				catch (IOException ignore){}
+			}
+		}
+
+		return null;
+	}
+}
@@ -0,0 +1,202 @@
+package com.cube.storm.language.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Language model whose values are published in batches while its pack is still being parsed, so keys near the start of
+ * a large pack can be looked up before the rest of it has been read.
+ * <p/>
+ * Looking up a key that has been published returns straight away. Looking up any other key blocks until that key is
+ * published or the parse has finished, after which every lookup goes straight to the values. Anything that needs every
+ * key, such as {@link #getValues()} or {@link #getSortedKeys()}, waits for the parse to finish.
+ * <p/>
+ * The language is filled by {@code LanguageReader#readProgressively(PackSource, ProgressiveLanguage)}. If the pack fails
+ * to parse part way, the values published so far are kept.
+ *
+ * @project LightningLanguage
+ */
+public class ProgressiveLanguage extends Language
+{
+	/**
+	 * Values published so far
+	 */
+	@NonNull private final ConcurrentHashMap<String, String> entries = new ConcurrentHashMap<String, String>();
+
+	/**
+	 * Monitor notified every time a batch is published or the parse finishes
+	 */
+	private final Object published = new Object();
+
+	private volatile boolean complete;
+
+	/**
+	 * @param sourceUri The Uri of the pack being parsed
+	 */
+	public ProgressiveLanguage(@Nullable String sourceUri)
+	{
+		this.sourceUri = sourceUri;
+		this.values = entries;
+	}
+
+	/**
+	 * Publishes a batch of parsed values, releasing any lookups waiting for them
+	 *
+	 * @param batch The values to publish. Null values are stored as empty strings.
+	 */
+	public void publish(@NonNull Map<String, String> batch)
+	{
+		for (Map.Entry<String, String> entry : batch.entrySet())
+		{
+			entries.put(entry.getKey(), entry.getValue() == null ? "" : entry.getValue());
+		}
+
+		synchronized (published)
+		{
+			published.notifyAll();
+		}
+	}
+
+	/**
+	 * Marks the parse as finished, releasing every waiting lookup. Called whether or not the pack parsed successfully.
+	 *
+	 * @param fingerprint The fingerprint of the parsed pack, or null if it could not be parsed
+	 */
+	public void complete(@Nullable PackFingerprint fingerprint)
+	{
+		synchronized (published)
+		{
+			this.fingerprint = fingerprint;
+
+			if (keyIndex != null)
+			{
+				super.index(keyIndex);
+			}
+
+			complete = true;
+			published.notifyAll();
+		}
+	}
+
+	/**
+	 * @return true if the parse has finished
+	 */
+	public boolean isFullyLoaded()
+	{
+		return complete;
+	}
+
+	/**
+	 * @return The number of values published so far
+	 */
+	public int getPublishedCount()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Waits for the parse to finish
+	 *
+	 * @return true if it finished, false if the thread was interrupted while waiting
+	 */
+	public boolean awaitFullyLoaded()
+	{
+		return await(null);
+	}
+
+	/**
+	 * Waits for a key to be published or the parse to finish
+	 *
+	 * @param key The key to wait for, or null to wait for the parse to finish
+	 *
+	 * @return true if the key was published or the parse finished, false if the thread was interrupted while waiting
+	 */
+	private boolean await(@Nullable String key)
+	{
+		synchronized (published)
+		{
+			while (!complete && (key == null || !entries.containsKey(key)))
+			{
+				try
+				{
+					published.wait();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Stores the key index, and lays out the values by ID once the parse has finished. ID lookups are mapped back to their
+	 * key until then.
+	 *
+	 * @param index The key index to use
+	 */
+	@Override public void index(@NonNull LanguageKeyIndex index)
+	{
+		synchronized (published)
+		{
+			if (complete)
+			{
+				super.index(index);
+			}
+			else
+			{
+				this.keyIndex = index;
+			}
+		}
+	}
+
+	/**
+	 * Gets the values, waiting for the parse to finish if necessary
+	 *
+	 * @return The values
+	 */
+	@Override public Map<String, String> getValues()
+	{
+		await(null);
+		return entries;
+	}
+
+	/**
+	 * Gets the sorted keys, waiting for the parse to finish if necessary so the index is not built from part of the pack
+	 *
+	 * @return The sorted keys
+	 */
+	@NonNull @Override public FrontCodedKeys getSortedKeys()
+	{
+		await(null);
+		return super.getSortedKeys();
+	}
+
+	@NonNull @Override public String getValue(@NonNull String id)
+	{
+		String value = entries.get(id);
+
+		if (value == null && !complete && await(id))
+		{
+			value = entries.get(id);
+		}
+
+		return value == null ? "" : value;
+	}
+
+	@Override public boolean hasValue(@NonNull String id)
+	{
+		if (entries.containsKey(id))
+		{
+			return true;
+		}
+
+		return !complete && await(id) && entries.containsKey(id);
+	}
+}
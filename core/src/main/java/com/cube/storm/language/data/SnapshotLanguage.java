@@ -0,0 +1,404 @@
+package com.cube.storm.language.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Language read from a {@link LanguageSnapshot}, which looks its values up in the entry table of the snapshot rather than
+ * decoding every entry into a map when it is read.
+ * <p/>
+ * The entry table is kept as a single array, and keys are looked up in the hash table the snapshot was written with, so
+ * reading a snapshot only checks its header rather than visiting every entry. A key is compared against the table without
+ * decoding it, and a value is only decoded to a {@link String} the first time it is looked up. Writing the language to a
+ * new snapshot copies the entry table as it is.
+ * <p/>
+ * As entries are only checked when they are used, a lookup of an entry which runs past the end of a corrupt table throws
+ * {@link IllegalArgumentException}, as reading the snapshot would have if it had checked every entry.
+ * <p/>
+ * Anything that needs a map of every value, such as {@link #getValues()}, {@link #getSortedKeys()} or
+ * {@link #index(LanguageKeyIndex)}, decodes the whole table into the values map once, after which the language behaves
+ * as a {@link Language}.
+ *
+ * @project LightningLanguage
+ */
+public class SnapshotLanguage extends Language
+{
+	/**
+	 * Entry table and the lookup structures built over it. Replaced with null once the values are decoded into the map.
+	 */
+	private static class Table
+	{
+		/**
+		 * Array holding the entry table
+		 */
+		private final byte[] bytes;
+
+		/**
+		 * Offset in {@link #bytes} of the start of the table, and of the end of the last entry
+		 */
+		private final int start;
+		private final int end;
+
+		/**
+		 * Number of entries, and of slots in the hash table
+		 */
+		private final int count;
+		private final int slotCount;
+
+		/**
+		 * Values decoded so far, by slot
+		 */
+		private final String[] decoded;
+
+		/**
+		 * Checks the header of the entry table. The entries are checked as they are used.
+		 *
+		 * @param source The array holding the entry table
+		 * @param start The offset of the start of the table
+		 * @param limit The offset the table must end by
+		 * @param copy Whether to copy the table out of {@param source}, rather than keep a reference to it
+		 *
+		 * @throws BufferUnderflowException If the table runs past {@param limit}
+		 * @throws IllegalArgumentException If the header is invalid
+		 */
+		private Table(@NonNull byte[] source, int start, int limit, boolean copy)
+		{
+			if (limit - start < 12)
+			{
+				throw new BufferUnderflowException();
+			}
+
+			int length = LanguageSnapshot.readInt(source, start);
+			int count = LanguageSnapshot.readInt(source, start + 4);
+			int slotCount = LanguageSnapshot.readInt(source, start + 8);
+
+			if (length > limit - start)
+			{
+				throw new BufferUnderflowException();
+			}
+
+			// Every entry takes at least 8 bytes, which also keeps a corrupt count from allocating huge arrays
+			if (count < 0 || slotCount <= count || slotCount < 2 || Integer.bitCount(slotCount) != 1 || 12L + slotCount * 4L + count * 8L > length)
+			{
+				throw new IllegalArgumentException("Invalid language snapshot entry table");
+			}
+
+			if (copy)
+			{
+				this.bytes = Arrays.copyOfRange(source, start, start + length);
+				this.start = 0;
+			}
+			else
+			{
+				this.bytes = source;
+				this.start = start;
+			}
+
+			this.end = this.start + length;
+			this.count = count;
+			this.slotCount = slotCount;
+			this.decoded = new String[slotCount];
+		}
+
+		/**
+		 * @return The offset after the string at {@param offset}
+		 *
+		 * @throws IllegalArgumentException If the string runs past the end of the table
+		 */
+		private int skipString(int offset)
+		{
+			try
+			{
+				return LanguageSnapshot.skipString(bytes, offset, end);
+			}
+			catch (BufferUnderflowException e)
+			{
+				throw new IllegalArgumentException("Language snapshot entry runs past the end of the table", e);
+			}
+		}
+
+		/**
+		 * @return The offset of the key of the entry in a slot, or -1 if the slot is empty
+		 */
+		private int entry(int slot)
+		{
+			int entry = LanguageSnapshot.readInt(bytes, start + 12 + slot * 4);
+
+			if (entry == 0)
+			{
+				return -1;
+			}
+
+			if (entry < 12 + slotCount * 4 || entry > end - start)
+			{
+				throw new IllegalArgumentException("Invalid language snapshot entry offset " + entry);
+			}
+
+			return start + entry;
+		}
+
+		/**
+		 * @return true if the key at {@param offset} is {@param key}
+		 */
+		private boolean matches(int offset, @NonNull String key)
+		{
+			skipString(offset);
+			int header = LanguageSnapshot.readInt(bytes, offset);
+
+			if (header == -1)
+			{
+				return false;
+			}
+
+			if ((header & 1) == 1)
+			{
+				return key.equals(LanguageSnapshot.readString(bytes, offset));
+			}
+
+			int length = header >>> 1;
+
+			if (length != key.length())
+			{
+				return false;
+			}
+
+			for (int index = 0; index < length; index++)
+			{
+				if (key.charAt(index) != (bytes[offset + 4 + index] & 0xff))
+				{
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		/**
+		 * @return The slot of {@param key}, or -1 if it is not in the table
+		 */
+		private int find(@NonNull String key)
+		{
+			int slot = LanguageSnapshot.slot(key.hashCode(), slotCount);
+
+			// Bounded by the slot count, so a corrupt table without an empty slot cannot probe forever
+			for (int probe = 0; probe < slotCount; probe++)
+			{
+				int entry = entry(slot);
+
+				if (entry < 0)
+				{
+					return -1;
+				}
+
+				if (matches(entry, key))
+				{
+					return slot;
+				}
+
+				slot = (slot + 1) & (slotCount - 1);
+			}
+
+			return -1;
+		}
+
+		/**
+		 * @return The value of the entry in a slot, decoding it if it has not been looked up before
+		 */
+		@Nullable
+		private String value(int slot)
+		{
+			String value = decoded[slot];
+
+			if (value == null)
+			{
+				int offset = skipString(entry(slot));
+				skipString(offset);
+
+				value = LanguageSnapshot.readString(bytes, offset);
+				decoded[slot] = value;
+			}
+
+			return value;
+		}
+
+		@NonNull
+		private Map<String, String> decodeAll()
+		{
+			Map<String, String> values = new HashMap<String, String>((int)(count / 0.75f) + 1);
+			int offset = start + 12 + slotCount * 4;
+
+			for (int index = 0; index < count; index++)
+			{
+				int value = skipString(offset);
+				int next = skipString(value);
+
+				values.put(LanguageSnapshot.readString(bytes, offset), LanguageSnapshot.readString(bytes, value));
+				offset = next;
+			}
+
+			return values;
+		}
+	}
+
+	@Nullable private transient volatile Table table;
+
+	/**
+	 * Reads the entry table of a snapshot
+	 *
+	 * @param sourceUri The source Uri of the language
+	 * @param source The array holding the entry table
+	 * @param start The offset of the start of the table
+	 * @param limit The offset the table must end by
+	 * @param copy Whether to copy the table out of {@param source}, rather than keep a reference to it
+	 *
+	 * @throws BufferUnderflowException If the table runs past {@param limit}
+	 * @throws IllegalArgumentException If the header of the table is invalid
+	 */
+	SnapshotLanguage(@Nullable String sourceUri, @NonNull byte[] source, int start, int limit, boolean copy)
+	{
+		this.sourceUri = sourceUri;
+		this.table = new Table(source, start, limit, copy);
+	}
+
+	/**
+	 * @return A view of the entry table of the snapshot, or null if the values have been decoded into the map
+	 */
+	@Nullable
+	ByteBuffer getEntryTable()
+	{
+		Table table = this.table;
+		return table == null ? null : ByteBuffer.wrap(table.bytes, table.start, table.end - table.start).slice();
+	}
+
+	/**
+	 * Decodes the entry table into the values map, if it has not been already
+	 */
+	private synchronized void decodeValues()
+	{
+		Table table = this.table;
+
+		if (table != null)
+		{
+			this.values = table.decodeAll();
+			this.table = null;
+		}
+	}
+
+	/**
+	 * Gets the values, decoding every entry of the snapshot the first time it is called
+	 *
+	 * @return The values
+	 */
+	@Override public Map<String, String> getValues()
+	{
+		decodeValues();
+		return values;
+	}
+
+	@Override public void setValues(Map<String, String> values)
+	{
+		synchronized (this)
+		{
+			this.table = null;
+		}
+
+		super.setValues(values);
+	}
+
+	@NonNull @Override public FrontCodedKeys getSortedKeys()
+	{
+		decodeValues();
+		return super.getSortedKeys();
+	}
+
+	@Override public void index(@NonNull LanguageKeyIndex index)
+	{
+		decodeValues();
+		super.index(index);
+	}
+
+	@NonNull @Override public String getValue(@NonNull String id)
+	{
+		Table table = this.table;
+
+		if (table == null)
+		{
+			return super.getValue(id);
+		}
+
+		int slot = table.find(id);
+		String value = slot < 0 ? null : table.value(slot);
+
+		return value == null ? "" : value;
+	}
+
+	@Override public boolean hasValue(@NonNull String id)
+	{
+		Table table = this.table;
+		return table == null ? super.hasValue(id) : table.find(id) > -1;
+	}
+
+	@Override public long getEstimatedSize()
+	{
+		Table table = this.table;
+
+		if (table == null)
+		{
+			return super.getEstimatedSize();
+		}
+
+		long size = (table.end - table.start) + table.decoded.length * 4L;
+
+		for (String value : table.decoded)
+		{
+			size += value == null ? 0 : ENTRY_OVERHEAD / 2 + value.length() * 2;
+		}
+
+		return size;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		out.defaultWriteObject();
+
+		Table table = this.table;
+		out.writeInt(table == null ? -1 : table.end - table.start);
+
+		if (table != null)
+		{
+			out.write(table.bytes, table.start, table.end - table.start);
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+
+		int length = in.readInt();
+
+		if (length > -1)
+		{
+			byte[] entries = new byte[length];
+			in.readFully(entries);
+
+			try
+			{
+				this.table = new Table(entries, 0, length, false);
+			}
+			catch (BufferUnderflowException | IllegalArgumentException e)
+			{
+				throw new InvalidObjectException("Invalid language snapshot entry table");
+			}
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package com.cube.storm.language.data;
+
+/**
+ * How loaded languages are stored in memory. Set with {@code LanguageSettings.Builder#storageMode(StorageMode)}.
+ *
+ * @project LightningLanguage
+ */
+public enum StorageMode
+{
+	/**
+	 * Values are kept in the {@link Language#getValues()} hash map as they are parsed
+	 */
+	STANDARD,
+
+	/**
+	 * Keys are front coded, see {@link CompactLanguage}. Uses less memory for packs with long shared key prefixes, at the
+	 * cost of slightly slower lookups.
+	 */
+	COMPACT,
+
+	/**
+	 * Keys are front coded and values are encoded into a single direct byte buffer, outside of the Java heap, see
+	 * {@link OffHeapLanguage}. Values are decoded when they are looked up, with the most recent kept in a small cache.
+	 */
+	OFF_HEAP
+}
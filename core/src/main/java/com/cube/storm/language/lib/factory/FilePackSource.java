@@ -0,0 +1,58 @@
+package com.cube.storm.language.lib.factory;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Language pack read from a local file, for use on the JVM, for example in build tools and servers.
+ * <p/>
+ * Example
+ * <pre>
+ Localiser localiser = new Localiser();
+ localiser.setDefaultLanguage(localiser.loadLanguage(new FilePackSource(new File("languages/gbr.json"))));
+
+ String title = localiser.localise("_TITLE");
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public class FilePackSource extends PackSource
+{
+	@NonNull private final File file;
+
+	/**
+	 * @param file The pack file
+	 */
+	public FilePackSource(@NonNull File file)
+	{
+		this.file = file.getAbsoluteFile();
+	}
+
+	/**
+	 * @return The {@code file://} Uri of the pack, in the same form as an Android file Uri
+	 */
+	@NonNull @Override public String getId()
+	{
+		return "file://" + file.getPath();
+	}
+
+	@Nullable @Override public InputStream open() throws IOException
+	{
+		if (!file.exists())
+		{
+			return null;
+		}
+
+		return decompress(new FileInputStream(file));
+	}
+
+	@NonNull @Override public File getFile()
+	{
+		return file;
+	}
+}
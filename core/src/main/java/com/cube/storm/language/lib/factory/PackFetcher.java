@@ -0,0 +1,501 @@
+package com.cube.storm.language.lib.factory;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Properties;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Downloads a language pack to a local file with a conditional HTTP request, so a pack that has not changed costs a single
+ * {@code 304 Not Modified} response.
+ * <p/>
+ * The {@code ETag} and {@code Last-Modified} validators of the last download are kept in a {@code .validators} file next to
+ * the pack, and sent back as {@code If-None-Match} and {@code If-Modified-Since}. A changed pack is streamed to a temporary
+ * file in the same directory while its SHA-256 is computed, verified, checked to parse as a pack, synced to disk, and renamed
+ * over the pack, so readers only ever see the old or the new pack complete. The download is verified against, in order of
+ * preference
+ * <ul>
+ * <li>the checksum passed to {@link #fetch(URL, File, String)}, for example from a signed manifest</li>
+ * <li>a {@code Digest: SHA-256=} response header</li>
+ * <li>the {@code Content-Length} of the response</li>
+ * </ul>
+ * The pack is stored as it is served, compressed packs are decompressed when they are read, see {@link PackSource#decompress(InputStream)}.
+ * <p/>
+ * Example
+ * <pre>
+ PackFetcher fetcher = new PackFetcher();
+ PackFetcher.Result result = fetcher.fetch(new URL("https://example.com/languages/gbr.json"), new File(cacheDir, "languages/gbr.json"), null);
+
+ if (result.getStatus() == PackFetcher.Status.UPDATED)
+ {
+ 	// Reload the language
+ }
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public class PackFetcher
+{
+	private static final String VALIDATORS_SUFFIX = ".validators";
+	private static final String ETAG = "etag";
+	private static final String LAST_MODIFIED = "lastModified";
+	private static final String CHECKSUM = "sha256";
+
+	/**
+	 * The outcome of a fetch
+	 */
+	public enum Status
+	{
+		/**
+		 * The server reported the pack is unchanged, the local file was not touched
+		 */
+		NOT_MODIFIED,
+
+		/**
+		 * A new pack was downloaded, verified and swapped in
+		 */
+		UPDATED,
+
+		/**
+		 * The request or verification failed, the local file was not touched
+		 */
+		FAILED
+	}
+
+	/**
+	 * Result of a fetch
+	 */
+	public static class Result
+	{
+		@Getter private final Status status;
+
+		/**
+		 * The HTTP response code, or -1 if no response was received
+		 */
+		@Getter private final int responseCode;
+
+		/**
+		 * The SHA-256 of the local pack, as lower case hex, or null if unknown
+		 */
+		@Getter @Nullable private final String checksum;
+
+		protected Result(@NonNull Status status, int responseCode, @Nullable String checksum)
+		{
+			this.status = status;
+			this.responseCode = responseCode;
+			this.checksum = checksum;
+		}
+
+		@Override public String toString()
+		{
+			return status + " (" + responseCode + ")";
+		}
+	}
+
+	/**
+	 * Connect timeout in milliseconds
+	 */
+	@Getter @Setter private int connectTimeout = 15000;
+
+	/**
+	 * Read timeout in milliseconds
+	 */
+	@Getter @Setter private int readTimeout = 30000;
+
+	/**
+	 * Fetches a pack if it has changed since it was last fetched to {@param target}
+	 *
+	 * @param url The URL of the pack
+	 * @param target The local pack file
+	 * @param expectedChecksum The expected SHA-256 of the pack as hex, or null to verify against the response headers
+	 *
+	 * @return The result. Errors are reported as {@link Status#FAILED} rather than thrown.
+	 */
+	@NonNull
+	public Result fetch(@NonNull URL url, @NonNull File target, @Nullable String expectedChecksum)
+	{
+		File validatorsFile = new File(target.getPath() + VALIDATORS_SUFFIX);
+		Properties validators = target.exists() ? readValidators(validatorsFile) : new Properties();
+		HttpURLConnection connection = null;
+		int responseCode = -1;
+
+		try
+		{
+			connection = openConnection(url);
+			connection.setConnectTimeout(connectTimeout);
+			connection.setReadTimeout(readTimeout);
+			connection.setUseCaches(false);
+
+			if (validators.getProperty(ETAG) != null)
+			{
+				connection.setRequestProperty("If-None-Match", validators.getProperty(ETAG));
+			}
+
+			if (validators.getProperty(LAST_MODIFIED) != null)
+			{
+				connection.setRequestProperty("If-Modified-Since", validators.getProperty(LAST_MODIFIED));
+			}
+
+			responseCode = connection.getResponseCode();
+
+			if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED)
+			{
+				return new Result(Status.NOT_MODIFIED, responseCode, validators.getProperty(CHECKSUM));
+			}
+
+			if (responseCode != HttpURLConnection.HTTP_OK)
+			{
+				return new Result(Status.FAILED, responseCode, null);
+			}
+
+			String checksum = download(connection, target, expectedChecksum);
+
+			if (checksum == null)
+			{
+				return new Result(Status.FAILED, responseCode, null);
+			}
+
+			Properties updated = new Properties();
+
+			if (connection.getHeaderField("ETag") != null)
+			{
+				updated.setProperty(ETAG, connection.getHeaderField("ETag"));
+			}
+
+			if (connection.getHeaderField("Last-Modified") != null)
+			{
+				updated.setProperty(LAST_MODIFIED, connection.getHeaderField("Last-Modified"));
+			}
+
+			updated.setProperty(CHECKSUM, checksum);
+			writeValidators(validatorsFile, updated);
+
+			return new Result(Status.UPDATED, responseCode, checksum);
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+		finally
+		{
+			if (connection != null)
+			{
+				connection.disconnect();
+			}
+		}
+
+		return new Result(Status.FAILED, responseCode, null);
+	}
+
+	/**
+	 * Opens the connection for a request. Override to add headers, such as authentication, or to use a different client.
+	 *
+	 * @param url The URL of the pack
+	 *
+	 * @return The unconnected connection
+	 *
+	 * @throws IOException If the connection could not be opened
+	 */
+	@NonNull
+	protected HttpURLConnection openConnection(@NonNull URL url) throws IOException
+	{
+		return (HttpURLConnection)url.openConnection();
+	}
+
+	/**
+	 * Streams the response body to a temporary file next to {@param target}, verifies it and renames it over the target
+	 *
+	 * @return The SHA-256 of the pack as hex, or null if it failed verification
+	 */
+	@Nullable
+	private static String download(@NonNull HttpURLConnection connection, @NonNull File target, @Nullable String expectedChecksum) throws IOException
+	{
+		File directory = target.getAbsoluteFile().getParentFile();
+
+		if (directory != null && !directory.exists() && !directory.mkdirs())
+		{
+			throw new IOException("Could not create " + directory);
+		}
+
+		File temp = File.createTempFile(target.getName(), ".tmp", directory);
+		MessageDigest digest = newDigest();
+		long length = 0;
+
+		try
+		{
+			InputStream in = connection.getInputStream();
+			FileOutputStream out = new FileOutputStream(temp);
+
+			try
+			{
+				byte[] buffer = new byte[8192];
+				int read;
+
+				while ((read = in.read(buffer)) > -1)
+				{
+					out.write(buffer, 0, read);
+					digest.update(buffer, 0, read);
+					length += read;
+				}
+
+				out.flush();
+				out.getFD().sync();
+			}
+			finally
+			{
+				out.close();
+				in.close();
+			}
+
+			String checksum = toHex(digest.digest());
+
+			if (!verify(connection, checksum, length, expectedChecksum) || !isPack(temp))
+			{
+				return null;
+			}
+
+			if (!temp.renameTo(target))
+			{
+				throw new IOException("Could not replace " + target);
+			}
+
+			return checksum;
+		}
+		finally
+		{
+			if (temp.exists())
+			{
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Verifies a download against the expected checksum, the {@code Digest} header or the {@code Content-Length} header
+	 *
+	 * @return true if the download is complete and matches
+	 */
+	private static boolean verify(@NonNull HttpURLConnection connection, @NonNull String checksum, long length, @Nullable String expectedChecksum)
+	{
+		if (expectedChecksum != null)
+		{
+			return checksum.equalsIgnoreCase(expectedChecksum);
+		}
+
+		String digestHeader = connection.getHeaderField("Digest");
+
+		if (digestHeader != null)
+		{
+			for (String part : digestHeader.split(","))
+			{
+				String trimmed = part.trim();
+
+				if (trimmed.toLowerCase(Locale.ROOT).startsWith("sha-256="))
+				{
+					return checksum.equals(toHex(decodeBase64(trimmed.substring("sha-256=".length()))));
+				}
+			}
+		}
+
+		// Compressed transfers report the compressed length, which can not be checked against the decoded body
+		long contentLength = connection.getContentLength();
+		return contentLength < 0 || connection.getContentEncoding() != null || contentLength == length;
+	}
+
+	/**
+	 * Checks a downloaded file parses as a pack, a single JSON object of string, number, boolean or null values, so a
+	 * corrupt or unexpected body, such as an error page served with a {@code 200}, never replaces a working pack
+	 *
+	 * @param file The downloaded file, compressed or not
+	 *
+	 * @return true if the file is a pack
+	 */
+	private static boolean isPack(@NonNull File file)
+	{
+		InputStream in = null;
+
+		try
+		{
+			// Assigned in two steps so the file is closed even if the start of it can not be read
+			in = new FileInputStream(file);
+			in = PackSource.decompress(in);
+
+			JsonReader reader = new JsonReader(new InputStreamReader(in, "UTF-8"));
+			reader.beginObject();
+
+			while (reader.hasNext())
+			{
+				reader.nextName();
+				JsonToken token = reader.peek();
+
+				if (token != JsonToken.STRING && token != JsonToken.NUMBER && token != JsonToken.BOOLEAN && token != JsonToken.NULL)
+				{
+					return false;
+				}
+
+				reader.skipValue();
+			}
+
+			reader.endObject();
+			return reader.peek() == JsonToken.END_DOCUMENT;
+		}
+		catch (IOException | IllegalStateException e)
+		{
+			e.printStackTrace();
+			return false;
+		}
+		finally
+		{
+			if (in != null)
+			{
+				try
+				{
+					in.close();
+				}
+				catch (IOException ignore){}
+			}
+		}
+	}
+
+	@NonNull
+	private static Properties readValidators(@NonNull File file)
+	{
+		Properties properties = new Properties();
+
+		if (file.exists())
+		{
+			InputStream in = null;
+
+			try
+			{
+				in = new FileInputStream(file);
+				properties.load(in);
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+			finally
+			{
+				if (in != null)
+				{
+					try
+					{
+						in.close();
+					}
+					catch (IOException ignore){}
+				}
+			}
+		}
+
+		return properties;
+	}
+
+	private static void writeValidators(@NonNull File file, @NonNull Properties properties) throws IOException
+	{
+		File temp = new File(file.getPath() + ".tmp");
+		FileOutputStream out = new FileOutputStream(temp);
+
+		try
+		{
+			properties.store(out, null);
+			out.getFD().sync();
+		}
+		finally
+		{
+			out.close();
+		}
+
+		if (!temp.renameTo(file))
+		{
+			temp.delete();
+			throw new IOException("Could not replace " + file);
+		}
+	}
+
+	@NonNull
+	private static MessageDigest newDigest()
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			// Every Java and Android platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@NonNull
+	private static String toHex(@NonNull byte[] bytes)
+	{
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+
+		for (byte value : bytes)
+		{
+			hex.append(Character.forDigit((value >> 4) & 0xf, 16)).append(Character.forDigit(value & 0xf, 16));
+		}
+
+		return hex.toString();
+	}
+
+	/**
+	 * Decodes standard base64, ignoring padding. java.util.Base64 is not available on API 23.
+	 */
+	@NonNull
+	private static byte[] decodeBase64(@NonNull String encoded)
+	{
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+		String trimmed = encoded.trim();
+		int end = trimmed.length();
+
+		while (end > 0 && trimmed.charAt(end - 1) == '=')
+		{
+			end--;
+		}
+
+		byte[] decoded = new byte[end * 3 / 4];
+		int buffer = 0;
+		int bits = 0;
+		int count = 0;
+
+		for (int index = 0; index < end; index++)
+		{
+			int value = alphabet.indexOf(trimmed.charAt(index));
+
+			if (value < 0)
+			{
+				return new byte[0];
+			}
+
+			buffer = (buffer << 6) | value;
+			bits += 6;
+
+			if (bits >= 8)
+			{
+				bits -= 8;
+				decoded[count++] = (byte)(buffer >> bits);
+			}
+		}
+
+		return decoded;
+	}
+}
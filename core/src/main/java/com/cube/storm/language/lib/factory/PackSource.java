@@ -0,0 +1,92 @@
+package com.cube.storm.language.lib.factory;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Where a language pack is read from. The core engine only reads packs through this class, so it does not depend on how a
+ * platform names or opens its files.
+ * <p/>
+ * The {@link #getId() id} is the Uri string of the pack, for example {@code file:///data/languages/gbr.json}. It is stored
+ * as the source Uri of the languages read from the source, and is the key packs are cached under, so two sources for the
+ * same pack must have the same id.
+ * <p/>
+ * Packs can be stored gzip or deflate (zlib) compressed, {@link #open()} returns the decompressed contents. Use
+ * {@link #decompress(InputStream)} to detect the compression of a raw stream.
+ *
+ * @project LightningLanguage
+ */
+public abstract class PackSource
+{
+	/**
+	 * @return The Uri string of the pack
+	 */
+	@NonNull
+	public abstract String getId();
+
+	/**
+	 * Opens the pack for reading, decompressing it if it is compressed. The caller closes the stream.
+	 *
+	 * @return The stream, or null if the pack does not exist
+	 *
+	 * @throws IOException If the pack could not be opened
+	 */
+	@Nullable
+	public abstract InputStream open() throws IOException;
+
+	/**
+	 * Gets the local file of the pack, used to fingerprint the pack by its size and modified time without reading it
+	 *
+	 * @return The file, or null if the pack is not a local file
+	 */
+	@Nullable
+	public File getFile()
+	{
+		return null;
+	}
+
+	/**
+	 * Detects gzip and deflate (zlib) compressed streams from their magic bytes and wraps them in a decompressing stream
+	 *
+	 * @param stream The stream to check
+	 *
+	 * @return The buffered, decompressed stream
+	 *
+	 * @throws IOException If the start of the stream could not be read
+	 */
+	@NonNull
+	public static InputStream decompress(@NonNull InputStream stream) throws IOException
+	{
+		BufferedInputStream buffered = stream instanceof BufferedInputStream ? (BufferedInputStream)stream : new BufferedInputStream(stream, 8192);
+		buffered.mark(2);
+
+		int first = buffered.read();
+		int second = buffered.read();
+		buffered.reset();
+
+		if (first == 0x1f && second == 0x8b)
+		{
+			return new BufferedInputStream(new GZIPInputStream(buffered, 8192), 8192);
+		}
+
+		// zlib header: deflate compression method with a header checksum divisible by 31
+		if (first != -1 && second != -1 && (first & 0x0f) == 8 && ((first << 8) | second) % 31 == 0)
+		{
+			return new BufferedInputStream(new InflaterInputStream(buffered), 8192);
+		}
+
+		return buffered;
+	}
+
+	@Override public String toString()
+	{
+		return getId();
+	}
+}
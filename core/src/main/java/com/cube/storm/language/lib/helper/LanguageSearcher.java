@@ -0,0 +1,204 @@
+package com.cube.storm.language.lib.helper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.language.data.LanguageSearchIndex;
+import com.cube.storm.language.lib.manager.TrimTier;
+import com.cube.storm.language.lib.manager.Trimmable;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Keeps a {@link LanguageSearchIndex} of the languages of a {@link Localiser} up to date, for in-app search.
+ * <p/>
+ * The index is built on a background executor, and rebuilt whenever the {@link Localiser#getLanguageGeneration() language
+ * generation} changes, that is whenever either language is loaded, reloaded or replaced. While a rebuild is running,
+ * searches use the previous index. Only a search made when there is no index at all, before the first build or after the
+ * index has been trimmed, waits for one, building it on the calling thread.
+ * <p/>
+ * Example
+ * <pre>
+ languageSettings = new LanguageSettings.Builder(this)
+	.searchIndex(true)
+	.build();
+
+ List&lt;String&gt; keys = LanguageSettings.getInstance().getSearcher().search(query, 20);
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public class LanguageSearcher implements Trimmable
+{
+	@NonNull private final Localiser localiser;
+	@NonNull private final Executor executor;
+
+	/**
+	 * The newest index built
+	 */
+	@Nullable private volatile LanguageSearchIndex index;
+
+	/**
+	 * The language generation {@link #index} was built for
+	 */
+	private volatile int indexGeneration = -1;
+
+	/**
+	 * The language generation of the last build scheduled on {@link #executor}
+	 */
+	private int scheduledGeneration = -1;
+
+	/**
+	 * Creates a searcher which builds its index on its own background thread
+	 *
+	 * @param localiser The localiser to index the languages of
+	 */
+	public LanguageSearcher(@NonNull Localiser localiser)
+	{
+		this(localiser, Executors.newSingleThreadExecutor(new ThreadFactory()
+		{
+			@Override public Thread newThread(@NonNull Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "LanguageSearchIndex");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		}));
+	}
+
+	/**
+	 * @param localiser The localiser to index the languages of
+	 * @param executor The executor to build the index on
+	 */
+	public LanguageSearcher(@NonNull Localiser localiser, @NonNull Executor executor)
+	{
+		this.localiser = localiser;
+		this.executor = executor;
+	}
+
+	/**
+	 * Schedules a rebuild of the index on the background executor if the languages have changed since it was built
+	 */
+	public void refresh()
+	{
+		final int generation = localiser.getLanguageGeneration();
+
+		synchronized (this)
+		{
+			if (indexGeneration == generation || scheduledGeneration == generation)
+			{
+				return;
+			}
+
+			scheduledGeneration = generation;
+		}
+
+		executor.execute(new Runnable()
+		{
+			@Override public void run()
+			{
+				// Skip if a newer build has been scheduled since, or a search has already built this one
+				if (localiser.getLanguageGeneration() == generation && indexGeneration != generation)
+				{
+					build();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Searches the values of the languages. See {@link LanguageSearchIndex#search(CharSequence, int)}.
+	 *
+	 * @param query The text to search for
+	 * @param limit The maximum number of keys to return
+	 *
+	 * @return The keys of the matching values, most relevant first
+	 */
+	@NonNull
+	public List<String> search(@NonNull CharSequence query, int limit)
+	{
+		refresh();
+
+		LanguageSearchIndex current = index;
+
+		if (current == null)
+		{
+			current = build();
+		}
+
+		return current.search(query, limit);
+	}
+
+	/**
+	 * @return The newest index built, which may be for previous languages while a rebuild is running, or null if none has
+	 * been built
+	 */
+	@Nullable
+	public LanguageSearchIndex getIndex()
+	{
+		return index;
+	}
+
+	/**
+	 * @return true if the index has been built for the current languages
+	 */
+	public boolean isCurrent()
+	{
+		return index != null && indexGeneration == localiser.getLanguageGeneration();
+	}
+
+	/**
+	 * Builds the index on the calling thread and publishes it, unless an index for newer languages has been published
+	 * meanwhile
+	 *
+	 * @return The index built
+	 */
+	@NonNull
+	private LanguageSearchIndex build()
+	{
+		// Read before the languages, so an index is never published under a newer generation than the languages it used
+		int generation = localiser.getLanguageGeneration();
+		LanguageSearchIndex built = LanguageSearchIndex.build(localiser.getDefaultLanguage(), localiser.getLocaleLanguage());
+
+		synchronized (this)
+		{
+			if (index == null || generation - indexGeneration > 0)
+			{
+				index = built;
+				indexGeneration = generation;
+			}
+		}
+
+		return built;
+	}
+
+	/**
+	 * Drops the index at {@link TrimTier#CACHES}. It is rebuilt by the next search.
+	 *
+	 * @param tier The tier to release
+	 *
+	 * @return The estimated number of bytes released
+	 */
+	@Override public long trim(@NonNull TrimTier tier)
+	{
+		if (tier != TrimTier.CACHES)
+		{
+			return 0;
+		}
+
+		synchronized (this)
+		{
+			LanguageSearchIndex current = index;
+
+			index = null;
+			indexGeneration = -1;
+			scheduledGeneration = -1;
+
+			return current == null ? 0 : current.getEstimatedSize();
+		}
+	}
+}
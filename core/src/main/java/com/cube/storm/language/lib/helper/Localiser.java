@@ -0,0 +1,661 @@
+package com.cube.storm.language.lib.helper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.language.data.Language;
+import com.cube.storm.language.data.ProgressiveLanguage;
+import com.cube.storm.language.lib.factory.PackSource;
+import com.cube.storm.language.lib.manager.LanguagePackCache;
+import com.cube.storm.language.lib.parser.LanguageReader;
+import com.cube.storm.language.lib.processor.Mapping;
+import com.cube.storm.language.lib.processor.MethodProcessor;
+import com.cube.storm.language.lib.processor.RenderedStringCache;
+import com.cube.storm.language.lib.trace.Tracer;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A default/locale pair of languages and the {@link MethodProcessor} used to render them, without any platform dependencies.
+ * <p/>
+ * This is the string localisation engine used by the Android library, and can be used on its own on the JVM, for example
+ * to render text on a server or check packs in a build. Packs are read from a {@link PackSource} and cached in a
+ * {@link LanguagePackCache}, shared with every localiser created with {@link #newContext()}.
+ * <p/>
+ * Example
+ * <pre>
+ Localiser localiser = new Localiser();
+ localiser.setDefaultLanguage(localiser.loadLanguage(new FilePackSource(new File("languages/gbr.json"))));
+
+ String greeting = localiser.localise("_GREETING", new Mapping("NAME", name));
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public class Localiser
+{
+	/**
+	 * Per-thread buffer used to render localisations without growing a new builder for each one. This is the only render
+	 * buffer, {@link LocalisationHelper} and the buffered methods of the Android library render into it too.
+	 */
+	private static final ThreadLocal<RenderBuffer> buffers = new ThreadLocal<RenderBuffer>()
+	{
+		@Override protected RenderBuffer initialValue()
+		{
+			return new RenderBuffer();
+		}
+	};
+
+	/**
+	 * Reusable render buffer. {@link #inUse} guards against re-entrant rendering, for example from a custom
+	 * {@link MethodProcessor}.
+	 */
+	private static class RenderBuffer
+	{
+		private final StringBuilder builder = new StringBuilder(256);
+		private boolean inUse;
+
+		/**
+		 * Number of renders into the buffer, used by {@link BufferedText} to tell when it has been reused
+		 */
+		private int renders;
+	}
+
+	/**
+	 * A render handed out by the localiseBuffered methods. It reads straight from the per-thread buffer, and throws
+	 * {@link IllegalStateException} once the buffer has been rendered into again, rather than returning another render.
+	 */
+	private static final class BufferedText implements CharSequence
+	{
+		private final RenderBuffer buffer;
+		private final int render;
+
+		private BufferedText(@NonNull RenderBuffer buffer)
+		{
+			this.buffer = buffer;
+			this.render = buffer.renders;
+		}
+
+		private StringBuilder builder()
+		{
+			if (buffer.renders != render)
+			{
+				throw new IllegalStateException("Buffered localisation used after the next localisation on its thread, copy it with toString() to keep it");
+			}
+
+			return buffer.builder;
+		}
+
+		@Override public int length()
+		{
+			return builder().length();
+		}
+
+		@Override public char charAt(int index)
+		{
+			return builder().charAt(index);
+		}
+
+		@NonNull @Override public CharSequence subSequence(int start, int end)
+		{
+			return builder().substring(start, end);
+		}
+
+		@NonNull @Override public String toString()
+		{
+			return builder().toString();
+		}
+	}
+
+	/**
+	 * Method processor class used to process methods part of variable localisations
+	 */
+	@Getter @Setter protected MethodProcessor methodProcessor = new MethodProcessor();
+
+	/**
+	 * Tracer which receives timed spans from the stages of loading a language
+	 */
+	@Getter @Setter protected Tracer tracer = Tracer.NONE;
+
+	/**
+	 * Reader used to parse packs read from a {@link PackSource}. Created with the {@link #tracer} the first time it is
+	 * needed if not set.
+	 */
+	@Setter protected LanguageReader languageReader;
+
+	/**
+	 * Cache of parsed packs, shared with every localiser created from this one
+	 */
+	@Getter protected LanguagePackCache packCache = new LanguagePackCache();
+
+	/**
+	 * Optional cache of rendered localisations, used by {@link #localise(String, Mapping...)}. It is not shared with
+	 * localisers created from this one, their languages differ.
+	 */
+	@Getter @Setter @Nullable protected RenderedStringCache renderCache;
+
+	/**
+	 * Default loaded language
+	 */
+	@Getter protected volatile Language defaultLanguage;
+
+	/**
+	 * Language pack loaded for specific locale. Locale language packs will only contain specific language overrides and
+	 * will fallback to the defined {@link #defaultLanguage} if not found.
+	 */
+	@Getter protected volatile Language localeLanguage;
+
+	/**
+	 * Counter incremented every time {@link #defaultLanguage} or {@link #localeLanguage} is replaced. Use it to invalidate
+	 * anything derived from the loaded languages.
+	 */
+	private final AtomicInteger languageGeneration = new AtomicInteger();
+
+	public Localiser()
+	{
+	}
+
+	/**
+	 * Creates a localiser with no languages set, using the same method processor, tracer and reader as {@param parent},
+	 * and sharing its pack cache
+	 *
+	 * @param parent The localiser to copy
+	 */
+	public Localiser(@NonNull Localiser parent)
+	{
+		this.methodProcessor = parent.methodProcessor;
+		this.tracer = parent.tracer;
+		this.languageReader = parent.languageReader;
+		this.packCache = parent.packCache;
+	}
+
+	/**
+	 * Creates a localiser with no languages set, sharing this localiser's pack cache. See {@link #Localiser(Localiser)}.
+	 *
+	 * @return The new localiser
+	 */
+	@NonNull
+	public Localiser newContext()
+	{
+		return new Localiser(this);
+	}
+
+	/**
+	 * @return The reader used to parse packs
+	 */
+	@NonNull
+	public LanguageReader getLanguageReader()
+	{
+		LanguageReader reader = languageReader;
+
+		if (reader == null)
+		{
+			reader = new LanguageReader(tracer);
+			languageReader = reader;
+		}
+
+		return reader;
+	}
+
+	/**
+	 * @return The current language generation, incremented every time the default or locale language is replaced
+	 */
+	public int getLanguageGeneration()
+	{
+		return languageGeneration.get();
+	}
+
+	/**
+	 * Sets the default language and increments the {@link #getLanguageGeneration() language generation}
+	 *
+	 * @param language The language to set
+	 */
+	public synchronized void setDefaultLanguage(Language language)
+	{
+		this.defaultLanguage = language;
+		languageGeneration.incrementAndGet();
+	}
+
+	/**
+	 * Sets the locale language and increments the {@link #getLanguageGeneration() language generation}
+	 *
+	 * @param language The language to set. Can be null to clear the locale language.
+	 */
+	public synchronized void setLocaleLanguage(@Nullable Language language)
+	{
+		this.localeLanguage = language;
+		languageGeneration.incrementAndGet();
+	}
+
+	/**
+	 * Gets a pack from the {@link #packCache}, reading it with {@link #readLanguage(PackSource)} if no localiser has loaded
+	 * it yet
+	 *
+	 * @param source The source of the pack
+	 *
+	 * @return The language. Will be empty if the pack could not be loaded.
+	 */
+	@NonNull
+	public Language loadLanguage(@NonNull PackSource source)
+	{
+		return packCache.get(this, source);
+	}
+
+	/**
+	 * Reads a pack without going through the {@link #packCache}
+	 *
+	 * @param source The source of the pack
+	 *
+	 * @return The language, or null if the pack could not be read
+	 */
+	@Nullable
+	public Language readLanguage(@NonNull PackSource source)
+	{
+		return getLanguageReader().read(source);
+	}
+
+	/**
+	 * Reads a pack on an executor, publishing its values as they are parsed. See {@link ProgressiveLanguage}. The language
+	 * is returned straight away, and added to the {@link #packCache} once the whole pack has been parsed.
+	 *
+	 * @param source The source of the pack
+	 * @param executor The executor to parse the pack on
+	 *
+	 * @return The language being parsed
+	 */
+	@NonNull
+	public ProgressiveLanguage readLanguageProgressively(@NonNull final PackSource source, @NonNull Executor executor)
+	{
+		final ProgressiveLanguage language = new ProgressiveLanguage(source.getId());
+
+		executor.execute(new Runnable()
+		{
+			@Override public void run()
+			{
+				if (getLanguageReader().readProgressively(source, language))
+				{
+					packCache.put(source.getId(), language);
+				}
+			}
+		});
+
+		return language;
+	}
+
+	/**
+	 * Checks for a key in the locale or default language
+	 *
+	 * @param key The key to check
+	 *
+	 * @return true if found, false if not
+	 */
+	public boolean hasValue(@NonNull String key)
+	{
+		Language localeLanguage = this.localeLanguage;
+		Language defaultLanguage = this.defaultLanguage;
+
+		return (localeLanguage != null && localeLanguage.hasValue(key)) || (defaultLanguage != null && defaultLanguage.hasValue(key));
+	}
+
+	/**
+	 * Gets a value from the locale language, falling back to the default language. Every localise method looks values up
+	 * with this, so subclasses can override it to add their own checks around {@link #findValue(String)}.
+	 *
+	 * @param key The key to look up
+	 *
+	 * @return The value, or an empty string
+	 */
+	@NonNull
+	public String getValue(@NonNull String key)
+	{
+		return findValue(key);
+	}
+
+	/**
+	 * Gets a value from the locale language, falling back to the default language, without going through an overridden
+	 * {@link #getValue(String)}
+	 *
+	 * @param key The key to look up
+	 *
+	 * @return The value, or an empty string
+	 */
+	@NonNull
+	public final String findValue(@NonNull String key)
+	{
+		Language localeLanguage = this.localeLanguage;
+
+		if (localeLanguage != null && localeLanguage.hasValue(key))
+		{
+			return localeLanguage.getValue(key);
+		}
+
+		Language defaultLanguage = this.defaultLanguage;
+		return defaultLanguage == null ? "" : defaultLanguage.getValue(key);
+	}
+
+	/**
+	 * Gets a value from the locale language, falling back to the default language, by key ID. The languages must have been
+	 * indexed with a {@link com.cube.storm.language.data.LanguageKeyIndex}. Every localise method taking a key ID looks
+	 * values up with this, so subclasses can override it to add their own checks around {@link #findValue(int)}.
+	 *
+	 * @param id The key ID to look up
+	 *
+	 * @return The value, or an empty string
+	 */
+	@NonNull
+	public String getValue(int id)
+	{
+		return findValue(id);
+	}
+
+	/**
+	 * Gets a value from the locale language, falling back to the default language, by key ID, without going through an
+	 * overridden {@link #getValue(int)}
+	 *
+	 * @param id The key ID to look up
+	 *
+	 * @return The value, or an empty string
+	 */
+	@NonNull
+	public final String findValue(int id)
+	{
+		Language localeLanguage = this.localeLanguage;
+
+		if (localeLanguage != null && localeLanguage.hasValue(id))
+		{
+			return localeLanguage.getValue(id);
+		}
+
+		Language defaultLanguage = this.defaultLanguage;
+		return defaultLanguage == null ? "" : defaultLanguage.getValue(id);
+	}
+
+	/**
+	 * Gets the key of a key ID, used in place of a missing value by the localise methods taking a key ID
+	 *
+	 * @param id The key ID
+	 *
+	 * @return The key, or null if it is not known. Localisers have no key index, so this is always null unless overridden.
+	 */
+	@Nullable
+	public String getKey(int id)
+	{
+		return null;
+	}
+
+	/**
+	 * Localises a key with this localiser's languages and {@link #methodProcessor}
+	 *
+	 * @param key The key to look up
+	 * @param mappings Collection of mappings for variables
+	 *
+	 * @return The mapped value, or the key if the value was empty
+	 */
+	@NonNull
+	public String localise(@NonNull String key, @NonNull Collection<Mapping> mappings)
+	{
+		return localise(key, mappings.toArray(new Mapping[mappings.size()]));
+	}
+
+	/**
+	 * Localises a key with this localiser's languages and {@link #methodProcessor}. Renders with mappings are cached in the
+	 * {@link #renderCache}, if set.
+	 *
+	 * @param key The key to look up
+	 * @param mappings Optional array of mappings for variables
+	 *
+	 * @return The mapped value, or the key if the value was empty
+	 */
+	@NonNull
+	public String localise(@NonNull String key, Mapping... mappings)
+	{
+		// Read before the value, so a render is never cached under a newer generation than the language it used
+		int generation = getLanguageGeneration();
+		String value = getValue(key);
+
+		if (value.isEmpty())
+		{
+			return key;
+		}
+
+		if (mappings == null || mappings.length == 0)
+		{
+			return value;
+		}
+
+		RenderedStringCache cache = renderCache;
+
+		if (cache != null)
+		{
+			String cached = cache.get(generation, key, mappings);
+
+			if (cached != null)
+			{
+				return cached;
+			}
+		}
+
+		String rendered = renderBuffered(value, mappings).toString();
+
+		if (cache != null)
+		{
+			cache.put(generation, key, mappings, rendered);
+		}
+
+		return rendered;
+	}
+
+	/**
+	 * Localises a key ID with this localiser's languages and {@link #methodProcessor}
+	 *
+	 * @param id The key ID to look up
+	 * @param mappings Optional array of mappings for variables
+	 *
+	 * @return The mapped value, or the key if the value was empty
+	 */
+	@NonNull
+	public String localise(int id, Mapping... mappings)
+	{
+		String value = getValue(id);
+
+		if (value.isEmpty())
+		{
+			String key = getKey(id);
+			return key == null ? "" : key;
+		}
+
+		if (mappings == null || mappings.length == 0)
+		{
+			return value;
+		}
+
+		return renderBuffered(value, mappings).toString();
+	}
+
+	/**
+	 * Localises a key into the per-thread render buffer, without creating a string for the result. Use it to hand a
+	 * localisation straight to something that copies it, such as {@code TextView.setText(CharSequence)}.
+	 * <p/>
+	 * The returned {@link CharSequence} reads from the buffer, so it is only valid until the next localisation on the same
+	 * thread, and only on that thread. Once the buffer has been reused, reading it throws {@link IllegalStateException}.
+	 * Copy it with {@link CharSequence#toString()} if you need to keep it.
+	 *
+	 * @param key The key to look up
+	 * @param mappings Optional array of mappings for variables
+	 *
+	 * @return The mapped value, or the key if the value was empty
+	 */
+	@NonNull
+	public CharSequence localiseBuffered(@NonNull String key, Mapping... mappings)
+	{
+		String value = getValue(key);
+
+		if (value.isEmpty())
+		{
+			return key;
+		}
+
+		if (mappings == null || mappings.length == 0)
+		{
+			return value;
+		}
+
+		return handOut(renderBuffered(value, mappings));
+	}
+
+	/**
+	 * Localises a key ID into the per-thread render buffer. See {@link #localiseBuffered(String, Mapping...)}.
+	 *
+	 * @param id The key ID to look up
+	 * @param mappings Optional array of mappings for variables
+	 *
+	 * @return The mapped value, or the key if the value was empty
+	 */
+	@NonNull
+	public CharSequence localiseBuffered(int id, Mapping... mappings)
+	{
+		String value = getValue(id);
+
+		if (value.isEmpty())
+		{
+			String key = getKey(id);
+			return key == null ? "" : key;
+		}
+
+		if (mappings == null || mappings.length == 0)
+		{
+			return value;
+		}
+
+		return handOut(renderBuffered(value, mappings));
+	}
+
+	/**
+	 * Localises a key into a caller-supplied builder. No intermediate strings are created, the localised value and the
+	 * mapped variables are written straight into {@param out}.
+	 *
+	 * @param out The builder to append the localised value to
+	 * @param key The key to look up
+	 * @param mappings Optional array of mappings for variables
+	 *
+	 * @return {@param out}, with the mapped value, or the key if the value was empty, appended
+	 */
+	@NonNull
+	public StringBuilder localise(@NonNull StringBuilder out, @NonNull String key, Mapping... mappings)
+	{
+		String value = getValue(key);
+
+		if (value.isEmpty())
+		{
+			return out.append(key);
+		}
+
+		return render(value, mappings, out);
+	}
+
+	/**
+	 * Localises a key into a caller-supplied {@link Appendable}. No intermediate strings are created, the localised value
+	 * and the mapped variables are written straight into {@param out}.
+	 *
+	 * @param out The appendable to write the localised value to
+	 * @param key The key to look up
+	 * @param mappings Optional array of mappings for variables
+	 *
+	 * @return {@param out}, with the mapped value, or the key if the value was empty, appended
+	 *
+	 * @throws IOException If {@param out} throws when being written to
+	 */
+	@NonNull
+	public <T extends Appendable> T localise(@NonNull T out, @NonNull String key, Mapping... mappings) throws IOException
+	{
+		String value = getValue(key);
+
+		if (value.isEmpty())
+		{
+			out.append(key);
+		}
+		else
+		{
+			methodProcessor.render(value, mappings, out);
+		}
+
+		return out;
+	}
+
+	/**
+	 * Wraps a render in a {@link BufferedText} if it is in the per-thread buffer, so it can't be read once the buffer is reused
+	 *
+	 * @param rendered The render from {@link #renderBuffered(String, Mapping[])}
+	 *
+	 * @return The render to hand out
+	 */
+	@NonNull
+	private static CharSequence handOut(@NonNull CharSequence rendered)
+	{
+		RenderBuffer buffer = buffers.get();
+		return rendered == buffer.builder ? new BufferedText(buffer) : rendered;
+	}
+
+	/**
+	 * Renders a value into the per-thread buffer, or into a new builder if the buffer is already being rendered into, for
+	 * example by a custom {@link MethodProcessor} localising another key
+	 *
+	 * @param value The localised value
+	 * @param mappings The mappings for variables
+	 *
+	 * @return The buffer or new builder holding the render
+	 */
+	@NonNull
+	private CharSequence renderBuffered(@NonNull String value, Mapping[] mappings)
+	{
+		RenderBuffer buffer = buffers.get();
+
+		if (buffer.inUse)
+		{
+			return render(value, mappings, new StringBuilder(value.length() + 16));
+		}
+
+		buffer.inUse = true;
+		buffer.renders++;
+
+		try
+		{
+			buffer.builder.setLength(0);
+			return render(value, mappings, buffer.builder);
+		}
+		finally
+		{
+			buffer.inUse = false;
+		}
+	}
+
+	/**
+	 * Renders a value into a builder with the {@link #methodProcessor}
+	 *
+	 * @param value The localised value
+	 * @param mappings The mappings for variables
+	 * @param out The builder to render into
+	 *
+	 * @return {@param out}
+	 */
+	@NonNull
+	private StringBuilder render(@NonNull String value, Mapping[] mappings, @NonNull StringBuilder out)
+	{
+		try
+		{
+			methodProcessor.render(value, mappings, out);
+			return out;
+		}
+		catch (IOException e)
+		{
+			// StringBuilder does not throw
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package com.cube.storm.language.lib.manager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.language.data.Language;
+import com.cube.storm.language.lib.factory.PackSource;
+import com.cube.storm.language.lib.helper.Localiser;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of parsed language packs, keyed by the {@link PackSource#getId() Uri string} of the pack, shared between
+ * {@link Localiser}s.
+ * <p/>
+ * Each pack is parsed at most once, by the first localiser to ask for it. Other localisers asking for the same pack while
+ * it is being parsed wait for it, localisers asking for other packs do not. Once parsed, getting a pack does not lock.
+ * Packs that fail to load are not cached, so they are retried the next time they are asked for.
+ * <p/>
+ * On Android, packs loaded by {@code LanguageManager#loadLanguage(Context, Uri)} for {@code LanguageSettings} are added to
+ * its cache, so contexts created from the settings reuse them.
+ *
+ * @project LightningLanguage
+ */
+public class LanguagePackCache implements Trimmable
+{
+	/**
+	 * A cached pack, loaded once
+	 */
+	private static class Entry
+	{
+		@Nullable private volatile Language language;
+
+		@NonNull
+		private Language get(@NonNull Localiser localiser, @NonNull PackSource source)
+		{
+			Language loaded = language;
+
+			if (loaded == null)
+			{
+				synchronized (this)
+				{
+					loaded = language;
+
+					if (loaded == null)
+					{
+						loaded = localiser.readLanguage(source);
+
+						if (loaded == null)
+						{
+							return new Language();
+						}
+
+						language = loaded;
+					}
+				}
+			}
+
+			return loaded;
+		}
+	}
+
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	/**
+	 * Gets a pack, reading it with {@link Localiser#readLanguage(PackSource)} if it is not cached
+	 *
+	 * @param localiser The localiser to read the pack with
+	 * @param source The source of the pack
+	 *
+	 * @return The language. Will be empty if the pack could not be loaded.
+	 */
+	@NonNull
+	public Language get(@NonNull Localiser localiser, @NonNull PackSource source)
+	{
+		String key = source.getId();
+		Entry entry = entries.get(key);
+
+		if (entry == null)
+		{
+			Entry created = new Entry();
+			entry = entries.putIfAbsent(key, created);
+			entry = entry == null ? created : entry;
+		}
+
+		return entry.get(localiser, source);
+	}
+
+	/**
+	 * Gets a pack only if it is already cached
+	 *
+	 * @param packUri The Uri string of the pack
+	 *
+	 * @return The language, or null if it is not cached
+	 */
+	@Nullable
+	public Language peek(@NonNull String packUri)
+	{
+		Entry entry = entries.get(packUri);
+		return entry == null ? null : entry.language;
+	}
+
+	/**
+	 * Adds or replaces a pack in the cache
+	 *
+	 * @param packUri The Uri string of the pack
+	 * @param language The parsed pack
+	 */
+	public void put(@NonNull String packUri, @NonNull Language language)
+	{
+		Entry entry = new Entry();
+		entry.language = language;
+		entries.put(packUri, entry);
+	}
+
+	/**
+	 * Removes a pack from the cache, so it is parsed again the next time it is asked for. Localisers already using it keep
+	 * their copy.
+	 *
+	 * @param packUri The Uri string of the pack
+	 */
+	public void invalidate(@NonNull String packUri)
+	{
+		entries.remove(packUri);
+	}
+
+	/**
+	 * Removes every pack from the cache
+	 */
+	public void clear()
+	{
+		entries.clear();
+	}
+
+	/**
+	 * @return The number of cached packs
+	 */
+	public int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * Removes every pack from the cache at {@link TrimTier#INACTIVE}. Packs still set on a localiser stay in memory through
+	 * the localiser, only packs no localiser is using are released. The cache cannot tell which those are, so nothing is
+	 * counted towards the bytes released.
+	 *
+	 * @param tier The tier to release
+	 *
+	 * @return Always 0
+	 */
+	@Override public long trim(@NonNull TrimTier tier)
+	{
+		if (tier == TrimTier.INACTIVE)
+		{
+			entries.clear();
+		}
+
+		return 0;
+	}
+}
@@ -0,0 +1,26 @@
+package com.cube.storm.language.lib.manager;
+
+/**
+ * Tiers of memory released by {@code MemoryTrimmer}, from lightest to heaviest. Trimming to a tier also trims every
+ * lighter tier.
+ *
+ * @project LightningLanguage
+ */
+public enum TrimTier
+{
+	/**
+	 * Drops caches of rendered and derived text, such as {@code LocalisedBundleCache} tables, decoded value caches and
+	 * sorted key indexes. Nothing has to be parsed again.
+	 */
+	CACHES,
+
+	/**
+	 * Drops language data that is not in use, such as prefetched or inactive shards of sharded languages
+	 */
+	INACTIVE,
+
+	/**
+	 * Releases the active languages. They are reloaded from their packs on disk on the next lookup, see {@code ReleasedLanguage}.
+	 */
+	ACTIVE
+}
@@ -0,0 +1,21 @@
+package com.cube.storm.language.lib.manager;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Something holding memory that can be released under memory pressure. Register it with
+ * {@code MemoryTrimmer#register(Trimmable)}.
+ *
+ * @project LightningLanguage
+ */
+public interface Trimmable
+{
+	/**
+	 * Releases the memory of a tier. Called once for each tier up to the one being trimmed to, lightest first.
+	 *
+	 * @param tier The tier to release
+	 *
+	 * @return The estimated number of bytes released
+	 */
+	long trim(@NonNull TrimTier tier);
+}
@@ -0,0 +1,272 @@
+package com.cube.storm.language.lib.parser;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.language.data.Language;
+import com.cube.storm.language.data.PackFingerprint;
+import com.cube.storm.language.data.ProgressiveLanguage;
+import com.cube.storm.language.lib.factory.PackSource;
+import com.cube.storm.language.lib.processor.LanguageProcessor;
+import com.cube.storm.language.lib.trace.Span;
+import com.cube.storm.language.lib.trace.Tracer;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Reads language packs from a {@link PackSource} into {@link Language} models. The contents are checksummed as they are
+ * parsed, and stored as the language's {@link PackFingerprint}.
+ *
+ * @project LightningLanguage
+ */
+public class LanguageReader
+{
+	/**
+	 * Number of values parsed before they are published by {@link #readProgressively(PackSource, ProgressiveLanguage)}
+	 */
+	public static final int PROGRESSIVE_BATCH_SIZE = 256;
+
+	@NonNull private final Gson gson;
+	@NonNull private final Tracer tracer;
+
+	public LanguageReader()
+	{
+		this(Tracer.NONE);
+	}
+
+	/**
+	 * @param tracer The tracer to report parsing and processing to
+	 */
+	public LanguageReader(@NonNull Tracer tracer)
+	{
+		this(new GsonBuilder().registerTypeAdapter(Language.class, new LanguageProcessor(tracer)).create(), tracer);
+	}
+
+	/**
+	 * @param gson The gson instance to parse with. It must have a {@link LanguageProcessor}, or a deserializer wrapping one,
+	 * registered for {@link Language}.
+	 * @param tracer The tracer to report parsing to
+	 */
+	public LanguageReader(@NonNull Gson gson, @NonNull Tracer tracer)
+	{
+		this.gson = gson;
+		this.tracer = tracer;
+	}
+
+	/**
+	 * Reads a language from a pack
+	 *
+	 * @param source The source of the pack
+	 *
+	 * @return The language, or null if the pack does not exist or could not be parsed
+	 */
+	@Nullable
+	public Language read(@NonNull PackSource source)
+	{
+		InputStream stream = null;
+
+		try
+		{
+			stream = source.open();
+
+			if (stream != null)
+			{
+				CountingInputStream counted = new CountingInputStream(stream);
+				CheckedInputStream checked = new CheckedInputStream(counted, new CRC32());
+				Span span = tracer.beginSpan(Tracer.SPAN_PARSE)
+					.attribute(Tracer.ATTRIBUTE_URI, source.getId());
+
+				try
+				{
+					Language language = gson.fromJson(new InputStreamReader(checked, "UTF-8"), Language.class);
+					language.setSourceUri(source.getId());
+
+					// Read any trailing bytes the parser stopped short of so the checksum covers the whole pack
+					byte[] remainder = new byte[1024];
+					while (checked.read(remainder) > -1);
+
+					language.setFingerprint(PackFingerprint.from(source, checked.getChecksum().getValue()));
+
+					return language;
+				}
+				finally
+				{
+					span.attribute(Tracer.ATTRIBUTE_SIZE, counted.count).end();
+				}
+			}
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+		}
+		finally
+		{
+			if (stream != null)
+			{
+				try
+				{
+					stream.close();
+				}
+				catch (IOException ignore){}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Reads a pack into a {@link ProgressiveLanguage}, publishing its values in batches of {@link #PROGRESSIVE_BATCH_SIZE}
+	 * as they are parsed, so lookups of keys near the start of the pack can be answered before the rest has been read.
+	 * <p/>
+	 * The pack is streamed rather than parsed into a tree, so the gson instance and any custom {@link LanguageProcessor}
+	 * are not used. Values are post-processed with {@link LanguageProcessor#unescape(String)}. The language is always
+	 * {@link ProgressiveLanguage#complete(PackFingerprint) completed}, with the pack's fingerprint if it was parsed
+	 * successfully, so no lookup is left waiting. If the pack fails to parse part way, the values before the error are kept.
+	 *
+	 * @param source The source of the pack
+	 * @param language The language to publish the values to
+	 *
+	 * @return true if the whole pack was parsed
+	 */
+	public boolean readProgressively(@NonNull PackSource source, @NonNull ProgressiveLanguage language)
+	{
+		InputStream stream = null;
+		PackFingerprint fingerprint = null;
+
+		try
+		{
+			stream = source.open();
+
+			if (stream != null)
+			{
+				CountingInputStream counted = new CountingInputStream(stream);
+				CheckedInputStream checked = new CheckedInputStream(counted, new CRC32());
+				Map<String, String> batch = new HashMap<String, String>(PROGRESSIVE_BATCH_SIZE * 2);
+				Span span = tracer.beginSpan(Tracer.SPAN_PARSE)
+					.attribute(Tracer.ATTRIBUTE_URI, source.getId());
+
+				try
+				{
+					JsonReader reader = new JsonReader(new InputStreamReader(checked, "UTF-8"));
+
+					reader.beginObject();
+
+					while (reader.hasNext())
+					{
+						String key = reader.nextName();
+						JsonToken token = reader.peek();
+
+						if (token == JsonToken.NULL)
+						{
+							reader.nextNull();
+							batch.put(key, null);
+						}
+						else if (token == JsonToken.BOOLEAN)
+						{
+							batch.put(key, String.valueOf(reader.nextBoolean()));
+						}
+						else
+						{
+							// Numbers are read as strings, objects and arrays fail as they do when parsed by gson
+							batch.put(key, LanguageProcessor.unescape(reader.nextString()));
+						}
+
+						if (batch.size() >= PROGRESSIVE_BATCH_SIZE)
+						{
+							language.publish(batch);
+							batch.clear();
+						}
+					}
+
+					reader.endObject();
+
+					// Read any trailing bytes the parser stopped short of so the checksum covers the whole pack
+					byte[] remainder = new byte[1024];
+					while (checked.read(remainder) > -1);
+
+					fingerprint = PackFingerprint.from(source, checked.getChecksum().getValue());
+				}
+				finally
+				{
+					// Publish the last batch, or the values parsed before an error
+					language.publish(batch);
+					span.attribute(Tracer.ATTRIBUTE_SIZE, counted.count).end();
+				}
+			}
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+		}
+		finally
+		{
+			if (stream != null)
+			{
+				try
+				{
+					stream.close();
+				}
+				catch (IOException ignore){}
+			}
+
+			language.complete(fingerprint);
+		}
+
+		return fingerprint != null;
+	}
+
+	/**
+	 * Counts the bytes read from a stream, for the size of the parse span
+	 */
+	private static class CountingInputStream extends FilterInputStream
+	{
+		private long count;
+
+		private CountingInputStream(@NonNull InputStream in)
+		{
+			super(in);
+		}
+
+		@Override public int read() throws IOException
+		{
+			int read = super.read();
+
+			if (read > -1)
+			{
+				count++;
+			}
+
+			return read;
+		}
+
+		@Override public int read(@NonNull byte[] buffer, int offset, int length) throws IOException
+		{
+			int read = super.read(buffer, offset, length);
+
+			if (read > 0)
+			{
+				count += read;
+			}
+
+			return read;
+		}
+
+		@Override public long skip(long n) throws IOException
+		{
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+	}
+}
@@ -1,9 +1,12 @@
 package com.cube.storm.language.lib.processor;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import com.cube.storm.language.data.Language;
-import com.cube.storm.util.lib.processor.GsonProcessor;
+import com.cube.storm.language.lib.trace.Span;
+import com.cube.storm.language.lib.trace.Tracer;
 import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
 import com.google.gson.JsonParseException;
@@ -14,12 +17,38 @@ import java.util.Map;
 
 /**
  * Base processor class for inflating a language file into a {@link com.cube.storm.language.data.Language} object.
+ * <p/>
+ * Post-processing the values is reported to the {@link #getTracer() tracer} as a {@link Tracer#SPAN_PROCESS} span.
  *
  * @author Callum Taylor
  * @project LightningLanguage
  */
-public class LanguageProcessor extends GsonProcessor<Language>
+public class LanguageProcessor implements JsonDeserializer<Language>
 {
+	@NonNull private final Tracer tracer;
+
+	public LanguageProcessor()
+	{
+		this(Tracer.NONE);
+	}
+
+	/**
+	 * @param tracer The tracer to report processing to
+	 */
+	public LanguageProcessor(@NonNull Tracer tracer)
+	{
+		this.tracer = tracer;
+	}
+
+	/**
+	 * @return The tracer to report processing to
+	 */
+	@NonNull
+	protected Tracer getTracer()
+	{
+		return tracer;
+	}
+
 	@Nullable
 	@Override public Language deserialize(JsonElement jsonElement, Type type, JsonDeserializationContext jsonDeserializationContext) throws JsonParseException
 	{
@@ -28,20 +57,33 @@ public class LanguageProcessor extends GsonProcessor<Language>
 		if (jsonElement != JsonNull.INSTANCE && jsonElement != null && jsonElement.isJsonObject())
 		{
 			Map<String, String> decoded = jsonDeserializationContext.deserialize(jsonElement, new TypeToken<Map<String, String>>(){}.getType());
+			Span span = getTracer().beginSpan(Tracer.SPAN_PROCESS)
+				.attribute(Tracer.ATTRIBUTE_SIZE, decoded.size());
 
 			//Remove double backslashes e.g., \\n to make display a new line
 			for (Map.Entry<String, String> pair : decoded.entrySet())
 			{
-				String temp = pair.getValue();
-				if (temp.contains("\\n"))
-				{
-					pair.setValue(temp.replace("\\n", "\n"));
-				}
+				pair.setValue(unescape(pair.getValue()));
 			}
+
+			span.end();
 			language.setValues(decoded);
 			return language;
 		}
 
 		return null;
 	}
+
+	/**
+	 * Replaces escaped new lines ({@code \\n}) in a parsed value with new lines
+	 *
+	 * @param value The value as it was parsed
+	 *
+	 * @return The value to display
+	 */
+	@NonNull
+	public static String unescape(@NonNull String value)
+	{
+		return value.contains("\\n") ? value.replace("\\n", "\n") : value;
+	}
 }
@@ -0,0 +1,447 @@
+package com.cube.storm.language.lib.processor;
+
+import androidx.annotation.NonNull;
+
+import com.cube.storm.language.lib.annotation.Localise;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.Getter;
+
+/**
+ * Class for mapping key and value for localisations. Keys do not require the inclusion of `{}`
+ * <p/>
+ * Primitive values, boxed or not, are not formatted when the mapping is created. They are kept as they are and only
+ * written out when a placeholder in the localisation consumes them, straight into the output buffer when rendering with
+ * {@link MethodProcessor#render(CharSequence, Mapping[], Appendable)}. Any other value is converted to a string when the
+ * mapping is created, so later changes to a mutable value, such as a {@link StringBuilder}, are not rendered.
+ *
+ * @author Callum Taylor
+ * @project LightningLanguage
+ */
+public class Mapping
+{
+	private static final byte TYPE_OBJECT = 0;
+	private static final byte TYPE_INT = 1;
+	private static final byte TYPE_LONG = 2;
+	private static final byte TYPE_FLOAT = 3;
+	private static final byte TYPE_DOUBLE = 4;
+	private static final byte TYPE_BOOLEAN = 5;
+	private static final byte TYPE_CHAR = 6;
+
+	@Getter private String key;
+
+	/**
+	 * The string value, used for {@link #TYPE_OBJECT} mappings
+	 */
+	private String objectValue;
+
+	/**
+	 * The primitive value, used for integral, boolean and char mappings
+	 */
+	private long longValue;
+
+	/**
+	 * The primitive value, used for floating point mappings
+	 */
+	private double doubleValue;
+
+	/**
+	 * The type of the stored value
+	 */
+	private byte type;
+
+	/**
+	 * The formatted value, created the first time {@link #getValue()} is called
+	 */
+	private String value;
+
+	public Mapping(String k, Object v)
+	{
+		this.key = k;
+
+		if (v instanceof Integer || v instanceof Short || v instanceof Byte)
+		{
+			this.longValue = ((Number)v).intValue();
+			this.type = TYPE_INT;
+		}
+		else if (v instanceof Long)
+		{
+			this.longValue = (Long)v;
+			this.type = TYPE_LONG;
+		}
+		else if (v instanceof Float)
+		{
+			this.doubleValue = (Float)v;
+			this.type = TYPE_FLOAT;
+		}
+		else if (v instanceof Double)
+		{
+			this.doubleValue = (Double)v;
+			this.type = TYPE_DOUBLE;
+		}
+		else if (v instanceof Boolean)
+		{
+			this.longValue = (Boolean)v ? 1 : 0;
+			this.type = TYPE_BOOLEAN;
+		}
+		else if (v instanceof Character)
+		{
+			this.longValue = (Character)v;
+			this.type = TYPE_CHAR;
+		}
+		else
+		{
+			this.objectValue = String.valueOf(v);
+			this.type = TYPE_OBJECT;
+		}
+	}
+
+	public Mapping(String k, CharSequence v)
+	{
+		this.key = k;
+		this.objectValue = String.valueOf(v);
+		this.type = TYPE_OBJECT;
+	}
+
+	public Mapping(String k, int v)
+	{
+		this.key = k;
+		this.longValue = v;
+		this.type = TYPE_INT;
+	}
+
+	public Mapping(String k, long v)
+	{
+		this.key = k;
+		this.longValue = v;
+		this.type = TYPE_LONG;
+	}
+
+	public Mapping(String k, float v)
+	{
+		this.key = k;
+		this.doubleValue = v;
+		this.type = TYPE_FLOAT;
+	}
+
+	public Mapping(String k, double v)
+	{
+		this.key = k;
+		this.doubleValue = v;
+		this.type = TYPE_DOUBLE;
+	}
+
+	public Mapping(String k, boolean v)
+	{
+		this.key = k;
+		this.longValue = v ? 1 : 0;
+		this.type = TYPE_BOOLEAN;
+	}
+
+	public Mapping(String k, char v)
+	{
+		this.key = k;
+		this.longValue = v;
+		this.type = TYPE_CHAR;
+	}
+
+	/**
+	 * Gets the value of the mapping as a string. The value is formatted the first time this is called.
+	 *
+	 * @return The formatted value
+	 */
+	public String getValue()
+	{
+		if (value == null)
+		{
+			switch (type)
+			{
+				case TYPE_INT:
+				case TYPE_LONG:
+					value = String.valueOf(longValue);
+					break;
+
+				case TYPE_FLOAT:
+					value = String.valueOf((float)doubleValue);
+					break;
+
+				case TYPE_DOUBLE:
+					value = String.valueOf(doubleValue);
+					break;
+
+				case TYPE_BOOLEAN:
+					value = String.valueOf(longValue != 0);
+					break;
+
+				case TYPE_CHAR:
+					value = String.valueOf((char)longValue);
+					break;
+
+				default:
+					value = objectValue;
+			}
+		}
+
+		return value;
+	}
+
+	/**
+	 * Writes the value of the mapping to an output
+	 *
+	 * @param out The output to write to
+	 *
+	 * @throws IOException If {@param out} throws when being written to
+	 */
+	public void appendValue(@NonNull Appendable out) throws IOException
+	{
+		if (value != null)
+		{
+			out.append(value);
+		}
+		else if (type == TYPE_OBJECT)
+		{
+			out.append(objectValue);
+		}
+		else if (type == TYPE_CHAR)
+		{
+			out.append((char)longValue);
+		}
+		else if (out instanceof StringBuilder)
+		{
+			StringBuilder builder = (StringBuilder)out;
+
+			switch (type)
+			{
+				case TYPE_INT:
+				case TYPE_LONG:
+					builder.append(longValue);
+					break;
+
+				case TYPE_FLOAT:
+					builder.append((float)doubleValue);
+					break;
+
+				case TYPE_DOUBLE:
+					builder.append(doubleValue);
+					break;
+
+				case TYPE_BOOLEAN:
+					builder.append(longValue != 0);
+					break;
+			}
+		}
+		else
+		{
+			out.append(getValue());
+		}
+	}
+
+	/**
+	 * Creates a fingerprint of the keys and values of an array of mappings, without formatting the values. Different
+	 * mappings can have the same fingerprint, so it is only suitable for hashing.
+	 *
+	 * @param mappings The mappings. Can be null.
+	 *
+	 * @return The fingerprint
+	 */
+	public static long fingerprint(Mapping[] mappings)
+	{
+		long hash = 1;
+
+		if (mappings != null)
+		{
+			for (Mapping mapping : mappings)
+			{
+				hash = 31 * hash + (mapping.key == null ? 0 : mapping.key.hashCode());
+				hash = 31 * hash + mapping.type;
+				hash = 31 * hash + mapping.valueHash();
+			}
+		}
+
+		return hash;
+	}
+
+	/**
+	 * Compares the keys and values of two arrays of mappings, without formatting the values. Use it to confirm a match
+	 * found by {@link #fingerprint(Mapping[])}.
+	 *
+	 * @param first The first mappings. Can be null.
+	 * @param second The second mappings. Can be null.
+	 *
+	 * @return true if both have the same keys and values in the same order. A null array is equal to an empty one.
+	 */
+	public static boolean contentEquals(Mapping[] first, Mapping[] second)
+	{
+		int length = first == null ? 0 : first.length;
+
+		if (length != (second == null ? 0 : second.length))
+		{
+			return false;
+		}
+
+		for (int index = 0; index < length; index++)
+		{
+			Mapping mapping = first[index];
+			Mapping other = second[index];
+
+			if (mapping == other)
+			{
+				continue;
+			}
+
+			if (mapping.type != other.type
+				|| mapping.longValue != other.longValue
+				|| Double.doubleToLongBits(mapping.doubleValue) != Double.doubleToLongBits(other.doubleValue)
+				|| !(mapping.key == null ? other.key == null : mapping.key.equals(other.key))
+				|| !(mapping.objectValue == null ? other.objectValue == null : mapping.objectValue.equals(other.objectValue)))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return A hash of the stored value
+	 */
+	private long valueHash()
+	{
+		switch (type)
+		{
+			case TYPE_FLOAT:
+			case TYPE_DOUBLE:
+				return Double.doubleToLongBits(doubleValue);
+
+			case TYPE_OBJECT:
+				return objectValue.hashCode();
+
+			default:
+				return longValue;
+		}
+	}
+
+	/**
+	 * Cache of the {@link Localise} tagged fields of each class, including those of its super classes
+	 */
+	private static final Map<Class<?>, Field[]> taggedFields = new ConcurrentHashMap<Class<?>, Field[]>();
+
+	/**
+	 * Gets a list of {@link Localise} tagged variables to use as replacements for variable localisations
+	 * <p/>
+	 * The tagged fields of a class are only looked up by reflection the first time the class is scanned, subsequent calls
+	 * only read the current field values.
+	 *
+	 * @param cls The class to scan
+	 *
+	 * @return The list of {@link Mapping}. Can be empty.
+	 */
+	@NonNull
+	public static List<Mapping> getTaggedLocalisations(@NonNull Object cls)
+	{
+		Field[] fields = getTaggedFields(cls.getClass());
+		List<Mapping> mappings = new ArrayList<>(fields.length);
+
+		for (Field field : fields)
+		{
+			try
+			{
+				mappings.add(fromField(field.getAnnotation(Localise.class).value(), field, cls));
+			}
+			catch (IllegalAccessException e)
+			{
+				e.printStackTrace();
+			}
+		}
+
+		return mappings;
+	}
+
+	/**
+	 * Gets the {@link Localise} tagged fields of a class and its super classes
+	 *
+	 * @param type The class to scan
+	 *
+	 * @return The accessible tagged fields. Can be empty.
+	 */
+	@NonNull
+	private static Field[] getTaggedFields(@NonNull Class<?> type)
+	{
+		Field[] fields = taggedFields.get(type);
+
+		if (fields == null)
+		{
+			ArrayList<Field> tagged = new ArrayList<Field>();
+			Class objOrSuper = type;
+
+			while (objOrSuper != null)
+			{
+				for (Field field : objOrSuper.getDeclaredFields())
+				{
+					if (field.isAnnotationPresent(Localise.class))
+					{
+						field.setAccessible(true);
+						tagged.add(field);
+					}
+				}
+
+				objOrSuper = objOrSuper.getSuperclass();
+			}
+
+			fields = tagged.toArray(new Field[tagged.size()]);
+			taggedFields.put(type, fields);
+		}
+
+		return fields;
+	}
+
+	/**
+	 * Creates a mapping from a field, reading primitive fields without boxing them
+	 *
+	 * @param key The key of the mapping
+	 * @param field The field to read
+	 * @param cls The object to read the field from
+	 *
+	 * @return The mapping
+	 *
+	 * @throws IllegalAccessException If the field can not be read
+	 */
+	@NonNull
+	private static Mapping fromField(String key, @NonNull Field field, @NonNull Object cls) throws IllegalAccessException
+	{
+		Class<?> fieldType = field.getType();
+
+		if (fieldType == int.class || fieldType == short.class || fieldType == byte.class)
+		{
+			return new Mapping(key, field.getInt(cls));
+		}
+		else if (fieldType == long.class)
+		{
+			return new Mapping(key, field.getLong(cls));
+		}
+		else if (fieldType == float.class)
+		{
+			return new Mapping(key, field.getFloat(cls));
+		}
+		else if (fieldType == double.class)
+		{
+			return new Mapping(key, field.getDouble(cls));
+		}
+		else if (fieldType == boolean.class)
+		{
+			return new Mapping(key, field.getBoolean(cls));
+		}
+		else if (fieldType == char.class)
+		{
+			return new Mapping(key, field.getChar(cls));
+		}
+
+		return new Mapping(key, field.get(cls));
+	}
+}
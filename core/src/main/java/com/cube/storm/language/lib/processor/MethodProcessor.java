@@ -0,0 +1,244 @@
+package com.cube.storm.language.lib.processor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Class to deal with methods and placeholder tidyup on variable localisations.
+ * <br />
+ * Methods are processed
+ *
+ * @author Callum Taylor
+ * @project LightningLanguage
+ */
+public class MethodProcessor
+{
+	private static final Pattern pattern = Pattern.compile("\\{[0-9a-zA-Z_\\-\\?\\.\\(\\)\\'\\\"\\<\\>\\,\\\\\\/\\!\\@\\$\\%\\^\\&\\*]+((\\.)[0-9a-zA-Z]+)+\\}");
+	private static final Pattern methods = Pattern.compile("((\\.)[0-9a-zA-Z]+)");
+
+	/**
+	 * Processes {@param variable} based on methods attached to it
+	 *
+	 * @param mappedVariable The replacement variable for the localisation
+	 * @param string The whole string including the replaced variables. String may look like {@code {replaced variable}}
+	 * 				 or {@code {replaced variable.methodOne.methodTwo}}
+	 *
+	 * @return The processed string with all placeholder text removed and methods processed
+	 */
+	@NonNull
+	public String process(@Nullable String mappedVariable, @NonNull String string)
+	{
+		Matcher matcher = pattern.matcher(string);
+		String originalString = new String(mappedVariable);
+
+		while (matcher.find())
+		{
+			String found = matcher.group();
+			Matcher methodMatcher = methods.matcher(found);
+
+			while (methodMatcher.find())
+			{
+				String method = methodMatcher.group();
+				mappedVariable = matchMethod(method, mappedVariable);
+			}
+		}
+
+		string = string.replaceAll("\\{" + Pattern.quote(originalString) + "(\\.[0-9a-zA-Z]+)\\}", mappedVariable);
+		string = string.replaceAll("\\{" + Pattern.quote(originalString) + "\\}", originalString);
+
+		return string;
+	}
+
+	/**
+	 * Renders a localisation value into {@param out}, replacing {@code {KEY}} and {@code {KEY.methodOne.methodTwo}} placeholders
+	 * with the values of the matching {@link Mapping}. Placeholders without a matching mapping are written as they are.
+	 * <p/>
+	 * Unlike {@link #process(String, String)}, no intermediate strings are created for the template. Mapping values are written
+	 * straight into {@param out} unless a method is attached to the placeholder, in which case the value is passed through
+	 * {@link #matchMethod(String, String)}.
+	 *
+	 * @param value The localisation value containing the placeholders
+	 * @param mappings The mappings to substitute. Can be null.
+	 * @param out The output to write the rendered value to
+	 *
+	 * @throws IOException If {@param out} throws when being written to
+	 */
+	public void render(@NonNull CharSequence value, @Nullable Mapping[] mappings, @NonNull Appendable out) throws IOException
+	{
+		int length = value.length();
+		int start = 0;
+
+		if (mappings == null || mappings.length == 0)
+		{
+			out.append(value);
+			return;
+		}
+
+		for (int index = 0; index < length; index++)
+		{
+			if (value.charAt(index) != '{')
+			{
+				continue;
+			}
+
+			int end = index + 1;
+			while (end < length && value.charAt(end) != '}' && value.charAt(end) != '{')
+			{
+				end++;
+			}
+
+			if (end >= length || value.charAt(end) != '}')
+			{
+				continue;
+			}
+
+			int nameEnd = index + 1;
+			while (nameEnd < end && value.charAt(nameEnd) != '.')
+			{
+				nameEnd++;
+			}
+
+			Mapping mapping = findMapping(mappings, value, index + 1, nameEnd);
+
+			if (mapping == null)
+			{
+				continue;
+			}
+
+			out.append(value, start, index);
+
+			if (nameEnd == end)
+			{
+				mapping.appendValue(out);
+			}
+			else if (!isMethodTarget(mapping.getValue()))
+			{
+				mapping.appendValue(out);
+			}
+			else
+			{
+				String variable = mapping.getValue();
+				int methodStart = nameEnd;
+
+				while (methodStart < end)
+				{
+					int methodEnd = methodStart + 1;
+					while (methodEnd < end && value.charAt(methodEnd) != '.')
+					{
+						methodEnd++;
+					}
+
+					variable = matchMethod(value.subSequence(methodStart, methodEnd).toString(), variable);
+					methodStart = methodEnd;
+				}
+
+				out.append(variable);
+			}
+
+			start = end + 1;
+			index = end;
+		}
+
+		out.append(value, start, length);
+	}
+
+	/**
+	 * Checks if methods can be applied to a mapped variable. This mirrors the placeholder {@link #pattern} used by
+	 * {@link #process(String, String)}, which only applies methods to variables made up of its allowed characters.
+	 *
+	 * @param variable The mapped variable
+	 *
+	 * @return true if methods should be applied, false if the variable should be written as it is
+	 */
+	private static boolean isMethodTarget(@Nullable String variable)
+	{
+		if (variable == null || variable.isEmpty())
+		{
+			return false;
+		}
+
+		for (int index = 0; index < variable.length(); index++)
+		{
+			char c = variable.charAt(index);
+
+			if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || "_-?.()'\"<>,\\/!@$%^&*".indexOf(c) > -1))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Finds the mapping whose key matches a region of a value without creating a substring
+	 *
+	 * @param mappings The mappings to search
+	 * @param value The value containing the placeholder name
+	 * @param start The start index of the name, inclusive
+	 * @param end The end index of the name, exclusive
+	 *
+	 * @return The first matching mapping, or null
+	 */
+	@Nullable
+	private static Mapping findMapping(@NonNull Mapping[] mappings, @NonNull CharSequence value, int start, int end)
+	{
+		for (Mapping mapping : mappings)
+		{
+			String key = mapping.getKey();
+
+			if (key == null || key.length() != end - start)
+			{
+				continue;
+			}
+
+			boolean matches = true;
+			for (int index = 0; index < key.length() && matches; index++)
+			{
+				matches = key.charAt(index) == value.charAt(start + index);
+			}
+
+			if (matches)
+			{
+				return mapping;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Matches the method param for actual java executable method
+	 *
+	 * @param method The method to match. Will be prefixed with a period and may contain parenthesis with arguments
+	 * @param variable The variable to operate on
+	 *
+	 * @return The processed string
+	 */
+	protected String matchMethod(@NonNull String method, @Nullable String variable)
+	{
+		if (method.equals(".upperCase"))
+		{
+			return upperCase(variable);
+		}
+
+		return variable;
+	}
+
+	/**
+	 * Uppercases the input string
+	 *
+	 * @param input The string to uppercase
+	 *
+	 * @return The upper cased string or empty string
+	 */
+	@NonNull
+	protected String upperCase(@Nullable String input)
+	{
+		return input == null ? "" : input.toUpperCase();
+	}
+}
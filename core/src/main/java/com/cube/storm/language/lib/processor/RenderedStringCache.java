@@ -0,0 +1,416 @@
+package com.cube.storm.language.lib.processor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.language.lib.manager.TrimTier;
+import com.cube.storm.language.lib.manager.Trimmable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+
+/**
+ * Bounded LRU cache of fully rendered localisations, keyed by the language key and the mappings it was rendered with.
+ * <p/>
+ * Use it when the same key is rendered with the same few mapping values over and over, for example {@code "{COUNT} unread"}
+ * in a list. Only renders with mappings are worth caching, a key without mappings is already a plain lookup.
+ * <p/>
+ * Every entry is tied to the language generation it was rendered for. When a newer generation is seen, every entry is
+ * dropped, and renders of an older generation are not cached. Each entry also keeps its generation and is only returned
+ * for that generation, so a render put while the generation changes is never served for the new one. The cache is split into independently locked stripes, each
+ * with its own share of the maximum size, so lookups on different keys rarely contend. Entries are hashed and striped by
+ * {@link Mapping#fingerprint(Mapping[])}, and keep a copy of their mappings so a hit always has the same keys and values.
+ * <p/>
+ * Example
+ * <pre>
+ languageSettings = new LanguageSettings.Builder(this)
+	.renderCache(new RenderedStringCache(512))
+	.build();
+
+ // Later, to tune the size
+ RenderedStringCache cache = LanguageSettings.getInstance().getRenderCache();
+ Log.d("Language", "Render cache hit rate " + cache.getHitRate() + ", " + cache.getEvictionCount() + " evictions");
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public class RenderedStringCache implements Trimmable
+{
+	/**
+	 * Rough per-string overhead used when estimating the size of the cache
+	 */
+	private static final int STRING_OVERHEAD = 32;
+
+	/**
+	 * Maximum number of stripes the cache is split into
+	 */
+	private static final int MAX_STRIPES = 16;
+
+	/**
+	 * Minimum number of entries per stripe, smaller caches use fewer stripes
+	 */
+	private static final int MIN_STRIPE_SIZE = 16;
+
+	/**
+	 * Cache key of a render
+	 */
+	private static final class Key
+	{
+		private final String key;
+		private final Mapping[] mappings;
+		private final long fingerprint;
+		private final int hash;
+
+		/**
+		 * @param key The language key
+		 * @param mappings The mappings, kept as they are. Copy the array before keeping the key in the cache.
+		 */
+		private Key(@NonNull String key, @Nullable Mapping[] mappings)
+		{
+			this.key = key;
+			this.mappings = mappings;
+			this.fingerprint = Mapping.fingerprint(mappings);
+			this.hash = 31 * key.hashCode() + (int)(fingerprint ^ (fingerprint >>> 32));
+		}
+
+		@Override public boolean equals(Object other)
+		{
+			if (this == other)
+			{
+				return true;
+			}
+
+			if (!(other instanceof Key))
+			{
+				return false;
+			}
+
+			Key key = (Key)other;
+			return fingerprint == key.fingerprint && this.key.equals(key.key) && Mapping.contentEquals(mappings, key.mappings);
+		}
+
+		@Override public int hashCode()
+		{
+			return hash;
+		}
+	}
+
+	/**
+	 * Cached render and the language generation it was rendered for
+	 */
+	private static final class Entry
+	{
+		private final String rendered;
+		private final int generation;
+
+		private Entry(@NonNull String rendered, int generation)
+		{
+			this.rendered = rendered;
+			this.generation = generation;
+		}
+	}
+
+	/**
+	 * Access ordered map of a stripe, evicting its eldest entry when over its share of the maximum size
+	 */
+	private final class Stripe extends LinkedHashMap<Key, Entry>
+	{
+		private final int maxSize;
+
+		private Stripe(int maxSize)
+		{
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest)
+		{
+			if (size() > maxSize)
+			{
+				evictionCount.incrementAndGet();
+				return true;
+			}
+
+			return false;
+		}
+	}
+
+	private final Stripe[] stripes;
+	private final int stripeMask;
+
+	/**
+	 * The maximum number of entries in the cache
+	 */
+	@Getter private final int maxSize;
+
+	/**
+	 * The language generation the cached entries were rendered for
+	 */
+	private volatile int generation;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong putCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	/**
+	 * @param maxSize The maximum number of rendered strings to keep
+	 */
+	public RenderedStringCache(int maxSize)
+	{
+		if (maxSize <= 0)
+		{
+			throw new IllegalArgumentException("Max size must be greater than 0");
+		}
+
+		int stripeCount = 1;
+
+		while (stripeCount < MAX_STRIPES && maxSize / (stripeCount * 2) >= MIN_STRIPE_SIZE)
+		{
+			stripeCount *= 2;
+		}
+
+		this.maxSize = maxSize;
+		this.stripes = new Stripe[stripeCount];
+		this.stripeMask = stripeCount - 1;
+
+		for (int index = 0; index < stripeCount; index++)
+		{
+			stripes[index] = new Stripe((maxSize + stripeCount - 1) / stripeCount);
+		}
+	}
+
+	/**
+	 * Gets a cached render
+	 *
+	 * @param generation The current language generation
+	 * @param key The language key
+	 * @param mappings The mappings the key is rendered with
+	 *
+	 * @return The rendered string, or null if it is not cached for {@param generation}
+	 */
+	@Nullable
+	public String get(int generation, @NonNull String key, @Nullable Mapping[] mappings)
+	{
+		if (!isCurrent(generation))
+		{
+			missCount.incrementAndGet();
+			return null;
+		}
+
+		Key cacheKey = new Key(key, mappings);
+		Stripe stripe = stripeFor(cacheKey);
+		String rendered = null;
+
+		synchronized (stripe)
+		{
+			Entry entry = stripe.get(cacheKey);
+
+			if (entry != null)
+			{
+				if (entry.generation == generation)
+				{
+					rendered = entry.rendered;
+				}
+				else
+				{
+					// Put by a render that raced a generation change
+					stripe.remove(cacheKey);
+				}
+			}
+		}
+
+		(rendered == null ? missCount : hitCount).incrementAndGet();
+		return rendered;
+	}
+
+	/**
+	 * Caches a render. Renders for an older generation than the cache has seen are ignored.
+	 *
+	 * @param generation The language generation the string was rendered for
+	 * @param key The language key
+	 * @param mappings The mappings the key was rendered with
+	 * @param rendered The rendered string
+	 */
+	public void put(int generation, @NonNull String key, @Nullable Mapping[] mappings, @NonNull String rendered)
+	{
+		if (!isCurrent(generation))
+		{
+			return;
+		}
+
+		// The caller may reuse or change its array once this returns
+		Key cacheKey = new Key(key, mappings == null ? null : mappings.clone());
+		Stripe stripe = stripeFor(cacheKey);
+
+		synchronized (stripe)
+		{
+			stripe.put(cacheKey, new Entry(rendered, generation));
+		}
+
+		putCount.incrementAndGet();
+	}
+
+	/**
+	 * Checks a generation against the cache's, dropping every entry if it is newer
+	 *
+	 * @param generation The generation to check
+	 *
+	 * @return true if {@param generation} is the cache's generation
+	 */
+	private boolean isCurrent(int generation)
+	{
+		int current = this.generation;
+
+		if (generation - current > 0)
+		{
+			synchronized (this)
+			{
+				if (generation - this.generation > 0)
+				{
+					clear();
+					this.generation = generation;
+				}
+			}
+
+			current = this.generation;
+		}
+
+		return generation == current;
+	}
+
+	@NonNull
+	private Stripe stripeFor(@NonNull Key key)
+	{
+		int hash = key.hash;
+		return stripes[(hash ^ (hash >>> 16)) & stripeMask];
+	}
+
+	/**
+	 * Drops every entry. The statistics are kept.
+	 */
+	public void clear()
+	{
+		for (Stripe stripe : stripes)
+		{
+			synchronized (stripe)
+			{
+				stripe.clear();
+			}
+		}
+	}
+
+	/**
+	 * @return The number of cached renders
+	 */
+	public int size()
+	{
+		int size = 0;
+
+		for (Stripe stripe : stripes)
+		{
+			synchronized (stripe)
+			{
+				size += stripe.size();
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * @return The number of lookups that found a cached render
+	 */
+	public long getHitCount()
+	{
+		return hitCount.get();
+	}
+
+	/**
+	 * @return The number of lookups that did not find a cached render
+	 */
+	public long getMissCount()
+	{
+		return missCount.get();
+	}
+
+	/**
+	 * @return The number of renders added to the cache
+	 */
+	public long getPutCount()
+	{
+		return putCount.get();
+	}
+
+	/**
+	 * @return The number of renders evicted to stay within the maximum size. Entries dropped by a generation change or
+	 * {@link #clear()} are not counted.
+	 */
+	public long getEvictionCount()
+	{
+		return evictionCount.get();
+	}
+
+	/**
+	 * @return The fraction of lookups that found a cached render, or 0 if there have been no lookups
+	 */
+	public double getHitRate()
+	{
+		long hits = hitCount.get();
+		long total = hits + missCount.get();
+
+		return total == 0 ? 0 : (double)hits / total;
+	}
+
+	/**
+	 * Resets the hit, miss, put and eviction counts to 0
+	 */
+	public void resetStats()
+	{
+		hitCount.set(0);
+		missCount.set(0);
+		putCount.set(0);
+		evictionCount.set(0);
+	}
+
+	/**
+	 * Drops every entry at {@link TrimTier#CACHES}
+	 *
+	 * @param tier The tier to release
+	 *
+	 * @return The estimated number of bytes released
+	 */
+	@Override public long trim(@NonNull TrimTier tier)
+	{
+		if (tier != TrimTier.CACHES)
+		{
+			return 0;
+		}
+
+		long released = 0;
+
+		for (Stripe stripe : stripes)
+		{
+			synchronized (stripe)
+			{
+				for (Map.Entry<Key, Entry> entry : stripe.entrySet())
+				{
+					released += 2 * STRING_OVERHEAD + (entry.getKey().key.length() + entry.getValue().rendered.length()) * 2;
+				}
+
+				stripe.clear();
+			}
+		}
+
+		return released;
+	}
+
+	@Override public String toString()
+	{
+		return "RenderedStringCache[maxSize=" + maxSize + ", hits=" + hitCount.get() + ", misses=" + missCount.get()
+			+ ", evictions=" + evictionCount.get() + "]";
+	}
+}
@@ -0,0 +1,233 @@
+package com.cube.storm.language.lib.trace;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracer which records spans in memory and writes them out in the Chrome trace event format, which can be opened in
+ * {@code chrome://tracing} or Perfetto to inspect where start up time goes offline. Only uses the JVM, so it can also be
+ * used outside of Android.
+ * <p/>
+ * Each span is recorded as a complete ({@code "X"}) event with its attributes as the event's {@code args}. Once
+ * {@link #getMaxEvents()} spans have been recorded, further spans are dropped.
+ * <p/>
+ * Example
+ * <pre>
+ ChromeTraceTracer tracer = new ChromeTraceTracer();
+ languageSettings = new LanguageSettings.Builder(this)
+	.tracer(tracer)
+	...
+	.build();
+
+ tracer.writeTo(new File(getExternalFilesDir(null), "language-trace.json"));
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public class ChromeTraceTracer implements Tracer
+{
+	/**
+	 * A recorded span
+	 */
+	private class Event extends Span
+	{
+		private final String name;
+		private final long threadId;
+		private final long start = System.nanoTime();
+		private long duration;
+		private Map<String, Object> args;
+
+		private Event(@NonNull String name, long threadId)
+		{
+			this.name = name;
+			this.threadId = threadId;
+		}
+
+		@NonNull @Override public Span attribute(@NonNull String name, @Nullable String value)
+		{
+			return put(name, value);
+		}
+
+		@NonNull @Override public Span attribute(@NonNull String name, long value)
+		{
+			return put(name, value);
+		}
+
+		@NonNull
+		private Span put(@NonNull String name, @Nullable Object value)
+		{
+			if (args == null)
+			{
+				args = new LinkedHashMap<String, Object>(4);
+			}
+
+			args.put(name, value);
+			return this;
+		}
+
+		@Override public void end()
+		{
+			duration = System.nanoTime() - start;
+			record(this);
+		}
+	}
+
+	private final int maxEvents;
+	private final long origin = System.nanoTime();
+	private final List<Event> events = new ArrayList<Event>();
+	private final Map<Long, String> threadNames = new LinkedHashMap<Long, String>();
+
+	public ChromeTraceTracer()
+	{
+		this(10000);
+	}
+
+	/**
+	 * @param maxEvents The maximum number of spans to record
+	 */
+	public ChromeTraceTracer(int maxEvents)
+	{
+		this.maxEvents = maxEvents;
+	}
+
+	/**
+	 * @return The maximum number of spans that are recorded
+	 */
+	public int getMaxEvents()
+	{
+		return maxEvents;
+	}
+
+	@NonNull @Override public Span beginSpan(@NonNull String name)
+	{
+		synchronized (this)
+		{
+			if (events.size() >= maxEvents)
+			{
+				return Span.NONE;
+			}
+		}
+
+		return new Event(name, Thread.currentThread().getId());
+	}
+
+	private synchronized void record(@NonNull Event event)
+	{
+		if (events.size() < maxEvents)
+		{
+			events.add(event);
+
+			if (!threadNames.containsKey(event.threadId))
+			{
+				threadNames.put(event.threadId, Thread.currentThread().getName());
+			}
+		}
+	}
+
+	/**
+	 * Removes all recorded spans
+	 */
+	public synchronized void clear()
+	{
+		events.clear();
+		threadNames.clear();
+	}
+
+	/**
+	 * Writes the recorded spans to a file as a Chrome trace
+	 *
+	 * @param file The file to write to. It is replaced if it exists.
+	 *
+	 * @throws IOException If the file could not be written
+	 */
+	public void writeTo(@NonNull File file) throws IOException
+	{
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+
+		try
+		{
+			writeTo(writer);
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * Writes the recorded spans as a Chrome trace. The writer is flushed but not closed.
+	 *
+	 * @param out The writer to write to
+	 *
+	 * @throws IOException If the trace could not be written
+	 */
+	public synchronized void writeTo(@NonNull Writer out) throws IOException
+	{
+		JsonWriter writer = new JsonWriter(out);
+		writer.beginObject();
+		writer.name("displayTimeUnit").value("ms");
+		writer.name("traceEvents").beginArray();
+
+		for (Map.Entry<Long, String> thread : threadNames.entrySet())
+		{
+			writer.beginObject();
+			writer.name("name").value("thread_name");
+			writer.name("ph").value("M");
+			writer.name("pid").value(0);
+			writer.name("tid").value(thread.getKey());
+			writer.name("args").beginObject().name("name").value(thread.getValue()).endObject();
+			writer.endObject();
+		}
+
+		for (Event event : events)
+		{
+			writer.beginObject();
+			writer.name("name").value(event.name);
+			writer.name("cat").value("language");
+			writer.name("ph").value("X");
+			writer.name("pid").value(0);
+			writer.name("tid").value(event.threadId);
+			writer.name("ts").value((event.start - origin) / 1000d);
+			writer.name("dur").value(event.duration / 1000d);
+
+			if (event.args != null)
+			{
+				writer.name("args").beginObject();
+
+				for (Map.Entry<String, Object> arg : event.args.entrySet())
+				{
+					writer.name(arg.getKey());
+
+					if (arg.getValue() instanceof Long)
+					{
+						writer.value((Long)arg.getValue());
+					}
+					else
+					{
+						writer.value((String)arg.getValue());
+					}
+				}
+
+				writer.endObject();
+			}
+
+			writer.endObject();
+		}
+
+		writer.endArray();
+		writer.endObject();
+		writer.flush();
+	}
+}
@@ -0,0 +1,56 @@
+package com.cube.storm.language.lib.trace;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A timed span begun with {@link Tracer#beginSpan(String)}. Attributes can be added at any point before the span is
+ * ended.
+ *
+ * @project LightningLanguage
+ */
+public abstract class Span
+{
+	/**
+	 * Span that records nothing
+	 */
+	public static final Span NONE = new Span()
+	{
+		@NonNull @Override public Span attribute(@NonNull String name, @Nullable String value)
+		{
+			return this;
+		}
+
+		@NonNull @Override public Span attribute(@NonNull String name, long value)
+		{
+			return this;
+		}
+
+		@Override public void end(){}
+	};
+
+	/**
+	 * Adds a string attribute to the span
+	 *
+	 * @param name The name of the attribute
+	 * @param value The value of the attribute
+	 *
+	 * @return The span, for chaining
+	 */
+	@NonNull public abstract Span attribute(@NonNull String name, @Nullable String value);
+
+	/**
+	 * Adds a numeric attribute to the span
+	 *
+	 * @param name The name of the attribute
+	 * @param value The value of the attribute
+	 *
+	 * @return The span, for chaining
+	 */
+	@NonNull public abstract Span attribute(@NonNull String name, long value);
+
+	/**
+	 * Ends the span. Must be called on the thread that began it.
+	 */
+	public abstract void end();
+}
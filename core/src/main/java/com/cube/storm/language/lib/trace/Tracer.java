@@ -0,0 +1,59 @@
+package com.cube.storm.language.lib.trace;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Receives timed spans from the stages of the language pipeline. Set with
+ * {@code LanguageSettings.Builder#tracer(Tracer)}.
+ * <p/>
+ * Spans are begun and ended on the same thread, and spans begun on a thread are always ended in reverse order. The
+ * following spans are emitted
+ * <ul>
+ * <li>{@link #SPAN_RESOLVE} - resolving a pack Uri to a stream, with the {@link #ATTRIBUTE_URI}</li>
+ * <li>{@link #SPAN_READ} - opening, and detecting the compression of, a pack stream, with the {@link #ATTRIBUTE_URI}</li>
+ * <li>{@link #SPAN_PARSE} - parsing a pack, with the {@link #ATTRIBUTE_URI} and the {@link #ATTRIBUTE_SIZE} in bytes read</li>
+ * <li>{@link #SPAN_PROCESS} - post-processing the parsed values, with the {@link #ATTRIBUTE_SIZE} in values</li>
+ * <li>{@link #SPAN_LOCALISE_TREE} - localising a view tree, with the {@link #ATTRIBUTE_SIZE} in views</li>
+ * </ul>
+ * See {@code PlatformTracer} and {@link ChromeTraceTracer}. Use {@link #NONE} to disable tracing.
+ *
+ * @project LightningLanguage
+ */
+public interface Tracer
+{
+	String SPAN_RESOLVE = "Language.resolve";
+	String SPAN_READ = "Language.read";
+	String SPAN_PARSE = "Language.parse";
+	String SPAN_PROCESS = "Language.process";
+	String SPAN_LOCALISE_TREE = "Language.localiseTree";
+
+	/**
+	 * The Uri of the language pack a span is for
+	 */
+	String ATTRIBUTE_URI = "uri";
+
+	/**
+	 * The size of the work done in a span, in bytes, values or views depending on the span
+	 */
+	String ATTRIBUTE_SIZE = "size";
+
+	/**
+	 * Tracer that records nothing
+	 */
+	Tracer NONE = new Tracer()
+	{
+		@NonNull @Override public Span beginSpan(@NonNull String name)
+		{
+			return Span.NONE;
+		}
+	};
+
+	/**
+	 * Begins a span on the current thread
+	 *
+	 * @param name The name of the span
+	 *
+	 * @return The span, which must be ended on the same thread with {@link Span#end()}
+	 */
+	@NonNull Span beginSpan(@NonNull String name);
+}
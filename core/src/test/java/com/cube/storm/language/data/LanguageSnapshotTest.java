@@ -0,0 +1,318 @@
+package com.cube.storm.language.data;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link LanguageSnapshot} round trips, and benchmarks reading it against java serialization of a 10k key pack.
+ * <p/>
+ * The benchmark only runs when a required speed up over {@link ObjectOutputStream} is set, for example
+ * {@code -Dbenchmark.snapshot.minSpeedup=10}.
+ *
+ * @project LightningLanguage
+ */
+public class LanguageSnapshotTest
+{
+	private static final int BENCHMARK_KEYS = 10000;
+	private static final int WARMUP_ITERATIONS = 500;
+	private static final int ITERATIONS = 300;
+
+	/**
+	 * Every nth key of the pack is looked up after each read
+	 */
+	private static final int LOOKUP_STRIDE = 100;
+
+	/**
+	 * The language as it was serialized before it had a snapshot format, a source Uri and a hash map of values
+	 */
+	private static class SerializedLanguage implements Serializable
+	{
+		private String sourceUri;
+		private HashMap<String, String> values;
+	}
+
+	@Test public void roundTripsLatin1Utf8AndNullValues()
+	{
+		Map<String, String> values = mixedValues();
+		Language language = languageOf(values);
+
+		Language copy = LanguageSnapshot.fromByteArray(LanguageSnapshot.toByteArray(language));
+
+		assertTrue(copy instanceof SnapshotLanguage);
+		assertEquals("assets://languages/gbr_eng.json", copy.getSourceUri());
+		assertLookups(values, copy);
+		assertEquals(values, copy.getValues());
+	}
+
+	@Test public void unpairedSurrogatesAreWrittenAsAQuestionMark()
+	{
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("_BROKEN", "a\ud800b");
+
+		Language copy = LanguageSnapshot.fromByteArray(LanguageSnapshot.toByteArray(languageOf(values)));
+
+		assertEquals("a?b", copy.getValue("_BROKEN"));
+		assertEquals(LanguageSnapshot.sizeOf(languageOf(values)), LanguageSnapshot.toByteArray(languageOf(values)).length);
+	}
+
+	@Test public void writesExactlySizeOfIntoHeapAndDirectBuffers()
+	{
+		Map<String, String> values = mixedValues();
+		Language language = languageOf(values);
+		int size = LanguageSnapshot.sizeOf(language);
+
+		assertEquals(size, LanguageSnapshot.toByteArray(language).length);
+
+		for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(size + 2), ByteBuffer.allocateDirect(size + 2).order(ByteOrder.LITTLE_ENDIAN)})
+		{
+			buffer.put((byte)1);
+			LanguageSnapshot.writeTo(language, buffer);
+			assertEquals(1, buffer.remaining());
+			buffer.put((byte)2);
+			buffer.flip();
+			buffer.get();
+
+			Language copy = LanguageSnapshot.readFrom(buffer);
+
+			assertEquals(2, buffer.get());
+			assertLookups(values, copy);
+		}
+	}
+
+	@Test(expected = BufferOverflowException.class)
+	public void writeToRejectsABufferThatIsTooSmall()
+	{
+		Language language = languageOf(mixedValues());
+		LanguageSnapshot.writeTo(language, ByteBuffer.allocate(LanguageSnapshot.sizeOf(language) - 1));
+	}
+
+	@Test public void readFromRejectsTruncatedSnapshots()
+	{
+		byte[] snapshot = LanguageSnapshot.toByteArray(languageOf(mixedValues()));
+
+		for (int length : new int[]{0, 5, 40, snapshot.length - 1})
+		{
+			try
+			{
+				LanguageSnapshot.fromByteArray(Arrays.copyOf(snapshot, length));
+				fail("Read a snapshot truncated to " + length + " bytes");
+			}
+			catch (IllegalArgumentException expected){}
+		}
+	}
+
+	@Test public void readFromCopiesTheEntryTableOutOfTheBuffer()
+	{
+		Map<String, String> values = mixedValues();
+		byte[] snapshot = LanguageSnapshot.toByteArray(languageOf(values));
+
+		Language copy = LanguageSnapshot.readFrom(ByteBuffer.wrap(snapshot));
+		Arrays.fill(snapshot, (byte)0);
+
+		assertLookups(values, copy);
+	}
+
+	@Test public void snapshotLanguageWritesItsEntryTableAsItIs()
+	{
+		byte[] snapshot = LanguageSnapshot.toByteArray(languageOf(mixedValues()));
+		Language copy = LanguageSnapshot.fromByteArray(snapshot);
+
+		assertTrue(Arrays.equals(snapshot, LanguageSnapshot.toByteArray(copy)));
+		assertEquals(snapshot.length, LanguageSnapshot.sizeOf(copy));
+	}
+
+	@Test public void snapshotLanguageBehavesAsALanguageOnceDecoded()
+	{
+		Map<String, String> values = mixedValues();
+		Language copy = LanguageSnapshot.fromByteArray(LanguageSnapshot.toByteArray(languageOf(values)));
+
+		copy.getValues().put("_ADDED", "Added");
+
+		assertEquals("Added", copy.getValue("_ADDED"));
+		assertEquals(values.size() + 1, copy.getSortedKeys().size());
+
+		copy.setValues(new HashMap<String, String>());
+
+		assertFalse(copy.hasValue("_ADDED"));
+	}
+
+	@Test public void javaSerializationKeepsTheEntryTable() throws Exception
+	{
+		Map<String, String> values = mixedValues();
+		Language copy = LanguageSnapshot.fromByteArray(LanguageSnapshot.toByteArray(languageOf(values)));
+
+		Language deserialized = (Language)deserialize(serialize(copy));
+
+		assertTrue(deserialized instanceof SnapshotLanguage);
+		assertLookups(values, deserialized);
+		assertEquals(values, deserialized.getValues());
+	}
+
+	@Test public void snapshotReadsAnOrderOfMagnitudeFasterThanJavaSerialization() throws Exception
+	{
+		String minSpeedupProperty = System.getProperty("benchmark.snapshot.minSpeedup");
+		assumeTrue("Set -Dbenchmark.snapshot.minSpeedup to run the benchmark", minSpeedupProperty != null);
+
+		double minSpeedup = Double.parseDouble(minSpeedupProperty);
+		Map<String, String> values = benchmarkValues();
+		Language language = languageOf(values);
+
+		SerializedLanguage serialized = new SerializedLanguage();
+		serialized.sourceUri = language.getSourceUri();
+		serialized.values = new HashMap<String, String>(values);
+
+		byte[] serializedBytes = serialize(serialized);
+		byte[] snapshotBytes = LanguageSnapshot.toByteArray(language);
+
+		long serializationNanos = Long.MAX_VALUE;
+		long snapshotNanos = Long.MAX_VALUE;
+
+		// Each is timed in a loop of its own, so neither runs with the caches and allocation rate left by the other
+		for (int iteration = 0; iteration < WARMUP_ITERATIONS + ITERATIONS; iteration++)
+		{
+			long start = System.nanoTime();
+			SerializedLanguage read = (SerializedLanguage)deserialize(serializedBytes);
+			int found = 0;
+
+			for (int index = 0; index < BENCHMARK_KEYS; index += LOOKUP_STRIDE)
+			{
+				found += read.values.get("_SECTION_" + index + "_TITLE").length() > 0 ? 1 : 0;
+			}
+
+			long time = System.nanoTime() - start;
+
+			assertEquals(BENCHMARK_KEYS / LOOKUP_STRIDE, found);
+
+			if (iteration >= WARMUP_ITERATIONS)
+			{
+				serializationNanos = Math.min(serializationNanos, time);
+			}
+		}
+
+		for (int iteration = 0; iteration < WARMUP_ITERATIONS + ITERATIONS; iteration++)
+		{
+			long start = System.nanoTime();
+			Language read = LanguageSnapshot.fromByteArray(snapshotBytes);
+			int found = 0;
+
+			for (int index = 0; index < BENCHMARK_KEYS; index += LOOKUP_STRIDE)
+			{
+				found += read.getValue("_SECTION_" + index + "_TITLE").length() > 0 ? 1 : 0;
+			}
+
+			long time = System.nanoTime() - start;
+
+			assertEquals(BENCHMARK_KEYS / LOOKUP_STRIDE, found);
+
+			if (iteration >= WARMUP_ITERATIONS)
+			{
+				snapshotNanos = Math.min(snapshotNanos, time);
+			}
+		}
+
+		double speedup = (double)serializationNanos / snapshotNanos;
+
+		assertLookups(values, LanguageSnapshot.fromByteArray(snapshotBytes));
+		assertTrue(String.format("Reading %d keys with LanguageSnapshot took %.2fms, %.1fx faster than ObjectInputStream's %.2fms, expected at least %.1fx",
+			BENCHMARK_KEYS, snapshotNanos / 1e6, speedup, serializationNanos / 1e6, minSpeedup), speedup >= minSpeedup);
+	}
+
+	private static Language languageOf(Map<String, String> values)
+	{
+		Language language = new Language();
+		language.setSourceUri("assets://languages/gbr_eng.json");
+		language.setValues(values);
+
+		return language;
+	}
+
+	private static Map<String, String> mixedValues()
+	{
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("_PLAIN", "Plain ascii");
+		values.put("_LATIN_1", "Caf\u00e9 cr\u00e8me");
+		values.put("_UTF_8", "\u20ac5 \u65e5\u672c\u8a9e");
+		values.put("_SURROGATE_PAIR", "Smile \ud83d\ude00");
+		values.put("_EMPTY", "");
+		values.put("_NULL", null);
+		values.put("_\u00dcBER", "Latin-1 key");
+		values.put("_\u20ac_KEY", "UTF-8 key");
+
+		for (int index = 0; index < 100; index++)
+		{
+			values.put("_KEY_" + index, "Value " + index);
+		}
+
+		return values;
+	}
+
+	/**
+	 * A pack shaped like a real one, with one value in ten outside Latin-1
+	 */
+	private static Map<String, String> benchmarkValues()
+	{
+		Map<String, String> values = new HashMap<String, String>();
+
+		for (int index = 0; index < BENCHMARK_KEYS; index++)
+		{
+			String value = "Value " + index + " of the section, shown to the user";
+			values.put("_SECTION_" + index + "_TITLE", index % 10 == 0 ? value + " \u2013 \u20ac" + index : value);
+		}
+
+		return values;
+	}
+
+	private static void assertLookups(Map<String, String> values, Language language)
+	{
+		for (Map.Entry<String, String> entry : values.entrySet())
+		{
+			assertTrue(entry.getKey(), language.hasValue(entry.getKey()));
+			assertEquals(entry.getKey(), entry.getValue() == null ? "" : entry.getValue(), language.getValue(entry.getKey()));
+		}
+
+		assertFalse(language.hasValue("_MISSING"));
+		assertEquals("", language.getValue("_MISSING"));
+	}
+
+	private static byte[] serialize(Object object) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(object);
+		out.close();
+
+		return bytes.toByteArray();
+	}
+
+	private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException
+	{
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+
+		try
+		{
+			return in.readObject();
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package com.cube.storm.language.data;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the encoding of {@link OffHeapLanguage} values, and lookups through its cache of decoded values
+ *
+ * @project LightningLanguage
+ */
+public class OffHeapLanguageTest
+{
+	@Test public void roundTripsLatin1Utf8AndNullValues()
+	{
+		Map<String, String> values = mixedValues();
+		OffHeapLanguage language = new OffHeapLanguage(languageOf(values));
+
+		assertLookups(values, language);
+		assertEquals(values, language.getValues());
+	}
+
+	@Test public void latin1ValuesTakeAByteAChar()
+	{
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("_LATIN_1", "Caf\u00e9");
+		values.put("_UTF_8", "\u20ac");
+
+		// An encoding byte per value, then 4 bytes of Latin-1 and 3 bytes of UTF-8
+		assertEquals(2 + 4 + 3, new OffHeapLanguage(languageOf(values)).getEncodedSize());
+	}
+
+	@Test public void unpairedSurrogatesDoNotShiftTheFollowingValues()
+	{
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("_A", "a\ud800b");
+		values.put("_B", "After \u20ac");
+		values.put("_C", "\udc00");
+		values.put("_D", "Last");
+
+		OffHeapLanguage language = new OffHeapLanguage(languageOf(values));
+
+		assertEquals("a?b", language.getValue("_A"));
+		assertEquals("After \u20ac", language.getValue("_B"));
+		assertEquals("?", language.getValue("_C"));
+		assertEquals("Last", language.getValue("_D"));
+	}
+
+	@Test public void decodesAgainOnceEvictedFromTheCache()
+	{
+		Map<String, String> values = new HashMap<String, String>();
+
+		for (int index = 0; index < 1000; index++)
+		{
+			values.put("_KEY_" + index, index % 2 == 0 ? "Value " + index : "\u20ac" + index);
+		}
+
+		OffHeapLanguage language = new OffHeapLanguage(languageOf(values));
+
+		assertLookups(values, language);
+		assertTrue(language.trimCaches() > 0);
+		assertLookups(values, language);
+	}
+
+	@Test public void doesNotModifyTheSourceLanguage()
+	{
+		Map<String, String> values = mixedValues();
+		Language source = languageOf(new HashMap<String, String>(values));
+
+		new OffHeapLanguage(source);
+
+		assertEquals(values, source.getValues());
+	}
+
+	@Test public void setValuesReplacesTheValuesAndKeepsTheKeyIndex()
+	{
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("_TITLE", "Title");
+
+		OffHeapLanguage language = new OffHeapLanguage(languageOf(values));
+		language.index(new LanguageKeyIndex(new String[]{"_TITLE", "_BODY"}));
+
+		assertEquals("Title", language.getValue(0));
+		assertFalse(language.hasValue(1));
+
+		Map<String, String> replaced = new HashMap<String, String>();
+		replaced.put("_TITLE", "New \u20ac title");
+		replaced.put("_BODY", "Body");
+		language.setValues(replaced);
+
+		assertEquals("New \u20ac title", language.getValue(0));
+		assertEquals("Body", language.getValue(1));
+		assertEquals("New \u20ac title", language.getValue("_TITLE"));
+	}
+
+	@Test public void javaSerializationKeepsTheValues() throws Exception
+	{
+		Map<String, String> values = mixedValues();
+		OffHeapLanguage language = new OffHeapLanguage(languageOf(values));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(language);
+		out.close();
+
+		Language copy = (Language)new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+		assertTrue(copy instanceof OffHeapLanguage);
+		assertEquals("assets://languages/gbr_eng.json", copy.getSourceUri());
+		assertLookups(values, copy);
+	}
+
+	private static Language languageOf(Map<String, String> values)
+	{
+		Language language = new Language();
+		language.setSourceUri("assets://languages/gbr_eng.json");
+		language.setValues(values);
+
+		return language;
+	}
+
+	private static Map<String, String> mixedValues()
+	{
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("_PLAIN", "Plain ascii");
+		values.put("_LATIN_1", "Caf\u00e9 cr\u00e8me");
+		values.put("_UTF_8", "\u20ac5 \u65e5\u672c\u8a9e");
+		values.put("_SURROGATE_PAIR", "Smile \ud83d\ude00");
+		values.put("_EMPTY", "");
+		values.put("_NULL", null);
+		values.put("_\u20ac_KEY", "UTF-8 key");
+
+		return values;
+	}
+
+	private static void assertLookups(Map<String, String> values, Language language)
+	{
+		for (Map.Entry<String, String> entry : values.entrySet())
+		{
+			assertTrue(entry.getKey(), language.hasValue(entry.getKey()));
+			assertEquals(entry.getKey(), entry.getValue() == null ? "" : entry.getValue(), language.getValue(entry.getKey()));
+		}
+
+		assertFalse(language.hasValue("_MISSING"));
+		assertEquals("", language.getValue("_MISSING"));
+	}
+}
@@ -0,0 +1,181 @@
+package com.cube.storm.language.data;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that {@link ProgressiveLanguage} answers lookups of published keys straight away, and that lookups of any other key
+ * wait for the key or for the parse to finish
+ *
+ * @project LightningLanguage
+ */
+public class ProgressiveLanguageTest
+{
+	private static final long TIMEOUT = 5000;
+
+	@Test(timeout = TIMEOUT)
+	public void publishedKeysAreAvailableBeforeTheParseFinishes()
+	{
+		ProgressiveLanguage language = new ProgressiveLanguage("assets://languages/gbr_eng.json");
+		language.publish(Collections.singletonMap("_TITLE", "Title"));
+
+		assertFalse(language.isFullyLoaded());
+		assertTrue(language.hasValue("_TITLE"));
+		assertEquals("Title", language.getValue("_TITLE"));
+		assertEquals(1, language.getPublishedCount());
+	}
+
+	@Test(timeout = TIMEOUT)
+	public void nullValuesArePublishedAsEmptyStrings()
+	{
+		ProgressiveLanguage language = new ProgressiveLanguage(null);
+		language.publish(Collections.<String, String>singletonMap("_NULL", null));
+
+		assertTrue(language.hasValue("_NULL"));
+		assertEquals("", language.getValue("_NULL"));
+	}
+
+	@Test(timeout = TIMEOUT)
+	public void missingKeyWaitsUntilItIsPublished() throws Exception
+	{
+		ProgressiveLanguage language = new ProgressiveLanguage(null);
+		language.publish(Collections.singletonMap("_TITLE", "Title"));
+
+		Lookup lookup = new Lookup(language, "_LATE");
+		lookup.start();
+		awaitWaiting(lookup);
+
+		// A batch without the key does not release the lookup
+		language.publish(Collections.singletonMap("_OTHER", "Other"));
+		awaitWaiting(lookup);
+
+		language.publish(Collections.singletonMap("_LATE", "Late"));
+		lookup.join();
+
+		assertEquals("Late", lookup.value);
+		assertFalse(language.isFullyLoaded());
+	}
+
+	@Test(timeout = TIMEOUT)
+	public void missingKeyWaitsForTheParseToFinish() throws Exception
+	{
+		ProgressiveLanguage language = new ProgressiveLanguage(null);
+
+		Lookup lookup = new Lookup(language, "_MISSING");
+		lookup.start();
+		awaitWaiting(lookup);
+
+		language.complete(null);
+		lookup.join();
+
+		assertEquals("", lookup.value);
+		assertFalse(lookup.found);
+		assertFalse(language.hasValue("_MISSING"));
+	}
+
+	@Test(timeout = TIMEOUT)
+	public void interruptedLookupReturnsWithoutTheValue() throws Exception
+	{
+		ProgressiveLanguage language = new ProgressiveLanguage(null);
+
+		Lookup lookup = new Lookup(language, "_MISSING");
+		lookup.start();
+		awaitWaiting(lookup);
+
+		lookup.interrupt();
+		lookup.join();
+
+		assertEquals("", lookup.value);
+		assertTrue(lookup.interrupted);
+		assertFalse(language.isFullyLoaded());
+	}
+
+	@Test(timeout = TIMEOUT)
+	public void getValuesWaitsForTheParseToFinish() throws Exception
+	{
+		final ProgressiveLanguage language = new ProgressiveLanguage(null);
+		language.publish(Collections.singletonMap("_FIRST", "First"));
+
+		final Map<String, String> values = new HashMap<String, String>();
+		Thread reader = new Thread()
+		{
+			@Override public void run()
+			{
+				values.putAll(language.getValues());
+			}
+		};
+
+		reader.start();
+		awaitWaiting(reader);
+
+		language.publish(Collections.singletonMap("_LAST", "Last"));
+		language.complete(new PackFingerprint(-1, -1, 0));
+		reader.join();
+
+		assertEquals(2, values.size());
+		assertEquals("Last", values.get("_LAST"));
+		assertTrue(language.isFullyLoaded());
+	}
+
+	@Test(timeout = TIMEOUT)
+	public void keyIndexIsAppliedOnceTheParseFinishes()
+	{
+		ProgressiveLanguage language = new ProgressiveLanguage(null);
+		language.index(new LanguageKeyIndex(new String[]{"_TITLE", "_BODY"}));
+		language.publish(Collections.singletonMap("_TITLE", "Title"));
+
+		// Mapped back to the key until the parse finishes
+		assertEquals("Title", language.getValue(0));
+
+		language.publish(Collections.singletonMap("_BODY", "Body"));
+		language.complete(null);
+
+		assertEquals("Body", language.getValue(1));
+		assertTrue(language.hasValue(1));
+	}
+
+	/**
+	 * Waits for a thread to block waiting on a monitor
+	 */
+	static void awaitWaiting(Thread thread) throws InterruptedException
+	{
+		while (thread.getState() != Thread.State.WAITING)
+		{
+			assertTrue("Thread finished without waiting", thread.isAlive());
+			Thread.sleep(5);
+		}
+	}
+
+	/**
+	 * Looks up a key on a thread of its own
+	 */
+	private static class Lookup extends Thread
+	{
+		private final ProgressiveLanguage language;
+		private final String key;
+
+		private volatile String value;
+		private volatile boolean found;
+		private volatile boolean interrupted;
+
+		private Lookup(ProgressiveLanguage language, String key)
+		{
+			this.language = language;
+			this.key = key;
+		}
+
+		@Override public void run()
+		{
+			value = language.getValue(key);
+			found = language.hasValue(key);
+			interrupted = isInterrupted();
+		}
+	}
+}
@@ -0,0 +1,236 @@
+package com.cube.storm.language.lib.factory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests {@link PackFetcher} against a local HTTP server: full and conditional downloads, and downloads that must not replace
+ * the local pack
+ *
+ * @project LightningLanguage
+ */
+public class PackFetcherTest
+{
+	private static final String PACK = "{\"_TITLE\": \"Title\", \"_COUNT\": 1, \"_ENABLED\": true, \"_EMPTY\": null}";
+	private static final String ETAG = "\"v1\"";
+
+	private HttpServer server;
+	private URL url;
+	private File directory;
+	private File target;
+
+	/**
+	 * The response served for the next request
+	 */
+	private volatile int status;
+	private volatile byte[] body;
+	private volatile String digest;
+
+	/**
+	 * The {@code If-None-Match} header of the last request
+	 */
+	private volatile String ifNoneMatch;
+
+	@Before public void setUp() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/gbr.json", new HttpHandler()
+		{
+			@Override public void handle(HttpExchange exchange) throws IOException
+			{
+				ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+				exchange.getResponseHeaders().set("ETag", ETAG);
+
+				if (digest != null)
+				{
+					exchange.getResponseHeaders().set("Digest", digest);
+				}
+
+				if (ETAG.equals(ifNoneMatch))
+				{
+					exchange.sendResponseHeaders(304, -1);
+				}
+				else
+				{
+					exchange.sendResponseHeaders(status, body.length);
+					exchange.getResponseBody().write(body);
+				}
+
+				exchange.close();
+			}
+		});
+		server.start();
+
+		url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/gbr.json");
+		directory = File.createTempFile("packs", "");
+		directory.delete();
+		target = new File(directory, "languages/gbr.json");
+
+		serve(200, PACK.getBytes("UTF-8"));
+	}
+
+	@After public void tearDown()
+	{
+		server.stop(0);
+		delete(directory);
+	}
+
+	@Test public void downloadsAPackAndItsValidators() throws Exception
+	{
+		PackFetcher.Result result = new PackFetcher().fetch(url, target, null);
+
+		assertEquals(PackFetcher.Status.UPDATED, result.getStatus());
+		assertEquals(200, result.getResponseCode());
+		assertEquals(sha256(body), result.getChecksum());
+		assertArrayEquals(body, read(target));
+		assertNull(ifNoneMatch);
+	}
+
+	@Test public void unchangedPackIsNotDownloadedAgain() throws Exception
+	{
+		PackFetcher fetcher = new PackFetcher();
+		fetcher.fetch(url, target, null);
+		long modified = target.lastModified();
+
+		PackFetcher.Result result = fetcher.fetch(url, target, null);
+
+		assertEquals(PackFetcher.Status.NOT_MODIFIED, result.getStatus());
+		assertEquals(304, result.getResponseCode());
+		assertEquals(ETAG, ifNoneMatch);
+		assertEquals(sha256(PACK.getBytes("UTF-8")), result.getChecksum());
+		assertEquals(modified, target.lastModified());
+	}
+
+	@Test public void verifiesTheExpectedChecksumAndDigestHeader() throws Exception
+	{
+		assertEquals(PackFetcher.Status.UPDATED, new PackFetcher().fetch(url, target, sha256(body)).getStatus());
+
+		target.delete();
+		digest = "SHA-256=AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=";
+		assertEquals(PackFetcher.Status.FAILED, new PackFetcher().fetch(url, target, null).getStatus());
+
+		assertEquals(PackFetcher.Status.FAILED, new PackFetcher().fetch(url, target, "00").getStatus());
+		assertFalse(target.exists());
+	}
+
+	@Test public void corruptBodyDoesNotReplaceThePack() throws Exception
+	{
+		new PackFetcher().fetch(url, target, null);
+		byte[] pack = read(target);
+
+		for (String corrupt : new String[]{"<html>Service unavailable</html>", "{\"_TITLE\": \"Tit", "{\"_NESTED\": {\"_TITLE\": \"Title\"}}", "{} {}", ""})
+		{
+			serve(200, corrupt.getBytes("UTF-8"));
+			// A new ETag is not sent, so clear the validators to force a full download
+			new File(target.getPath() + ".validators").delete();
+
+			PackFetcher.Result result = new PackFetcher().fetch(url, target, null);
+
+			assertEquals(corrupt, PackFetcher.Status.FAILED, result.getStatus());
+			assertArrayEquals(corrupt, pack, read(target));
+		}
+
+		// Only the pack is left, the temporary downloads are removed
+		assertEquals(1, target.getParentFile().listFiles().length);
+	}
+
+	@Test public void compressedPacksAreStoredAsServed() throws Exception
+	{
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		GZIPOutputStream out = new GZIPOutputStream(compressed);
+		out.write(PACK.getBytes("UTF-8"));
+		out.close();
+		serve(200, compressed.toByteArray());
+
+		assertEquals(PackFetcher.Status.UPDATED, new PackFetcher().fetch(url, target, null).getStatus());
+		assertArrayEquals(compressed.toByteArray(), read(target));
+	}
+
+	@Test public void errorResponsesFail() throws Exception
+	{
+		serve(500, "{}".getBytes("UTF-8"));
+
+		PackFetcher.Result result = new PackFetcher().fetch(url, target, null);
+
+		assertEquals(PackFetcher.Status.FAILED, result.getStatus());
+		assertEquals(500, result.getResponseCode());
+	}
+
+	private void serve(int status, byte[] body)
+	{
+		this.status = status;
+		this.body = body;
+	}
+
+	private static byte[] read(File file) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		InputStream in = new FileInputStream(file);
+
+		try
+		{
+			byte[] buffer = new byte[8192];
+			int read;
+
+			while ((read = in.read(buffer)) > -1)
+			{
+				bytes.write(buffer, 0, read);
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+
+		return bytes.toByteArray();
+	}
+
+	private static String sha256(byte[] bytes) throws Exception
+	{
+		StringBuilder hex = new StringBuilder();
+
+		for (byte value : MessageDigest.getInstance("SHA-256").digest(bytes))
+		{
+			hex.append(String.format("%02x", value));
+		}
+
+		return hex.toString();
+	}
+
+	private static void delete(File file)
+	{
+		File[] children = file.listFiles();
+
+		if (children != null)
+		{
+			for (File child : children)
+			{
+				delete(child);
+			}
+		}
+
+		file.delete();
+	}
+}
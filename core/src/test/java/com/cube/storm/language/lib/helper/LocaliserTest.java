@@ -0,0 +1,114 @@
+package com.cube.storm.language.lib.helper;
+
+import androidx.annotation.NonNull;
+
+import com.cube.storm.language.data.Language;
+import com.cube.storm.language.data.LanguageKeyIndex;
+import com.cube.storm.language.lib.processor.Mapping;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that {@link Localiser} renders values from its languages, and looks every value up through
+ * {@link Localiser#getValue(String)}
+ *
+ * @project LightningLanguage
+ */
+public class LocaliserTest
+{
+	private Localiser localiser;
+
+	@Before public void setUp()
+	{
+		localiser = new Localiser();
+		localiser.setDefaultLanguage(languageOf("_GREETING", "Hello {NAME}", "_TITLE", "Title"));
+		localiser.setLocaleLanguage(languageOf("_TITLE", "Titre"));
+	}
+
+	@Test public void localisesFromTheLocaleLanguageFirst()
+	{
+		assertEquals("Titre", localiser.localise("_TITLE"));
+		assertEquals("Hello Alex", localiser.localise("_GREETING", new Mapping("NAME", "Alex")));
+		assertEquals("_MISSING", localiser.localise("_MISSING"));
+	}
+
+	@Test public void everyLocaliseMethodUsesAnOverriddenGetValue() throws Exception
+	{
+		Localiser upper = new Localiser()
+		{
+			@NonNull @Override public String getValue(@NonNull String key)
+			{
+				return findValue(key).toUpperCase();
+			}
+		};
+		upper.setDefaultLanguage(languageOf("_GREETING", "Hello {NAME}"));
+
+		assertEquals("HELLO Sam", upper.localise("_GREETING", new Mapping("NAME", "Sam")));
+		assertEquals("HELLO Sam", upper.localise(new StringBuilder(), "_GREETING", new Mapping("NAME", "Sam")).toString());
+		assertEquals("HELLO Sam", upper.localise(new StringWriter(), "_GREETING", new Mapping("NAME", "Sam")).toString());
+	}
+
+	@Test public void rendersAreNotSharedBetweenCalls()
+	{
+		String first = localiser.localise("_GREETING", new Mapping("NAME", "Alex"));
+		String second = localiser.localise("_GREETING", new Mapping("NAME", "Sam"));
+
+		assertEquals("Hello Alex", first);
+		assertEquals("Hello Sam", second);
+	}
+
+	@Test public void localisesKeyIdsFromTheLocaleLanguageFirst()
+	{
+		LanguageKeyIndex index = new LanguageKeyIndex(new String[]{"_GREETING", "_TITLE", "_MISSING"});
+		localiser.getDefaultLanguage().index(index);
+		localiser.getLocaleLanguage().index(index);
+
+		assertEquals("Titre", localiser.localise(index.getId("_TITLE")));
+		assertEquals("Hello Alex", localiser.localise(index.getId("_GREETING"), new Mapping("NAME", "Alex")));
+		assertEquals("Hello Sam", localiser.localiseBuffered(index.getId("_GREETING"), new Mapping("NAME", "Sam")).toString());
+		assertEquals("", localiser.localise(index.getId("_MISSING")));
+	}
+
+	@Test public void bufferedLocalisationsAreOnlyReadableUntilTheBufferIsReused()
+	{
+		CharSequence first = localiser.localiseBuffered("_GREETING", new Mapping("NAME", "Alex"));
+		assertEquals("Hello Alex", first.toString());
+		assertEquals('A', first.charAt(6));
+
+		// Renders into the same buffer
+		assertEquals("Hello Sam", localiser.localise("_GREETING", new Mapping("NAME", "Sam")));
+
+		try
+		{
+			first.toString();
+			fail("Read a buffered localisation after the buffer was reused");
+		}
+		catch (IllegalStateException expected){}
+
+		assertEquals("Titre", localiser.localiseBuffered("_TITLE").toString());
+		assertEquals("_MISSING", localiser.localiseBuffered("_MISSING").toString());
+	}
+
+	private static Language languageOf(String... keysAndValues)
+	{
+		Map<String, String> values = new HashMap<String, String>();
+
+		for (int index = 0; index < keysAndValues.length; index += 2)
+		{
+			values.put(keysAndValues[index], keysAndValues[index + 1]);
+		}
+
+		Language language = new Language();
+		language.setValues(values);
+
+		return language;
+	}
+}
@@ -0,0 +1,194 @@
+package com.cube.storm.language.lib.parser;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.language.data.ProgressiveLanguage;
+import com.cube.storm.language.lib.factory.PackSource;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link LanguageReader#readProgressively(PackSource, ProgressiveLanguage)} against a pack whose stream stalls part
+ * way through, as a slow disk or network would
+ *
+ * @project LightningLanguage
+ */
+public class LanguageReaderTest
+{
+	private static final long TIMEOUT = 10000;
+	private static final int KEYS = LanguageReader.PROGRESSIVE_BATCH_SIZE * 4;
+
+	@Test(timeout = TIMEOUT)
+	public void publishesKeysBeforeTheRestOfThePackIsRead() throws Exception
+	{
+		String pack = pack(KEYS);
+		int split = pack.indexOf("\"_KEY_" + (KEYS / 2) + "\"");
+		final GatedSource source = new GatedSource(pack.substring(0, split), pack.substring(split));
+		final ProgressiveLanguage language = new ProgressiveLanguage(source.getId());
+		final LanguageReader reader = new LanguageReader();
+		final boolean[] parsed = new boolean[1];
+
+		Thread parser = new Thread()
+		{
+			@Override public void run()
+			{
+				parsed[0] = reader.readProgressively(source, language);
+			}
+		};
+
+		parser.start();
+
+		// Published mid-parse, while the reader is stalled waiting for the second half of the pack
+		assertEquals("Value 0", language.getValue("_KEY_0"));
+		assertFalse(language.isFullyLoaded());
+
+		final String[] last = new String[1];
+		Thread lookup = new Thread()
+		{
+			@Override public void run()
+			{
+				last[0] = language.getValue("_KEY_" + (KEYS - 1));
+			}
+		};
+
+		lookup.start();
+		awaitWaiting(lookup);
+
+		source.release();
+		lookup.join();
+		parser.join();
+
+		assertEquals("Value " + (KEYS - 1), last[0]);
+		assertTrue(parsed[0]);
+		assertTrue(language.isFullyLoaded());
+		assertNotNull(language.getFingerprint());
+		assertEquals(KEYS, language.getValues().size());
+	}
+
+	@Test(timeout = TIMEOUT)
+	public void keepsTheValuesParsedBeforeAnError() throws Exception
+	{
+		String pack = pack(KEYS);
+		String broken = pack.substring(0, pack.indexOf("\"_KEY_" + (KEYS / 2) + "\"")) + "\"_BROKEN\": [1, 2]}";
+		ProgressiveLanguage language = new ProgressiveLanguage(null);
+
+		assertFalse(new LanguageReader().readProgressively(new GatedSource(broken, ""), language));
+
+		assertTrue(language.isFullyLoaded());
+		assertEquals(null, language.getFingerprint());
+		assertEquals(KEYS / 2, language.getValues().size());
+		assertEquals("", language.getValue("_KEY_" + (KEYS - 1)));
+	}
+
+	@Test(timeout = TIMEOUT)
+	public void readsNullBooleanAndNumberValuesAsStrings() throws Exception
+	{
+		ProgressiveLanguage language = new ProgressiveLanguage(null);
+
+		assertTrue(new LanguageReader().readProgressively(new GatedSource("{\"_NULL\": null, \"_BOOLEAN\": true, \"_NUMBER\": 1.5}", ""), language));
+
+		assertTrue(language.hasValue("_NULL"));
+		assertEquals("", language.getValue("_NULL"));
+		assertEquals("true", language.getValue("_BOOLEAN"));
+		assertEquals("1.5", language.getValue("_NUMBER"));
+	}
+
+	private static String pack(int keys)
+	{
+		StringBuilder pack = new StringBuilder("{");
+
+		for (int index = 0; index < keys; index++)
+		{
+			pack.append(index == 0 ? "" : ",").append("\"_KEY_").append(index).append("\": \"Value ").append(index).append('"');
+		}
+
+		return pack.append('}').toString();
+	}
+
+	private static void awaitWaiting(Thread thread) throws InterruptedException
+	{
+		while (thread.getState() != Thread.State.WAITING)
+		{
+			assertTrue("Thread finished without waiting", thread.isAlive());
+			Thread.sleep(5);
+		}
+	}
+
+	/**
+	 * Pack source which serves the first part of a pack straight away, and the rest once it is released
+	 */
+	private static class GatedSource extends PackSource
+	{
+		private final byte[] head;
+		private final byte[] tail;
+		private final CountDownLatch gate = new CountDownLatch(1);
+
+		private GatedSource(String head, String tail) throws IOException
+		{
+			this.head = head.getBytes("UTF-8");
+			this.tail = tail.getBytes("UTF-8");
+
+			if (tail.isEmpty())
+			{
+				release();
+			}
+		}
+
+		private void release()
+		{
+			gate.countDown();
+		}
+
+		@NonNull @Override public String getId()
+		{
+			return "file:///data/languages/gbr_eng.json";
+		}
+
+		@Nullable @Override public InputStream open()
+		{
+			InputStream gated = new InputStream()
+			{
+				private InputStream tail;
+
+				@Override public int read() throws IOException
+				{
+					byte[] single = new byte[1];
+					return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+				}
+
+				@Override public int read(@NonNull byte[] buffer, int offset, int length) throws IOException
+				{
+					if (tail == null)
+					{
+						try
+						{
+							gate.await();
+						}
+						catch (InterruptedException e)
+						{
+							throw new IOException(e);
+						}
+
+						tail = new ByteArrayInputStream(GatedSource.this.tail);
+					}
+
+					return tail.read(buffer, offset, length);
+				}
+			};
+
+			return new SequenceInputStream(new ByteArrayInputStream(head), gated);
+		}
+	}
+}
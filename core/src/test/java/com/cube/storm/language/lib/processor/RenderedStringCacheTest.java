@@ -0,0 +1,119 @@
+package com.cube.storm.language.lib.processor;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests that {@link RenderedStringCache} only serves a render for the same key and mapping values it was cached with
+ *
+ * @project LightningLanguage
+ */
+public class RenderedStringCacheTest
+{
+	@Test public void hitsTheSameKeyAndMappings()
+	{
+		RenderedStringCache cache = new RenderedStringCache(16);
+		cache.put(1, "_GREETING", new Mapping[]{new Mapping("NAME", "Alex")}, "Hello Alex");
+
+		assertEquals("Hello Alex", cache.get(1, "_GREETING", new Mapping[]{new Mapping("NAME", "Alex")}));
+		assertNull(cache.get(1, "_OTHER", new Mapping[]{new Mapping("NAME", "Alex")}));
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test public void doesNotHitMappingsWithTheSameFingerprint()
+	{
+		// "Aa" and "BB" have the same String hash code
+		Mapping[] first = {new Mapping("NAME", "Aa")};
+		Mapping[] second = {new Mapping("NAME", "BB")};
+		assertEquals(Mapping.fingerprint(first), Mapping.fingerprint(second));
+
+		RenderedStringCache cache = new RenderedStringCache(16);
+		cache.put(1, "_GREETING", first, "Hello Aa");
+
+		assertNull(cache.get(1, "_GREETING", second));
+		assertEquals("Hello Aa", cache.get(1, "_GREETING", first));
+	}
+
+	@Test public void doesNotHitDifferentPrimitiveValues()
+	{
+		RenderedStringCache cache = new RenderedStringCache(16);
+		cache.put(1, "_COUNT", new Mapping[]{new Mapping("COUNT", 0L)}, "0 items");
+
+		assertNull(cache.get(1, "_COUNT", new Mapping[]{new Mapping("COUNT", -1L)}));
+		assertNull(cache.get(1, "_COUNT", new Mapping[]{new Mapping("COUNT", 0)}));
+		assertNull(cache.get(1, "_COUNT", new Mapping[]{new Mapping("COUNT", 0.0)}));
+		assertEquals("0 items", cache.get(1, "_COUNT", new Mapping[]{new Mapping("COUNT", 0L)}));
+	}
+
+	@Test public void keepsACopyOfTheMappingsArray()
+	{
+		Mapping[] mappings = {new Mapping("NAME", "Alex")};
+		RenderedStringCache cache = new RenderedStringCache(16);
+		cache.put(1, "_GREETING", mappings, "Hello Alex");
+
+		mappings[0] = new Mapping("NAME", "Sam");
+
+		assertNull(cache.get(1, "_GREETING", mappings));
+		assertEquals("Hello Alex", cache.get(1, "_GREETING", new Mapping[]{new Mapping("NAME", "Alex")}));
+	}
+
+	@Test public void nullAndEmptyMappingsAreTheSame()
+	{
+		RenderedStringCache cache = new RenderedStringCache(16);
+		cache.put(1, "_TITLE", null, "Title");
+
+		assertEquals("Title", cache.get(1, "_TITLE", new Mapping[0]));
+	}
+
+	@Test public void dropsRendersOfAnOlderGeneration()
+	{
+		RenderedStringCache cache = new RenderedStringCache(16);
+		cache.put(1, "_TITLE", null, "Title");
+
+		assertNull(cache.get(2, "_TITLE", null));
+		cache.put(1, "_TITLE", null, "Old title");
+		assertNull(cache.get(2, "_TITLE", null));
+		assertEquals(0, cache.size());
+	}
+
+	@Test public void neverServesARenderOfAnotherGeneration() throws InterruptedException
+	{
+		final RenderedStringCache cache = new RenderedStringCache(16);
+		final AtomicInteger generation = new AtomicInteger(1);
+		final AtomicReference<String> failure = new AtomicReference<String>();
+
+		Thread writer = new Thread(new Runnable()
+		{
+			@Override public void run()
+			{
+				for (int index = 0; index < 100000 && failure.get() == null; index++)
+				{
+					int current = generation.get();
+					cache.put(current, "_TITLE", null, "Title " + current);
+					generation.compareAndSet(current, current + (index % 7 == 0 ? 1 : 0));
+				}
+			}
+		});
+
+		writer.start();
+
+		while (writer.isAlive())
+		{
+			int current = generation.get();
+			String rendered = cache.get(current, "_TITLE", null);
+
+			if (rendered != null && !rendered.equals("Title " + current))
+			{
+				failure.set(rendered + " served for generation " + current);
+			}
+		}
+
+		writer.join();
+		assertNull(failure.get());
+	}
+}
@@ -0,0 +1,494 @@
+package com.cube.storm.language.keygen;
+
+import com.google.gson.stream.JsonReader;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.lang.model.SourceVersion;
+
+/**
+ * Generates an {@code R}-style class of integer IDs for every key in the default language pack.
+ * <p/>
+ * IDs are the positions of the keys in sorted order. The generated class contains a nested class per key namespace (the
+ * first segment of the key, for example {@code SETTINGS} for {@code _SETTINGS_TITLE}) so very large packs stay within the
+ * class file limits. Namespaces with more than {@link #MAX_NAMESPACE_SIZE} keys are split into numbered classes, such as
+ * {@code SETTINGS_2}. The class also has a {@code keys()} method returning the keys in ID order for building the runtime index.
+ * <p/>
+ * Keys in {@link #getPacks()} that are not in the default pack are reported as unknown. Keys in {@link #getKeyBaseline()}
+ * that are no longer in the default pack are reported as stale. Without a baseline, keys are compared with the key list
+ * written by the previous run, which is in the build directory, so nothing is reported after a clean build or on a fresh
+ * checkout such as a CI build.
+ *
+ * @project LightningLanguage
+ */
+public abstract class GenerateLanguageKeysTask extends DefaultTask
+{
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * Maximum encoded length of a single string constant in the generated class, kept under the class file limit of 65535
+	 */
+	private static final int MAX_CONSTANT_LENGTH = 60000;
+
+	/**
+	 * Maximum number of IDs in a single namespace class. Each ID takes two entries in the class constant pool, which is
+	 * limited to 65535 entries.
+	 */
+	private static final int MAX_NAMESPACE_SIZE = 16384;
+
+	/**
+	 * Namespace used for keys that do not have a prefix
+	 */
+	private static final String ROOT_NAMESPACE = "ROOT";
+
+	@InputFile @PathSensitive(PathSensitivity.RELATIVE)
+	public abstract RegularFileProperty getDefaultPack();
+
+	@InputFiles @PathSensitive(PathSensitivity.RELATIVE)
+	public abstract ConfigurableFileCollection getPacks();
+
+	@Input
+	public abstract Property<String> getPackageName();
+
+	@Input
+	public abstract Property<String> getClassName();
+
+	@Input
+	public abstract Property<Boolean> getFailOnUnknownKeys();
+
+	@OutputDirectory
+	public abstract DirectoryProperty getOutputDirectory();
+
+	/**
+	 * Committed list of keys, one per line, such as a copy of {@link #getKeyListFile()} from a release, to report stale
+	 * keys against. Optional, the previous run's key list is used if not set.
+	 */
+	@Optional @InputFile @PathSensitive(PathSensitivity.RELATIVE)
+	public abstract RegularFileProperty getKeyBaseline();
+
+	/**
+	 * Plain list of the generated keys in ID order, used to report stale keys on the next run if there is no
+	 * {@link #getKeyBaseline() baseline}
+	 */
+	@OutputFile
+	public abstract RegularFileProperty getKeyListFile();
+
+	@TaskAction
+	public void generate() throws IOException
+	{
+		File defaultPack = getDefaultPack().get().getAsFile();
+		TreeSet<String> keys = new TreeSet<String>(readKeys(defaultPack));
+
+		reportUnknownKeys(defaultPack, keys);
+		reportStaleKeys(keys);
+
+		List<String> orderedKeys = new ArrayList<String>(keys);
+
+		for (String key : orderedKeys)
+		{
+			if (key.indexOf('\n') > -1)
+			{
+				throw new GradleException("Language key contains a new line and can not be indexed: " + key);
+			}
+		}
+
+		String packageName = getPackageName().get();
+		String className = getClassName().get();
+
+		File packageDir = new File(getOutputDirectory().get().getAsFile(), packageName.replace('.', File.separatorChar));
+		deleteRecursively(getOutputDirectory().get().getAsFile());
+
+		if (!packageDir.mkdirs() && !packageDir.isDirectory())
+		{
+			throw new GradleException("Could not create " + packageDir);
+		}
+
+		Writer writer = Files.newBufferedWriter(new File(packageDir, className + ".java").toPath(), UTF_8);
+
+		try
+		{
+			writeClass(writer, packageName, className, orderedKeys);
+		}
+		finally
+		{
+			writer.close();
+		}
+
+		File keyList = getKeyListFile().get().getAsFile();
+		keyList.getParentFile().mkdirs();
+
+		Writer keyWriter = Files.newBufferedWriter(keyList.toPath(), UTF_8);
+
+		try
+		{
+			for (String key : orderedKeys)
+			{
+				keyWriter.write(key);
+				keyWriter.write('\n');
+			}
+		}
+		finally
+		{
+			keyWriter.close();
+		}
+
+		getLogger().info("Generated " + orderedKeys.size() + " language key IDs in " + packageName + "." + className);
+	}
+
+	/**
+	 * Reads the keys of a pack without building its values
+	 *
+	 * @param pack The pack file
+	 *
+	 * @return The keys in file order
+	 *
+	 * @throws IOException If the pack can not be read
+	 */
+	private static Set<String> readKeys(File pack) throws IOException
+	{
+		Set<String> keys = new LinkedHashSet<String>();
+		JsonReader reader = new JsonReader(new InputStreamReader(new FileInputStream(pack), UTF_8));
+
+		try
+		{
+			reader.beginObject();
+
+			while (reader.hasNext())
+			{
+				keys.add(reader.nextName());
+				reader.skipValue();
+			}
+
+			reader.endObject();
+		}
+		catch (IllegalStateException e)
+		{
+			throw new GradleException("Language pack " + pack + " is not a json object of key/value pairs", e);
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		return keys;
+	}
+
+	/**
+	 * Reports keys in the additional packs that are not in the default pack
+	 */
+	private void reportUnknownKeys(File defaultPack, Set<String> keys) throws IOException
+	{
+		int unknownCount = 0;
+
+		for (File pack : getPacks().getFiles())
+		{
+			if (pack.equals(defaultPack))
+			{
+				continue;
+			}
+
+			for (String key : readKeys(pack))
+			{
+				if (!keys.contains(key))
+				{
+					getLogger().warn("Unknown language key " + key + " in " + pack.getName() + " is not in " + defaultPack.getName() + " and has no ID");
+					unknownCount++;
+				}
+			}
+		}
+
+		if (unknownCount > 0 && getFailOnUnknownKeys().get())
+		{
+			throw new GradleException(unknownCount + " unknown language keys found, see the warnings above");
+		}
+	}
+
+	/**
+	 * Reports keys in the baseline, or generated by the previous run, that are no longer in the default pack
+	 */
+	private void reportStaleKeys(Set<String> keys) throws IOException
+	{
+		File keyList = getKeyBaseline().isPresent() ? getKeyBaseline().get().getAsFile() : getKeyListFile().get().getAsFile();
+
+		if (!keyList.isFile())
+		{
+			return;
+		}
+
+		for (String key : Files.readAllLines(keyList.toPath(), UTF_8))
+		{
+			if (!key.isEmpty() && !keys.contains(key))
+			{
+				getLogger().warn("Stale language key " + key + " has been removed from the default pack, its ID is no longer generated");
+			}
+		}
+	}
+
+	/**
+	 * Writes the generated class
+	 */
+	private static void writeClass(Writer writer, String packageName, String className, List<String> keys) throws IOException
+	{
+		Map<String, List<Integer>> grouped = new TreeMap<String, List<Integer>>();
+
+		for (int id = 0; id < keys.size(); id++)
+		{
+			String namespace = toIdentifier(namespaceOf(keys.get(id)));
+			List<Integer> ids = grouped.get(namespace);
+
+			if (ids == null)
+			{
+				ids = new ArrayList<Integer>();
+				grouped.put(namespace, ids);
+			}
+
+			ids.add(id);
+		}
+
+		// Every namespace name is taken up front, so the numbered classes of a large namespace can not merge with another
+		Set<String> classNames = new HashSet<String>(grouped.keySet());
+		classNames.add(className);
+
+		Map<String, List<Integer>> namespaces = new TreeMap<String, List<Integer>>();
+
+		for (Map.Entry<String, List<Integer>> namespace : grouped.entrySet())
+		{
+			List<Integer> ids = namespace.getValue();
+
+			for (int start = 0, part = 1; start < ids.size(); start += MAX_NAMESPACE_SIZE, part++)
+			{
+				String name = namespace.getKey();
+
+				if (part > 1)
+				{
+					name = uniqueName(name + "_" + part, classNames);
+				}
+				else if (name.equals(className))
+				{
+					name = uniqueName(name + "_", classNames);
+				}
+
+				namespaces.put(name, ids.subList(start, Math.min(start + MAX_NAMESPACE_SIZE, ids.size())));
+			}
+		}
+
+		writer.write("// Generated by the language-keys plugin. Do not edit.\n");
+		writer.write("package " + packageName + ";\n\n");
+		writer.write("public final class " + className + "\n{\n");
+		writer.write("\tpublic static final int COUNT = " + keys.size() + ";\n\n");
+
+		for (Map.Entry<String, List<Integer>> namespace : namespaces.entrySet())
+		{
+			// Fields are not named after their class
+			Set<String> fieldNames = new HashSet<String>();
+			fieldNames.add(namespace.getKey());
+
+			writer.write("\tpublic static final class " + namespace.getKey() + "\n\t{\n");
+
+			for (int id : namespace.getValue())
+			{
+				String fieldName = toIdentifier(keys.get(id));
+
+				if (!fieldNames.add(fieldName))
+				{
+					fieldName = uniqueName(fieldName + "_" + id, fieldNames);
+				}
+
+				writer.write("\t\tpublic static final int " + fieldName + " = " + id + ";\n");
+			}
+
+			writer.write("\n\t\tprivate " + namespace.getKey() + "(){}\n\t}\n\n");
+		}
+
+		List<String> chunks = chunk(keys);
+
+		for (int index = 0; index < chunks.size(); index++)
+		{
+			writer.write("\tprivate static final String KEYS_" + index + " = \"" + chunks.get(index) + "\";\n");
+		}
+
+		writer.write("\n\t/**\n\t * @return The keys in ID order\n\t */\n");
+		writer.write("\tpublic static String[] keys()\n\t{\n");
+
+		if (keys.isEmpty())
+		{
+			writer.write("\t\treturn new String[0];\n");
+		}
+		else
+		{
+			writer.write("\t\tStringBuilder keys = new StringBuilder();\n");
+
+			for (int index = 0; index < chunks.size(); index++)
+			{
+				writer.write("\t\tkeys.append(KEYS_" + index + ");\n");
+			}
+
+			writer.write("\t\treturn keys.toString().split(\"\\n\", -1);\n");
+		}
+
+		writer.write("\t}\n\n\tprivate " + className + "(){}\n}\n");
+	}
+
+	/**
+	 * Adds a name to a set of used names, numbering it until it is unique
+	 *
+	 * @return The name as added
+	 */
+	static String uniqueName(String name, Set<String> used)
+	{
+		String unique = name;
+		int suffix = 1;
+
+		while (!used.add(unique))
+		{
+			unique = name + "_" + ++suffix;
+		}
+
+		return unique;
+	}
+
+	/**
+	 * Joins the keys with new lines and splits them into escaped string literals that fit in the class file constant limit
+	 */
+	private static List<String> chunk(List<String> keys)
+	{
+		List<String> chunks = new ArrayList<String>();
+		StringBuilder chunk = new StringBuilder();
+		int encodedLength = 0;
+
+		for (int index = 0; index < keys.size(); index++)
+		{
+			String key = keys.get(index) + (index < keys.size() - 1 ? "\n" : "");
+			int keyLength = 0;
+
+			for (int charIndex = 0; charIndex < key.length(); charIndex++)
+			{
+				keyLength += key.charAt(charIndex) < 0x80 ? 1 : 3;
+			}
+
+			if (encodedLength + keyLength > MAX_CONSTANT_LENGTH && chunk.length() > 0)
+			{
+				chunks.add(chunk.toString());
+				chunk.setLength(0);
+				encodedLength = 0;
+			}
+
+			for (int charIndex = 0; charIndex < key.length(); charIndex++)
+			{
+				char c = key.charAt(charIndex);
+
+				if (c == '"' || c == '\\')
+				{
+					chunk.append('\\').append(c);
+				}
+				else if (c == '\n')
+				{
+					chunk.append("\\n");
+				}
+				else if (c < 0x20 || c >= 0x7f)
+				{
+					chunk.append(String.format("\\u%04x", (int)c));
+				}
+				else
+				{
+					chunk.append(c);
+				}
+			}
+
+			encodedLength += keyLength;
+		}
+
+		if (chunk.length() > 0 || chunks.isEmpty())
+		{
+			chunks.add(chunk.toString());
+		}
+
+		return chunks;
+	}
+
+	/**
+	 * Gets the namespace of a key, the first segment after any leading underscores
+	 */
+	static String namespaceOf(String key)
+	{
+		int start = 0;
+		while (start < key.length() && key.charAt(start) == '_')
+		{
+			start++;
+		}
+
+		int end = key.indexOf('_', start);
+		return end <= start ? ROOT_NAMESPACE : key.substring(start, end);
+	}
+
+	/**
+	 * Converts a key into a valid java identifier
+	 */
+	static String toIdentifier(String key)
+	{
+		StringBuilder identifier = new StringBuilder(key.length() + 1);
+
+		for (int index = 0; index < key.length(); index++)
+		{
+			char c = key.charAt(index);
+			identifier.append(Character.isJavaIdentifierPart(c) ? c : '_');
+		}
+
+		if (identifier.length() == 0 || !Character.isJavaIdentifierStart(identifier.charAt(0)))
+		{
+			identifier.insert(0, '_');
+		}
+
+		if (SourceVersion.isKeyword(identifier) || identifier.toString().equals("_"))
+		{
+			identifier.append('_');
+		}
+
+		return identifier.toString();
+	}
+
+	private static void deleteRecursively(File file)
+	{
+		File[] children = file.listFiles();
+
+		if (children != null)
+		{
+			for (File child : children)
+			{
+				deleteRecursively(child);
+			}
+		}
+
+		file.delete();
+	}
+}
@@ -0,0 +1,54 @@
+package com.cube.storm.language.keygen;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+
+/**
+ * Configuration for the {@code languageKeys} block.
+ * <p/>
+ * Example
+ * <pre>
+ languageKeys {
+	defaultPack = file('src/main/assets/languages/gbr_eng.json')
+	packs.from fileTree('src/main/assets/languages') { include '*.json' }
+	packageName = 'com.example.app'
+ }
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public abstract class LanguageKeysExtension
+{
+	/**
+	 * The pack that defines the full key set. IDs are generated for every key in this pack.
+	 */
+	public abstract RegularFileProperty getDefaultPack();
+
+	/**
+	 * Additional packs to check against the default pack. Keys that are not in the default pack are reported as unknown.
+	 */
+	public abstract ConfigurableFileCollection getPacks();
+
+	/**
+	 * The package of the generated class
+	 */
+	public abstract Property<String> getPackageName();
+
+	/**
+	 * The name of the generated class. Defaults to {@code LanguageKeys}.
+	 */
+	public abstract Property<String> getClassName();
+
+	/**
+	 * Committed list of keys, one per line, to report keys removed from the default pack against. Commit a copy of the
+	 * generated {@code build/generated/languageKeys/keys.txt} to use it. Optional; without it, keys are only compared with
+	 * the previous build's list, so removed keys are not reported after a clean build or on CI.
+	 */
+	public abstract RegularFileProperty getKeyBaseline();
+
+	/**
+	 * Whether unknown keys fail the build rather than being reported as warnings. Defaults to false.
+	 */
+	public abstract Property<Boolean> getFailOnUnknownKeys();
+}
@@ -0,0 +1,85 @@
+package com.cube.storm.language.keygen;
+
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.gradle.api.Action;
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.Transformer;
+import org.gradle.api.file.Directory;
+import org.gradle.api.plugins.AppliedPlugin;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.TaskProvider;
+
+/**
+ * Gradle plugin that generates an {@code R}-style class of integer IDs for the keys of a language pack.
+ * <p/>
+ * Apply the plugin to an Android module and configure it with the {@code languageKeys} block, see {@link LanguageKeysExtension}.
+ * The {@code generateLanguageKeys} task runs before {@code preBuild} and its output is added to the {@code main} source set.
+ * Use the generated keys at runtime with {@code LanguageSettings.Builder#keyIndex}.
+ *
+ * @project LightningLanguage
+ */
+public class LanguageKeysPlugin implements Plugin<Project>
+{
+	@Override public void apply(final Project project)
+	{
+		final LanguageKeysExtension extension = project.getExtensions().create("languageKeys", LanguageKeysExtension.class);
+		extension.getClassName().convention("LanguageKeys");
+		extension.getFailOnUnknownKeys().convention(false);
+
+		final TaskProvider<GenerateLanguageKeysTask> generate = project.getTasks().register("generateLanguageKeys", GenerateLanguageKeysTask.class, new Action<GenerateLanguageKeysTask>()
+		{
+			@Override public void execute(GenerateLanguageKeysTask task)
+			{
+				task.setGroup("build");
+				task.setDescription("Generates integer IDs for the keys of the default language pack");
+				task.getDefaultPack().set(extension.getDefaultPack());
+				task.getPacks().from(extension.getPacks());
+				task.getPackageName().set(extension.getPackageName());
+				task.getClassName().set(extension.getClassName());
+				task.getFailOnUnknownKeys().set(extension.getFailOnUnknownKeys());
+				task.getKeyBaseline().set(extension.getKeyBaseline());
+				task.getOutputDirectory().convention(project.getLayout().getBuildDirectory().dir("generated/source/languageKeys"));
+				task.getKeyListFile().convention(project.getLayout().getBuildDirectory().file("generated/languageKeys/keys.txt"));
+			}
+		});
+
+		Action<AppliedPlugin> registerAndroidSources = new Action<AppliedPlugin>()
+		{
+			@Override public void execute(AppliedPlugin plugin)
+			{
+				// The android extension is accessed dynamically so the plugin does not depend on a specific AGP version
+				Object android = project.getExtensions().getByName("android");
+				Object sourceSets = InvokerHelper.getProperty(android, "sourceSets");
+				Object main = InvokerHelper.invokeMethod(sourceSets, "getByName", "main");
+				Object java = InvokerHelper.getProperty(main, "java");
+				InvokerHelper.invokeMethod(java, "srcDir", generate.flatMap(new Transformer<Provider<Directory>, GenerateLanguageKeysTask>()
+				{
+					@Override public Provider<Directory> transform(GenerateLanguageKeysTask task)
+					{
+						return task.getOutputDirectory();
+					}
+				}));
+
+				project.getTasks().matching(new Spec<Task>()
+				{
+					@Override public boolean isSatisfiedBy(Task task)
+					{
+						return task.getName().equals("preBuild");
+					}
+				}).configureEach(new Action<Task>()
+				{
+					@Override public void execute(Task task)
+					{
+						task.dependsOn(generate);
+					}
+				});
+			}
+		};
+
+		project.getPluginManager().withPlugin("com.android.application", registerAndroidSources);
+		project.getPluginManager().withPlugin("com.android.library", registerAndroidSources);
+	}
+}
@@ -0,0 +1,141 @@
+package com.cube.storm.language.keygen;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the {@code language-keys} plugin in a test build with the Gradle TestKit, and compiles the class it generates
+ *
+ * @project LightningLanguage
+ */
+public class LanguageKeysPluginTest
+{
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	private File projectDir;
+
+	@Before public void setUp() throws IOException
+	{
+		projectDir = folder.newFolder("project");
+		write("settings.gradle", "rootProject.name = 'keys-test'\n");
+	}
+
+	@Test public void generatesACompilableClassOfUniqueNames() throws Exception
+	{
+		StringBuilder pack = new StringBuilder("{");
+
+		// "_A_X-1", "_A_X-1-2" and "_A_X_1" all map to the same field name, or to the name of another key with its ID added
+		pack.append("\"_A_X-1\": \"a\", \"_A_X-1-2\": \"b\", \"_A_X_1\": \"c\", ");
+
+		// One more key than fits in a namespace class, and a namespace with the name of its second class
+		for (int index = 0; index <= 16384; index++)
+		{
+			pack.append("\"_BIG_KEY_").append(index).append("\": \"\", ");
+		}
+
+		pack.append("\"_BIG-2_KEY\": \"d\"}");
+
+		write("gbr.json", pack.toString());
+		writeBuildFile("");
+
+		run("generateLanguageKeys");
+
+		File source = new File(projectDir, "build/generated/source/languageKeys/com/example/keys/LanguageKeys.java");
+		File classes = folder.newFolder("classes");
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+		assertEquals(0, compiler.run(null, null, null, "-d", classes.getPath(), source.getPath()));
+
+		URLClassLoader loader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, null);
+
+		try
+		{
+			Class<?> keysClass = loader.loadClass("com.example.keys.LanguageKeys");
+			String[] keys = (String[])keysClass.getMethod("keys").invoke(null);
+
+			assertEquals(16389, keys.length);
+			assertEquals(keys.length, keysClass.getField("COUNT").getInt(null));
+
+			Class<?> namespace = loader.loadClass("com.example.keys.LanguageKeys$A");
+			assertEquals("_A_X-1", keys[namespace.getField("_A_X_1").getInt(null)]);
+			assertEquals("_A_X-1-2", keys[namespace.getField("_A_X_1_2").getInt(null)]);
+			assertEquals("_A_X_1", keys[namespace.getField("_A_X_1_2_2").getInt(null)]);
+
+			assertEquals("_BIG-2_KEY", keys[loader.loadClass("com.example.keys.LanguageKeys$BIG_2").getField("_BIG_2_KEY").getInt(null)]);
+			assertEquals(1, loader.loadClass("com.example.keys.LanguageKeys$BIG_2_2").getFields().length);
+		}
+		finally
+		{
+			loader.close();
+		}
+	}
+
+	@Test public void reportsStaleKeysAgainstTheBaseline() throws IOException
+	{
+		write("gbr.json", "{\"_TITLE\": \"Title\"}");
+		write("language-keys.txt", "_REMOVED\n_TITLE\n");
+		writeBuildFile("\tkeyBaseline = file('language-keys.txt')\n");
+
+		BuildResult result = run("generateLanguageKeys");
+
+		assertTrue(result.getOutput(), result.getOutput().contains("Stale language key _REMOVED"));
+		assertFalse(result.getOutput(), result.getOutput().contains("Stale language key _TITLE"));
+	}
+
+	@Test public void failsOnUnknownKeysWhenSet() throws IOException
+	{
+		write("gbr.json", "{\"_TITLE\": \"Title\"}");
+		write("fra.json", "{\"_TITLE\": \"Titre\", \"_UNKNOWN\": \"Inconnu\"}");
+		writeBuildFile("\tpacks.from file('fra.json')\n\tfailOnUnknownKeys = true\n");
+
+		BuildResult result = runner("generateLanguageKeys").buildAndFail();
+
+		assertTrue(result.getOutput(), result.getOutput().contains("Unknown language key _UNKNOWN in fra.json"));
+	}
+
+	private void writeBuildFile(String configuration) throws IOException
+	{
+		write("build.gradle", "plugins {\n\tid 'com.3sidedcube.storm.language-keys'\n}\n\n"
+			+ "languageKeys {\n\tdefaultPack = file('gbr.json')\n\tpackageName = 'com.example.keys'\n" + configuration + "}\n");
+	}
+
+	private void write(String path, String content) throws IOException
+	{
+		Files.write(new File(projectDir, path).toPath(), content.getBytes(UTF_8));
+	}
+
+	private BuildResult run(String... arguments)
+	{
+		return runner(arguments).build();
+	}
+
+	private GradleRunner runner(String... arguments)
+	{
+		return GradleRunner.create()
+			.withProjectDir(projectDir)
+			.withArguments(Arrays.asList(arguments))
+			.withPluginClasspath()
+			.forwardOutput();
+	}
+}
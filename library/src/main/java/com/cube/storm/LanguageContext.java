@@ -0,0 +1,156 @@
+package com.cube.storm;
+
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.language.data.Language;
+import com.cube.storm.language.lib.factory.FileFactory;
+import com.cube.storm.language.lib.factory.PackSource;
+import com.cube.storm.language.lib.factory.UriPackSource;
+import com.cube.storm.language.lib.helper.Localiser;
+import com.cube.storm.language.lib.manager.LanguagePackCache;
+import com.cube.storm.language.lib.manager.LanguagePackIndex;
+import com.cube.storm.language.lib.parser.LanguageBuilder;
+import com.cube.storm.language.lib.processor.MethodProcessor;
+import com.cube.storm.util.lib.resolver.Resolver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A default/locale pair of languages, with the resolvers, parser and {@link MethodProcessor} used to load and render them.
+ * <p/>
+ * This is the Android adapter of the core {@link Localiser}: lookups and rendering are done by the localiser, packs are
+ * named by Android {@link Uri}s and opened with the {@link FileFactory} and resolvers of the context.
+ * <p/>
+ * {@link LanguageSettings} is the default context of the app. Create further contexts with {@link #newContext()} to render
+ * text in other locales at the same time, for example one context per notification locale. Every context created from
+ * another shares its {@link LanguagePackCache}, so a pack is parsed once per process however many contexts use it, and
+ * lookups do not lock: the languages are only read once they are loaded.
+ * <p/>
+ * Example
+ * <pre>
+ LanguageContext french = LanguageSettings.getInstance().newContext();
+ french.setDefaultLanguage(Uri.parse("assets://languages/fra.json"));
+
+ String title = french.localise("_NOTIFICATION_TITLE", new Mapping("NAME", name));
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public class LanguageContext extends Localiser
+{
+	/**
+	 * Factory class responsible for loading a file from disk based on its Uri
+	 */
+	@Getter @Setter protected FileFactory fileFactory;
+
+	/**
+	 * Uri resolver used to load a file based on it's protocol.
+	 */
+	@Getter @Setter protected Map<String, Resolver> uriResolvers = new LinkedHashMap<String, Resolver>(2);
+
+	/**
+	 * The gson builder class used to build the language files
+	 */
+	@Getter @Setter protected LanguageBuilder languageBuilder;
+
+	protected LanguageContext()
+	{
+	}
+
+	/**
+	 * Creates a context with no languages set, using the same resolvers, parser, method processor and tracer as
+	 * {@param parent}, and sharing its pack cache
+	 *
+	 * @param parent The context to copy
+	 */
+	public LanguageContext(@NonNull LanguageContext parent)
+	{
+		super(parent);
+		this.fileFactory = parent.fileFactory;
+		this.uriResolvers = new LinkedHashMap<String, Resolver>(parent.uriResolvers);
+		this.languageBuilder = parent.languageBuilder;
+	}
+
+	/**
+	 * @return true if this is the {@link LanguageSettings} instance. File factories and language builders load its packs
+	 * through their single argument methods, so apps that override those are still called.
+	 */
+	public boolean isDefault()
+	{
+		return false;
+	}
+
+	/**
+	 * Creates a context with no languages set, sharing this context's pack cache. See {@link #LanguageContext(LanguageContext)}.
+	 *
+	 * @return The new context
+	 */
+	@NonNull @Override
+	public LanguageContext newContext()
+	{
+		return new LanguageContext(this);
+	}
+
+	/**
+	 * Sets the default language to a pack, loading it through the {@link #packCache} if it is not already loaded
+	 *
+	 * @param languageUri The language Uri to load
+	 */
+	public void setDefaultLanguage(@NonNull Uri languageUri)
+	{
+		setDefaultLanguage(loadLanguage(languageUri));
+	}
+
+	/**
+	 * Sets the locale language to a pack, loading it through the {@link #packCache} if it is not already loaded
+	 *
+	 * @param languageUri The language Uri to load. Set to null to clear the locale language.
+	 */
+	public void setLocaleLanguage(@Nullable Uri languageUri)
+	{
+		setLocaleLanguage(languageUri == null ? null : loadLanguage(languageUri));
+	}
+
+	/**
+	 * Gets a pack from the {@link #packCache}, parsing it with this context's resolvers and parser if no context has
+	 * loaded it yet
+	 *
+	 * @param languageUri The language Uri to load
+	 *
+	 * @return The language. Will be empty if the pack could not be loaded.
+	 */
+	@NonNull
+	public Language loadLanguage(@NonNull Uri languageUri)
+	{
+		if (LanguagePackIndex.isKnownMissing(languageUri))
+		{
+			return new Language();
+		}
+
+		return loadLanguage(new UriPackSource(this, languageUri));
+	}
+
+	/**
+	 * Reads a pack with this context's {@link #languageBuilder}, so custom parsers are used for packs loaded by Uri
+	 *
+	 * @param source The source of the pack
+	 *
+	 * @return The language, or null if the pack could not be read
+	 */
+	@Nullable @Override
+	public Language readLanguage(@NonNull PackSource source)
+	{
+		if (source instanceof UriPackSource && languageBuilder != null)
+		{
+			return languageBuilder.buildLanguage(this, ((UriPackSource)source).getUri());
+		}
+
+		return super.readLanguage(source);
+	}
+}
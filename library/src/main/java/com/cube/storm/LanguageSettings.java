@@ -4,18 +4,33 @@ import android.content.Context;
 import android.net.Uri;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import com.cube.storm.language.data.HotSetLanguage;
 import com.cube.storm.language.data.Language;
+import com.cube.storm.language.data.LanguageKeyIndex;
+import com.cube.storm.language.data.PackFingerprint;
+import com.cube.storm.language.data.ProgressiveLanguage;
+import com.cube.storm.language.data.ReleasedLanguage;
+import com.cube.storm.language.data.ShardedLanguage;
+import com.cube.storm.language.data.StorageMode;
 import com.cube.storm.language.lib.factory.FileFactory;
+import com.cube.storm.language.lib.factory.UriPackSource;
+import com.cube.storm.language.lib.helper.LanguageSearcher;
 import com.cube.storm.language.lib.manager.LanguageManager;
+import com.cube.storm.language.lib.manager.LanguagePackIndex;
+import com.cube.storm.language.lib.manager.MemoryTrimmer;
+import com.cube.storm.language.lib.manager.ReloadScheduler;
+import com.cube.storm.language.lib.manager.TrimTier;
 import com.cube.storm.language.lib.parser.LanguageBuilder;
 import com.cube.storm.language.lib.processor.MethodProcessor;
+import com.cube.storm.language.lib.processor.RenderedStringCache;
+import com.cube.storm.language.lib.trace.PlatformTracer;
+import com.cube.storm.language.lib.trace.Tracer;
 import com.cube.storm.util.lib.resolver.AssetsResolver;
 import com.cube.storm.util.lib.resolver.FileResolver;
 import com.cube.storm.util.lib.resolver.Resolver;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -47,11 +62,13 @@ import java.util.Map;
 	.textProcessor(new LanguageTextProcessor())
  	.build();
  * </pre>
+ * The settings are the default {@link LanguageContext} of the app. Use {@link #newContext()} to create contexts for other
+ * locales which share the settings' resolvers and parsed packs.
  *
  * @author Callum Taylor
  * @project LightningLanguage
  */
-public class LanguageSettings
+public class LanguageSettings extends LanguageContext
 {
 	/**
 	 * The singleton instance of the settings
@@ -74,6 +91,51 @@ public class LanguageSettings
 		return instance;
 	}
 
+	@Override public boolean isDefault()
+	{
+		return this == instance;
+	}
+
+	/**
+	 * Gets a value through the {@link #getLanguageManager() language manager}, so the localise methods use its key filter,
+	 * hot key profiling and any lookup it overrides
+	 *
+	 * @param key The key to look up
+	 *
+	 * @return The value, or an empty string
+	 */
+	@NonNull @Override public String getValue(@NonNull String key)
+	{
+		// A custom manager may return null for a missing key
+		String value = languageManager.getValue(key);
+		return value == null ? "" : value;
+	}
+
+	/**
+	 * Gets a value by key ID through the {@link #getLanguageManager() language manager}. See {@link #getValue(String)}.
+	 *
+	 * @param id The key ID to look up
+	 *
+	 * @return The value, or an empty string
+	 */
+	@NonNull @Override public String getValue(int id)
+	{
+		String value = languageManager.getValue(id);
+		return value == null ? "" : value;
+	}
+
+	/**
+	 * Gets the key of a key ID from the {@link #getKeyIndex() key index}
+	 *
+	 * @param id The key ID
+	 *
+	 * @return The key, or null if there is no key index or the ID is not in it
+	 */
+	@Nullable @Override public String getKey(int id)
+	{
+		return keyIndex == null ? null : keyIndex.getKey(id);
+	}
+
 	/**
 	 * Reloads the default and fallback languages if they have been previously set using the same Uri as defined in
 	 * {@link com.cube.storm.LanguageSettings.Builder#languageUri(android.net.Uri)} and {@link com.cube.storm.LanguageSettings.Builder#localeUri(Uri)} (android.net.Uri)}
@@ -84,13 +146,205 @@ public class LanguageSettings
 	{
 		if (getDefaultLanguage() != null && getDefaultLanguage().getSourceUri() != null)
 		{
-			this.defaultLanguage = getLanguageManager().loadLanguage(context, Uri.parse(getDefaultLanguage().getSourceUri()));
+			setDefaultLanguage(reloadLanguage(context, getDefaultLanguage()));
 		}
 
 		if (getLocaleLanguage() != null && getLocaleLanguage().getSourceUri() != null)
 		{
-			this.localeLanguage = getLanguageManager().loadLanguage(context, Uri.parse(getLocaleLanguage().getSourceUri()));
+			setLocaleLanguage(reloadLanguage(context, getLocaleLanguage()));
+		}
+
+		getLanguageManager().getKeyFilter();
+
+		if (searcher != null)
+		{
+			searcher.refresh();
+		}
+	}
+
+	/**
+	 * Reloads the default and fallback languages, like {@link #reloadLanguage(Context)}, but only if the contents of their
+	 * packs have changed since they were loaded. See {@link PackFingerprint}. Sharded languages are always reloaded, as
+	 * their shards are loaded on demand.
+	 *
+	 * @param context The context to use to load the language
+	 *
+	 * @return true if any language was reloaded, false if all packs were unchanged
+	 */
+	public boolean reloadChangedLanguages(@NonNull Context context)
+	{
+		boolean changed = false;
+		Language language = getDefaultLanguage();
+
+		if (language != null && language.getSourceUri() != null && !isUnchanged(language))
+		{
+			setDefaultLanguage(reloadLanguage(context, language));
+			changed = true;
+		}
+
+		language = getLocaleLanguage();
+
+		if (language != null && language.getSourceUri() != null && !isUnchanged(language))
+		{
+			setLocaleLanguage(reloadLanguage(context, language));
+			changed = true;
+		}
+
+		if (changed)
+		{
+			// Rebuild the key filter on the reloading thread rather than on the next lookup
+			getLanguageManager().getKeyFilter();
+
+			if (searcher != null)
+			{
+				searcher.refresh();
+			}
+		}
+
+		return changed;
+	}
+
+	/**
+	 * Schedules a reload of the default and fallback languages with {@link #reloadScheduler}. Bursts of calls are merged
+	 * into a single background reload, and unchanged packs are not parsed again.
+	 *
+	 * @param context The context to use to load the language
+	 * @param listener Optional listener to call on the main thread when the reload has completed
+	 */
+	public void scheduleReload(@NonNull Context context, @Nullable ReloadScheduler.ReloadListener listener)
+	{
+		getReloadScheduler().requestReload(context, listener);
+	}
+
+	/**
+	 * Checks if the pack of a language still matches the fingerprint it was loaded with, updating the fingerprint if only
+	 * the pack's metadata has changed
+	 *
+	 * @param language The language to check
+	 *
+	 * @return true if the pack is unchanged
+	 */
+	private boolean isUnchanged(@NonNull Language language)
+	{
+		if (language instanceof ShardedLanguage || language.getFingerprint() == null)
+		{
+			return false;
+		}
+
+		PackFingerprint fingerprint = language.getFingerprint().verify(new UriPackSource(this, Uri.parse(language.getSourceUri())));
+
+		if (fingerprint != null)
+		{
+			language.setFingerprint(fingerprint);
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Releases the memory of a tier from the default and locale languages. Called by {@link MemoryTrimmer} for each tier
+	 * it trims.
+	 * <ul>
+	 * <li>{@link TrimTier#CACHES} drops the caches of each language, see {@link Language#trimCaches()}</li>
+	 * <li>{@link TrimTier#INACTIVE} evicts all but the most recently used shard of sharded languages</li>
+	 * <li>{@link TrimTier#ACTIVE} evicts every shard of sharded languages, and replaces other languages with a
+	 * {@link ReleasedLanguage} which reloads the pack on the next lookup. The language generation is not incremented, as
+	 * the reloaded values are the same.</li>
+	 * </ul>
+	 *
+	 * @param context The context to use to reload released languages
+	 * @param tier The tier to release
+	 *
+	 * @return The estimated number of bytes released
+	 */
+	public synchronized long trimLanguages(@NonNull Context context, @NonNull TrimTier tier)
+	{
+		long released = 0;
+
+		if (tier == TrimTier.ACTIVE)
+		{
+			if (isReleasable(defaultLanguage))
+			{
+				released += defaultLanguage.getEstimatedSize();
+				defaultLanguage = new ReleasedLanguage(context, defaultLanguage);
+			}
+
+			if (isReleasable(localeLanguage))
+			{
+				released += localeLanguage.getEstimatedSize();
+				localeLanguage = new ReleasedLanguage(context, localeLanguage);
+			}
 		}
+
+		for (Language language : new Language[]{defaultLanguage, localeLanguage})
+		{
+			if (language == null)
+			{
+				continue;
+			}
+
+			if (tier == TrimTier.CACHES)
+			{
+				released += language.trimCaches();
+			}
+			else if (tier == TrimTier.INACTIVE && language instanceof ShardedLanguage)
+			{
+				released += ((ShardedLanguage)language).evictInactive();
+			}
+			else if (tier == TrimTier.ACTIVE && language instanceof ShardedLanguage)
+			{
+				released += language.getEstimatedSize();
+				((ShardedLanguage)language).evictAll();
+			}
+			else if (tier == TrimTier.ACTIVE && language instanceof ReleasedLanguage)
+			{
+				released += ((ReleasedLanguage)language).release();
+			}
+		}
+
+		return released;
+	}
+
+	/**
+	 * @param language The language to check
+	 *
+	 * @return true if the language can be replaced with a {@link ReleasedLanguage}
+	 */
+	private static boolean isReleasable(@Nullable Language language)
+	{
+		if (language == null || language.getSourceUri() == null || language instanceof ShardedLanguage || language instanceof ReleasedLanguage)
+		{
+			return false;
+		}
+
+		if (language instanceof ProgressiveLanguage)
+		{
+			return ((ProgressiveLanguage)language).isFullyLoaded();
+		}
+
+		return !(language instanceof HotSetLanguage) || ((HotSetLanguage)language).isFullyLoaded();
+	}
+
+	/**
+	 * Reloads a single language from its source Uri, keeping sharded languages sharded
+	 *
+	 * @param context The context to use to load the language
+	 * @param language The language to reload
+	 *
+	 * @return The reloaded language
+	 */
+	@NonNull
+	private Language reloadLanguage(@NonNull Context context, @NonNull Language language)
+	{
+		Uri sourceUri = Uri.parse(language.getSourceUri());
+
+		if (language instanceof ShardedLanguage)
+		{
+			return getLanguageManager().loadShardedLanguage(context, sourceUri);
+		}
+
+		return getLanguageManager().loadLanguage(context, sourceUri);
 	}
 
 	/**
@@ -99,35 +353,49 @@ public class LanguageSettings
 	@Getter @Setter private LanguageManager languageManager;
 
 	/**
-	 * Factory class responsible for loading a file from disk based on its Uri
+	 * Maximum estimated size, in bytes, of the loaded shards of each {@link ShardedLanguage}. {@code 0} means no limit.
+	 */
+	@Getter @Setter private long shardMemoryBudget;
+
+	/**
+	 * Index of key IDs generated by the {@code language-keys} Gradle plugin. Loaded languages are indexed with it so they
+	 * can be looked up by ID.
 	 */
-	@Getter @Setter private FileFactory fileFactory;
+	@Getter @Setter private LanguageKeyIndex keyIndex;
 
 	/**
-	 * Uri resolver used to load a file based on it's protocol.
+	 * How loaded languages are stored in memory
 	 */
-	@Getter @Setter private Map<String, Resolver> uriResolvers = new LinkedHashMap<String, Resolver>(2);
+	@Getter @Setter private StorageMode storageMode = StorageMode.STANDARD;
 
 	/**
-	 * Default loaded language. This will default to what ever the device's country currently is
+	 * Whether to build the sorted key index of each language when it is loaded, rather than on the first prefix or range
+	 * query. See {@link Language#getKeys(String)}.
 	 */
-	@Getter @Setter private Language defaultLanguage;
+	@Getter @Setter private boolean sortedKeyIndex;
 
 	/**
-	 * Language pack loaded for specific locale. Locale language packs will only contain specific language overrides and
-	 * will fallback to the defined {@link #defaultLanguage} if not found.
+	 * Target false positive rate of the Bloom filter of loaded keys, used to reject text that is not a key without looking
+	 * it up. See {@link LanguageManager#getKeyFilter()}. {@code 0}, the default, disables the filter.
 	 */
-	@Getter @Setter private Language localeLanguage;
+	@Getter @Setter private double keyFilterFalsePositiveRate;
 
 	/**
-	 * Method processor class used to process methods part of variable localisations
+	 * Scheduler used by {@link #scheduleReload(Context, ReloadScheduler.ReloadListener)} to coalesce reloads
 	 */
-	@Getter @Setter private MethodProcessor methodProcessor;
+	@Getter @Setter private ReloadScheduler reloadScheduler;
 
 	/**
-	 * The gson builder class used to build the language files
+	 * Releases language memory when the platform asks the app to trim. Null unless set with
+	 * {@link Builder#memoryTrimmer(MemoryTrimmer)}.
 	 */
-	@Getter @Setter private LanguageBuilder languageBuilder;
+	@Getter @Nullable private MemoryTrimmer memoryTrimmer;
+
+	/**
+	 * Search index over the values of the loaded languages, rebuilt in the background when they change. Null unless enabled
+	 * with {@link Builder#searchIndex(boolean)}.
+	 */
+	@Getter @Nullable private LanguageSearcher searcher;
 
 	/**
 	 * Loads a language from the uri to set for {@link #defaultLanguage}
@@ -137,7 +405,7 @@ public class LanguageSettings
 	 */
 	public void setDefaultLanguage(@NonNull Context context, @NonNull Uri languageUri)
 	{
-		defaultLanguage = getLanguageManager().loadLanguage(context, languageUri);
+		setDefaultLanguage(getLanguageManager().loadLanguage(context, languageUri));
 	}
 
 	/**
@@ -150,11 +418,11 @@ public class LanguageSettings
 	{
 		if (languageUri == null)
 		{
-			localeLanguage = null;
+			setLocaleLanguage((Language)null);
 		}
 		else
 		{
-			localeLanguage = getLanguageManager().loadLanguage(context, languageUri);
+			setLocaleLanguage(getLanguageManager().loadLanguage(context, languageUri));
 		}
 	}
 
@@ -181,6 +449,27 @@ public class LanguageSettings
 		 */
 		private Uri defaultLanguageUri, localeUri;
 
+		/**
+		 * Whether the default language has been set explicitly. If not, it is discovered from the assets when {@link #build()}
+		 * is called.
+		 */
+		private boolean defaultLanguageSet;
+
+		/**
+		 * Whether the temporary language Uris point to shard manifests rather than language files
+		 */
+		private boolean defaultLanguageSharded, localeSharded;
+
+		/**
+		 * Length of the hot key profiling window in milliseconds, {@code 0} if profiling is disabled
+		 */
+		private long hotKeyWindow;
+
+		/**
+		 * Whether language files are loaded progressively
+		 */
+		private boolean progressiveLoading;
+
 		/**
 		 * Default constructor
 		 */
@@ -196,8 +485,8 @@ public class LanguageSettings
 			registerUriResolver("file", new FileResolver());
 			registerUriResolver("assets", new AssetsResolver(this.context));
 
-			languageUri(Uri.parse("assets://languages/" + this.construct.getLanguageManager().getLocale(context) + ".json"));
 			methodProcessor(new MethodProcessor());
+			reloadScheduler(new ReloadScheduler(500, 2500));
 		}
 
 		/**
@@ -249,6 +538,40 @@ public class LanguageSettings
 		public Builder languageUri(@NonNull Uri languageUri)
 		{
 			this.defaultLanguageUri = languageUri;
+			this.defaultLanguageSharded = false;
+			this.defaultLanguageSet = true;
+			return this;
+		}
+
+		/**
+		 * Sets the default language to the best available pack in {@param index} for the device locale. Packs are tried in
+		 * the order region specific ({@code xxx_xxx}), language ({@code xxx}), then {@param fallback}.
+		 *
+		 * @param index The index of the available packs
+		 * @param fallback The name of the pack to use if no locale pack is available, for example {@code gbr_eng}. Can be null.
+		 *
+		 * @return The {@link com.cube.storm.LanguageSettings.Builder} instance for chaining
+		 */
+		public Builder languagePackIndex(@NonNull LanguagePackIndex index, @Nullable String fallback)
+		{
+			this.defaultLanguageUri = construct.getLanguageManager().negotiateLanguageUri(context, index, fallback);
+			this.defaultLanguageSharded = false;
+			this.defaultLanguageSet = true;
+			return this;
+		}
+
+		/**
+		 * Sets the default language to a sharded language pack. See {@link ShardedLanguage} for the manifest format.
+		 *
+		 * @param manifestUri The shard manifest Uri
+		 *
+		 * @return The {@link com.cube.storm.LanguageSettings.Builder} instance for chaining
+		 */
+		public Builder languageManifestUri(@NonNull Uri manifestUri)
+		{
+			this.defaultLanguageUri = manifestUri;
+			this.defaultLanguageSharded = true;
+			this.defaultLanguageSet = true;
 			return this;
 		}
 
@@ -263,6 +586,171 @@ public class LanguageSettings
 		public Builder localeUri(@Nullable Uri localeUri)
 		{
 			this.localeUri = localeUri;
+			this.localeSharded = false;
+			return this;
+		}
+
+		/**
+		 * Sets the locale language to a sharded language pack. See {@link ShardedLanguage} for the manifest format.
+		 *
+		 * @param manifestUri The shard manifest Uri
+		 *
+		 * @return The {@link com.cube.storm.LanguageSettings.Builder} instance for chaining
+		 */
+		public Builder localeManifestUri(@NonNull Uri manifestUri)
+		{
+			this.localeUri = manifestUri;
+			this.localeSharded = true;
+			return this;
+		}
+
+		/**
+		 * Sets the maximum estimated size, in bytes, of the loaded shards of each sharded language. Least recently used
+		 * shards are evicted when the budget is exceeded.
+		 *
+		 * @param budget The budget in bytes. Set to {@code 0} for no limit.
+		 *
+		 * @return The {@link com.cube.storm.LanguageSettings.Builder} instance for chaining
+		 */
+		public Builder shardMemoryBudget(long budget)
+		{
+			construct.shardMemoryBudget = budget;
+			return this;
+		}
+
+		/**
+		 * Builds the sorted key index of each language as it is loaded, so the first prefix or range query, such as
+		 * {@link LanguageManager#getKeys(String)}, does not have to build it
+		 *
+		 * @param sortedKeyIndex true to build the index at load time
+		 *
+		 * @return The {@link com.cube.storm.LanguageSettings.Builder} instance for chaining
+		 */
+		public Builder sortedKeyIndex(boolean sortedKeyIndex)
+		{
+			construct.sortedKeyIndex = sortedKeyIndex;
+			return this;
+		}
+
+		/**
+		 * Sets the target false positive rate of the Bloom filter of loaded keys, which lets lookups of text that is not a
+		 * key, such as already localised or user entered text, return without checking either language. Disabled by
+		 * default, {@code 0.01} is a good starting point. Lower rates use more memory.
+		 * <p/>
+		 * The filter is rebuilt when a language is loaded or replaced. If the app changes the values of a loaded language,
+		 * it must call {@link LanguageManager#invalidateKeyFilter()} afterwards, or the new keys are not found.
+		 *
+		 * @param falsePositiveRate The target false positive rate, below 1. Set to {@code 0} to disable the filter.
+		 *
+		 * @return The {@link com.cube.storm.LanguageSettings.Builder} instance for chaining
+		 */
+		public Builder keyFilter(double falsePositiveRate)
+		{
+			construct.keyFilterFalsePositiveRate = falsePositiveRate;
+			return this;
+		}
+
+		/**
+		 * Sets the scheduler used to coalesce reloads requested with {@link LanguageSettings#scheduleReload(Context, ReloadScheduler.ReloadListener)}
+		 *
+		 * @param scheduler The reload scheduler
+		 *
+		 * @return The {@link com.cube.storm.LanguageSettings.Builder} instance for chaining
+		 */
+		public Builder reloadScheduler(@NonNull ReloadScheduler scheduler)
+		{
+			construct.reloadScheduler = scheduler;
+			return this;
+		}
+
+		/**
+		 * Sets the tracer which receives timed spans from the language pipeline. Disabled by default, set a
+		 * {@link PlatformTracer} to see the spans in systrace and Perfetto captures, or a
+		 * {@link com.cube.storm.language.lib.trace.ChromeTraceTracer} to record them to a file.
+		 *
+		 * @param tracer The tracer
+		 *
+		 * @return The {@link com.cube.storm.LanguageSettings.Builder} instance for chaining
+		 */
+		public Builder tracer(@NonNull Tracer tracer)
+		{
+			construct.tracer = tracer;
+			return this;
+		}
+
+		/**
+		 * Sets the trimmer which releases language memory when the platform asks the app to trim. It is registered for
+		 * component callbacks when the settings are built, along with the pack cache and any render cache or search index.
+		 * Disabled by default, pass {@code new MemoryTrimmer(context)} to enable it.
+		 *
+		 * @param trimmer The memory trimmer, or null to not react to memory pressure
+		 *
+		 * @return The {@link com.cube.storm.LanguageSettings.Builder} instance for chaining
+		 */
+		public Builder memoryTrimmer(@Nullable MemoryTrimmer trimmer)
+		{
+			construct.memoryTrimmer = trimmer;
+			return this;
+		}
+
+		/**
+		 * Sets a cache of rendered localisations, used by {@link com.cube.storm.language.lib.helper.LocalisationHelper} and
+		 * {@link #localise(String, com.cube.storm.language.lib.processor.Mapping...)} for keys rendered with mappings. It is
+		 * registered with the memory trimmer when the settings are built. Disabled by default.
+		 *
+		 * @param cache The render cache, or null to render every time
+		 *
+		 * @return The {@link com.cube.storm.LanguageSettings.Builder} instance for chaining
+		 */
+		public Builder renderCache(@Nullable RenderedStringCache cache)
+		{
+			construct.renderCache = cache;
+			return this;
+		}
+
+		/**
+		 * Enables a search index over the values of the loaded languages, see {@link #getSearcher()}. The index is built in
+		 * the background once the languages are loaded, and rebuilt when they are reloaded or replaced. It is registered with
+		 * the memory trimmer. Disabled by default.
+		 *
+		 * @param enabled true to build a search index
+		 *
+		 * @return The {@link com.cube.storm.LanguageSettings.Builder} instance for chaining
+		 */
+		public Builder searchIndex(boolean enabled)
+		{
+			construct.searcher = enabled ? new LanguageSearcher(construct) : null;
+			return this;
+		}
+
+		/**
+		 * Enables hot key profiling. The keys looked up in the first {@param window} milliseconds after {@link #build()} are
+		 * saved as a hot set, and on later starts the hot set is loaded first with the rest of the pack loading in the
+		 * background. See {@link com.cube.storm.language.lib.manager.HotKeyProfiler}. Sharded languages are not profiled.
+		 *
+		 * @param window The length of the profiling window in milliseconds. Set to {@code 0} to disable.
+		 *
+		 * @return The {@link com.cube.storm.LanguageSettings.Builder} instance for chaining
+		 */
+		public Builder hotKeyProfiling(long window)
+		{
+			this.hotKeyWindow = window;
+			return this;
+		}
+
+		/**
+		 * Enables progressive loading of the languages loaded by {@link #build()}. Each pack is parsed in the background and
+		 * its values are published in batches as they are parsed, so keys near the start of a large pack can be looked up
+		 * before the rest has been read. See {@link ProgressiveLanguage}. Hot key profiling takes precedence, and sharded
+		 * languages are not affected.
+		 *
+		 * @param enabled true to load languages progressively
+		 *
+		 * @return The {@link com.cube.storm.LanguageSettings.Builder} instance for chaining
+		 */
+		public Builder progressiveLoading(boolean enabled)
+		{
+			this.progressiveLoading = enabled;
 			return this;
 		}
 
@@ -279,6 +767,33 @@ public class LanguageSettings
 			return this;
 		}
 
+		/**
+		 * Sets the key index used to look up values by ID. Use the {@code keys()} method of the class generated by the
+		 * {@code language-keys} Gradle plugin to create it.
+		 *
+		 * @param keyIndex The key index
+		 *
+		 * @return The {@link com.cube.storm.LanguageSettings.Builder} instance for chaining
+		 */
+		public Builder keyIndex(@Nullable LanguageKeyIndex keyIndex)
+		{
+			construct.keyIndex = keyIndex;
+			return this;
+		}
+
+		/**
+		 * Sets how loaded languages are stored in memory. Use {@link StorageMode#COMPACT} to front code the keys of large packs.
+		 *
+		 * @param storageMode The storage mode
+		 *
+		 * @return The {@link com.cube.storm.LanguageSettings.Builder} instance for chaining
+		 */
+		public Builder storageMode(@NonNull StorageMode storageMode)
+		{
+			construct.storageMode = storageMode;
+			return this;
+		}
+
 		/**
 		 * Registers a uri resolver to use
 		 *
@@ -311,21 +826,113 @@ public class LanguageSettings
 		 * instance.
 		 *
 		 * The languages set by {@link #languageUri(android.net.Uri)} and {@link #localeUri(android.net.Uri)} are
-		 * loaded at this point.
+		 * loaded at this point. If no default language was set, the best pack for the device locale is negotiated from the
+		 * packs in {@code assets/languages}.
 		 *
 		 * @return The newly set {@link com.cube.storm.LanguageSettings} instance
 		 */
 		public LanguageSettings build()
 		{
 			LanguageSettings.instance = construct;
-			LanguageSettings.instance.defaultLanguage = construct.getLanguageManager().loadLanguage(context, defaultLanguageUri);
+
+			if (!defaultLanguageSet)
+			{
+				discoverDefaultLanguage();
+			}
+
+			if (defaultLanguageUri == null)
+			{
+				construct.setDefaultLanguage(new Language());
+			}
+			else
+			{
+				construct.setDefaultLanguage(defaultLanguageSharded
+					? construct.getLanguageManager().loadShardedLanguage(context, defaultLanguageUri)
+					: loadLanguage(defaultLanguageUri));
+			}
 
 			if (localeUri != null)
 			{
-				LanguageSettings.instance.localeLanguage = construct.getLanguageManager().loadLanguage(context, localeUri);
+				construct.setLocaleLanguage(localeSharded
+					? construct.getLanguageManager().loadShardedLanguage(context, localeUri)
+					: loadLanguage(localeUri));
+			}
+
+			if (hotKeyWindow > 0)
+			{
+				construct.getLanguageManager().startProfiling(context, hotKeyWindow);
+			}
+
+			// Build the key filter now rather than on the first lookup
+			construct.getLanguageManager().getKeyFilter();
+
+			if (construct.searcher != null)
+			{
+				construct.searcher.refresh();
+			}
+
+			if (construct.memoryTrimmer != null)
+			{
+				construct.memoryTrimmer.register(construct.packCache);
+
+				if (construct.renderCache != null)
+				{
+					construct.memoryTrimmer.register(construct.renderCache);
+				}
+
+				if (construct.searcher != null)
+				{
+					construct.memoryTrimmer.register(construct.searcher);
+				}
+
+				context.registerComponentCallbacks(construct.memoryTrimmer);
 			}
 
 			return LanguageSettings.instance;
 		}
+
+		/**
+		 * Sets the default language Uri to the best pack for the device locale in {@code assets/languages}, or to the pack
+		 * named after the device locale if the assets can not be listed
+		 */
+		private void discoverDefaultLanguage()
+		{
+			LanguagePackIndex assetsIndex = LanguagePackIndex.fromAssets(context, "languages");
+
+			if (assetsIndex != null)
+			{
+				defaultLanguageUri = construct.getLanguageManager().negotiateLanguageUri(context, assetsIndex, null);
+			}
+			else
+			{
+				defaultLanguageUri = Uri.parse("assets://languages/" + construct.getLanguageManager().getLocale(context) + ".json");
+			}
+
+			defaultLanguageSharded = false;
+		}
+
+		/**
+		 * Loads a language, from its hot set if hot key profiling is enabled, or progressively if progressive loading is
+		 * enabled
+		 *
+		 * @param languageUri The language Uri to load
+		 *
+		 * @return The loaded language
+		 */
+		@NonNull
+		private Language loadLanguage(@NonNull Uri languageUri)
+		{
+			if (hotKeyWindow > 0)
+			{
+				return construct.getLanguageManager().loadHotLanguage(context, languageUri);
+			}
+
+			if (progressiveLoading)
+			{
+				return construct.getLanguageManager().loadProgressiveLanguage(context, languageUri);
+			}
+
+			return construct.getLanguageManager().loadLanguage(context, languageUri);
+		}
 	}
 }
@@ -0,0 +1,74 @@
+package com.cube.storm.language.data;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import androidx.annotation.NonNull;
+
+import lombok.Getter;
+
+/**
+ * {@link Parcelable} wrapper for a {@link Language}, written as a {@link LanguageSnapshot}. Use this to put a language in a
+ * {@link android.os.Bundle} or pass it over IPC without java serialization.
+ *
+ * @project LightningLanguage
+ */
+public class ParcelableLanguage implements Parcelable
+{
+	public static final Creator<ParcelableLanguage> CREATOR = new Creator<ParcelableLanguage>()
+	{
+		@Override public ParcelableLanguage createFromParcel(Parcel source)
+		{
+			return new ParcelableLanguage(readFromParcel(source));
+		}
+
+		@Override public ParcelableLanguage[] newArray(int size)
+		{
+			return new ParcelableLanguage[size];
+		}
+	};
+
+	/**
+	 * The wrapped language
+	 */
+	@Getter private final Language language;
+
+	public ParcelableLanguage(@NonNull Language language)
+	{
+		this.language = language;
+	}
+
+	@Override public int describeContents()
+	{
+		return 0;
+	}
+
+	@Override public void writeToParcel(Parcel dest, int flags)
+	{
+		writeToParcel(language, dest);
+	}
+
+	/**
+	 * Writes a language snapshot to a parcel as a single byte array. Parcels sent over IPC are limited in size, for large
+	 * packs prefer passing the source Uri and reloading.
+	 *
+	 * @param language The language to write
+	 * @param parcel The parcel to write to
+	 */
+	public static void writeToParcel(@NonNull Language language, @NonNull Parcel parcel)
+	{
+		parcel.writeByteArray(LanguageSnapshot.toByteArray(language));
+	}
+
+	/**
+	 * Reads a language snapshot written with {@link #writeToParcel(Language, Parcel)}
+	 *
+	 * @param parcel The parcel to read from
+	 *
+	 * @return The language
+	 */
+	@NonNull
+	public static Language readFromParcel(@NonNull Parcel parcel)
+	{
+		return LanguageSnapshot.fromByteArray(parcel.createByteArray());
+	}
+}
@@ -0,0 +1,169 @@
+package com.cube.storm.language.data;
+
+import android.content.Context;
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.LanguageSettings;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Language model which stands in for a language that has been released from memory by
+ * {@link com.cube.storm.language.lib.manager.MemoryTrimmer}.
+ * <p/>
+ * Only the source Uri and fingerprint of the released language are kept. The pack on disk is the backing store: the
+ * first lookup reloads it with {@link com.cube.storm.language.lib.manager.LanguageManager#loadLanguage(Context, Uri)},
+ * blocking until it has loaded, and every lookup after that goes to the reloaded language until it is released again with
+ * {@link #release()}. If the reload fails, the lookup is answered from an empty language and the next lookup tries again.
+ *
+ * @project LightningLanguage
+ */
+public class ReleasedLanguage extends Language
+{
+	@NonNull private final transient Context context;
+
+	/**
+	 * The reloaded language, or null while released
+	 */
+	@Nullable private transient volatile Language language;
+
+	/**
+	 * @param context The context to use to reload the language
+	 * @param language The language being released
+	 */
+	public ReleasedLanguage(@NonNull Context context, @NonNull Language language)
+	{
+		this.context = context.getApplicationContext();
+		this.sourceUri = language.getSourceUri();
+		this.fingerprint = language.getFingerprint();
+		this.keyIndex = language.getKeyIndex();
+	}
+
+	/**
+	 * @return true if the language is currently loaded
+	 */
+	public boolean isLoaded()
+	{
+		return language != null;
+	}
+
+	/**
+	 * Releases the reloaded language again, if it has been reloaded
+	 *
+	 * @return The estimated number of bytes released
+	 */
+	public synchronized long release()
+	{
+		Language loaded = language;
+		language = null;
+
+		return loaded == null ? 0 : loaded.getEstimatedSize();
+	}
+
+	/**
+	 * Gets the language, reloading it from its source Uri if it is released
+	 *
+	 * @return The language, or an empty language if it could not be reloaded
+	 */
+	@NonNull
+	public Language getLanguage()
+	{
+		Language loaded = language;
+
+		if (loaded == null)
+		{
+			synchronized (this)
+			{
+				loaded = language;
+
+				if (loaded == null)
+				{
+					loaded = LanguageSettings.getInstance().getLanguageManager().loadLanguage(context, Uri.parse(sourceUri));
+
+					// A failed load returns an empty language with no source Uri, which is not kept so the pack is reloaded
+					if (loaded.getSourceUri() != null)
+					{
+						language = loaded;
+					}
+				}
+			}
+		}
+
+		return loaded;
+	}
+
+	@Override public long getEstimatedSize()
+	{
+		Language loaded = language;
+		return loaded == null ? 0 : loaded.getEstimatedSize();
+	}
+
+	@Override public long trimCaches()
+	{
+		Language loaded = language;
+		return loaded == null ? 0 : loaded.trimCaches();
+	}
+
+	@Override public Map<String, String> getValues()
+	{
+		return getLanguage().getValues();
+	}
+
+	@Override public void setValues(Map<String, String> values)
+	{
+		getLanguage().setValues(values);
+	}
+
+	@NonNull @Override public FrontCodedKeys getSortedKeys()
+	{
+		return getLanguage().getSortedKeys();
+	}
+
+	@NonNull @Override public List<String> getKeys(@NonNull String prefix)
+	{
+		return getLanguage().getKeys(prefix);
+	}
+
+	@NonNull @Override public List<String> getKeys(@NonNull String from, @NonNull String to)
+	{
+		return getLanguage().getKeys(from, to);
+	}
+
+	@Override public int countKeys(@NonNull String prefix)
+	{
+		return getLanguage().countKeys(prefix);
+	}
+
+	/**
+	 * Stores the key index. The reloaded language is indexed with {@link LanguageSettings#getKeyIndex()} when it is loaded.
+	 *
+	 * @param index The key index to use
+	 */
+	@Override public void index(@NonNull LanguageKeyIndex index)
+	{
+		this.keyIndex = index;
+	}
+
+	@NonNull @Override public String getValue(@NonNull String id)
+	{
+		return getLanguage().getValue(id);
+	}
+
+	@Override public boolean hasValue(@NonNull String id)
+	{
+		return getLanguage().hasValue(id);
+	}
+
+	@NonNull @Override public String getValue(int id)
+	{
+		return getLanguage().getValue(id);
+	}
+
+	@Override public boolean hasValue(int id)
+	{
+		return getLanguage().hasValue(id);
+	}
+}
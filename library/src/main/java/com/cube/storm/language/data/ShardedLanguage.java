@@ -0,0 +1,571 @@
+package com.cube.storm.language.data;
+
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.LanguageContext;
+import com.cube.storm.LanguageSettings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.Getter;
+
+/**
+ * Language model backed by a sharded language pack.
+ * <p/>
+ * A sharded pack is described by a small manifest which maps key prefixes (namespaces) to shard files, for example
+ * <pre>
+ {
+ 	"_SETTINGS_": "settings.json",
+ 	"_QUIZ_": "quiz.json",
+ 	"": "common.json"
+ }
+ * </pre>
+ * Shard paths are resolved relative to the manifest Uri unless they contain their own scheme. The empty prefix acts as
+ * the catch-all shard for keys that do not match any other namespace.
+ * <p/>
+ * No shard is loaded when the model is created. Each shard is loaded through the {@link com.cube.storm.language.lib.parser.LanguageBuilder}
+ * (and therefore {@link com.cube.storm.language.lib.factory.FileFactory}) of the {@link LanguageContext} that created it the first time a key in its namespace is looked up,
+ * or when {@link #preload(String)} is called. When {@link #memoryBudget} is exceeded, the least recently used shards are
+ * evicted and will be re-loaded the next time they are needed.
+ * <p/>
+ * Lookups of loaded shards do not lock. A shard is read outside of the language's lock, guarded per namespace, so a
+ * slow shard load only blocks other lookups in the same namespace.
+ *
+ * @author Callum Taylor
+ * @project LightningLanguage
+ */
+public class ShardedLanguage extends Language
+{
+	/**
+	 * Map of key prefix to the Uri of the shard file
+	 */
+	@Getter protected Map<String, String> shards;
+
+	/**
+	 * Maximum estimated size, in bytes, of all loaded shards. {@code 0} means no limit.
+	 */
+	@Getter protected long memoryBudget;
+
+	/**
+	 * The context the shards are loaded with. Null once deserialized, when {@link LanguageSettings} is used.
+	 */
+	@Nullable private transient LanguageContext context;
+
+	/**
+	 * A loaded shard
+	 */
+	private static class Shard
+	{
+		private final Map<String, String> values;
+		private final long size;
+
+		/**
+		 * Time of the last lookup, from {@link System#nanoTime()}, used to evict the least recently used shards
+		 */
+		private volatile long lastAccess = System.nanoTime();
+
+		private Shard(@NonNull Map<String, String> values, long size)
+		{
+			this.values = values;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Shard prefixes ordered longest first so the most specific namespace wins
+	 */
+	private transient volatile String[] prefixes;
+
+	/**
+	 * Loaded shards, keyed by prefix. Read without locking, changed while holding the language's lock.
+	 */
+	private transient volatile ConcurrentHashMap<String, Shard> loaded;
+
+	/**
+	 * Guards of the shards being loaded, keyed by prefix, so each shard is only loaded once at a time
+	 */
+	private transient volatile ConcurrentHashMap<String, Object> loadGuards;
+
+	/**
+	 * Current estimated size of all loaded shards
+	 */
+	private transient long loadedSize;
+
+	/**
+	 * Creates a sharded language whose shards are loaded with {@link LanguageSettings}
+	 *
+	 * @param manifestUri The Uri of the manifest the shards were read from
+	 * @param manifest The map of key prefix to shard path, as read from the manifest
+	 * @param memoryBudget The maximum estimated size, in bytes, of loaded shards. Set to {@code 0} for no limit.
+	 */
+	public ShardedLanguage(@NonNull Uri manifestUri, @NonNull Map<String, String> manifest, long memoryBudget)
+	{
+		this(LanguageSettings.getInstance(), manifestUri, manifest, memoryBudget);
+	}
+
+	/**
+	 * @param context The context to load the shards with
+	 * @param manifestUri The Uri of the manifest the shards were read from
+	 * @param manifest The map of key prefix to shard path, as read from the manifest
+	 * @param memoryBudget The maximum estimated size, in bytes, of loaded shards. Set to {@code 0} for no limit.
+	 */
+	public ShardedLanguage(@NonNull LanguageContext context, @NonNull Uri manifestUri, @NonNull Map<String, String> manifest, long memoryBudget)
+	{
+		this.context = context;
+		this.sourceUri = manifestUri.toString();
+		this.memoryBudget = memoryBudget;
+		this.shards = new LinkedHashMap<String, String>(manifest.size());
+
+		for (Map.Entry<String, String> shard : manifest.entrySet())
+		{
+			shards.put(shard.getKey(), resolveShardUri(manifestUri, shard.getValue()).toString());
+		}
+	}
+
+	/**
+	 * Resolves a shard path from the manifest against the manifest's own Uri
+	 *
+	 * @param manifestUri The manifest Uri
+	 * @param path The shard path. Can be absolute (contain a scheme) or relative to the manifest.
+	 *
+	 * @return The resolved shard Uri
+	 */
+	@NonNull
+	protected Uri resolveShardUri(@NonNull Uri manifestUri, @NonNull String path)
+	{
+		if (path.contains("://"))
+		{
+			return Uri.parse(path);
+		}
+
+		String manifest = manifestUri.toString();
+		int separator = manifest.lastIndexOf('/');
+
+		return Uri.parse((separator > -1 ? manifest.substring(0, separator + 1) : "") + path);
+	}
+
+	/**
+	 * Finds the namespace a key belongs to
+	 *
+	 * @param key The key to look up
+	 *
+	 * @return The prefix of the matching shard, or null if no shard covers the key
+	 */
+	@Nullable
+	public String getNamespace(@NonNull String key)
+	{
+		String[] prefixes = this.prefixes;
+
+		if (prefixes == null)
+		{
+			prefixes = shards.keySet().toArray(new String[shards.size()]);
+			Arrays.sort(prefixes, new Comparator<String>()
+			{
+				@Override public int compare(String lhs, String rhs)
+				{
+					return rhs.length() - lhs.length();
+				}
+			});
+
+			this.prefixes = prefixes;
+		}
+
+		for (String prefix : prefixes)
+		{
+			if (key.startsWith(prefix))
+			{
+				return prefix;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Loads the shard for a namespace if it is not already loaded. Use this to warm a namespace before it is
+	 * displayed.
+	 *
+	 * @param namespace The key prefix of the shard, as defined in the manifest
+	 *
+	 * @return true if the namespace exists in the manifest, false if not
+	 */
+	public boolean preload(@NonNull String namespace)
+	{
+		if (!shards.containsKey(namespace))
+		{
+			return false;
+		}
+
+		getShard(namespace);
+		return true;
+	}
+
+	/**
+	 * Checks if the shard for a namespace is currently held in memory
+	 *
+	 * @param namespace The key prefix of the shard
+	 *
+	 * @return true if loaded, false if not
+	 */
+	public boolean isLoaded(@NonNull String namespace)
+	{
+		Map<String, Shard> loaded = this.loaded;
+		return loaded != null && loaded.containsKey(namespace);
+	}
+
+	/**
+	 * Evicts all loaded shards. They will be re-loaded the next time a key in their namespace is looked up.
+	 */
+	public synchronized void evictAll()
+	{
+		if (loaded != null)
+		{
+			loaded.clear();
+		}
+
+		loadedSize = 0;
+	}
+
+	/**
+	 * Evicts every loaded shard except the most recently used one, which is most likely the namespace on screen
+	 *
+	 * @return The estimated number of bytes released
+	 */
+	public synchronized long evictInactive()
+	{
+		if (loaded == null || loaded.size() < 2)
+		{
+			return 0;
+		}
+
+		String active = null;
+		long activeAccess = 0;
+
+		for (Map.Entry<String, Shard> entry : loaded.entrySet())
+		{
+			if (active == null || entry.getValue().lastAccess - activeAccess > 0)
+			{
+				active = entry.getKey();
+				activeAccess = entry.getValue().lastAccess;
+			}
+		}
+
+		long released = 0;
+
+		for (String namespace : new ArrayList<String>(loaded.keySet()))
+		{
+			if (!namespace.equals(active))
+			{
+				released += evict(namespace);
+			}
+		}
+
+		return released;
+	}
+
+	/**
+	 * Gets the loaded shard for a namespace, loading it if necessary
+	 *
+	 * @param namespace The key prefix of the shard
+	 *
+	 * @return The shard values. Will be empty if the shard failed to load.
+	 */
+	@NonNull
+	private Map<String, String> getShard(@NonNull String namespace)
+	{
+		Map<String, Shard> loaded = getLoaded();
+		Shard shard = loaded.get(namespace);
+
+		if (shard == null)
+		{
+			synchronized (getLoadGuard(namespace))
+			{
+				shard = loaded.get(namespace);
+
+				if (shard == null)
+				{
+					// Read outside of the language's lock so lookups of loaded shards are not blocked
+					Map<String, String> values = loadShard(Uri.parse(shards.get(namespace)));
+					shard = new Shard(values, estimateSize(values));
+
+					synchronized (this)
+					{
+						loaded.put(namespace, shard);
+						loadedSize += shard.size;
+
+						trimToBudget(namespace);
+					}
+				}
+			}
+		}
+		else
+		{
+			shard.lastAccess = System.nanoTime();
+		}
+
+		return shard.values;
+	}
+
+	/**
+	 * @return The map of loaded shards, created if necessary
+	 */
+	@NonNull
+	private Map<String, Shard> getLoaded()
+	{
+		ConcurrentHashMap<String, Shard> loaded = this.loaded;
+
+		if (loaded == null)
+		{
+			synchronized (this)
+			{
+				if (this.loaded == null)
+				{
+					this.loaded = new ConcurrentHashMap<String, Shard>(shards.size());
+					this.loadGuards = new ConcurrentHashMap<String, Object>(shards.size());
+				}
+
+				loaded = this.loaded;
+			}
+		}
+
+		return loaded;
+	}
+
+	/**
+	 * @param namespace The key prefix of the shard
+	 *
+	 * @return The object to hold while loading the shard of {@param namespace}
+	 */
+	@NonNull
+	private Object getLoadGuard(@NonNull String namespace)
+	{
+		Object guard = loadGuards.get(namespace);
+
+		if (guard == null)
+		{
+			Object created = new Object();
+			guard = loadGuards.putIfAbsent(namespace, created);
+			guard = guard == null ? created : guard;
+		}
+
+		return guard;
+	}
+
+	/**
+	 * Evicts a loaded shard. Must be called while holding the language's lock.
+	 *
+	 * @param namespace The key prefix of the shard
+	 *
+	 * @return The estimated size of the evicted shard
+	 */
+	private long evict(@NonNull String namespace)
+	{
+		Shard shard = loaded.remove(namespace);
+
+		if (shard == null)
+		{
+			return 0;
+		}
+
+		loadedSize -= shard.size;
+		return shard.size;
+	}
+
+	/**
+	 * Loads the values of a single shard with the language's {@link LanguageContext}
+	 *
+	 * @param shardUri The Uri of the shard to load
+	 *
+	 * @return The values of the shard, or an empty map if it could not be loaded
+	 */
+	@NonNull
+	protected Map<String, String> loadShard(@NonNull Uri shardUri)
+	{
+		LanguageContext context = this.context != null ? this.context : LanguageSettings.getInstance();
+		Language shard = context.getLanguageBuilder().buildLanguage(context, shardUri);
+
+		if (shard != null && shard.getValues() != null)
+		{
+			return shard.getValues();
+		}
+
+		return new HashMap<String, String>(0);
+	}
+
+	/**
+	 * Evicts the least recently used shards until the loaded size is within {@link #memoryBudget}. Must be called while
+	 * holding the language's lock.
+	 *
+	 * @param keep The namespace that must not be evicted
+	 */
+	private void trimToBudget(@NonNull String keep)
+	{
+		if (memoryBudget <= 0)
+		{
+			return;
+		}
+
+		while (loadedSize > memoryBudget)
+		{
+			String eldest = null;
+			long eldestAccess = 0;
+
+			for (Map.Entry<String, Shard> entry : loaded.entrySet())
+			{
+				if (!entry.getKey().equals(keep) && (eldest == null || entry.getValue().lastAccess - eldestAccess < 0))
+				{
+					eldest = entry.getKey();
+					eldestAccess = entry.getValue().lastAccess;
+				}
+			}
+
+			if (eldest == null)
+			{
+				return;
+			}
+
+			evict(eldest);
+		}
+	}
+
+	/**
+	 * @return The estimated size of the loaded shards
+	 */
+	@Override public synchronized long getEstimatedSize()
+	{
+		return loadedSize;
+	}
+
+	/**
+	 * Stores the key index without laying out any values. ID lookups are mapped back to their key and go through the
+	 * shard of the key's namespace.
+	 *
+	 * @param index The key index to use
+	 */
+	@Override public void index(@NonNull LanguageKeyIndex index)
+	{
+		this.keyIndex = index;
+	}
+
+	/**
+	 * Gets the combined values of all currently loaded shards. Unloaded namespaces are not included.
+	 *
+	 * @return A copy of the loaded values
+	 */
+	@Override public Map<String, String> getValues()
+	{
+		Map<String, String> values = new HashMap<String, String>();
+		Map<String, Shard> loaded = this.loaded;
+
+		if (loaded != null)
+		{
+			for (Shard shard : loaded.values())
+			{
+				values.putAll(shard.values);
+			}
+		}
+
+		return values;
+	}
+
+	/**
+	 * Builds a sorted index of the keys of the currently loaded shards. Unloaded namespaces are not included, and the
+	 * index is rebuilt on every call.
+	 *
+	 * @return The sorted keys of the loaded shards
+	 */
+	@NonNull @Override public FrontCodedKeys getSortedKeys()
+	{
+		return FrontCodedKeys.build(getValues().keySet());
+	}
+
+	/**
+	 * Gets every key that starts with a prefix, loading the shards that can contain such keys: the namespace of the prefix
+	 * itself and every namespace that starts with the prefix.
+	 *
+	 * @param prefix The prefix to search for
+	 *
+	 * @return The keys, in sorted order
+	 */
+	@NonNull @Override public List<String> getKeys(@NonNull String prefix)
+	{
+		TreeSet<String> keys = new TreeSet<String>();
+		String ownNamespace = getNamespace(prefix);
+
+		for (String namespace : shards.keySet())
+		{
+			if (namespace.equals(ownNamespace) || namespace.startsWith(prefix))
+			{
+				for (String key : getShard(namespace).keySet())
+				{
+					if (key.startsWith(prefix))
+					{
+						keys.add(key);
+					}
+				}
+			}
+		}
+
+		return new ArrayList<String>(keys);
+	}
+
+	/**
+	 * Gets every key in a range. This loads every shard in turn.
+	 *
+	 * @param from The lowest key, inclusive
+	 * @param to The highest key, exclusive
+	 *
+	 * @return The keys, in sorted order
+	 */
+	@NonNull @Override public List<String> getKeys(@NonNull String from, @NonNull String to)
+	{
+		TreeSet<String> keys = new TreeSet<String>();
+
+		for (String namespace : shards.keySet())
+		{
+			for (String key : getShard(namespace).keySet())
+			{
+				if (key.compareTo(from) >= 0 && key.compareTo(to) < 0)
+				{
+					keys.add(key);
+				}
+			}
+		}
+
+		return new ArrayList<String>(keys);
+	}
+
+	@Override public int countKeys(@NonNull String prefix)
+	{
+		return getKeys(prefix).size();
+	}
+
+	@NonNull @Override public String getValue(@NonNull String id)
+	{
+		String namespace = getNamespace(id);
+
+		if (namespace == null)
+		{
+			return "";
+		}
+
+		String value = getShard(namespace).get(id);
+		return value == null ? "" : value;
+	}
+
+	@Override public boolean hasValue(@NonNull String id)
+	{
+		String namespace = getNamespace(id);
+		return namespace != null && getShard(namespace).containsKey(id);
+	}
+}
@@ -4,13 +4,20 @@ import android.net.Uri;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.cube.storm.LanguageContext;
 import com.cube.storm.LanguageSettings;
+import com.cube.storm.language.lib.trace.Span;
+import com.cube.storm.language.lib.trace.Tracer;
 import com.cube.storm.util.lib.resolver.Resolver;
 
+import java.io.IOException;
 import java.io.InputStream;
 
 /**
  * Factory class used to resolve a file based on it's Uri
+ * <p/>
+ * Language packs can be stored gzip or deflate (zlib) compressed. Use {@link #openStream(Uri)} to load a file and
+ * decompress it on the fly, the compression is detected from the first bytes of the file.
  *
  * @author Callum Taylor
  * @project LightningLanguage
@@ -18,7 +25,7 @@ import java.io.InputStream;
 public abstract class FileFactory
 {
 	/**
-	 * Loads a file from disk based on its Uri location
+	 * Loads a file from disk based on its Uri location, using the resolvers of {@link LanguageSettings}
 	 *
 	 * @param fileUri The file Uri to resolve
 	 *
@@ -27,13 +34,126 @@ public abstract class FileFactory
 	@Nullable
 	public InputStream loadFromUri(@NonNull Uri fileUri)
 	{
-		Resolver resolver = LanguageSettings.getInstance().getUriResolvers().get(fileUri.getScheme());
+		return resolve(LanguageSettings.getInstance(), fileUri);
+	}
+
+	/**
+	 * Loads a file from disk based on its Uri location, using the resolvers of a {@link LanguageContext}. Files of the
+	 * {@link LanguageContext#isDefault() default context} are loaded with {@link #loadFromUri(Uri)}, so overrides of it are
+	 * still used.
+	 *
+	 * @param context The context to resolve the Uri with
+	 * @param fileUri The file Uri to resolve
+	 *
+	 * @return The file byte array, nor null
+	 */
+	@Nullable
+	public InputStream loadFromUri(@NonNull LanguageContext context, @NonNull Uri fileUri)
+	{
+		return context.isDefault() ? loadFromUri(fileUri) : resolve(context, fileUri);
+	}
+
+	/**
+	 * Loads a file using {@link #loadFromUri(Uri)} and wraps it so gzip or deflate compressed files are decompressed as
+	 * they are read. Uncompressed files are returned as they are, buffered.
+	 *
+	 * @param fileUri The file Uri to resolve
+	 *
+	 * @return The buffered, decompressed stream, or null
+	 *
+	 * @throws IOException If the start of the file could not be read
+	 */
+	@Nullable
+	public InputStream openStream(@NonNull Uri fileUri) throws IOException
+	{
+		return read(LanguageSettings.getInstance(), fileUri, loadFromUri(fileUri));
+	}
+
+	/**
+	 * Loads a file using {@link #loadFromUri(LanguageContext, Uri)} and wraps it so gzip or deflate compressed files are
+	 * decompressed as they are read. Files of the {@link LanguageContext#isDefault() default context} are opened with
+	 * {@link #openStream(Uri)}, so overrides of it are still used.
+	 *
+	 * @param context The context to resolve the Uri with
+	 * @param fileUri The file Uri to resolve
+	 *
+	 * @return The buffered, decompressed stream, or null
+	 *
+	 * @throws IOException If the start of the file could not be read
+	 */
+	@Nullable
+	public InputStream openStream(@NonNull LanguageContext context, @NonNull Uri fileUri) throws IOException
+	{
+		if (context.isDefault())
+		{
+			return openStream(fileUri);
+		}
 
-		if (resolver != null)
+		return read(context, fileUri, loadFromUri(context, fileUri));
+	}
+
+	/**
+	 * Resolves a Uri with the resolvers of a context
+	 */
+	@Nullable
+	private static InputStream resolve(@NonNull LanguageContext context, @NonNull Uri fileUri)
+	{
+		Span span = context.getTracer().beginSpan(Tracer.SPAN_RESOLVE)
+			.attribute(Tracer.ATTRIBUTE_URI, fileUri.toString());
+
+		try
+		{
+			Resolver resolver = context.getUriResolvers().get(fileUri.getScheme());
+
+			if (resolver != null)
+			{
+				return resolver.resolveFile(fileUri);
+			}
+
+			return null;
+		}
+		finally
+		{
+			span.end();
+		}
+	}
+
+	/**
+	 * Wraps a loaded file with {@link #decompress(InputStream)}
+	 */
+	@Nullable
+	private InputStream read(@NonNull LanguageContext context, @NonNull Uri fileUri, @Nullable InputStream stream) throws IOException
+	{
+		if (stream == null)
+		{
+			return null;
+		}
+
+		Span span = context.getTracer().beginSpan(Tracer.SPAN_READ)
+			.attribute(Tracer.ATTRIBUTE_URI, fileUri.toString());
+
+		try
+		{
+			return decompress(stream);
+		}
+		finally
 		{
-			return resolver.resolveFile(fileUri);
+			span.end();
 		}
+	}
 
-		return null;
+	/**
+	 * Detects gzip and deflate (zlib) compressed streams from their magic bytes and wraps them in a decompressing stream
+	 *
+	 * @param stream The stream to check
+	 *
+	 * @return The buffered, decompressed stream
+	 *
+	 * @throws IOException If the start of the stream could not be read
+	 */
+	@NonNull
+	public InputStream decompress(@NonNull InputStream stream) throws IOException
+	{
+		return PackSource.decompress(stream);
 	}
 }
@@ -0,0 +1,61 @@
+package com.cube.storm.language.lib.factory;
+
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.LanguageContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import lombok.Getter;
+
+/**
+ * Language pack read from an Android Uri, opened with the {@link FileFactory} and resolvers of a {@link LanguageContext}
+ *
+ * @project LightningLanguage
+ */
+public class UriPackSource extends PackSource
+{
+	@NonNull private final LanguageContext context;
+
+	/**
+	 * The Uri of the pack
+	 */
+	@Getter @NonNull private final Uri uri;
+
+	/**
+	 * @param context The context to open the pack with
+	 * @param uri The Uri of the pack
+	 */
+	public UriPackSource(@NonNull LanguageContext context, @NonNull Uri uri)
+	{
+		this.context = context;
+		this.uri = uri;
+	}
+
+	@NonNull @Override public String getId()
+	{
+		return uri.toString();
+	}
+
+	@Nullable @Override public InputStream open() throws IOException
+	{
+		return context.getFileFactory().openStream(context, uri);
+	}
+
+	/**
+	 * @return The file of a {@code file://} pack, or null for other schemes
+	 */
+	@Nullable @Override public File getFile()
+	{
+		if ("file".equals(uri.getScheme()) && uri.getPath() != null)
+		{
+			return new File(uri.getPath());
+		}
+
+		return null;
+	}
+}
@@ -4,11 +4,63 @@ import android.content.Context;
 import androidx.annotation.NonNull;
 import android.text.TextUtils;
 
+import java.util.Locale;
+
 /**
  * Helper class for getting details around a user's device language/locale
+ * <p/>
+ * The resolved codes are cached against the configuration's {@link Locale}, so the ISO3 lookups are only repeated when
+ * the device locale changes.
  */
 public class LanguageHelper
 {
+	/**
+	 * The last resolved locale codes
+	 */
+	private static volatile ResolvedLocale resolvedLocale;
+
+	/**
+	 * Resolved ISO3 codes for a single {@link Locale}
+	 */
+	private static class ResolvedLocale
+	{
+		private final Locale locale;
+		private final String locale3;
+		private final String language3;
+
+		private ResolvedLocale(@NonNull Locale locale)
+		{
+			String region = locale.getISO3Country().toLowerCase();
+			String language = locale.getISO3Language().toLowerCase();
+
+			this.locale = locale;
+			this.language3 = TextUtils.isEmpty(language) ? "eng" : language;
+			this.locale3 = region + "_" + language3;
+		}
+	}
+
+	/**
+	 * Resolves the codes for the current configuration, re-using the cached codes if the locale has not changed
+	 *
+	 * @param context The context to use to find the locale.
+	 *
+	 * @return The resolved codes
+	 */
+	@NonNull
+	private static ResolvedLocale resolve(@NonNull Context context)
+	{
+		Locale locale = context.getResources().getConfiguration().locale;
+		ResolvedLocale resolved = resolvedLocale;
+
+		if (resolved == null || !resolved.locale.equals(locale))
+		{
+			resolved = new ResolvedLocale(locale);
+			resolvedLocale = resolved;
+		}
+
+		return resolved;
+	}
+
 	/**
 	 * Gets the locale of the device. Note: this does not return deprecated language codes.
 	 *
@@ -26,11 +78,7 @@ public class LanguageHelper
 	@NonNull
 	public static String getLocale(@NonNull Context context)
 	{
-		String region = context.getResources().getConfiguration().locale.getISO3Country().toLowerCase();
-		String locale = context.getResources().getConfiguration().locale.getISO3Language().toLowerCase();
-		String languageSuffix = TextUtils.isEmpty(locale) ? "_eng" : "_" + locale.toLowerCase();
-
-		return region + languageSuffix;
+		return resolve(context).locale3;
 	}
 
 	/**
@@ -43,10 +91,7 @@ public class LanguageHelper
 	@NonNull
 	public static String getLanguage(@NonNull Context context)
 	{
-		String locale = context.getResources().getConfiguration().locale.getISO3Language().toLowerCase();
-		String language = TextUtils.isEmpty(locale) ? "eng" : locale.toLowerCase();
-
-		return language;
+		return resolve(context).language3;
 	}
 
 	/**
@@ -0,0 +1,157 @@
+package com.cube.storm.language.lib.helper;
+
+import android.widget.TextView;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import com.cube.storm.LanguageSettings;
+import com.cube.storm.language.R;
+import com.cube.storm.language.lib.processor.Mapping;
+
+/**
+ * Localises the {@link TextView}s of list items, such as {@code RecyclerView} view holders, skipping views that already
+ * show the right localisation.
+ * <p/>
+ * Each bound view remembers, in a view tag, the key it was bound to, a copy of its mappings, the
+ * {@link LanguageSettings#getLanguageGeneration()} it was rendered with and the text that was set.
+ * Binding the same key and values again, with the same languages, does no lookup and does not call {@code setText}, so
+ * scrolling back over already localised items costs next to nothing. The view is re-localised if any of them have
+ * changed, or if its text has been set by something else since.
+ * <p/>
+ * Reuse the mappings array between binds where possible, varargs allocate a new array on every call.
+ * <p/>
+ * Example
+ * <pre>
+ &#64;Override public void onBindViewHolder(ViewHolder holder, int position)
+ {
+ 	Item item = items.get(position);
+ 	LocalisationBinder.bind(holder.title, item.getTitleKey());
+ 	LocalisationBinder.bind(holder.subtitle, "_ITEM_COUNT", new Mapping("COUNT", item.getCount()));
+ }
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public class LocalisationBinder
+{
+	/**
+	 * The state of a bound view. Kept in the view's tag and reused between binds.
+	 */
+	private static class Binding
+	{
+		private String key;
+		private int id = -1;
+		private Mapping[] mappings;
+		private long fingerprint;
+		private int generation;
+		private CharSequence text;
+	}
+
+	/**
+	 * Localises a view with a key, unless it already shows the localisation of the same key and mapping values from the
+	 * current languages
+	 *
+	 * @param textView The view to bind
+	 * @param key The key to look up
+	 * @param mappings Optional array of mappings for variables
+	 *
+	 * @return true if the view was localised, false if it was skipped
+	 */
+	@MainThread
+	public static boolean bind(@NonNull TextView textView, @NonNull String key, Mapping... mappings)
+	{
+		int generation = LanguageSettings.getInstance().getLanguageGeneration();
+		long fingerprint = Mapping.fingerprint(mappings);
+		Binding binding = getBinding(textView);
+
+		if (binding.id == -1 && key.equals(binding.key) && isCurrent(textView, binding, mappings, fingerprint, generation))
+		{
+			return false;
+		}
+
+		LocalisationHelper.localise(textView, key, mappings);
+
+		binding.key = key;
+		binding.id = -1;
+		record(textView, binding, mappings, fingerprint, generation);
+
+		return true;
+	}
+
+	/**
+	 * Localises a view with a key ID generated by the {@code language-keys} Gradle plugin, unless it already shows the
+	 * localisation of the same key and mapping values from the current languages
+	 *
+	 * @param textView The view to bind
+	 * @param id The key ID to look up
+	 * @param mappings Optional array of mappings for variables
+	 *
+	 * @return true if the view was localised, false if it was skipped
+	 */
+	@MainThread
+	public static boolean bind(@NonNull TextView textView, int id, Mapping... mappings)
+	{
+		int generation = LanguageSettings.getInstance().getLanguageGeneration();
+		long fingerprint = Mapping.fingerprint(mappings);
+		Binding binding = getBinding(textView);
+
+		if (binding.id == id && id != -1 && isCurrent(textView, binding, mappings, fingerprint, generation))
+		{
+			return false;
+		}
+
+		LocalisationHelper.localise(textView, id, mappings);
+
+		binding.key = null;
+		binding.id = id;
+		record(textView, binding, mappings, fingerprint, generation);
+
+		return true;
+	}
+
+	/**
+	 * Forgets the binding of a view, so the next bind always localises it
+	 *
+	 * @param textView The view to unbind
+	 */
+	@MainThread
+	public static void unbind(@NonNull TextView textView)
+	{
+		textView.setTag(R.id.storm_language_binding, null);
+	}
+
+	private static boolean isCurrent(@NonNull TextView textView, @NonNull Binding binding, Mapping[] mappings, long fingerprint, int generation)
+	{
+		return binding.generation == generation
+			&& binding.fingerprint == fingerprint
+			&& binding.text == textView.getText()
+			&& Mapping.contentEquals(binding.mappings, mappings);
+	}
+
+	private static void record(@NonNull TextView textView, @NonNull Binding binding, Mapping[] mappings, long fingerprint, int generation)
+	{
+		// The caller may reuse or change its array once the bind returns
+		binding.mappings = mappings == null ? null : mappings.clone();
+		binding.fingerprint = fingerprint;
+		binding.generation = generation;
+
+		// TextView keeps its own copy of the text, so the same instance is returned until the text is set again
+		binding.text = textView.getText();
+	}
+
+	@NonNull
+	private static Binding getBinding(@NonNull TextView textView)
+	{
+		Object tag = textView.getTag(R.id.storm_language_binding);
+
+		if (tag instanceof Binding)
+		{
+			return (Binding)tag;
+		}
+
+		Binding binding = new Binding();
+		textView.setTag(R.id.storm_language_binding, binding);
+
+		return binding;
+	}
+}
@@ -15,13 +15,15 @@ import androidx.preference.PreferenceGroup;
 import com.cube.storm.LanguageSettings;
 import com.cube.storm.language.lib.annotation.Localise;
 import com.cube.storm.language.lib.processor.Mapping;
+import com.cube.storm.language.lib.trace.Span;
+import com.cube.storm.language.lib.trace.Tracer;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Executor;
 
 /**
  * Helper class for localising views in an activity/fragment/view group
@@ -56,7 +58,8 @@ public class LocalisationHelper
 	}
 
 	/**
-	 * Localises a string from the key.
+	 * Localises a string from the key with {@link LanguageSettings#localise(String, Mapping...)}. Renders with mappings are
+	 * cached in {@link LanguageSettings#getRenderCache()}, if set.
 	 *
 	 * @param key The key to look up
 	 * @param mappings Optional array of mappings for variables
@@ -66,38 +69,102 @@ public class LocalisationHelper
 	@NonNull
 	public static String localise(@NonNull String key, Mapping... mappings)
 	{
-		String value = LanguageSettings.getInstance().getLanguageManager().getValue(key);
+		return LanguageSettings.getInstance().localise(key, mappings);
+	}
 
-		if (!TextUtils.isEmpty(value))
-		{
-			if (mappings != null)
-			{
-				for (Mapping mapping : mappings)
-				{
-					Pattern compile = Pattern.compile("(\\{" + mapping.getKey() + "(\\}?))");
-					Matcher matcher = compile.matcher(value);
-
-					while (matcher.find())
-					{
-						String found = matcher.group();
-						String replacement = "{" + mapping.getValue();
-
-						if (found.endsWith("}"))
-						{
-							replacement += "}";
-						}
-
-						value = value.replace(matcher.group(), replacement);
-					}
-
-					value = LanguageSettings.getInstance().getMethodProcessor().process(mapping.getValue(), value);
-				}
-			}
+	/**
+	 * Localises a string from the key into a caller-supplied builder. No intermediate strings are created, the localised
+	 * value and the mapped variables are written straight into {@param out}.
+	 *
+	 * @param out The builder to append the localised value to
+	 * @param key The key to look up
+	 * @param mappings Optional array of mappings for variables
+	 *
+	 * @return {@param out}, with the mapped value, or the key if the value was empty, appended
+	 */
+	@NonNull
+	public static StringBuilder localise(@NonNull StringBuilder out, @NonNull String key, Mapping... mappings)
+	{
+		return LanguageSettings.getInstance().localise(out, key, mappings);
+	}
 
-			return value;
-		}
+	/**
+	 * Localises a string from the key into a caller-supplied {@link Appendable}. No intermediate strings are created, the
+	 * localised value and the mapped variables are written straight into {@param out}.
+	 *
+	 * @param out The appendable to write the localised value to
+	 * @param key The key to look up
+	 * @param mappings Optional array of mappings for variables
+	 *
+	 * @return {@param out}, with the mapped value, or the key if the value was empty, appended
+	 *
+	 * @throws IOException If {@param out} throws when being written to
+	 */
+	@NonNull
+	public static <T extends Appendable> T localise(@NonNull T out, @NonNull String key, Mapping... mappings) throws IOException
+	{
+		return LanguageSettings.getInstance().localise(out, key, mappings);
+	}
 
-		return key;
+	/**
+	 * Localises a string from the key into the per-thread render buffer of {@link LanguageSettings}. See
+	 * {@link LanguageSettings#localiseBuffered(String, Mapping...)}.
+	 * <p/>
+	 * The returned {@link CharSequence} is only valid until the next localisation on the same thread, after which reading
+	 * it throws {@link IllegalStateException}. Copy it with {@link CharSequence#toString()} if you need to keep it.
+	 *
+	 * @param key The key to look up
+	 * @param mappings Optional array of mappings for variables
+	 *
+	 * @return The mapped value, or the key if the value was empty
+	 */
+	@NonNull
+	public static CharSequence localiseBuffered(@NonNull String key, Mapping... mappings)
+	{
+		return LanguageSettings.getInstance().localiseBuffered(key, mappings);
+	}
+
+	/**
+	 * Localises a string from the key and sets it as the text of a {@link TextView}. The value is rendered into the
+	 * per-thread render buffer of {@link LanguageSettings}, so the only copy made is the one held by the view itself.
+	 * <p/>
+	 * Pass a pre-built mappings array rather than using varargs in hot paths, such as list binding, to avoid the array allocation.
+	 *
+	 * @param textView The view to set the text of
+	 * @param key The key to look up
+	 * @param mappings Optional array of mappings for variables
+	 */
+	public static void localise(@NonNull TextView textView, @NonNull String key, Mapping... mappings)
+	{
+		textView.setText(LanguageSettings.getInstance().localiseBuffered(key, mappings));
+	}
+
+	/**
+	 * Localises a string from a key ID generated by the {@code language-keys} Gradle plugin. Requires
+	 * {@link LanguageSettings#getKeyIndex()} to be set.
+	 *
+	 * @param id The key ID to look up
+	 * @param mappings Optional array of mappings for variables
+	 *
+	 * @return The mapped value, or the key if the value was empty
+	 */
+	@NonNull
+	public static String localise(int id, Mapping... mappings)
+	{
+		return LanguageSettings.getInstance().localise(id, mappings);
+	}
+
+	/**
+	 * Localises a string from a key ID generated by the {@code language-keys} Gradle plugin and sets it as the text of a
+	 * {@link TextView}. See {@link #localise(TextView, String, Mapping...)}.
+	 *
+	 * @param textView The view to set the text of
+	 * @param id The key ID to look up
+	 * @param mappings Optional array of mappings for variables
+	 */
+	public static void localise(@NonNull TextView textView, int id, Mapping... mappings)
+	{
+		textView.setText(LanguageSettings.getInstance().localiseBuffered(id, mappings));
 	}
 
 	/**
@@ -256,30 +323,39 @@ public class LocalisationHelper
 			mappingsList.addAll(new ArrayList<>(Arrays.asList(mappings)));
 			mappings = mappingsList.toArray(new Mapping[mappingsList.size()]);
 
-			TextView textView = (TextView)view;
-			String key = textView.getText().toString();
-			String value = localise(key, mappings);
+			localiseTextView((TextView)view, mappings);
+		}
+	}
 
-			textView.setText(value);
+	/**
+	 * Localises the text of a {@link TextView}, the hint of an {@link EditText} and the on/off labels of a {@link ToggleButton}
+	 *
+	 * @param textView The view to localise
+	 * @param mappings The mappings for variables
+	 */
+	static void localiseTextView(@NonNull TextView textView, Mapping[] mappings)
+	{
+		String key = textView.getText().toString();
 
-			if (EditText.class.isAssignableFrom(textView.getClass()) && !TextUtils.isEmpty(textView.getHint()))
-			{
-				String hintKey = textView.getHint().toString();
-				String hintValue = localise(hintKey, mappings);
+		localise(textView, key, mappings);
 
-				textView.setHint(hintValue);
-			}
-			else if (ToggleButton.class.isAssignableFrom(textView.getClass()))
-			{
-				String offKey = ((ToggleButton)textView).getTextOff().toString();
-				String offValue = localise(offKey, mappings);
+		if (EditText.class.isAssignableFrom(textView.getClass()) && !TextUtils.isEmpty(textView.getHint()))
+		{
+			String hintKey = textView.getHint().toString();
+			String hintValue = localise(hintKey, mappings);
 
-				String onKey = ((ToggleButton)textView).getTextOn().toString();
-				String onValue = localise(onKey, mappings);
+			textView.setHint(hintValue);
+		}
+		else if (ToggleButton.class.isAssignableFrom(textView.getClass()))
+		{
+			String offKey = ((ToggleButton)textView).getTextOff().toString();
+			String offValue = localise(offKey, mappings);
 
-				((ToggleButton)textView).setTextOn(onValue);
-				((ToggleButton)textView).setTextOff(offValue);
-			}
+			String onKey = ((ToggleButton)textView).getTextOn().toString();
+			String onValue = localise(onKey, mappings);
+
+			((ToggleButton)textView).setTextOn(onValue);
+			((ToggleButton)textView).setTextOff(offValue);
 		}
 	}
 
@@ -302,12 +378,58 @@ public class LocalisationHelper
 	 */
 	public static void localise(@NonNull ViewGroup rootView, Mapping... mappings)
 	{
+		Span span = LanguageSettings.getInstance().getTracer().beginSpan(Tracer.SPAN_LOCALISE_TREE);
 		ArrayList<? extends TextView> textViews = (ArrayList<? extends TextView>)findAllChildrenByInstance(rootView, TextView.class);
 
 		for (TextView textView : textViews)
 		{
 			localise(textView, mappings);
 		}
+
+		span.attribute(Tracer.ATTRIBUTE_SIZE, textViews.size()).end();
+	}
+
+	/**
+	 * Localises a {@link android.view.View}, or every {@link android.widget.TextView} in a {@link android.view.ViewGroup},
+	 * without looking up or rendering the localisations on the main thread. See {@link LocalisationTask}.
+	 * <p/>
+	 * Must be called on the main thread. The localised values are set on the views in a single pass once they are ready.
+	 *
+	 * @param view The view to localise
+	 * @param mappings Optional array of mappings for variables
+	 *
+	 * @return The task, which can be cancelled. It is cancelled automatically if {@param view} is detached.
+	 */
+	@NonNull
+	public static LocalisationTask localiseAsync(@NonNull View view, Mapping... mappings)
+	{
+		return localiseAsync(view, LocalisationTask.getDefaultExecutor(), mappings);
+	}
+
+	/**
+	 * Localises a {@link android.view.View}, or every {@link android.widget.TextView} in a {@link android.view.ViewGroup},
+	 * looking up and rendering the localisations on {@param executor}. See {@link #localiseAsync(View, Mapping...)}.
+	 *
+	 * @param view The view to localise
+	 * @param executor The executor to look up and render the localisations on
+	 * @param mappings Optional array of mappings for variables
+	 *
+	 * @return The task, which can be cancelled. It is cancelled automatically if {@param view} is detached.
+	 */
+	@NonNull
+	public static LocalisationTask localiseAsync(@NonNull View view, @NonNull Executor executor, Mapping... mappings)
+	{
+		List<Mapping> mappingsList = Mapping.getTaggedLocalisations(view.getContext());
+
+		if (mappings != null)
+		{
+			mappingsList.addAll(Arrays.asList(mappings));
+		}
+
+		LocalisationTask task = new LocalisationTask(view, mappingsList.toArray(new Mapping[mappingsList.size()]));
+		task.start(executor);
+
+		return task;
 	}
 
 	/**
@@ -319,7 +441,7 @@ public class LocalisationHelper
 	 * @return An array of views
 	 */
 	@NonNull
-	private static <T extends View> List<T> findAllChildrenByInstance(@NonNull ViewGroup parent, @NonNull Class<T> instance)
+	static <T extends View> List<T> findAllChildrenByInstance(@NonNull ViewGroup parent, @NonNull Class<T> instance)
 	{
 		List<View> views = new ArrayList<View>();
 		int childCount = parent.getChildCount();
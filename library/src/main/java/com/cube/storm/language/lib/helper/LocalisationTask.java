@@ -0,0 +1,278 @@
+package com.cube.storm.language.lib.helper;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.EditText;
+import android.widget.TextView;
+import android.widget.ToggleButton;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import com.cube.storm.language.lib.processor.Mapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Localises a view tree in two phases, so the main thread only sets the localised text.
+ * <p/>
+ * The keys of every {@link TextView}, {@link EditText} hint and {@link ToggleButton} label are collected on the main
+ * thread when the task is started. They are then looked up and rendered on a background executor, and the results are set
+ * on the views in a single pass posted back to the main thread. A view whose text or label has changed from its key
+ * in the meantime is left alone.
+ * <p/>
+ * The task is cancelled when the root view is detached from its window, or with {@link #cancel()}.
+ * <p/>
+ * Example
+ * <pre>
+ LocalisationTask task = LocalisationHelper.localiseAsync(listHeader);
+ ...
+ task.cancel();
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public class LocalisationTask implements View.OnAttachStateChangeListener
+{
+	private static final int TYPE_TEXT = 0;
+	private static final int TYPE_HINT = 1;
+	private static final int TYPE_TEXT_ON = 2;
+	private static final int TYPE_TEXT_OFF = 3;
+
+	private static ExecutorService defaultExecutor;
+	private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+	private final View root;
+	private final Mapping[] mappings;
+	private final List<TextView> views = new ArrayList<TextView>();
+	private final List<String> keys = new ArrayList<String>();
+	private final List<Integer> types = new ArrayList<Integer>();
+
+	private volatile boolean cancelled;
+	private volatile boolean done;
+
+	/**
+	 * @param root The view, or view group, to localise
+	 * @param mappings The mappings for variables
+	 */
+	@MainThread
+	LocalisationTask(@NonNull View root, @NonNull Mapping[] mappings)
+	{
+		this.root = root;
+		this.mappings = mappings;
+
+		if (root instanceof TextView)
+		{
+			collect((TextView)root);
+		}
+		else if (root instanceof ViewGroup)
+		{
+			for (TextView textView : LocalisationHelper.findAllChildrenByInstance((ViewGroup)root, TextView.class))
+			{
+				collect(textView);
+			}
+		}
+	}
+
+	/**
+	 * @return The executor used when none is given, a single background thread
+	 */
+	@NonNull
+	static synchronized Executor getDefaultExecutor()
+	{
+		if (defaultExecutor == null)
+		{
+			defaultExecutor = Executors.newSingleThreadExecutor(new ThreadFactory()
+			{
+				@Override public Thread newThread(@NonNull Runnable runnable)
+				{
+					Thread thread = new Thread(runnable, "LanguageLocalise");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+		return defaultExecutor;
+	}
+
+	/**
+	 * Collects the keys of a view
+	 */
+	private void collect(@NonNull TextView textView)
+	{
+		add(textView, textView.getText(), TYPE_TEXT);
+
+		if (textView instanceof EditText && !TextUtils.isEmpty(textView.getHint()))
+		{
+			add(textView, textView.getHint(), TYPE_HINT);
+		}
+		else if (textView instanceof ToggleButton)
+		{
+			add(textView, ((ToggleButton)textView).getTextOn(), TYPE_TEXT_ON);
+			add(textView, ((ToggleButton)textView).getTextOff(), TYPE_TEXT_OFF);
+		}
+	}
+
+	private void add(@NonNull TextView textView, CharSequence key, int type)
+	{
+		if (!TextUtils.isEmpty(key))
+		{
+			views.add(textView);
+			keys.add(key.toString());
+			types.add(type);
+		}
+	}
+
+	/**
+	 * Starts resolving the collected keys on an executor
+	 *
+	 * @param executor The executor to resolve the keys on
+	 */
+	@MainThread
+	void start(@NonNull Executor executor)
+	{
+		root.addOnAttachStateChangeListener(this);
+
+		if (keys.isEmpty())
+		{
+			finish();
+			return;
+		}
+
+		executor.execute(new Runnable()
+		{
+			@Override public void run()
+			{
+				if (cancelled)
+				{
+					return;
+				}
+
+				final String[] values = new String[keys.size()];
+
+				for (int index = 0; index < values.length && !cancelled; index++)
+				{
+					values[index] = LocalisationHelper.localise(keys.get(index), mappings);
+				}
+
+				if (!cancelled)
+				{
+					mainHandler.post(new Runnable()
+					{
+						@Override public void run()
+						{
+							apply(values);
+						}
+					});
+				}
+			}
+		});
+	}
+
+	/**
+	 * Sets the resolved values on the views, skipping any view that no longer shows its key
+	 *
+	 * @param values The resolved values, in the same order as {@link #keys}
+	 */
+	@MainThread
+	private void apply(@NonNull String[] values)
+	{
+		if (cancelled)
+		{
+			return;
+		}
+
+		for (int index = 0; index < values.length; index++)
+		{
+			TextView textView = views.get(index);
+			String key = keys.get(index);
+
+			switch (types.get(index))
+			{
+				case TYPE_TEXT:
+					if (TextUtils.equals(textView.getText(), key))
+					{
+						textView.setText(values[index]);
+					}
+					break;
+
+				case TYPE_HINT:
+					if (TextUtils.equals(textView.getHint(), key))
+					{
+						textView.setHint(values[index]);
+					}
+					break;
+
+				case TYPE_TEXT_ON:
+					if (TextUtils.equals(((ToggleButton)textView).getTextOn(), key))
+					{
+						((ToggleButton)textView).setTextOn(values[index]);
+					}
+					break;
+
+				case TYPE_TEXT_OFF:
+					if (TextUtils.equals(((ToggleButton)textView).getTextOff(), key))
+					{
+						((ToggleButton)textView).setTextOff(values[index]);
+					}
+					break;
+			}
+		}
+
+		finish();
+	}
+
+	@MainThread
+	private void finish()
+	{
+		done = true;
+		root.removeOnAttachStateChangeListener(this);
+	}
+
+	/**
+	 * Cancels the task. Views that have not been localised yet are left showing their keys.
+	 */
+	public void cancel()
+	{
+		cancelled = true;
+
+		mainHandler.post(new Runnable()
+		{
+			@Override public void run()
+			{
+				root.removeOnAttachStateChangeListener(LocalisationTask.this);
+			}
+		});
+	}
+
+	/**
+	 * @return true if the task was cancelled
+	 */
+	public boolean isCancelled()
+	{
+		return cancelled;
+	}
+
+	/**
+	 * @return true once the localised values have been set on the views
+	 */
+	public boolean isDone()
+	{
+		return done;
+	}
+
+	@Override public void onViewAttachedToWindow(View view){}
+
+	@Override public void onViewDetachedFromWindow(View view)
+	{
+		cancel();
+	}
+}
@@ -0,0 +1,255 @@
+package com.cube.storm.language.lib.helper;
+
+import android.app.Activity;
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.InflateException;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.language.lib.processor.Mapping;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link LayoutInflater.Factory2} that localises {@link TextView}s as they are inflated, instead of walking the view tree
+ * after {@code setContentView} with {@link LocalisationHelper#localise(Activity, Mapping...)}.
+ * <p/>
+ * Text, {@link android.widget.EditText} hints and {@link android.widget.ToggleButton} on/off labels are localised in the same
+ * way as {@link LocalisationHelper#localise(View, Mapping...)}. Views are created by the delegate factory if one is set,
+ * otherwise by this factory. Views that neither can create are left to the {@link LayoutInflater} and are not localised.
+ * <p/>
+ * The factory must be installed before the first view is inflated, as a {@link LayoutInflater} only accepts one factory.
+ * <p/>
+ * Example
+ * <pre>
+ &#64;Override protected void onCreate(Bundle savedInstanceState)
+ {
+ 	LocalisingInflaterFactory.install(this);
+ 	super.onCreate(savedInstanceState);
+ 	setContentView(R.layout.activity_main);
+ }
+ * </pre>
+ * With AppCompat, which installs its own factory in {@code onCreate}, pass its delegate through so views are still
+ * inflated as their AppCompat variants
+ * <pre>
+ getLayoutInflater().setFactory2(new LocalisingInflaterFactory(this, new LayoutInflater.Factory2()
+ {
+ 	&#64;Override public View onCreateView(View parent, String name, Context context, AttributeSet attrs)
+ 	{
+ 		return getDelegate().createView(parent, name, context, attrs);
+ 	}
+
+ 	&#64;Override public View onCreateView(String name, Context context, AttributeSet attrs)
+ 	{
+ 		return onCreateView(null, name, context, attrs);
+ 	}
+ }));
+ super.onCreate(savedInstanceState);
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public class LocalisingInflaterFactory implements LayoutInflater.Factory2
+{
+	/**
+	 * Packages searched for views inflated without a package, in the same order as the platform inflater
+	 */
+	private static final String[] VIEW_PREFIXES = {"android.widget.", "android.webkit.", "android.app.", "android.view."};
+
+	/**
+	 * Cache of view constructors, keyed by class name
+	 */
+	private static final Map<String, Constructor<? extends View>> constructors = new ConcurrentHashMap<String, Constructor<? extends View>>();
+
+	/**
+	 * Names of classes that failed to load, so they are not looked up again
+	 */
+	private static final Map<String, Boolean> missingClasses = new ConcurrentHashMap<String, Boolean>();
+
+	/**
+	 * Optional factory to create views with before falling back to reflection
+	 */
+	@Nullable private final LayoutInflater.Factory2 delegate;
+
+	/**
+	 * Optional object to read {@link com.cube.storm.language.lib.annotation.Localise} tagged fields from
+	 */
+	@Nullable private final Object mappingSource;
+
+	/**
+	 * Extra mappings for variables
+	 */
+	@NonNull private final Mapping[] mappings;
+
+	/**
+	 * Installs a localising factory on an activity's {@link LayoutInflater}. Must be called before the activity's
+	 * {@code super.onCreate()} if it extends an activity that installs its own factory.
+	 *
+	 * @param activity The activity to install the factory on. Its {@link com.cube.storm.language.lib.annotation.Localise} tagged fields are used as mappings.
+	 * @param mappings Optional array of mappings for variables
+	 *
+	 * @return The installed factory
+	 *
+	 * @throws IllegalStateException If the activity's inflater already has a factory that is not a {@link LocalisingInflaterFactory}
+	 */
+	@NonNull
+	public static LocalisingInflaterFactory install(@NonNull Activity activity, Mapping... mappings)
+	{
+		LayoutInflater inflater = activity.getLayoutInflater();
+
+		if (inflater.getFactory2() instanceof LocalisingInflaterFactory)
+		{
+			return (LocalisingInflaterFactory)inflater.getFactory2();
+		}
+
+		if (inflater.getFactory() != null)
+		{
+			throw new IllegalStateException("LayoutInflater already has a factory, install the LocalisingInflaterFactory with the existing factory as its delegate");
+		}
+
+		LocalisingInflaterFactory factory = new LocalisingInflaterFactory(activity, null, mappings);
+		inflater.setFactory2(factory);
+
+		return factory;
+	}
+
+	/**
+	 * @param mappingSource Optional object to read {@link com.cube.storm.language.lib.annotation.Localise} tagged fields from, such as the activity
+	 * @param delegate Optional factory to create views with, such as the AppCompat delegate
+	 * @param mappings Optional array of mappings for variables
+	 */
+	public LocalisingInflaterFactory(@Nullable Object mappingSource, @Nullable LayoutInflater.Factory2 delegate, Mapping... mappings)
+	{
+		this.mappingSource = mappingSource;
+		this.delegate = delegate;
+		this.mappings = mappings == null ? new Mapping[0] : mappings;
+	}
+
+	@Override public View onCreateView(@Nullable View parent, @NonNull String name, @NonNull Context context, @NonNull AttributeSet attrs)
+	{
+		View view = null;
+
+		if (delegate != null)
+		{
+			view = delegate.onCreateView(parent, name, context, attrs);
+		}
+
+		if (view == null)
+		{
+			view = createView(name, context, attrs);
+		}
+
+		if (view instanceof TextView)
+		{
+			LocalisationHelper.localiseTextView((TextView)view, getMappings());
+		}
+
+		return view;
+	}
+
+	@Override public View onCreateView(@NonNull String name, @NonNull Context context, @NonNull AttributeSet attrs)
+	{
+		return onCreateView(null, name, context, attrs);
+	}
+
+	/**
+	 * Gets the mappings for the view being inflated. Tagged fields are read each time, as their values can change between
+	 * inflations.
+	 *
+	 * @return The mappings
+	 */
+	@NonNull
+	protected Mapping[] getMappings()
+	{
+		if (mappingSource == null)
+		{
+			return mappings;
+		}
+
+		List<Mapping> mappingsList = Mapping.getTaggedLocalisations(mappingSource);
+
+		if (mappingsList.isEmpty())
+		{
+			return mappings;
+		}
+
+		mappingsList.addAll(new ArrayList<>(Arrays.asList(mappings)));
+		return mappingsList.toArray(new Mapping[mappingsList.size()]);
+	}
+
+	/**
+	 * Creates a view by reflection in the same way as {@link LayoutInflater}
+	 *
+	 * @param name The tag name from the layout, either a fully qualified class name or a platform view name
+	 * @param context The themed context to create the view with
+	 * @param attrs The attributes of the view
+	 *
+	 * @return The view, or null if it could not be found, in which case the {@link LayoutInflater} will create it
+	 */
+	@Nullable
+	protected View createView(@NonNull String name, @NonNull Context context, @NonNull AttributeSet attrs)
+	{
+		if (name.indexOf('.') > -1)
+		{
+			return createView(name, null, context, attrs);
+		}
+
+		for (String prefix : VIEW_PREFIXES)
+		{
+			View view = createView(name, prefix, context, attrs);
+
+			if (view != null)
+			{
+				return view;
+			}
+		}
+
+		return null;
+	}
+
+	@Nullable
+	private View createView(@NonNull String name, @Nullable String prefix, @NonNull Context context, @NonNull AttributeSet attrs)
+	{
+		String className = prefix == null ? name : prefix + name;
+
+		if (missingClasses.containsKey(className))
+		{
+			return null;
+		}
+
+		try
+		{
+			Constructor<? extends View> constructor = constructors.get(className);
+
+			if (constructor == null)
+			{
+				constructor = context.getClassLoader().loadClass(className).asSubclass(View.class).getConstructor(Context.class, AttributeSet.class);
+				constructor.setAccessible(true);
+				constructors.put(className, constructor);
+			}
+
+			return constructor.newInstance(context, attrs);
+		}
+		catch (ClassNotFoundException | NoSuchMethodException | ClassCastException e)
+		{
+			missingClasses.put(className, Boolean.TRUE);
+			return null;
+		}
+		catch (InvocationTargetException | InstantiationException | IllegalAccessException e)
+		{
+			InflateException exception = new InflateException(attrs.getPositionDescription() + ": Error inflating class " + className);
+			exception.initCause(e);
+			throw exception;
+		}
+	}
+}
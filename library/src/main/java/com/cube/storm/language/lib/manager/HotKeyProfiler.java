@@ -0,0 +1,323 @@
+package com.cube.storm.language.lib.manager;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.LanguageSettings;
+import com.cube.storm.language.data.HotSetLanguage;
+import com.cube.storm.language.data.Language;
+import com.cube.storm.language.data.LanguageSnapshot;
+import com.cube.storm.language.data.PackFingerprint;
+import com.cube.storm.language.data.ProgressiveLanguage;
+import com.cube.storm.language.data.ShardedLanguage;
+import com.cube.storm.language.lib.factory.UriPackSource;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records which keys are looked up in the first moments after start up, and saves their values to a small side file per
+ * language pack, the "hot set".
+ * <p/>
+ * On the next cold start, {@link LanguageManager#loadHotLanguage(Context, Uri)} reads the hot set instead of the full pack
+ * and returns a {@link HotSetLanguage}, so the first screens can be drawn straight away while the rest of the pack loads
+ * in the background.
+ * <p/>
+ * The side file starts with the {@link PackFingerprint} of the pack it was recorded from, followed by a
+ * {@link LanguageSnapshot} of the hot values. Hot keys that are not in the pack are stored with a null value. A hot set
+ * recorded from a {@code file://} pack that has since changed is not used, and a hot set that does not match the full
+ * pack once it has loaded is deleted.
+ * <p/>
+ * Enable with {@link com.cube.storm.LanguageSettings.Builder#hotKeyProfiling(long)}.
+ *
+ * @project LightningLanguage
+ */
+public class HotKeyProfiler
+{
+	private static final int MAGIC = 0x4C4E4748;
+	private static final String HOT_SET_DIRECTORY = "language_hot";
+
+	/**
+	 * Keys recorded during the profiling window
+	 */
+	private final Set<String> keys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	private final Context context;
+
+	/**
+	 * Time the profiling window ends
+	 */
+	private final long windowEnd;
+
+	private volatile boolean recording = true;
+
+	/**
+	 * Starts profiling. The hot sets are saved once {@param window} has passed.
+	 *
+	 * @param context The context to use to save the hot sets
+	 * @param window The length of the profiling window in milliseconds
+	 */
+	public HotKeyProfiler(@NonNull Context context, long window)
+	{
+		this.context = context.getApplicationContext();
+		this.windowEnd = System.currentTimeMillis() + window;
+
+		new Handler(Looper.getMainLooper()).postDelayed(new Runnable()
+		{
+			@Override public void run()
+			{
+				finish();
+			}
+		}, window);
+	}
+
+	/**
+	 * @return true while keys are being recorded
+	 */
+	public boolean isRecording()
+	{
+		return recording;
+	}
+
+	/**
+	 * Records a key lookup
+	 *
+	 * @param key The key that was looked up
+	 */
+	public void record(@NonNull String key)
+	{
+		if (!recording)
+		{
+			return;
+		}
+
+		if (System.currentTimeMillis() > windowEnd)
+		{
+			finish();
+			return;
+		}
+
+		keys.add(key);
+	}
+
+	/**
+	 * Stops recording and saves the hot sets on a background thread. Does nothing if recording has already stopped.
+	 */
+	public void finish()
+	{
+		synchronized (this)
+		{
+			if (!recording)
+			{
+				return;
+			}
+
+			recording = false;
+		}
+
+		new Thread(new Runnable()
+		{
+			@Override public void run()
+			{
+				save();
+			}
+		}, "LanguageHotSet").start();
+	}
+
+	/**
+	 * Saves the hot sets of {@link LanguageSettings#getDefaultLanguage()} and {@link LanguageSettings#getLocaleLanguage()}.
+	 * Waits for languages that are still loading their full pack.
+	 */
+	protected void save()
+	{
+		if (keys.isEmpty())
+		{
+			return;
+		}
+
+		save(LanguageSettings.getInstance().getDefaultLanguage());
+		save(LanguageSettings.getInstance().getLocaleLanguage());
+	}
+
+	private void save(@Nullable Language language)
+	{
+		if (language instanceof HotSetLanguage)
+		{
+			language = ((HotSetLanguage)language).awaitFullLanguage();
+		}
+		else if (language instanceof ProgressiveLanguage)
+		{
+			((ProgressiveLanguage)language).awaitFullyLoaded();
+		}
+
+		if (language == null || language instanceof ShardedLanguage || language.getSourceUri() == null || language.getFingerprint() == null)
+		{
+			return;
+		}
+
+		Map<String, String> hotValues = new HashMap<String, String>(keys.size());
+
+		for (String key : keys)
+		{
+			hotValues.put(key, language.hasValue(key) ? language.getValue(key) : null);
+		}
+
+		Language hotSet = new Language();
+		hotSet.setSourceUri(language.getSourceUri());
+		hotSet.setValues(hotValues);
+
+		File file = getHotSetFile(context, language.getSourceUri());
+		File temp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = null;
+
+		try
+		{
+			file.getParentFile().mkdirs();
+
+			byte[] snapshot = LanguageSnapshot.toByteArray(hotSet);
+			PackFingerprint fingerprint = language.getFingerprint();
+
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			out.writeInt(MAGIC);
+			out.writeLong(fingerprint.getFileSize());
+			out.writeLong(fingerprint.getLastModified());
+			out.writeLong(fingerprint.getChecksum());
+			out.writeInt(snapshot.length);
+			out.write(snapshot);
+			out.close();
+			out = null;
+
+			if (!temp.renameTo(file))
+			{
+				temp.delete();
+			}
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+			temp.delete();
+		}
+		finally
+		{
+			if (out != null)
+			{
+				try
+				{
+					out.close();
+				}
+				catch (IOException ignore){}
+			}
+		}
+	}
+
+	/**
+	 * Reads the hot set of a language pack
+	 *
+	 * @param context The context to use to find the hot set
+	 * @param languageUri The Uri of the full language pack
+	 *
+	 * @return The hot set language, or null if there is no valid hot set for the pack
+	 */
+	@Nullable
+	public static HotSetLanguage readHotSet(@NonNull Context context, @NonNull Uri languageUri)
+	{
+		File file = getHotSetFile(context, languageUri.toString());
+
+		if (!file.exists())
+		{
+			return null;
+		}
+
+		DataInputStream in = null;
+
+		try
+		{
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+			if (in.readInt() != MAGIC)
+			{
+				file.delete();
+				return null;
+			}
+
+			PackFingerprint fingerprint = new PackFingerprint(in.readLong(), in.readLong(), in.readLong());
+			byte[] snapshot = new byte[in.readInt()];
+			in.readFully(snapshot);
+
+			Language hotSet = LanguageSnapshot.fromByteArray(snapshot);
+
+			if (!languageUri.toString().equals(hotSet.getSourceUri()) || isStale(languageUri, fingerprint))
+			{
+				file.delete();
+				return null;
+			}
+
+			return new HotSetLanguage(languageUri.toString(), hotSet.getValues(), fingerprint);
+		}
+		catch (IOException | IllegalArgumentException e)
+		{
+			e.printStackTrace();
+			file.delete();
+		}
+		finally
+		{
+			if (in != null)
+			{
+				try
+				{
+					in.close();
+				}
+				catch (IOException ignore){}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Deletes the hot set of a language pack, for example when it no longer matches the pack
+	 *
+	 * @param context The context to use to find the hot set
+	 * @param languageUri The Uri of the full language pack
+	 */
+	public static void deleteHotSet(@NonNull Context context, @NonNull Uri languageUri)
+	{
+		getHotSetFile(context, languageUri.toString()).delete();
+	}
+
+	/**
+	 * Checks the file size and modified time of {@code file://} packs against the fingerprint the hot set was recorded
+	 * from. Other packs are checked against the checksum once the full pack has loaded.
+	 */
+	private static boolean isStale(@NonNull Uri languageUri, @NonNull PackFingerprint fingerprint)
+	{
+		if (fingerprint.getFileSize() < 0)
+		{
+			return false;
+		}
+
+		PackFingerprint current = PackFingerprint.from(new UriPackSource(LanguageSettings.getInstance(), languageUri), fingerprint.getChecksum());
+		return current.getFileSize() != fingerprint.getFileSize() || current.getLastModified() != fingerprint.getLastModified();
+	}
+
+	@NonNull
+	private static File getHotSetFile(@NonNull Context context, @NonNull String sourceUri)
+	{
+		return new File(new File(context.getCacheDir(), HOT_SET_DIRECTORY), Integer.toHexString(sourceUri.hashCode()) + ".bin");
+	}
+}
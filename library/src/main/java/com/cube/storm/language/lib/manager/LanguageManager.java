@@ -3,12 +3,28 @@ package com.cube.storm.language.lib.manager;
 import android.content.Context;
 import android.net.Uri;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.cube.storm.LanguageSettings;
+import com.cube.storm.language.data.CompactLanguage;
+import com.cube.storm.language.data.HotSetLanguage;
+import com.cube.storm.language.data.KeyFilter;
 import com.cube.storm.language.data.Language;
+import com.cube.storm.language.data.OffHeapLanguage;
+import com.cube.storm.language.data.ProgressiveLanguage;
+import com.cube.storm.language.data.ReleasedLanguage;
+import com.cube.storm.language.data.ShardedLanguage;
+import com.cube.storm.language.data.StorageMode;
+import com.cube.storm.language.lib.factory.UriPackSource;
 import com.cube.storm.language.lib.helper.LanguageHelper;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import static com.cube.storm.LanguageSettings.getInstance;
 
@@ -22,6 +38,34 @@ import static com.cube.storm.LanguageSettings.getInstance;
  */
 public abstract class LanguageManager
 {
+	/**
+	 * Profiler recording the keys used after start up, see {@link #startProfiling(Context, long)}
+	 */
+	@Nullable protected volatile HotKeyProfiler profiler;
+
+	/**
+	 * Bloom filter of the keys of the loaded languages, see {@link #getKeyFilter()}
+	 */
+	@Nullable private volatile KeyFilter keyFilter;
+
+	/**
+	 * The language generation {@link #keyFilter} was built for
+	 */
+	private volatile int keyFilterGeneration = -1;
+
+	/**
+	 * Loads the full languages of {@link #loadHotLanguage(Context, Uri)} and {@link #loadProgressiveLanguage(Context, Uri)}
+	 */
+	private final ExecutorService loader = Executors.newSingleThreadExecutor(new ThreadFactory()
+	{
+		@Override public Thread newThread(@NonNull Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "LanguageLoad");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
 	/**
 	 * Gets a string value from the selected language or falls back to android String resources if not
 	 * found using the same key
@@ -34,12 +78,12 @@ public abstract class LanguageManager
 	@NonNull
 	public String getValue(@NonNull Context context, @NonNull String key)
 	{
-		if (getInstance().getDefaultLanguage().hasValue(key)
-		|| (getInstance().getLocaleLanguage() != null && getInstance().getLocaleLanguage().hasValue(key)))
+		if (mightBeKey(key) && (getInstance().getDefaultLanguage().hasValue(key)
+		|| (getInstance().getLocaleLanguage() != null && getInstance().getLocaleLanguage().hasValue(key))))
 		{
 			return getValue(key);
 		}
-		else
+		else if (isResourceName(key))
 		{
 			int resource = context.getResources().getIdentifier(key.toLowerCase(Locale.ENGLISH), "string", context.getPackageName());
 
@@ -47,9 +91,136 @@ public abstract class LanguageManager
 			{
 				return context.getString(resource);
 			}
+		}
+
+		return "";
+	}
+
+	/**
+	 * Checks if a string could be the name of a string resource, so {@code Resources.getIdentifier} is not called for
+	 * text that can never match one
+	 *
+	 * @param key The string to check
+	 *
+	 * @return true if the string is a valid resource name
+	 */
+	protected static boolean isResourceName(@NonNull String key)
+	{
+		if (key.isEmpty() || Character.isDigit(key.charAt(0)))
+		{
+			return false;
+		}
+
+		for (int index = 0; index < key.length(); index++)
+		{
+			char c = key.charAt(index);
+
+			if (!(c == '_' || c == '.' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Checks the key filter to see if a string could be a key in either loaded language
+	 *
+	 * @param key The string to check
+	 *
+	 * @return false if the string is definitely not a key, true if it might be, or if there is no key filter
+	 */
+	protected boolean mightBeKey(@NonNull String key)
+	{
+		KeyFilter filter = getKeyFilter();
+		return filter == null || filter.mightContain(key);
+	}
+
+	/**
+	 * Gets the Bloom filter of the keys of {@link LanguageSettings#getDefaultLanguage()} and {@link LanguageSettings#getLocaleLanguage()},
+	 * rebuilding it if either language has been replaced since it was built.
+	 * <p/>
+	 * There is no filter if {@link LanguageSettings#getKeyFilterFalsePositiveRate()} is {@code 0}, or while a language's keys
+	 * are not all in memory: a {@link ShardedLanguage}, a {@link HotSetLanguage} or {@link ProgressiveLanguage} that is still
+	 * loading, or a released {@link ReleasedLanguage}.
+	 * <p/>
+	 * The filter only knows the keys the languages had when it was built. Call {@link #invalidateKeyFilter()} after
+	 * changing the values of a loaded language with {@link Language#setValues(java.util.Map)} or {@link Language#getValues()}.
+	 *
+	 * @return The key filter, or null if there is none
+	 */
+	@Nullable
+	public KeyFilter getKeyFilter()
+	{
+		if (keyFilterGeneration != getInstance().getLanguageGeneration())
+		{
+			rebuildKeyFilter();
+		}
+
+		return keyFilter;
+	}
+
+	/**
+	 * Drops the key filter, so it is rebuilt from the current keys of the loaded languages on the next lookup
+	 */
+	public synchronized void invalidateKeyFilter()
+	{
+		keyFilter = null;
+		keyFilterGeneration = -1;
+	}
+
+	/**
+	 * Rebuilds the key filter from the loaded languages, unless it is already up to date
+	 */
+	private synchronized void rebuildKeyFilter()
+	{
+		int generation = getInstance().getLanguageGeneration();
+
+		if (keyFilterGeneration == generation)
+		{
+			return;
+		}
+
+		List<Language> languages = new ArrayList<Language>(2);
+		KeyFilter filter = null;
+
+		for (Language language : new Language[]{getInstance().getDefaultLanguage(), getInstance().getLocaleLanguage()})
+		{
+			if (language != null)
+			{
+				languages.add(language);
+			}
+		}
+
+		if (getInstance().getKeyFilterFalsePositiveRate() > 0 && isFilterable(languages))
+		{
+			filter = KeyFilter.build(getInstance().getKeyFilterFalsePositiveRate(), languages.toArray(new Language[languages.size()]));
+		}
 
-			return "";
+		keyFilter = filter;
+		keyFilterGeneration = generation;
+	}
+
+	/**
+	 * @param languages The languages to check
+	 *
+	 * @return true if every key of the languages is in memory and can be added to the key filter
+	 */
+	private static boolean isFilterable(@NonNull List<Language> languages)
+	{
+		for (Language language : languages)
+		{
+			if (language instanceof ShardedLanguage
+			|| (language instanceof HotSetLanguage && !((HotSetLanguage)language).isFullyLoaded())
+			|| (language instanceof ProgressiveLanguage && !((ProgressiveLanguage)language).isFullyLoaded())
+			|| (language instanceof ReleasedLanguage && !((ReleasedLanguage)language).isLoaded()))
+			{
+				return false;
+			}
 		}
+
+		return true;
 	}
 
 	/**
@@ -62,19 +233,186 @@ public abstract class LanguageManager
 	@NonNull
 	public String getValue(@NonNull String key)
 	{
-		String value = null;
+		record(key);
+		return resolveValue(key);
+	}
 
-		if (getInstance().getLocaleLanguage() != null && getInstance().getLocaleLanguage().hasValue(key))
+	/**
+	 * Gets string from {@link LanguageSettings#getLocaleLanguage()} or falls back to {@link LanguageSettings#getDefaultLanguage()},
+	 * like {@link #getValue(String)}, without recording the lookup with the {@link HotKeyProfiler}. Use this for bulk
+	 * lookups that are not driven by the UI.
+	 *
+	 * @param key The key of the string to lookup
+	 *
+	 * @return The string, or an empty string
+	 */
+	@NonNull
+	public String resolveValue(@NonNull String key)
+	{
+		return mightBeKey(key) ? getInstance().findValue(key) : "";
+	}
+
+	/**
+	 * Gets string from {@link LanguageSettings#getLocaleLanguage()} or falls back to {@link LanguageSettings#getDefaultLanguage()}
+	 * using a key ID generated by the {@code language-keys} Gradle plugin. Requires {@link LanguageSettings#getKeyIndex()} to be set.
+	 *
+	 * @param id The ID of the string to lookup
+	 *
+	 * @return The string, or an empty string
+	 */
+	@NonNull
+	public String getValue(int id)
+	{
+		HotKeyProfiler profiler = this.profiler;
+
+		if (profiler != null && profiler.isRecording() && getInstance().getKeyIndex() != null)
 		{
-			value = getInstance().getLocaleLanguage().getValue(key);
+			String key = getInstance().getKeyIndex().getKey(id);
+
+			if (key != null)
+			{
+				profiler.record(key);
+			}
 		}
 
-		if (getInstance().getDefaultLanguage() != null && getInstance().getDefaultLanguage().hasValue(key) && value == null)
+		Language localeLanguage = getInstance().getLocaleLanguage();
+
+		if (localeLanguage != null && localeLanguage.hasValue(id))
 		{
-			value = getInstance().getDefaultLanguage().getValue(key);
+			return localeLanguage.getValue(id);
 		}
 
-		return value == null ? "" : value;
+		Language defaultLanguage = getInstance().getDefaultLanguage();
+
+		if (defaultLanguage != null)
+		{
+			return defaultLanguage.getValue(id);
+		}
+
+		return "";
+	}
+
+	/**
+	 * Gets every key that starts with a prefix in either {@link LanguageSettings#getLocaleLanguage()} or {@link LanguageSettings#getDefaultLanguage()},
+	 * for example to build a menu from every {@code _MENU_ITEM_} key
+	 *
+	 * @param prefix The prefix to search for
+	 *
+	 * @return The keys of both languages, in sorted order without duplicates
+	 */
+	@NonNull
+	public List<String> getKeys(@NonNull String prefix)
+	{
+		Language localeLanguage = getInstance().getLocaleLanguage();
+		Language defaultLanguage = getInstance().getDefaultLanguage();
+
+		return merge(localeLanguage == null ? null : localeLanguage.getKeys(prefix), defaultLanguage == null ? null : defaultLanguage.getKeys(prefix));
+	}
+
+	/**
+	 * Gets every key in a range in either {@link LanguageSettings#getLocaleLanguage()} or {@link LanguageSettings#getDefaultLanguage()}
+	 *
+	 * @param from The lowest key, inclusive
+	 * @param to The highest key, exclusive
+	 *
+	 * @return The keys of both languages, in sorted order without duplicates
+	 */
+	@NonNull
+	public List<String> getKeys(@NonNull String from, @NonNull String to)
+	{
+		Language localeLanguage = getInstance().getLocaleLanguage();
+		Language defaultLanguage = getInstance().getDefaultLanguage();
+
+		return merge(localeLanguage == null ? null : localeLanguage.getKeys(from, to), defaultLanguage == null ? null : defaultLanguage.getKeys(from, to));
+	}
+
+	/**
+	 * Counts the keys that start with a prefix in either {@link LanguageSettings#getLocaleLanguage()} or {@link LanguageSettings#getDefaultLanguage()}
+	 *
+	 * @param prefix The prefix to count
+	 *
+	 * @return The number of distinct keys in both languages
+	 */
+	public int countKeys(@NonNull String prefix)
+	{
+		Language localeLanguage = getInstance().getLocaleLanguage();
+		Language defaultLanguage = getInstance().getDefaultLanguage();
+
+		if (localeLanguage == null || localeLanguage.countKeys(prefix) == 0)
+		{
+			return defaultLanguage == null ? 0 : defaultLanguage.countKeys(prefix);
+		}
+
+		return getKeys(prefix).size();
+	}
+
+	/**
+	 * Merges two sorted lists of keys, dropping duplicates
+	 */
+	@NonNull
+	private static List<String> merge(@Nullable List<String> lhs, @Nullable List<String> rhs)
+	{
+		if (lhs == null || lhs.isEmpty())
+		{
+			return rhs == null ? new ArrayList<String>(0) : rhs;
+		}
+
+		if (rhs == null || rhs.isEmpty())
+		{
+			return lhs;
+		}
+
+		List<String> merged = new ArrayList<String>(lhs.size() + rhs.size());
+		int left = 0;
+		int right = 0;
+
+		while (left < lhs.size() || right < rhs.size())
+		{
+			int cmp = left == lhs.size() ? 1 : right == rhs.size() ? -1 : lhs.get(left).compareTo(rhs.get(right));
+
+			if (cmp <= 0)
+			{
+				merged.add(lhs.get(left++));
+
+				if (cmp == 0)
+				{
+					right++;
+				}
+			}
+			else
+			{
+				merged.add(rhs.get(right++));
+			}
+		}
+
+		return merged;
+	}
+
+	/**
+	 * Records a key lookup with the {@link #profiler}, if profiling
+	 *
+	 * @param key The key that was looked up
+	 */
+	private void record(@NonNull String key)
+	{
+		HotKeyProfiler profiler = this.profiler;
+
+		if (profiler != null)
+		{
+			profiler.record(key);
+		}
+	}
+
+	/**
+	 * Starts recording the keys that are looked up, and saves them as the hot set of each loaded language once
+	 * {@param window} has passed. See {@link HotKeyProfiler}.
+	 *
+	 * @param context The context to use to save the hot sets
+	 * @param window The length of the profiling window in milliseconds
+	 */
+	public void startProfiling(@NonNull Context context, long window)
+	{
+		profiler = new HotKeyProfiler(context, window);
 	}
 
 	/**
@@ -120,7 +458,23 @@ public abstract class LanguageManager
 	}
 
 	/**
-	 * Loads a language from the given Uri
+	 * Picks the best available language pack for the device locale, falling back from the region specific pack
+	 * ({@code xxx_xxx}), to the language pack ({@code xxx}), and then to {@param fallback}.
+	 *
+	 * @param context The context to use to find the locale.
+	 * @param index The index of the available packs
+	 * @param fallback The name of the pack to use if no locale pack is available. Can be null.
+	 *
+	 * @return The Uri of the best available pack, or null if none are available
+	 */
+	@Nullable
+	public Uri negotiateLanguageUri(@NonNull Context context, @NonNull LanguagePackIndex index, @Nullable String fallback)
+	{
+		return index.negotiate(getLocale(context), LanguageHelper.getLanguage(context), fallback);
+	}
+
+	/**
+	 * Loads a language from the given Uri. Packs that are known not to exist from a {@link LanguagePackIndex} are not opened.
 	 *
 	 * @param context The context to use to load the language
 	 * @param languageUri The uri of the language to load
@@ -128,13 +482,214 @@ public abstract class LanguageManager
 	@NonNull
 	public Language loadLanguage(@NonNull Context context, @NonNull Uri languageUri)
 	{
+		if (LanguagePackIndex.isKnownMissing(languageUri))
+		{
+			return new Language();
+		}
+
 		Language language = getInstance().getLanguageBuilder().buildLanguage(languageUri);
 
 		if (language != null)
 		{
+			language = prepareLanguage(language);
+			getInstance().getPackCache().put(languageUri.toString(), language);
+
 			return language;
 		}
 
 		return new Language();
 	}
+
+	/**
+	 * Loads a language from its hot set if one was recorded by {@link HotKeyProfiler}, loading the full language in the
+	 * background. Once loaded, the full language replaces the hot set language in {@link LanguageSettings}. Falls back
+	 * to {@link #loadLanguage(Context, Uri)} if there is no hot set for the pack.
+	 *
+	 * @param context The context to use to load the language
+	 * @param languageUri The uri of the language to load
+	 *
+	 * @return The hot set language, or the fully loaded language
+	 */
+	@NonNull
+	public Language loadHotLanguage(@NonNull Context context, @NonNull final Uri languageUri)
+	{
+		final HotSetLanguage hotSet = HotKeyProfiler.readHotSet(context, languageUri);
+
+		if (hotSet == null)
+		{
+			return loadLanguage(context, languageUri);
+		}
+
+		final Context appContext = context.getApplicationContext();
+
+		loader.execute(new Runnable()
+		{
+			@Override public void run()
+			{
+				Language language = null;
+
+				try
+				{
+					language = loadLanguage(appContext, languageUri);
+				}
+				catch (Exception e)
+				{
+					e.printStackTrace();
+				}
+				finally
+				{
+					// Always release lookups waiting on the full language, falling back to the hot values if it failed to load
+					hotSet.setFullLanguage(language != null ? language : hotSet.getHotLanguage());
+				}
+
+				if (language == null)
+				{
+					return;
+				}
+
+				if (language.getFingerprint() != null && hotSet.getFingerprint() != null
+				&& language.getFingerprint().getChecksum() != hotSet.getFingerprint().getChecksum())
+				{
+					HotKeyProfiler.deleteHotSet(appContext, languageUri);
+				}
+
+				if (getInstance().getDefaultLanguage() == hotSet)
+				{
+					getInstance().setDefaultLanguage(language);
+				}
+
+				if (getInstance().getLocaleLanguage() == hotSet)
+				{
+					getInstance().setLocaleLanguage(language);
+				}
+			}
+		});
+
+		return prepareLanguage(hotSet);
+	}
+
+	/**
+	 * Loads a language progressively, publishing its values as they are parsed on a background thread. Lookups of keys
+	 * that have already been parsed are answered straight away, lookups of any other key wait until it is parsed or the
+	 * parse has finished. See {@link ProgressiveLanguage}.
+	 * <p/>
+	 * Once parsed, the language is added to the pack cache and set again in {@link LanguageSettings} if it is still in use,
+	 * so the key filter and anything else derived from the loaded languages is rebuilt from the whole pack.
+	 *
+	 * @param context The context to use to load the language
+	 * @param languageUri The uri of the language to load
+	 *
+	 * @return The language being parsed
+	 */
+	@NonNull
+	public Language loadProgressiveLanguage(@NonNull Context context, @NonNull final Uri languageUri)
+	{
+		if (LanguagePackIndex.isKnownMissing(languageUri))
+		{
+			return new Language();
+		}
+
+		final ProgressiveLanguage language = new ProgressiveLanguage(languageUri.toString());
+
+		loader.execute(new Runnable()
+		{
+			@Override public void run()
+			{
+				if (!getInstance().getLanguageReader().readProgressively(new UriPackSource(getInstance(), languageUri), language))
+				{
+					return;
+				}
+
+				getInstance().getPackCache().put(languageUri.toString(), language);
+
+				if (getInstance().getDefaultLanguage() == language)
+				{
+					getInstance().setDefaultLanguage(language);
+				}
+
+				if (getInstance().getLocaleLanguage() == language)
+				{
+					getInstance().setLocaleLanguage(language);
+				}
+			}
+		});
+
+		return prepareLanguage(language);
+	}
+
+	/**
+	 * Prepares a newly loaded language for lookups, converting it to the configured {@link LanguageSettings#getStorageMode()},
+	 * indexing it with {@link LanguageSettings#getKeyIndex()} if one is set, and building its sorted key index if
+	 * {@link LanguageSettings#isSortedKeyIndex()} is set
+	 *
+	 * @param language The loaded language
+	 *
+	 * @return The prepared language
+	 */
+	@NonNull
+	protected Language prepareLanguage(@NonNull Language language)
+	{
+		if (getInstance().getStorageMode() == StorageMode.COMPACT && language.getClass() == Language.class)
+		{
+			language = new CompactLanguage(language);
+		}
+		else if (getInstance().getStorageMode() == StorageMode.OFF_HEAP && language.getClass() == Language.class)
+		{
+			language = new OffHeapLanguage(language);
+		}
+
+		if (getInstance().getKeyIndex() != null)
+		{
+			language.index(getInstance().getKeyIndex());
+		}
+
+		if (getInstance().isSortedKeyIndex() && !(language instanceof ShardedLanguage) && !(language instanceof HotSetLanguage)
+		&& !(language instanceof ProgressiveLanguage))
+		{
+			language.getSortedKeys();
+		}
+
+		return language;
+	}
+
+	/**
+	 * Loads a sharded language from the given manifest Uri. No shards are loaded at this point, each shard is loaded
+	 * the first time a key in its namespace is looked up.
+	 *
+	 * @param context The context to use to load the language
+	 * @param manifestUri The uri of the shard manifest to load
+	 *
+	 * @return The sharded language, or an empty language if the manifest could not be loaded
+	 */
+	@NonNull
+	public Language loadShardedLanguage(@NonNull Context context, @NonNull Uri manifestUri)
+	{
+		Map<String, String> manifest = getInstance().getLanguageBuilder().buildShardManifest(manifestUri);
+
+		if (manifest != null)
+		{
+			return prepareLanguage(new ShardedLanguage(getInstance(), manifestUri, manifest, getInstance().getShardMemoryBudget()));
+		}
+
+		return new Language();
+	}
+
+	/**
+	 * Loads the shard of a namespace in both {@link LanguageSettings#getDefaultLanguage()} and {@link LanguageSettings#getLocaleLanguage()}
+	 * if they are sharded languages. Languages that are not sharded are already fully loaded and are ignored.
+	 *
+	 * @param namespace The key prefix of the shard to load, as defined in the shard manifest
+	 */
+	public void preloadNamespace(@NonNull String namespace)
+	{
+		if (getInstance().getDefaultLanguage() instanceof ShardedLanguage)
+		{
+			((ShardedLanguage)getInstance().getDefaultLanguage()).preload(namespace);
+		}
+
+		if (getInstance().getLocaleLanguage() instanceof ShardedLanguage)
+		{
+			((ShardedLanguage)getInstance().getLocaleLanguage()).preload(namespace);
+		}
+	}
 }
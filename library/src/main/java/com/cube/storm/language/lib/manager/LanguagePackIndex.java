@@ -0,0 +1,268 @@
+package com.cube.storm.language.lib.manager;
+
+import android.content.Context;
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.Getter;
+
+/**
+ * Index of the language packs available in a directory.
+ * <p/>
+ * The index is built once from an assets directory, a file directory or a manifest and cached, so locale negotiation
+ * does not have to open files that do not exist. Pack names are the file names without their extensions, for example
+ * {@code gbr_eng} for {@code gbr_eng.json}.
+ * <p/>
+ * Example
+ * <pre>
+ LanguagePackIndex index = LanguagePackIndex.fromAssets(context, "languages");
+ Uri languageUri = index.negotiate("gbr_eng", "eng", "gbr_eng");
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public class LanguagePackIndex
+{
+	/**
+	 * Cached indexes, keyed by their directory Uri
+	 */
+	private static final Map<String, LanguagePackIndex> indexes = new ConcurrentHashMap<String, LanguagePackIndex>();
+
+	/**
+	 * The Uri of the directory the packs are in, ending with a {@code /}
+	 */
+	@Getter private final String directoryUri;
+
+	/**
+	 * Map of pack name to pack file name
+	 */
+	private final Map<String, String> packs;
+
+	/**
+	 * The directory the index was built from, if it was built from the file system
+	 */
+	@Nullable private final File directory;
+
+	/**
+	 * The last modified time of {@link #directory} when the index was built
+	 */
+	private final long directoryModified;
+
+	protected LanguagePackIndex(@NonNull String directoryUri, @NonNull String[] fileNames, @Nullable File directory)
+	{
+		this.directoryUri = directoryUri.endsWith("/") ? directoryUri : directoryUri + "/";
+		this.directory = directory;
+		this.directoryModified = directory == null ? 0 : directory.lastModified();
+		this.packs = new HashMap<String, String>(fileNames.length);
+
+		for (String fileName : fileNames)
+		{
+			int extension = fileName.indexOf('.');
+			packs.put((extension > 0 ? fileName.substring(0, extension) : fileName).toLowerCase(), fileName);
+		}
+	}
+
+	/**
+	 * Gets the index of an assets directory, building it if it has not been built before
+	 *
+	 * @param context The context to use to list the assets
+	 * @param path The assets directory, for example {@code languages}
+	 *
+	 * @return The index, or null if the assets could not be listed
+	 */
+	@Nullable
+	public static LanguagePackIndex fromAssets(@NonNull Context context, @NonNull String path)
+	{
+		String directoryUri = "assets://" + path + "/";
+		LanguagePackIndex index = indexes.get(directoryUri);
+
+		if (index == null)
+		{
+			try
+			{
+				String[] files = context.getAssets().list(path);
+				index = new LanguagePackIndex(directoryUri, files == null ? new String[0] : files, null);
+				indexes.put(directoryUri, index);
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+		}
+
+		return index;
+	}
+
+	/**
+	 * Gets the index of a file directory, building it if it has not been built before or if the directory has changed
+	 * since it was built
+	 *
+	 * @param directory The directory containing the packs
+	 *
+	 * @return The index
+	 */
+	@NonNull
+	public static LanguagePackIndex fromDirectory(@NonNull File directory)
+	{
+		String directoryUri = "file://" + directory.getAbsolutePath() + "/";
+		LanguagePackIndex index = indexes.get(directoryUri);
+
+		if (index == null || index.isStale())
+		{
+			String[] files = directory.list();
+			index = new LanguagePackIndex(directoryUri, files == null ? new String[0] : files, directory);
+			indexes.put(directoryUri, index);
+		}
+
+		return index;
+	}
+
+	/**
+	 * Builds the index of a directory from a manifest listing the pack file names as a json array, for example
+	 * {@code ["gbr_eng.json", "fra_fra.json"]}. The index replaces any previously cached index for the same directory.
+	 *
+	 * @param directoryUri The Uri of the directory the packs in the manifest are in
+	 * @param manifest The manifest stream. This is closed once read.
+	 *
+	 * @return The index, or null if the manifest could not be read
+	 */
+	@Nullable
+	public static LanguagePackIndex fromManifest(@NonNull Uri directoryUri, @NonNull InputStream manifest)
+	{
+		try
+		{
+			String[] files = new Gson().fromJson(new InputStreamReader(manifest, "UTF-8"), String[].class);
+			LanguagePackIndex index = new LanguagePackIndex(directoryUri.toString(), files == null ? new String[0] : files, null);
+			indexes.put(index.directoryUri, index);
+
+			return index;
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+		}
+		finally
+		{
+			try
+			{
+				manifest.close();
+			}
+			catch (IOException ignore){}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Clears all cached indexes. Call this after adding packs to a directory that was indexed from assets or a manifest.
+	 */
+	public static void invalidate()
+	{
+		indexes.clear();
+	}
+
+	/**
+	 * Checks if a pack Uri is in an indexed directory but is not in its index, without opening the file
+	 *
+	 * @param packUri The pack Uri to check
+	 *
+	 * @return true if the pack is known not to exist, false if it exists or its directory has not been indexed
+	 */
+	public static boolean isKnownMissing(@NonNull Uri packUri)
+	{
+		if (indexes.isEmpty())
+		{
+			return false;
+		}
+
+		String uri = packUri.toString();
+		int separator = uri.lastIndexOf('/');
+
+		if (separator < 0)
+		{
+			return false;
+		}
+
+		LanguagePackIndex index = indexes.get(uri.substring(0, separator + 1));
+
+		if (index == null || index.isStale())
+		{
+			return false;
+		}
+
+		return !index.packs.containsValue(uri.substring(separator + 1));
+	}
+
+	/**
+	 * @return true if the index was built from a directory that has changed since
+	 */
+	private boolean isStale()
+	{
+		return directory != null && directory.lastModified() != directoryModified;
+	}
+
+	/**
+	 * Checks if a pack is available
+	 *
+	 * @param name The pack name, for example {@code gbr_eng}
+	 *
+	 * @return true if available, false if not
+	 */
+	public boolean hasPack(@NonNull String name)
+	{
+		return packs.containsKey(name.toLowerCase());
+	}
+
+	/**
+	 * Gets the Uri of a pack
+	 *
+	 * @param name The pack name, for example {@code gbr_eng}
+	 *
+	 * @return The Uri of the pack, or null if it is not available
+	 */
+	@Nullable
+	public Uri getPackUri(@NonNull String name)
+	{
+		String fileName = packs.get(name.toLowerCase());
+		return fileName == null ? null : Uri.parse(directoryUri + fileName);
+	}
+
+	/**
+	 * Picks the best available pack for a locale, falling back from the region specific pack to the language pack, and then
+	 * to the fallback pack.
+	 *
+	 * @param locale The locale in the format `xxx_xxx` (3 letter CC, 3 letter language)
+	 * @param language The language in the format `xxx` (3 letter language)
+	 * @param fallback The name of the pack to use if neither is available. Can be null.
+	 *
+	 * @return The Uri of the best available pack, or null if none are available
+	 */
+	@Nullable
+	public Uri negotiate(@NonNull String locale, @NonNull String language, @Nullable String fallback)
+	{
+		Uri packUri = getPackUri(locale);
+
+		if (packUri == null)
+		{
+			packUri = getPackUri(language);
+		}
+
+		if (packUri == null && fallback != null)
+		{
+			packUri = getPackUri(fallback);
+		}
+
+		return packUri;
+	}
+}
@@ -0,0 +1,253 @@
+package com.cube.storm.language.lib.manager;
+
+import android.content.Context;
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.LanguageSettings;
+import com.cube.storm.language.lib.factory.PackFetcher;
+import com.cube.storm.util.lib.resolver.Resolver;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import lombok.Getter;
+
+/**
+ * Keeps local language packs in sync with a pack endpoint, downloading a pack only when it has changed.
+ * <p/>
+ * Each registered pack is fetched with a {@link PackFetcher}, which sends the validators of the last download so an
+ * unchanged pack costs a single {@code 304 Not Modified} response. A changed pack is streamed to a temporary file next to
+ * the local pack, verified and swapped in atomically. Once every pack has been fetched, a single reload is triggered with
+ * {@link LanguageSettings#reloadChangedLanguages(Context)}, which only parses the packs that were swapped.
+ * <p/>
+ * The local pack Uri is resolved to a file with the {@link Resolver} registered for its scheme, for example the
+ * {@code cache} resolver of {@code LightningContent}, so the synced pack is the one the languages are loaded from. The
+ * resolver must resolve to a {@code file://} Uri.
+ * <p/>
+ * Example
+ * <pre>
+ LanguagePackSync sync = new LanguagePackSync()
+ 	.addPack("https://example.com/languages/gbr.json", Uri.parse("cache://languages/gbr.json"))
+ 	.addPack("https://example.com/languages/gbr_fra.json", Uri.parse("cache://languages/gbr_fra.json"));
+
+ sync.syncAsync(context, new ReloadScheduler.ReloadListener()
+ {
+ 	&#64;Override public void onReloadComplete(boolean changed)
+ 	{
+ 		if (changed)
+ 		{
+ 			LocalisationHelper.localise(activity);
+ 		}
+ 	}
+ });
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public class LanguagePackSync
+{
+	/**
+	 * A pack to keep in sync
+	 */
+	private static class Pack
+	{
+		private final URL endpoint;
+		private final Uri packUri;
+		@Nullable private final String checksum;
+
+		private Pack(@NonNull URL endpoint, @NonNull Uri packUri, @Nullable String checksum)
+		{
+			this.endpoint = endpoint;
+			this.packUri = packUri;
+			this.checksum = checksum;
+		}
+	}
+
+	/**
+	 * Fetcher used to download the packs. Set its timeouts, or override {@link PackFetcher#openConnection(URL)} to add
+	 * headers.
+	 */
+	@Getter @NonNull private final PackFetcher fetcher;
+
+	private final List<Pack> packs = new ArrayList<Pack>();
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+	{
+		@Override public Thread newThread(@NonNull Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "LanguagePackSync");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	public LanguagePackSync()
+	{
+		this(new PackFetcher());
+	}
+
+	/**
+	 * @param fetcher The fetcher to download the packs with
+	 */
+	public LanguagePackSync(@NonNull PackFetcher fetcher)
+	{
+		this.fetcher = fetcher;
+	}
+
+	/**
+	 * Registers a pack to keep in sync
+	 *
+	 * @param endpoint The URL to download the pack from
+	 * @param packUri The local Uri the pack is loaded from, such as {@code cache://languages/gbr.json}
+	 *
+	 * @return The sync, for chaining
+	 */
+	@NonNull
+	public LanguagePackSync addPack(@NonNull String endpoint, @NonNull Uri packUri)
+	{
+		return addPack(endpoint, packUri, null);
+	}
+
+	/**
+	 * Registers a pack to keep in sync, verified against a known checksum
+	 *
+	 * @param endpoint The URL to download the pack from
+	 * @param packUri The local Uri the pack is loaded from, such as {@code cache://languages/gbr.json}
+	 * @param checksum The expected SHA-256 of the pack as hex, or null to verify against the response headers
+	 *
+	 * @return The sync, for chaining
+	 */
+	@NonNull
+	public LanguagePackSync addPack(@NonNull String endpoint, @NonNull Uri packUri, @Nullable String checksum)
+	{
+		try
+		{
+			synchronized (packs)
+			{
+				packs.add(new Pack(new URL(endpoint), packUri, checksum));
+			}
+		}
+		catch (MalformedURLException e)
+		{
+			throw new IllegalArgumentException("Invalid pack endpoint " + endpoint, e);
+		}
+
+		return this;
+	}
+
+	/**
+	 * Fetches every registered pack on the calling thread, then reloads the languages once if any pack was updated. Must
+	 * not be called on the main thread.
+	 *
+	 * @param context The context to use to reload the languages
+	 *
+	 * @return true if any language was reloaded
+	 */
+	public boolean sync(@NonNull Context context)
+	{
+		if (!fetchAll())
+		{
+			return false;
+		}
+
+		return LanguageSettings.getInstance().reloadChangedLanguages(context);
+	}
+
+	/**
+	 * Fetches every registered pack in the background, then schedules a single reload with
+	 * {@link LanguageSettings#scheduleReload(Context, ReloadScheduler.ReloadListener)} if any pack was updated
+	 *
+	 * @param context The context to use to reload the languages
+	 * @param listener Optional listener to call on the main thread when the reload has completed. Only called if a pack
+	 * was updated.
+	 */
+	public void syncAsync(@NonNull Context context, @Nullable final ReloadScheduler.ReloadListener listener)
+	{
+		final Context appContext = context.getApplicationContext();
+
+		executor.execute(new Runnable()
+		{
+			@Override public void run()
+			{
+				if (fetchAll())
+				{
+					LanguageSettings.getInstance().scheduleReload(appContext, listener);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Fetches every registered pack, removing updated packs from the pack cache
+	 *
+	 * @return true if any pack was updated
+	 */
+	private boolean fetchAll()
+	{
+		List<Pack> snapshot;
+
+		synchronized (packs)
+		{
+			snapshot = new ArrayList<Pack>(packs);
+		}
+
+		boolean updated = false;
+
+		for (Pack pack : snapshot)
+		{
+			File target = resolveFile(pack.packUri);
+			boolean existed = target.exists();
+			PackFetcher.Result result = fetcher.fetch(pack.endpoint, target, pack.checksum);
+
+			if (result.getStatus() == PackFetcher.Status.UPDATED)
+			{
+				if (!existed)
+				{
+					// A new pack may be missing from an index of its directory
+					LanguagePackIndex.invalidate();
+				}
+
+				LanguageSettings.getInstance().getPackCache().invalidate(pack.packUri.toString());
+				updated = true;
+			}
+		}
+
+		return updated;
+	}
+
+	/**
+	 * Resolves a local pack Uri to the file it is loaded from
+	 *
+	 * @param packUri The pack Uri
+	 *
+	 * @return The file
+	 *
+	 * @throws IllegalArgumentException If the Uri does not resolve to a file
+	 */
+	@NonNull
+	protected File resolveFile(@NonNull Uri packUri)
+	{
+		Uri fileUri = packUri;
+
+		if (!"file".equals(fileUri.getScheme()))
+		{
+			Resolver resolver = LanguageSettings.getInstance().getUriResolvers().get(fileUri.getScheme());
+			fileUri = resolver == null ? null : resolver.resolveUri(fileUri);
+		}
+
+		if (fileUri == null || !"file".equals(fileUri.getScheme()) || fileUri.getPath() == null)
+		{
+			throw new IllegalArgumentException("No resolver registered which resolves " + packUri + " to a file");
+		}
+
+		return new File(fileUri.getPath());
+	}
+}
@@ -0,0 +1,222 @@
+package com.cube.storm.language.lib.manager;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.LanguageSettings;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Releases language memory when the platform asks the app to trim.
+ * <p/>
+ * Platform trim levels are mapped to a {@link TrimTier} with {@link #getTier(int)}, and every tier up to and
+ * including it is released in turn, lightest first. For each tier the loaded languages are trimmed with
+ * {@link LanguageSettings#trimLanguages(Context, TrimTier)}, then every registered {@link Trimmable}, and the estimated
+ * number of bytes released is reported to the {@link TrimListener}.
+ * <p/>
+ * Trimming is opt in. Set the trimmer with {@link LanguageSettings.Builder#memoryTrimmer(MemoryTrimmer)}, and it is
+ * registered for component callbacks when the settings are built. Trimmables are held weakly, so registering one does
+ * not keep it alive.
+ * <p/>
+ * Example
+ * <pre>
+ languageSettings = new LanguageSettings.Builder(this)
+	.memoryTrimmer(new MemoryTrimmer(this))
+	.build();
+
+ LanguageSettings.getInstance().getMemoryTrimmer().register(bundleCache);
+ LanguageSettings.getInstance().getMemoryTrimmer().setListener(new MemoryTrimmer.TrimListener()
+ {
+ 	&#64;Override public void onTrimmed(TrimTier tier, long released)
+ 	{
+ 		Log.d("Language", "Trimmed " + tier + ", released ~" + released + " bytes");
+ 	}
+ });
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public class MemoryTrimmer implements ComponentCallbacks2
+{
+	/**
+	 * Listener called when a tier has been trimmed
+	 */
+	public interface TrimListener
+	{
+		/**
+		 * Called after each tier has been trimmed, on the thread that requested the trim
+		 *
+		 * @param tier The tier that was trimmed
+		 * @param released The estimated number of bytes released by the tier
+		 */
+		void onTrimmed(@NonNull TrimTier tier, long released);
+	}
+
+	@NonNull private final Context context;
+
+	private final List<WeakReference<Trimmable>> trimmables = new ArrayList<WeakReference<Trimmable>>();
+
+	/**
+	 * Listener to report each trimmed tier to
+	 */
+	@Getter @Setter @Nullable private volatile TrimListener listener;
+
+	/**
+	 * @param context The context to use to reload released languages
+	 */
+	public MemoryTrimmer(@NonNull Context context)
+	{
+		this.context = context.getApplicationContext();
+	}
+
+	/**
+	 * Maps a platform trim level, as passed to {@link #onTrimMemory(int)}, to a tier
+	 *
+	 * @param level The trim level
+	 *
+	 * @return The tier to trim to, or null if nothing should be trimmed
+	 */
+	@Nullable
+	public static TrimTier getTier(int level)
+	{
+		if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE)
+		{
+			return TrimTier.ACTIVE;
+		}
+
+		// The app is still running at the critical level, so keep the packs it is using rather than reloading them
+		if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+		|| level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW)
+		{
+			return TrimTier.INACTIVE;
+		}
+
+		if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE)
+		{
+			return TrimTier.CACHES;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Registers something to trim along with the languages
+	 *
+	 * @param trimmable The trimmable to register. It is held weakly.
+	 */
+	public synchronized void register(@NonNull Trimmable trimmable)
+	{
+		trimmables.add(new WeakReference<Trimmable>(trimmable));
+	}
+
+	/**
+	 * Unregisters a trimmable registered with {@link #register(Trimmable)}
+	 *
+	 * @param trimmable The trimmable to unregister
+	 */
+	public synchronized void unregister(@NonNull Trimmable trimmable)
+	{
+		Iterator<WeakReference<Trimmable>> iterator = trimmables.iterator();
+
+		while (iterator.hasNext())
+		{
+			Trimmable registered = iterator.next().get();
+
+			if (registered == null || registered == trimmable)
+			{
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Trims every tier up to and including {@param tier}, lightest first
+	 *
+	 * @param tier The heaviest tier to trim
+	 *
+	 * @return The estimated number of bytes released across all tiers
+	 */
+	public long trim(@NonNull TrimTier tier)
+	{
+		long total = 0;
+
+		for (TrimTier current : TrimTier.values())
+		{
+			if (current.compareTo(tier) > 0)
+			{
+				break;
+			}
+
+			long released = LanguageSettings.getInstance().trimLanguages(context, current);
+
+			for (Trimmable trimmable : getTrimmables())
+			{
+				released += trimmable.trim(current);
+			}
+
+			TrimListener listener = this.listener;
+
+			if (listener != null)
+			{
+				listener.onTrimmed(current, released);
+			}
+
+			total += released;
+		}
+
+		return total;
+	}
+
+	/**
+	 * @return The registered trimmables that are still alive, pruning the ones that are not
+	 */
+	@NonNull
+	private synchronized List<Trimmable> getTrimmables()
+	{
+		List<Trimmable> alive = new ArrayList<Trimmable>(trimmables.size());
+		Iterator<WeakReference<Trimmable>> iterator = trimmables.iterator();
+
+		while (iterator.hasNext())
+		{
+			Trimmable trimmable = iterator.next().get();
+
+			if (trimmable == null)
+			{
+				iterator.remove();
+			}
+			else
+			{
+				alive.add(trimmable);
+			}
+		}
+
+		return alive;
+	}
+
+	@Override public void onTrimMemory(int level)
+	{
+		TrimTier tier = getTier(level);
+
+		if (tier != null)
+		{
+			trim(tier);
+		}
+	}
+
+	@Override public void onLowMemory()
+	{
+		trim(TrimTier.ACTIVE);
+	}
+
+	@Override public void onConfigurationChanged(@NonNull Configuration configuration){}
+}
@@ -0,0 +1,186 @@
+package com.cube.storm.language.lib.manager;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.LanguageSettings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+
+/**
+ * Coalesces bursts of language reload requests into a single background reload.
+ * <p/>
+ * Each call to {@link #requestReload(Context, ReloadListener)} restarts the {@link #debounce} delay, the reload runs once no
+ * new request has been made for that long, or once {@link #maxDelay} has passed since the first request of the burst.
+ * The reload uses {@link LanguageSettings#reloadChangedLanguages(Context)}, so packs whose contents are unchanged are not
+ * parsed again. Every listener of the burst is called on the main thread when the reload has completed.
+ * <p/>
+ * Example
+ * <pre>
+ LanguageSettings.getInstance().scheduleReload(context, new ReloadScheduler.ReloadListener()
+ {
+ 	&#64;Override public void onReloadComplete(boolean changed)
+ 	{
+ 		if (changed)
+ 		{
+ 			LocalisationHelper.localise(activity);
+ 		}
+ 	}
+ });
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public class ReloadScheduler
+{
+	/**
+	 * Listener called when a scheduled reload has completed
+	 */
+	public interface ReloadListener
+	{
+		/**
+		 * Called on the main thread when the reload has completed
+		 *
+		 * @param changed true if any language was reloaded, false if all packs were unchanged
+		 */
+		void onReloadComplete(boolean changed);
+	}
+
+	/**
+	 * Time, in milliseconds, to wait after the last request before reloading
+	 */
+	@Getter private final long debounce;
+
+	/**
+	 * Maximum time, in milliseconds, a request can be delayed by later requests
+	 */
+	@Getter private final long maxDelay;
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+	{
+		@Override public Thread newThread(@NonNull Runnable runnable)
+		{
+			Thread thread = new Thread(runnable, "LanguageReload");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+	/**
+	 * The scheduled reload that has not started yet
+	 */
+	@Nullable private ScheduledFuture<?> pending;
+
+	/**
+	 * Time of the first request of the current burst
+	 */
+	private long burstStart;
+
+	/**
+	 * Listeners of the current burst
+	 */
+	@NonNull private List<ReloadListener> listeners = new ArrayList<ReloadListener>();
+
+	/**
+	 * @param debounce Time, in milliseconds, to wait after the last request before reloading
+	 * @param maxDelay Maximum time, in milliseconds, a request can be delayed by later requests
+	 */
+	public ReloadScheduler(long debounce, long maxDelay)
+	{
+		this.debounce = debounce;
+		this.maxDelay = Math.max(debounce, maxDelay);
+	}
+
+	/**
+	 * Requests a reload of the languages. Requests made within {@link #debounce} of each other are merged into one reload.
+	 *
+	 * @param context The context to use to load the languages
+	 * @param listener Optional listener to call when the reload has completed
+	 */
+	public synchronized void requestReload(@NonNull Context context, @Nullable ReloadListener listener)
+	{
+		final Context appContext = context.getApplicationContext();
+		long now = System.currentTimeMillis();
+
+		if (pending != null && pending.cancel(false))
+		{
+			pending = null;
+		}
+		else
+		{
+			burstStart = now;
+		}
+
+		if (listener != null)
+		{
+			listeners.add(listener);
+		}
+
+		long delay = Math.max(0, Math.min(debounce, burstStart + maxDelay - now));
+
+		pending = executor.schedule(new Runnable()
+		{
+			@Override public void run()
+			{
+				reload(appContext);
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Runs the coalesced reload and notifies the listeners of the burst
+	 *
+	 * @param context The context to use to load the languages
+	 */
+	private void reload(@NonNull Context context)
+	{
+		final List<ReloadListener> completed;
+
+		synchronized (this)
+		{
+			completed = listeners;
+			listeners = new ArrayList<ReloadListener>();
+			pending = null;
+		}
+
+		boolean reloaded = false;
+
+		try
+		{
+			reloaded = LanguageSettings.getInstance().reloadChangedLanguages(context);
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+		}
+
+		final boolean changed = reloaded;
+
+		if (!completed.isEmpty())
+		{
+			mainHandler.post(new Runnable()
+			{
+				@Override public void run()
+				{
+					for (ReloadListener listener : completed)
+					{
+						listener.onReloadComplete(changed);
+					}
+				}
+			});
+		}
+	}
+}
@@ -4,17 +4,24 @@ import android.net.Uri;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.cube.storm.LanguageContext;
 import com.cube.storm.LanguageSettings;
 import com.cube.storm.language.data.Language;
+import com.cube.storm.language.data.PackFingerprint;
+import com.cube.storm.language.lib.factory.UriPackSource;
+import com.cube.storm.language.lib.processor.LanguageGsonProcessor;
 import com.cube.storm.language.lib.processor.LanguageProcessor;
+import com.cube.storm.language.lib.trace.Tracer;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
+import com.google.gson.reflect.TypeToken;
 
-import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.reflect.Type;
+import java.util.Map;
 
 /**
  * Language parser used to process the json files into models
@@ -44,7 +51,13 @@ public abstract class LanguageBuilder
 	public GsonBuilder getGsonBuilder()
 	{
 		GsonBuilder builder = new GsonBuilder();
-		builder.registerTypeAdapter(Language.class, new LanguageProcessor());
+		builder.registerTypeAdapter(Language.class, new LanguageGsonProcessor(new LanguageProcessor()
+		{
+			@NonNull @Override protected Tracer getTracer()
+			{
+				return LanguageSettings.getInstance().getTracer();
+			}
+		}));
 
 		return builder;
 	}
@@ -67,7 +80,8 @@ public abstract class LanguageBuilder
 	}
 
 	/**
-	 * Builds a Page object from a file Uri
+	 * Builds a Page object from a file Uri. The contents are checksummed as they are parsed, and stored as the language's
+	 * {@link PackFingerprint}.
 	 *
 	 * @param fileUri The file Uri to load from
 	 *
@@ -76,26 +90,83 @@ public abstract class LanguageBuilder
 	@Nullable
 	public Language buildLanguage(@NonNull Uri fileUri)
 	{
+		return read(LanguageSettings.getInstance(), fileUri);
+	}
+
+	/**
+	 * Builds a language from a file Uri, like {@link #buildLanguage(Uri)}, opening the file with the file factory and
+	 * resolvers of a {@link LanguageContext}. The pack is read by the core {@link LanguageReader} with this builder's gson.
+	 * Packs of the {@link LanguageContext#isDefault() default context} are built with {@link #buildLanguage(Uri)}, so
+	 * overrides of it are still used.
+	 *
+	 * @param context The context to open the file with
+	 * @param fileUri The file Uri to load from
+	 *
+	 * @return The language or null
+	 */
+	@Nullable
+	public Language buildLanguage(@NonNull LanguageContext context, @NonNull Uri fileUri)
+	{
+		return context.isDefault() ? buildLanguage(fileUri) : read(context, fileUri);
+	}
+
+	@Nullable
+	private Language read(@NonNull LanguageContext context, @NonNull Uri fileUri)
+	{
+		return new LanguageReader(getGson(), context.getTracer()).read(new UriPackSource(context, fileUri));
+	}
+
+	/**
+	 * Builds a shard manifest from a file Uri. See {@link com.cube.storm.language.data.ShardedLanguage} for the format
+	 * of the manifest.
+	 *
+	 * @param fileUri The file Uri to load from
+	 *
+	 * @return The map of key prefix to shard path, or null
+	 */
+	@Nullable
+	public Map<String, String> buildShardManifest(@NonNull Uri fileUri)
+	{
+		InputStream stream = null;
+
 		try
 		{
-			InputStream stream = LanguageSettings.getInstance().getFileFactory().loadFromUri(fileUri);
+			stream = LanguageSettings.getInstance().getFileFactory().openStream(fileUri);
 
 			if (stream != null)
 			{
-				Language language = getGson().fromJson(new InputStreamReader(new BufferedInputStream(stream, 8192)), Language.class);
-				language.setSourceUri(fileUri.toString());
-
-				return language;
+				return getGson().fromJson(new InputStreamReader(stream, "UTF-8"), new TypeToken<Map<String, String>>(){}.getType());
 			}
 		}
 		catch (Exception e)
 		{
 			e.printStackTrace();
 		}
+		finally
+		{
+			closeQuietly(stream);
+		}
 
 		return null;
 	}
 
+	/**
+	 * Closes a stream, ignoring any errors
+	 *
+	 * @param stream The stream to close. Can be null.
+	 */
+	protected static void closeQuietly(@Nullable InputStream stream)
+	{
+		if (stream != null)
+		{
+			try
+			{
+				stream.close();
+			}
+			catch (IOException ignore){}
+		}
+	}
+
 	/**
 	 * Builds a class from a json string input
 	 *
@@ -0,0 +1,46 @@
+package com.cube.storm.language.lib.processor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.language.data.Language;
+import com.cube.storm.util.lib.processor.GsonProcessor;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+
+import java.lang.reflect.Type;
+
+/**
+ * Storm {@link GsonProcessor} for inflating a language file into a {@link Language} object, for code that registers
+ * language processors with other Storm modules.
+ * <p/>
+ * {@link LanguageProcessor} lives in the core module, which has no Storm dependencies, so it is a plain
+ * {@link com.google.gson.JsonDeserializer} and no longer a {@code GsonProcessor<Language>}. This wraps it, and
+ * {@link com.cube.storm.language.lib.parser.LanguageBuilder} registers it for {@link Language}.
+ *
+ * @project LightningLanguage
+ */
+public class LanguageGsonProcessor extends GsonProcessor<Language>
+{
+	@NonNull private final LanguageProcessor processor;
+
+	public LanguageGsonProcessor()
+	{
+		this(new LanguageProcessor());
+	}
+
+	/**
+	 * @param processor The processor to inflate languages with
+	 */
+	public LanguageGsonProcessor(@NonNull LanguageProcessor processor)
+	{
+		this.processor = processor;
+	}
+
+	@Nullable
+	@Override public Language deserialize(JsonElement jsonElement, Type type, JsonDeserializationContext jsonDeserializationContext) throws JsonParseException
+	{
+		return processor.deserialize(jsonElement, type, jsonDeserializationContext);
+	}
+}
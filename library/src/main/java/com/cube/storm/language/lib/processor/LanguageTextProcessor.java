@@ -10,12 +10,34 @@ import com.cube.storm.util.lib.processor.Processor;
  * if one is set.
  * <p/>
  * This class should be included with your LightningUi settings module by using the {@code textProcessor(Processor)} method in {@code UiSettings}
+ * <p/>
+ * Pass a {@link LocalisedBundleCache} to read pre-localised text for the current content bundle instead of looking up
+ * each key as the page is built.
  *
  * @author Callum Taylor
  * @project LightningLanguage
  */
 public class LanguageTextProcessor extends Processor<String, String>
 {
+	/**
+	 * Optional cache of the localised text of the current bundle
+	 */
+	@Nullable private final LocalisedBundleCache bundleCache;
+
+	public LanguageTextProcessor()
+	{
+		this(null);
+	}
+
+	/**
+	 * @param bundleCache The cache of the localised text of the current bundle. Keys that are not in the cache are looked up
+	 * as normal.
+	 */
+	public LanguageTextProcessor(@Nullable LocalisedBundleCache bundleCache)
+	{
+		this.bundleCache = bundleCache;
+	}
+
 	/**
 	 * Processes a string (as a key) and finds the value from the {@link com.cube.storm.language.lib.manager.LanguageManager}.
 	 *
@@ -30,6 +52,16 @@ public class LanguageTextProcessor extends Processor<String, String>
 			return "";
 		}
 
+		if (bundleCache != null)
+		{
+			String value = bundleCache.get(input);
+
+			if (value != null)
+			{
+				return value;
+			}
+		}
+
 		return LanguageSettings.getInstance().getLanguageManager().getValue(input);
 	}
 }
@@ -0,0 +1,380 @@
+package com.cube.storm.language.lib.processor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.cube.storm.LanguageSettings;
+import com.cube.storm.language.data.FrontCodedKeys;
+import com.cube.storm.language.lib.manager.LanguageManager;
+import com.cube.storm.language.lib.manager.TrimTier;
+import com.cube.storm.language.lib.manager.Trimmable;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import lombok.Getter;
+
+/**
+ * Cache of the localised text of a content bundle, for use with {@link LanguageTextProcessor}.
+ * <p/>
+ * For a given bundle and pair of languages, the text of a page never changes, so rather than looking up every text element
+ * each time a page is built, the keys referenced by the bundle are resolved once, in parallel, into a {@link Table} of
+ * key to localised string. The table is tied to the bundle version and to {@link LanguageSettings#getLanguageGeneration()},
+ * it is ignored as soon as either language is replaced, and only rebuilt by {@link #prepare(String, Collection)} when the
+ * bundle version or the languages have changed.
+ * <p/>
+ * Example
+ * <pre>
+ LocalisedBundleCache bundleCache = new LocalisedBundleCache();
+
+ uiSettings = new UiSettings.Builder(this)
+	.textProcessor(new LanguageTextProcessor(bundleCache))
+	.build();
+
+ // In the content pipeline, on a background thread, once a bundle has been downloaded
+ Set&lt;String&gt; keys = new HashSet&lt;String&gt;();
+ for (File page : pages)
+ {
+ 	LocalisedBundleCache.collectKeys(new FileInputStream(page), keys);
+ }
+
+ bundleCache.prepare(bundleVersion, keys);
+ * </pre>
+ *
+ * @project LightningLanguage
+ */
+public class LocalisedBundleCache implements Trimmable
+{
+	/**
+	 * Strings longer than this are not considered to be language keys
+	 */
+	private static final int MAX_KEY_LENGTH = 256;
+
+	/**
+	 * Number of keys below which a resolve task is not split any further
+	 */
+	private static final int RESOLVE_THRESHOLD = 512;
+
+	/**
+	 * Rough per-string overhead used when estimating the size of a table
+	 */
+	private static final int STRING_OVERHEAD = 32;
+
+	private static ForkJoinPool pool;
+
+	/**
+	 * Immutable table of key to localised string for a bundle version and language generation
+	 */
+	public static class Table
+	{
+		@Getter private final String bundleVersion;
+		@Getter private final int languageGeneration;
+		private final FrontCodedKeys keys;
+		private final String[] values;
+
+		protected Table(@NonNull String bundleVersion, int languageGeneration, @NonNull FrontCodedKeys keys, @NonNull String[] values)
+		{
+			this.bundleVersion = bundleVersion;
+			this.languageGeneration = languageGeneration;
+			this.keys = keys;
+			this.values = values;
+		}
+
+		/**
+		 * @param key The key to look up
+		 *
+		 * @return The localised string, or null if the key is not in the table
+		 */
+		@Nullable
+		public String get(@NonNull String key)
+		{
+			int ordinal = keys.indexOf(key);
+			return ordinal < 0 ? null : values[ordinal];
+		}
+
+		/**
+		 * @return The number of keys in the table
+		 */
+		public int size()
+		{
+			return keys.size();
+		}
+	}
+
+	/**
+	 * The table of the current bundle
+	 */
+	@Nullable private volatile Table table;
+
+	/**
+	 * Collects the candidate text keys from a bundle JSON file. Every string value that could be a key is collected, the
+	 * ones that are not in either language are dropped when the table is built.
+	 *
+	 * @param json The JSON file to read. The stream is closed when done.
+	 * @param keys The collection to add the keys to
+	 *
+	 * @throws IOException If the file could not be read or is not valid JSON
+	 */
+	public static void collectKeys(@NonNull InputStream json, @NonNull Collection<String> keys) throws IOException
+	{
+		JsonReader reader = new JsonReader(new InputStreamReader(json, "UTF-8"));
+
+		try
+		{
+			int depth = 0;
+
+			do
+			{
+				JsonToken token = reader.peek();
+
+				switch (token)
+				{
+					case BEGIN_OBJECT:
+						reader.beginObject();
+						depth++;
+						break;
+
+					case END_OBJECT:
+						reader.endObject();
+						depth--;
+						break;
+
+					case BEGIN_ARRAY:
+						reader.beginArray();
+						depth++;
+						break;
+
+					case END_ARRAY:
+						reader.endArray();
+						depth--;
+						break;
+
+					case NAME:
+						reader.nextName();
+						break;
+
+					case STRING:
+						String value = reader.nextString();
+
+						if (isCandidateKey(value))
+						{
+							keys.add(value);
+						}
+						break;
+
+					case END_DOCUMENT:
+						return;
+
+					default:
+						reader.skipValue();
+				}
+			}
+			while (depth > 0);
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * @param value The string to check
+	 *
+	 * @return true if the string could be a language key
+	 */
+	private static boolean isCandidateKey(@NonNull String value)
+	{
+		int length = value.length();
+
+		if (length == 0 || length > MAX_KEY_LENGTH)
+		{
+			return false;
+		}
+
+		for (int index = 0; index < length; index++)
+		{
+			if (Character.isWhitespace(value.charAt(index)))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Builds the table for a bundle, unless the current table is already for the same bundle version and languages. Keys
+	 * are resolved in parallel with {@link LanguageManager#resolveValue(String)}, keys with no value are left out.
+	 * <p/>
+	 * This blocks until the table is built and should be called from a background thread.
+	 *
+	 * @param bundleVersion The version of the bundle, for example its timestamp
+	 * @param keys The candidate keys referenced by the bundle, see {@link #collectKeys(InputStream, Collection)}
+	 *
+	 * @return The table
+	 */
+	@NonNull
+	public Table prepare(@NonNull String bundleVersion, @NonNull Collection<String> keys)
+	{
+		int generation = LanguageSettings.getInstance().getLanguageGeneration();
+		Table current = table;
+
+		if (current != null && current.languageGeneration == generation && current.bundleVersion.equals(bundleVersion))
+		{
+			return current;
+		}
+
+		FrontCodedKeys candidates = FrontCodedKeys.build(keys);
+		String[] values = new String[candidates.size()];
+
+		getPool().invoke(new ResolveTask(LanguageSettings.getInstance().getLanguageManager(), candidates, values, 0, values.length));
+
+		List<String> resolvedKeys = new ArrayList<String>(values.length);
+		List<String> resolvedValues = new ArrayList<String>(values.length);
+
+		for (int ordinal = 0; ordinal < values.length; ordinal++)
+		{
+			if (values[ordinal] != null && !values[ordinal].isEmpty())
+			{
+				resolvedKeys.add(candidates.get(ordinal));
+				resolvedValues.add(values[ordinal]);
+			}
+		}
+
+		Table built;
+
+		if (resolvedKeys.size() == values.length)
+		{
+			built = new Table(bundleVersion, generation, candidates, values);
+		}
+		else
+		{
+			// Keys are still in sorted order, so the ordinals of the rebuilt set match the resolved values
+			built = new Table(bundleVersion, generation, FrontCodedKeys.build(resolvedKeys), resolvedValues.toArray(new String[resolvedValues.size()]));
+		}
+
+		table = built;
+		return built;
+	}
+
+	/**
+	 * Gets the localised string of a key from the current table
+	 *
+	 * @param key The key to look up
+	 *
+	 * @return The localised string, or null if there is no current table for the loaded languages, or the key is not in it
+	 */
+	@Nullable
+	public String get(@NonNull String key)
+	{
+		Table current = table;
+
+		if (current == null || current.languageGeneration != LanguageSettings.getInstance().getLanguageGeneration())
+		{
+			return null;
+		}
+
+		return current.get(key);
+	}
+
+	/**
+	 * @return The current table, or null if none has been built. The table may be for a previous language generation.
+	 */
+	@Nullable
+	public Table getTable()
+	{
+		return table;
+	}
+
+	/**
+	 * Drops the current table
+	 */
+	public void invalidate()
+	{
+		table = null;
+	}
+
+	/**
+	 * Drops the current table at {@link TrimTier#CACHES}. Register the cache with
+	 * {@link com.cube.storm.language.lib.manager.MemoryTrimmer#register(Trimmable)} to release it under memory pressure.
+	 *
+	 * @param tier The tier to release
+	 *
+	 * @return The estimated number of bytes released
+	 */
+	@Override public long trim(@NonNull TrimTier tier)
+	{
+		Table current = table;
+
+		if (tier != TrimTier.CACHES || current == null)
+		{
+			return 0;
+		}
+
+		long released = current.keys.getEncodedSize() + current.values.length * 4L;
+
+		for (String value : current.values)
+		{
+			released += value == null ? 0 : STRING_OVERHEAD + value.length() * 2;
+		}
+
+		table = null;
+		return released;
+	}
+
+	@NonNull
+	private static synchronized ForkJoinPool getPool()
+	{
+		if (pool == null)
+		{
+			pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+		}
+
+		return pool;
+	}
+
+	/**
+	 * Resolves a range of keys, splitting the range in half until it is below {@link #RESOLVE_THRESHOLD}
+	 */
+	private static class ResolveTask extends RecursiveAction
+	{
+		private final LanguageManager manager;
+		private final FrontCodedKeys keys;
+		private final String[] values;
+		private final int start;
+		private final int end;
+
+		ResolveTask(@NonNull LanguageManager manager, @NonNull FrontCodedKeys keys, @NonNull String[] values, int start, int end)
+		{
+			this.manager = manager;
+			this.keys = keys;
+			this.values = values;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override protected void compute()
+		{
+			if (end - start <= RESOLVE_THRESHOLD)
+			{
+				for (int ordinal = start; ordinal < end; ordinal++)
+				{
+					values[ordinal] = manager.resolveValue(keys.get(ordinal));
+				}
+
+				return;
+			}
+
+			int middle = (start + end) >>> 1;
+			invokeAll(new ResolveTask(manager, keys, values, start, middle), new ResolveTask(manager, keys, values, middle, end));
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.cube.storm.language.lib.trace;
+
+import android.os.Trace;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Tracer which emits spans as {@link Trace} sections, so they show up in systrace and Perfetto captures of the app.
+ * Set it with {@link com.cube.storm.LanguageSettings.Builder#tracer(Tracer)}.
+ * <p/>
+ * The platform trace API only takes a section name, so span attributes are ignored. Use {@link ChromeTraceTracer} to
+ * record them.
+ *
+ * @project LightningLanguage
+ */
+public class PlatformTracer implements Tracer
+{
+	/**
+	 * Maximum length of a section name accepted by {@link Trace#beginSection(String)}
+	 */
+	private static final int MAX_NAME_LENGTH = 127;
+
+	/**
+	 * Holds no state, so the same span is returned for every section
+	 */
+	private static final Span SECTION = new Span()
+	{
+		@NonNull @Override public Span attribute(@NonNull String name, @Nullable String value)
+		{
+			return this;
+		}
+
+		@NonNull @Override public Span attribute(@NonNull String name, long value)
+		{
+			return this;
+		}
+
+		@Override public void end()
+		{
+			Trace.endSection();
+		}
+	};
+
+	@NonNull @Override public Span beginSpan(@NonNull String name)
+	{
+		Trace.beginSection(name.length() > MAX_NAME_LENGTH ? name.substring(0, MAX_NAME_LENGTH) : name);
+		return SECTION;
+	}
+}
@@ -0,0 +1,674 @@
+package com.cube.storm.language.lib.helper;
+
+import android.app.Activity;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.SubMenu;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.PopupMenu;
+import android.widget.TextView;
+import android.widget.ToggleButton;
+import androidx.preference.Preference;
+import androidx.preference.PreferenceCategory;
+import androidx.preference.PreferenceManager;
+import androidx.preference.PreferenceScreen;
+import com.cube.storm.LanguageSettings;
+import com.cube.storm.language.data.Language;
+import com.cube.storm.language.data.LanguageKeyIndex;
+import com.cube.storm.language.lib.processor.Mapping;
+
+import org.robolectric.Robolectric;
+
+import java.io.CharArrayWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Benchmarks every {@link LocalisationHelper} overload against synthetic view hierarchies, and checks the results against
+ * per-view time and allocation budgets.
+ * <p/>
+ * Each size builds a hierarchy of roughly that many views, made of rows of {@link TextView}, {@link EditText} and
+ * {@link ToggleButton}, along with a {@link Menu} and a {@link PreferenceScreen} of the same size. A synthetic language
+ * with a key for every view replaces the default language while the benchmark runs.
+ * <p/>
+ * Allocations are read from the JVM's per-thread allocation counter, and are reported as -1 when it is not available.
+ * <p/>
+ * Driven by {@link LocalisationBenchmarkTest}, which fails when a case regresses past its budget.
+ *
+ * @project LightningLanguage
+ */
+public class LocalisationBenchmark
+{
+	/**
+	 * Time and allocation budget of a case, per view or key
+	 */
+	public static class Budget
+	{
+		public final long maxNanos;
+		public final long maxBytes;
+
+		public Budget(long maxNanos, long maxBytes)
+		{
+			this.maxNanos = maxNanos;
+			this.maxBytes = maxBytes;
+		}
+	}
+
+	/**
+	 * Result of a case at a given size. Times and allocations are of the fastest iteration.
+	 */
+	public static class Result
+	{
+		public final String name;
+		public final int size;
+		public final long nanos;
+		public final long bytes;
+
+		public Result(String name, int size, long nanos, long bytes)
+		{
+			this.name = name;
+			this.size = size;
+			this.nanos = nanos;
+			this.bytes = bytes;
+		}
+
+		public long getNanosPerView()
+		{
+			return nanos / size;
+		}
+
+		public long getBytesPerView()
+		{
+			return bytes < 0 ? -1 : bytes / size;
+		}
+
+		@Override public String toString()
+		{
+			return String.format(Locale.ENGLISH, "%-34s %6d  %9.3fms  %6dns/view  %6dB/view", name, size, nanos / 1e6, getNanosPerView(), getBytesPerView());
+		}
+	}
+
+	/**
+	 * A single benchmark case. {@link #setUp()} is not timed.
+	 */
+	private abstract static class Case
+	{
+		final String name;
+
+		Case(String name)
+		{
+			this.name = name;
+		}
+
+		void setUp(){}
+
+		abstract void run() throws Exception;
+	}
+
+	private static final String ROW_TEXT = "_BENCH_ROW_TEXT";
+	private static final String ROW_HINT = "_BENCH_ROW_HINT";
+	private static final String ROW_ON = "_BENCH_ROW_ON";
+	private static final String ROW_OFF = "_BENCH_ROW_OFF";
+
+	/**
+	 * Views per row of the synthetic hierarchy, the row and its three children
+	 */
+	private static final int VIEWS_PER_ROW = 4;
+
+	private final Activity activity;
+	private final Map<String, Budget> budgets = new HashMap<String, Budget>();
+	private Budget defaultBudget = new Budget(100000, 4096);
+	private int iterations = 5;
+
+	public LocalisationBenchmark(Activity activity)
+	{
+		this.activity = activity;
+	}
+
+	/**
+	 * Sets the budget of a case
+	 *
+	 * @param name The name of the case, as in {@link Result#name}
+	 * @param maxNanos The maximum time per view, in nanoseconds
+	 * @param maxBytes The maximum allocation per view, in bytes
+	 *
+	 * @return The benchmark for chaining
+	 */
+	public LocalisationBenchmark budget(String name, long maxNanos, long maxBytes)
+	{
+		budgets.put(name, new Budget(maxNanos, maxBytes));
+		return this;
+	}
+
+	/**
+	 * Sets the budget used for cases without their own budget
+	 *
+	 * @param maxNanos The maximum time per view, in nanoseconds
+	 * @param maxBytes The maximum allocation per view, in bytes
+	 *
+	 * @return The benchmark for chaining
+	 */
+	public LocalisationBenchmark defaultBudget(long maxNanos, long maxBytes)
+	{
+		defaultBudget = new Budget(maxNanos, maxBytes);
+		return this;
+	}
+
+	/**
+	 * Sets the number of timed iterations of each case, after one warm up iteration
+	 *
+	 * @param iterations The number of iterations
+	 *
+	 * @return The benchmark for chaining
+	 */
+	public LocalisationBenchmark iterations(int iterations)
+	{
+		this.iterations = Math.max(1, iterations);
+		return this;
+	}
+
+	/**
+	 * Runs every case at each size. Must be called on the main thread.
+	 *
+	 * @param sizes The approximate number of views of each hierarchy, for example 100, 1000 and 10000
+	 *
+	 * @return The results
+	 */
+	public List<Result> run(int... sizes)
+	{
+		int maxSize = 0;
+		for (int size : sizes)
+		{
+			maxSize = Math.max(maxSize, size);
+		}
+
+		LanguageSettings settings = LanguageSettings.getInstance();
+		Language defaultLanguage = settings.getDefaultLanguage();
+		Language localeLanguage = settings.getLocaleLanguage();
+		LanguageKeyIndex keyIndex = settings.getKeyIndex();
+
+		List<Result> results = new ArrayList<Result>();
+
+		try
+		{
+			String[] keys = createKeys(maxSize);
+			LanguageKeyIndex benchmarkIndex = new LanguageKeyIndex(keys);
+			Language language = createLanguage(keys);
+			language.index(benchmarkIndex);
+
+			settings.setKeyIndex(benchmarkIndex);
+			settings.setDefaultLanguage(language);
+			settings.setLocaleLanguage((Language)null);
+
+			for (int size : sizes)
+			{
+				for (Case benchmarkCase : createCases(keys, size))
+				{
+					results.add(measure(benchmarkCase, size));
+				}
+			}
+		}
+		finally
+		{
+			settings.setKeyIndex(keyIndex);
+			settings.setDefaultLanguage(defaultLanguage);
+			settings.setLocaleLanguage(localeLanguage);
+		}
+
+		return results;
+	}
+
+	/**
+	 * Checks results against their budgets
+	 *
+	 * @param results The results to check
+	 *
+	 * @throws AssertionError Listing every result over its budget
+	 */
+	public void assertWithinBudgets(List<Result> results)
+	{
+		StringBuilder failures = new StringBuilder();
+
+		for (Result result : results)
+		{
+			Budget budget = budgets.containsKey(result.name) ? budgets.get(result.name) : defaultBudget;
+
+			if (result.getNanosPerView() > budget.maxNanos)
+			{
+				failures.append(String.format(Locale.ENGLISH, "%s at %d: %dns/view over budget of %dns/view\n", result.name, result.size, result.getNanosPerView(), budget.maxNanos));
+			}
+
+			if (result.getBytesPerView() > budget.maxBytes)
+			{
+				failures.append(String.format(Locale.ENGLISH, "%s at %d: %dB/view over budget of %dB/view\n", result.name, result.size, result.getBytesPerView(), budget.maxBytes));
+			}
+		}
+
+		if (failures.length() > 0)
+		{
+			throw new AssertionError("Localisation benchmark over budget\n" + failures);
+		}
+	}
+
+	private Result measure(Case benchmarkCase, int size)
+	{
+		long bestNanos = Long.MAX_VALUE;
+		long bestBytes = -1;
+
+		try
+		{
+			for (int iteration = 0; iteration <= iterations; iteration++)
+			{
+				benchmarkCase.setUp();
+
+				long bytes = allocatedBytes();
+				long start = System.nanoTime();
+				benchmarkCase.run();
+				long nanos = System.nanoTime() - start;
+				bytes = bytes < 0 ? -1 : allocatedBytes() - bytes;
+
+				// The first iteration is a warm up
+				if (iteration > 0 && nanos < bestNanos)
+				{
+					bestNanos = nanos;
+					bestBytes = bytes;
+				}
+			}
+		}
+		catch (Exception e)
+		{
+			throw new IllegalStateException(e);
+		}
+
+		return new Result(benchmarkCase.name, size, bestNanos, bestBytes);
+	}
+
+	private List<Case> createCases(final String[] keys, final int size)
+	{
+		final Mapping[] mappings = {new Mapping("VARIABLE", size)};
+		final int rows = Math.max(1, size / VIEWS_PER_ROW);
+		final LinearLayout root = createHierarchy(rows);
+		final List<TextView> textViews = new ArrayList<TextView>();
+		collectTextViews(root, textViews);
+
+		final Menu menu = new PopupMenu(activity, root).getMenu();
+		final PreferenceScreen preferences = new PreferenceManager(activity).createPreferenceScreen(activity);
+		populate(menu, preferences, keys, size);
+
+		final StringBuilder builder = new StringBuilder();
+		final CharArrayWriter writer = new CharArrayWriter();
+		final LayoutInflater inflater = LayoutInflater.from(activity);
+		final LocalisingInflaterFactory factory = new LocalisingInflaterFactory(activity, null);
+		final AttributeSet textAttributes = Robolectric.buildAttributeSet().addAttribute(android.R.attr.text, ROW_TEXT).build();
+		final AttributeSet editAttributes = Robolectric.buildAttributeSet().addAttribute(android.R.attr.hint, ROW_HINT).build();
+		final AttributeSet toggleAttributes = Robolectric.buildAttributeSet()
+			.addAttribute(android.R.attr.textOn, ROW_ON)
+			.addAttribute(android.R.attr.textOff, ROW_OFF)
+			.build();
+
+		List<Case> cases = new ArrayList<Case>();
+
+		cases.add(new Case("localise(String)")
+		{
+			@Override void run()
+			{
+				for (int index = 0; index < size; index++)
+				{
+					LocalisationHelper.localise(keys[index], mappings);
+				}
+			}
+		});
+
+		cases.add(new Case("localise(StringBuilder, String)")
+		{
+			@Override void run()
+			{
+				for (int index = 0; index < size; index++)
+				{
+					builder.setLength(0);
+					LocalisationHelper.localise(builder, keys[index], mappings);
+				}
+			}
+		});
+
+		cases.add(new Case("localise(Appendable, String)")
+		{
+			@Override void run() throws Exception
+			{
+				for (int index = 0; index < size; index++)
+				{
+					writer.reset();
+					LocalisationHelper.localise(writer, keys[index], mappings);
+				}
+			}
+		});
+
+		cases.add(new Case("localiseBuffered(String)")
+		{
+			@Override void run()
+			{
+				for (int index = 0; index < size; index++)
+				{
+					LocalisationHelper.localiseBuffered(keys[index], mappings);
+				}
+			}
+		});
+
+		cases.add(new Case("localise(int)")
+		{
+			@Override void run()
+			{
+				for (int index = 0; index < size; index++)
+				{
+					LocalisationHelper.localise(index, mappings);
+				}
+			}
+		});
+
+		cases.add(new Case("localise(TextView, String)")
+		{
+			@Override void run()
+			{
+				for (int index = 0; index < textViews.size(); index++)
+				{
+					LocalisationHelper.localise(textViews.get(index), keys[index], mappings);
+				}
+			}
+		});
+
+		cases.add(new Case("localise(TextView, int)")
+		{
+			@Override void run()
+			{
+				for (int index = 0; index < textViews.size(); index++)
+				{
+					LocalisationHelper.localise(textViews.get(index), index, mappings);
+				}
+			}
+		});
+
+		cases.add(new Case("localise(ViewGroup)")
+		{
+			@Override void setUp()
+			{
+				resetViews(textViews);
+			}
+
+			@Override void run()
+			{
+				LocalisationHelper.localise(root, mappings);
+			}
+		});
+
+		cases.add(new Case("localise(Activity)")
+		{
+			@Override void setUp()
+			{
+				resetViews(textViews);
+
+				if (root.getParent() == null)
+				{
+					activity.setContentView(root);
+				}
+			}
+
+			@Override void run()
+			{
+				LocalisationHelper.localise(activity, mappings);
+			}
+		});
+
+		cases.add(new Case("localise(Menu)")
+		{
+			@Override void setUp()
+			{
+				populate(menu, null, keys, size);
+			}
+
+			@Override void run()
+			{
+				LocalisationHelper.localise(menu, mappings);
+			}
+		});
+
+		cases.add(new Case("localise(Preference)")
+		{
+			@Override void setUp()
+			{
+				populate(null, preferences, keys, size);
+			}
+
+			@Override void run()
+			{
+				LocalisationHelper.localise(preferences, mappings);
+			}
+		});
+
+		// Rows are created the way LayoutInflater creates the views of a layout, from their name and attributes
+		cases.add(new Case("create + localise(View)")
+		{
+			@Override void run() throws Exception
+			{
+				for (int row = 0; row < rows; row++)
+				{
+					LinearLayout container = new LinearLayout(activity);
+					container.addView(inflater.createView("TextView", "android.widget.", textAttributes));
+					container.addView(inflater.createView("EditText", "android.widget.", editAttributes));
+					container.addView(inflater.createView("ToggleButton", "android.widget.", toggleAttributes));
+					LocalisationHelper.localise(container, mappings);
+				}
+			}
+		});
+
+		cases.add(new Case("create with LocalisingInflaterFactory")
+		{
+			@Override void run()
+			{
+				for (int row = 0; row < rows; row++)
+				{
+					LinearLayout container = new LinearLayout(activity);
+					container.addView(factory.onCreateView(container, "TextView", activity, textAttributes));
+					container.addView(factory.onCreateView(container, "EditText", activity, editAttributes));
+					container.addView(factory.onCreateView(container, "ToggleButton", activity, toggleAttributes));
+				}
+			}
+		});
+
+		return cases;
+	}
+
+	/**
+	 * Creates the keys of the synthetic language, including the keys of the created rows
+	 */
+	private static String[] createKeys(int size)
+	{
+		String[] keys = new String[size + 4];
+
+		for (int index = 0; index < size; index++)
+		{
+			keys[index] = "_BENCH_KEY_" + index;
+		}
+
+		keys[size] = ROW_TEXT;
+		keys[size + 1] = ROW_HINT;
+		keys[size + 2] = ROW_ON;
+		keys[size + 3] = ROW_OFF;
+
+		return keys;
+	}
+
+	private static Language createLanguage(String[] keys)
+	{
+		Map<String, String> values = new HashMap<String, String>(keys.length * 2);
+
+		for (int index = 0; index < keys.length; index++)
+		{
+			values.put(keys[index], index % 4 == 0 ? "Value " + index + " of {VARIABLE}" : "Value " + index);
+		}
+
+		Language language = new Language();
+		language.setSourceUri("benchmark://language");
+		language.setValues(values);
+
+		return language;
+	}
+
+	/**
+	 * Creates rows of a {@link TextView}, {@link EditText} and {@link ToggleButton}, with their text set to keys
+	 */
+	private LinearLayout createHierarchy(int rows)
+	{
+		LinearLayout root = new LinearLayout(activity);
+		root.setOrientation(LinearLayout.VERTICAL);
+
+		for (int row = 0; row < rows; row++)
+		{
+			LinearLayout container = new LinearLayout(activity);
+			container.addView(new TextView(activity));
+			container.addView(new EditText(activity));
+			container.addView(new ToggleButton(activity));
+			root.addView(container);
+		}
+
+		List<TextView> textViews = new ArrayList<TextView>();
+		collectTextViews(root, textViews);
+		resetViews(textViews);
+
+		return root;
+	}
+
+	private static void collectTextViews(View view, List<TextView> textViews)
+	{
+		if (view instanceof TextView)
+		{
+			textViews.add((TextView)view);
+		}
+		else if (view instanceof LinearLayout)
+		{
+			LinearLayout group = (LinearLayout)view;
+
+			for (int index = 0; index < group.getChildCount(); index++)
+			{
+				collectTextViews(group.getChildAt(index), textViews);
+			}
+		}
+	}
+
+	/**
+	 * Sets the text, hints and on/off labels of the views back to their keys
+	 */
+	private static void resetViews(List<TextView> textViews)
+	{
+		for (int index = 0; index < textViews.size(); index++)
+		{
+			TextView textView = textViews.get(index);
+			textView.setText("_BENCH_KEY_" + index);
+
+			if (textView instanceof EditText)
+			{
+				textView.setHint(ROW_HINT);
+			}
+			else if (textView instanceof ToggleButton)
+			{
+				((ToggleButton)textView).setTextOn(ROW_ON);
+				((ToggleButton)textView).setTextOff(ROW_OFF);
+			}
+		}
+	}
+
+	/**
+	 * Fills, or resets, a menu with one submenu per 10 items and a preference screen with one category per 10 preferences
+	 */
+	private static void populate(Menu menu, PreferenceScreen preferences, String[] keys, int size)
+	{
+		if (menu != null)
+		{
+			if (menu.size() == 0)
+			{
+				SubMenu subMenu = null;
+
+				for (int index = 0; index < size; index++)
+				{
+					if (index % 10 == 0)
+					{
+						subMenu = menu.addSubMenu(keys[index]);
+					}
+					else
+					{
+						subMenu.add(keys[index]);
+					}
+				}
+			}
+			else
+			{
+				int index = 0;
+
+				for (int item = 0; item < menu.size(); item++)
+				{
+					menu.getItem(item).setTitle(keys[index++]);
+					SubMenu subMenu = menu.getItem(item).getSubMenu();
+
+					for (int subItem = 0; subMenu != null && subItem < subMenu.size(); subItem++)
+					{
+						subMenu.getItem(subItem).setTitle(keys[index++]);
+					}
+				}
+			}
+		}
+
+		if (preferences != null)
+		{
+			if (preferences.getPreferenceCount() == 0)
+			{
+				PreferenceCategory category = null;
+
+				for (int index = 0; index < size; index++)
+				{
+					if (index % 10 == 0)
+					{
+						category = new PreferenceCategory(preferences.getContext());
+						preferences.addPreference(category);
+					}
+
+					category.addPreference(new Preference(preferences.getContext()));
+				}
+			}
+
+			int index = 0;
+
+			for (int group = 0; group < preferences.getPreferenceCount(); group++)
+			{
+				PreferenceCategory category = (PreferenceCategory)preferences.getPreference(group);
+				category.setTitle(keys[index]);
+
+				for (int child = 0; child < category.getPreferenceCount(); child++)
+				{
+					category.getPreference(child).setTitle(keys[index]);
+					category.getPreference(child).setSummary(keys[index++]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of bytes allocated so far by the current thread
+	 *
+	 * @return The number of bytes, or -1 if not available
+	 */
+	private static long allocatedBytes()
+	{
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)
+		{
+			return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+
+		return -1;
+	}
+}
@@ -0,0 +1,94 @@
+package com.cube.storm.language.lib.helper;
+
+import android.app.Activity;
+import android.net.Uri;
+
+import com.cube.storm.LanguageSettings;
+import com.cube.storm.language.data.Language;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Runs every {@link LocalisationBenchmark} case once as a smoke test. The budget test, which runs the cases on hierarchies
+ * of 100, 1k and 10k views and fails when one is over its budget, is skipped unless a {@code benchmark.localisation.*}
+ * property is set.
+ * <p/>
+ * Budgets are per view, and can be set with:
+ * <ul>
+ *     <li>{@code -Dbenchmark.localisation.maxNanos} and {@code -Dbenchmark.localisation.maxBytes} for every case, which
+ *     default to 250000ns and 16384 bytes</li>
+ *     <li>{@code -Dbenchmark.localisation.budget.<case>=<nanos>,<bytes>} for a single case, for example
+ *     {@code "-Dbenchmark.localisation.budget.localise(Menu)=50000,2048"}</li>
+ *     <li>{@code -Dbenchmark.localisation.iterations} for the number of timed iterations of each case, which defaults to 5</li>
+ * </ul>
+ *
+ * @project LightningLanguage
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LocalisationBenchmarkTest
+{
+	private static final String PROPERTY_PREFIX = "benchmark.localisation.";
+	private static final String BUDGET_PREFIX = PROPERTY_PREFIX + "budget.";
+
+	private Activity activity;
+
+	@Before public void setUp()
+	{
+		new LanguageSettings.Builder(RuntimeEnvironment.getApplication())
+			.languageUri(Uri.parse("assets://languages/none.json"))
+			.build();
+
+		activity = Robolectric.buildActivity(Activity.class).setup().get();
+	}
+
+	@Test public void runsEveryCaseAndRestoresTheLanguage()
+	{
+		Language language = LanguageSettings.getInstance().getDefaultLanguage();
+
+		List<LocalisationBenchmark.Result> results = new LocalisationBenchmark(activity).iterations(1).run(100);
+
+		assertEquals(13, results.size());
+		assertSame(language, LanguageSettings.getInstance().getDefaultLanguage());
+	}
+
+	@Test public void localisationIsWithinBudget()
+	{
+		boolean enabled = false;
+
+		for (Object name : System.getProperties().keySet())
+		{
+			enabled |= name.toString().startsWith(PROPERTY_PREFIX);
+		}
+
+		assumeTrue("Set a " + PROPERTY_PREFIX + "* property to run the benchmark", enabled);
+
+		LocalisationBenchmark benchmark = new LocalisationBenchmark(activity)
+			.iterations(Integer.getInteger(PROPERTY_PREFIX + "iterations", 5))
+			.defaultBudget(Long.getLong(PROPERTY_PREFIX + "maxNanos", 250000), Long.getLong(PROPERTY_PREFIX + "maxBytes", 16384));
+
+		for (Map.Entry<Object, Object> property : System.getProperties().entrySet())
+		{
+			String name = property.getKey().toString();
+
+			if (name.startsWith(BUDGET_PREFIX))
+			{
+				String[] budget = property.getValue().toString().split(",");
+				benchmark.budget(name.substring(BUDGET_PREFIX.length()), Long.parseLong(budget[0].trim()), Long.parseLong(budget[1].trim()));
+			}
+		}
+
+		benchmark.assertWithinBudgets(benchmark.run(100, 1000, 10000));
+	}
+}
@@ -0,0 +1,95 @@
+package com.cube.storm.language.lib.helper;
+
+import android.net.Uri;
+import android.widget.TextView;
+
+import com.cube.storm.LanguageSettings;
+import com.cube.storm.language.data.Language;
+import com.cube.storm.language.lib.processor.Mapping;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that {@link LocalisationBinder} only skips views that already show the localisation of the same key and mappings
+ *
+ * @project LightningLanguage
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LocalisationBinderTest
+{
+	private TextView textView;
+
+	@Before public void setUp()
+	{
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("_GREETING", "Hello {NAME}");
+		values.put("_COUNT", "{COUNT} items");
+
+		Language language = new Language();
+		language.setValues(values);
+
+		new LanguageSettings.Builder(RuntimeEnvironment.getApplication())
+			.languageUri(Uri.parse("assets://languages/none.json"))
+			.build()
+			.setDefaultLanguage(language);
+
+		textView = new TextView(RuntimeEnvironment.getApplication());
+	}
+
+	@Test public void skipsTheSameKeyAndMappings()
+	{
+		assertTrue(LocalisationBinder.bind(textView, "_GREETING", new Mapping("NAME", "Alex")));
+		assertFalse(LocalisationBinder.bind(textView, "_GREETING", new Mapping("NAME", "Alex")));
+		assertEquals("Hello Alex", textView.getText().toString());
+	}
+
+	@Test public void rebindsMappingsWithTheSameFingerprint()
+	{
+		// "Aa" and "BB" have the same String hash code
+		assertEquals(Mapping.fingerprint(new Mapping[]{new Mapping("NAME", "Aa")}), Mapping.fingerprint(new Mapping[]{new Mapping("NAME", "BB")}));
+
+		LocalisationBinder.bind(textView, "_GREETING", new Mapping("NAME", "Aa"));
+
+		assertTrue(LocalisationBinder.bind(textView, "_GREETING", new Mapping("NAME", "BB")));
+		assertEquals("Hello BB", textView.getText().toString());
+	}
+
+	@Test public void rebindsDifferentPrimitiveValues()
+	{
+		LocalisationBinder.bind(textView, "_COUNT", new Mapping("COUNT", 0L));
+
+		assertTrue(LocalisationBinder.bind(textView, "_COUNT", new Mapping("COUNT", -1L)));
+		assertEquals("-1 items", textView.getText().toString());
+	}
+
+	@Test public void rebindsAReusedArrayWithAChangedMapping()
+	{
+		Mapping[] mappings = {new Mapping("NAME", "Alex")};
+		LocalisationBinder.bind(textView, "_GREETING", mappings);
+
+		mappings[0] = new Mapping("NAME", "Sam");
+
+		assertTrue(LocalisationBinder.bind(textView, "_GREETING", mappings));
+		assertEquals("Hello Sam", textView.getText().toString());
+	}
+
+	@Test public void rebindsTextSetElsewhere()
+	{
+		LocalisationBinder.bind(textView, "_GREETING", new Mapping("NAME", "Alex"));
+		textView.setText("Other");
+
+		assertTrue(LocalisationBinder.bind(textView, "_GREETING", new Mapping("NAME", "Alex")));
+		assertEquals("Hello Alex", textView.getText().toString());
+	}
+}
@@ -0,0 +1,192 @@
+package com.cube.storm.language.lib.helper;
+
+import android.app.Activity;
+import android.content.Context;
+import android.net.Uri;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.TextView;
+import android.widget.ToggleButton;
+
+import com.cube.storm.LanguageSettings;
+import com.cube.storm.language.data.Language;
+import com.cube.storm.language.lib.annotation.Localise;
+import com.cube.storm.language.lib.processor.Mapping;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.AttributeSetBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that {@link LocalisingInflaterFactory} localises views as they are created
+ *
+ * @project LightningLanguage
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LocalisingInflaterFactoryTest
+{
+	private Context context;
+
+	/**
+	 * Object with a {@link Localise} tagged field, used as the mapping source of a factory
+	 */
+	private static class Screen
+	{
+		@Localise("NAME") private String name = "Sam";
+	}
+
+	@Before public void setUp()
+	{
+		context = RuntimeEnvironment.getApplication();
+
+		Map<String, String> values = new HashMap<String, String>();
+		values.put("_TITLE", "Title");
+		values.put("_GREETING", "Hello {NAME}");
+		values.put("_HINT", "Hint");
+		values.put("_ON", "On");
+		values.put("_OFF", "Off");
+
+		Language language = new Language();
+		language.setValues(values);
+
+		new LanguageSettings.Builder(context)
+			.languageUri(Uri.parse("assets://languages/none.json"))
+			.build()
+			.setDefaultLanguage(language);
+	}
+
+	@Test public void localisesTextViewsAsTheyAreCreated()
+	{
+		View view = new LocalisingInflaterFactory(null, null).onCreateView(null, "TextView", context, attributes("_TITLE", null));
+
+		assertTrue(view instanceof TextView);
+		assertEquals("Title", ((TextView)view).getText().toString());
+	}
+
+	@Test public void keepsTheKeyOfAMissingValue()
+	{
+		View view = new LocalisingInflaterFactory(null, null).onCreateView("TextView", context, attributes("_MISSING", null));
+
+		assertEquals("_MISSING", ((TextView)view).getText().toString());
+	}
+
+	@Test public void rendersMappingsAndTaggedFields()
+	{
+		AttributeSet attrs = attributes("_GREETING", null);
+
+		View mapped = new LocalisingInflaterFactory(null, null, new Mapping("NAME", "Alex")).onCreateView("TextView", context, attrs);
+		View tagged = new LocalisingInflaterFactory(new Screen(), null).onCreateView("TextView", context, attrs);
+
+		assertEquals("Hello Alex", ((TextView)mapped).getText().toString());
+		assertEquals("Hello Sam", ((TextView)tagged).getText().toString());
+	}
+
+	@Test public void localisesEditTextHints()
+	{
+		View view = new LocalisingInflaterFactory(null, null).onCreateView("EditText", context, attributes("_TITLE", "_HINT"));
+
+		assertTrue(view instanceof EditText);
+		assertEquals("Title", ((EditText)view).getText().toString());
+		assertEquals("Hint", ((EditText)view).getHint().toString());
+	}
+
+	@Test public void localisesToggleButtonLabels()
+	{
+		AttributeSet attrs = Robolectric.buildAttributeSet()
+			.addAttribute(android.R.attr.textOn, "_ON")
+			.addAttribute(android.R.attr.textOff, "_OFF")
+			.build();
+
+		ToggleButton view = (ToggleButton)new LocalisingInflaterFactory(null, null).onCreateView("ToggleButton", context, attrs);
+
+		assertEquals("On", view.getTextOn().toString());
+		assertEquals("Off", view.getTextOff().toString());
+	}
+
+	@Test public void createsFullyQualifiedViews()
+	{
+		View view = new LocalisingInflaterFactory(null, null).onCreateView("android.widget.TextView", context, attributes("_TITLE", null));
+
+		assertEquals("Title", ((TextView)view).getText().toString());
+	}
+
+	@Test public void leavesUnknownViewsToTheInflater()
+	{
+		assertNull(new LocalisingInflaterFactory(null, null).onCreateView("NotAView", context, attributes("_TITLE", null)));
+	}
+
+	@Test public void localisesViewsCreatedByTheDelegate()
+	{
+		final TextView created = new TextView(context);
+		created.setText("_TITLE");
+
+		LayoutInflater.Factory2 delegate = new LayoutInflater.Factory2()
+		{
+			@Override public View onCreateView(View parent, String name, Context context, AttributeSet attrs)
+			{
+				return created;
+			}
+
+			@Override public View onCreateView(String name, Context context, AttributeSet attrs)
+			{
+				return onCreateView(null, name, context, attrs);
+			}
+		};
+
+		View view = new LocalisingInflaterFactory(null, delegate).onCreateView("TextView", context, attributes("_MISSING", null));
+
+		assertSame(created, view);
+		assertEquals("Title", created.getText().toString());
+	}
+
+	@Test public void installsOnceOnAnActivity()
+	{
+		Activity activity = Robolectric.buildActivity(Activity.class).get();
+
+		LocalisingInflaterFactory factory = LocalisingInflaterFactory.install(activity);
+
+		assertSame(factory, activity.getLayoutInflater().getFactory2());
+		assertSame(factory, LocalisingInflaterFactory.install(activity));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void refusesToReplaceAnotherFactory()
+	{
+		Activity activity = Robolectric.buildActivity(Activity.class).get();
+		activity.getLayoutInflater().setFactory(new LayoutInflater.Factory()
+		{
+			@Override public View onCreateView(String name, Context context, AttributeSet attrs)
+			{
+				return null;
+			}
+		});
+
+		LocalisingInflaterFactory.install(activity);
+	}
+
+	private static AttributeSet attributes(String text, String hint)
+	{
+		AttributeSetBuilder builder = Robolectric.buildAttributeSet().addAttribute(android.R.attr.text, text);
+
+		if (hint != null)
+		{
+			builder.addAttribute(android.R.attr.hint, hint);
+		}
+
+		return builder.build();
+	}
+}